@@ -34,6 +34,7 @@ public final class MappingSpec {
   private String headerEntityGeneratedIdField;
   private boolean hasLines = false;
   private boolean hasBeneficiaryMonthly = false;
+  private boolean hasSamhsaFlag = false;
   private String lineTable;
   private List<String> headerEntityTransientFields;
   private List<RifField> headerEntityAdditionalDatabaseFields;
@@ -173,6 +174,23 @@ public final class MappingSpec {
     return this;
   }
 
+  /**
+   * @return <code>true</code> if the {@link #getHeaderEntity()} is a claim that should be flagged
+   *     as SAMHSA-related (or not) when it's loaded, <code>false</code> if not
+   */
+  public boolean getHasSamhsaFlag() {
+    return hasSamhsaFlag;
+  }
+
+  /**
+   * @param hasSamhsaFlag the new value for {@link #getHasSamhsaFlag()}
+   * @return this {@link MappingSpec} instance, for call-chaining purposes
+   */
+  public MappingSpec setHasSamhsaFlag(boolean hasSamhsaFlag) {
+    this.hasSamhsaFlag = hasSamhsaFlag;
+    return this;
+  }
+
   /** @return the index of the last header field in {@link #getRifLayout()} */
   public int calculateLastHeaderFieldIndex() {
     return hasLines ? (calculateFirstLineFieldIndex() - 1) : (rifLayout.getRifFields().size() - 1);
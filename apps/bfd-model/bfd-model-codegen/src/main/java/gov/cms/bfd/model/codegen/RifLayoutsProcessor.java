@@ -29,6 +29,7 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -39,6 +40,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.processing.AbstractProcessor;
@@ -89,6 +91,20 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
   private static final String DATA_DICTIONARY_LINK =
       "https://bluebutton.cms.gov/resources/variables/";
 
+  private static final String BENEFICIARY_MONTHLY_TABLE = "BeneficiaryMonthly";
+
+  /**
+   * The name of the line entity field that stores its parent claim's beneficiary ID, which is the
+   * same as the name of the claim header field that it's copied from.
+   */
+  private static final String LINE_ENTITY_BENEFICIARY_ID_FIELD = "beneficiaryId";
+
+  /**
+   * The name of the claim header entity field that stores whether or not the claim is
+   * SAMHSA-related, as calculated when it's loaded.
+   */
+  private static final String HEADER_ENTITY_SAMHSA_FLAG_FIELD = "samhsaRelated";
+
   private final List<String> logMessages = new LinkedList<>();
 
   /** @see javax.annotation.processing.AbstractProcessor#getSupportedAnnotationTypes() */
@@ -251,7 +267,8 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
               .setHeaderTable("PartDEvents")
               .setHeaderEntityIdField("eventId")
               .setHasLines(false)
-              .setHasBeneficiaryMonthly(false));
+              .setHasBeneficiaryMonthly(false)
+              .setHasSamhsaFlag(true));
       mappingSpecs.add(
           new MappingSpec(annotatedPackage.getQualifiedName().toString())
               .setRifLayout(RifLayout.parse(spreadsheetWorkbook, annotation.carrierSheet()))
@@ -260,7 +277,8 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
               .setHeaderEntityIdField("claimId")
               .setHasLines(true)
               .setLineTable("CarrierClaimLines")
-              .setHasBeneficiaryMonthly(false));
+              .setHasBeneficiaryMonthly(false)
+              .setHasSamhsaFlag(true));
       mappingSpecs.add(
           new MappingSpec(annotatedPackage.getQualifiedName().toString())
               .setRifLayout(RifLayout.parse(spreadsheetWorkbook, annotation.inpatientSheet()))
@@ -269,7 +287,8 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
               .setHeaderEntityIdField("claimId")
               .setHasLines(true)
               .setLineTable("InpatientClaimLines")
-              .setHasBeneficiaryMonthly(false));
+              .setHasBeneficiaryMonthly(false)
+              .setHasSamhsaFlag(true));
       mappingSpecs.add(
           new MappingSpec(annotatedPackage.getQualifiedName().toString())
               .setRifLayout(RifLayout.parse(spreadsheetWorkbook, annotation.outpatientSheet()))
@@ -278,7 +297,8 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
               .setHeaderEntityIdField("claimId")
               .setHasLines(true)
               .setLineTable("OutpatientClaimLines")
-              .setHasBeneficiaryMonthly(false));
+              .setHasBeneficiaryMonthly(false)
+              .setHasSamhsaFlag(true));
       mappingSpecs.add(
           new MappingSpec(annotatedPackage.getQualifiedName().toString())
               .setRifLayout(RifLayout.parse(spreadsheetWorkbook, annotation.hhaSheet()))
@@ -287,7 +307,8 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
               .setHeaderEntityIdField("claimId")
               .setHasLines(true)
               .setLineTable("HHAClaimLines")
-              .setHasBeneficiaryMonthly(false));
+              .setHasBeneficiaryMonthly(false)
+              .setHasSamhsaFlag(true));
       mappingSpecs.add(
           new MappingSpec(annotatedPackage.getQualifiedName().toString())
               .setRifLayout(RifLayout.parse(spreadsheetWorkbook, annotation.dmeSheet()))
@@ -296,7 +317,8 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
               .setHeaderEntityIdField("claimId")
               .setHasLines(true)
               .setLineTable("DMEClaimLines")
-              .setHasBeneficiaryMonthly(false));
+              .setHasBeneficiaryMonthly(false)
+              .setHasSamhsaFlag(true));
       mappingSpecs.add(
           new MappingSpec(annotatedPackage.getQualifiedName().toString())
               .setRifLayout(RifLayout.parse(spreadsheetWorkbook, annotation.hospiceSheet()))
@@ -305,7 +327,8 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
               .setHeaderEntityIdField("claimId")
               .setHasLines(true)
               .setLineTable("HospiceClaimLines")
-              .setHasBeneficiaryMonthly(false));
+              .setHasBeneficiaryMonthly(false)
+              .setHasSamhsaFlag(true));
       mappingSpecs.add(
           new MappingSpec(annotatedPackage.getQualifiedName().toString())
               .setRifLayout(RifLayout.parse(spreadsheetWorkbook, annotation.snfSheet()))
@@ -314,7 +337,8 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
               .setHeaderEntityIdField("claimId")
               .setHasLines(true)
               .setLineTable("SNFClaimLines")
-              .setHasBeneficiaryMonthly(false));
+              .setHasBeneficiaryMonthly(false)
+              .setHasSamhsaFlag(true));
     } finally {
       if (spreadsheetWorkbook != null) spreadsheetWorkbook.close();
     }
@@ -354,8 +378,9 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
      */
     TypeSpec headerEntity = generateHeaderEntity(mappingSpec);
 
+    Optional<TypeSpec> beneficiaryMonthlyEntity = Optional.empty();
     if (mappingSpec.getHasBeneficiaryMonthly()) {
-      generateBeneficiaryMonthlyEntity(mappingSpec);
+      beneficiaryMonthlyEntity = Optional.of(generateBeneficiaryMonthlyEntity(mappingSpec));
     }
 
     /*
@@ -368,7 +393,7 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
      * Then, create code that can be used to write the JPA Entity out to CSV
      * files, for use with PostgreSQL's copy APIs.
      */
-    generateCsvWriter(mappingSpec, headerEntity, lineEntity);
+    generateCsvWriter(mappingSpec, headerEntity, lineEntity, beneficiaryMonthlyEntity);
   }
 
   /**
@@ -526,7 +551,42 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
             .returns(void.class)
             .addParameter(mappingSpec.getHeaderEntity(), parentClaimField.name);
     addSetterStatement(false, parentClaimField, parentClaimSetter);
+
+    /*
+     * Add a denormalized copy of the parent claim's beneficiary ID, which is kept in sync by the
+     * parent claim's setter. This allows the line tables to be hash-partitioned on the same key as
+     * their claims (see the Partition_claims_by_beneficiary.sql script). It's nullable, as the rows
+     * loaded before it was added aren't backfilled until the tables are partitioned.
+     */
+    RifField beneficiaryIdRifField =
+        rifLayout.getRifFields().stream()
+            .filter(f -> f.getJavaFieldName().equals(LINE_ENTITY_BENEFICIARY_ID_FIELD))
+            .findAny()
+            .get();
+    FieldSpec beneficiaryIdField =
+        FieldSpec.builder(String.class, LINE_ENTITY_BENEFICIARY_ID_FIELD, Modifier.PRIVATE)
+            .addAnnotation(
+                AnnotationSpec.builder(Column.class)
+                    .addMember("name", "$S", "`" + LINE_ENTITY_BENEFICIARY_ID_FIELD + "`")
+                    .addMember("nullable", "$L", true)
+                    .addMember("length", "$L", beneficiaryIdRifField.getRifColumnLength().get())
+                    .build())
+            .build();
+    lineEntity.addField(beneficiaryIdField);
+    parentClaimSetter.addStatement(
+        "this.$N = $N != null ? $N.$L() : null",
+        beneficiaryIdField,
+        parentClaimField,
+        parentClaimField,
+        calculateGetterName(beneficiaryIdField));
     lineEntity.addMethod(parentClaimSetter.build());
+    MethodSpec beneficiaryIdGetter =
+        MethodSpec.methodBuilder(calculateGetterName(beneficiaryIdField))
+            .addModifiers(Modifier.PUBLIC)
+            .addStatement("return $N", beneficiaryIdField)
+            .returns(String.class)
+            .build();
+    lineEntity.addMethod(beneficiaryIdGetter);
 
     // For each "line" RIF field, create an Entity field with accessors.
     for (int fieldIndex = mappingSpec.calculateFirstLineFieldIndex();
@@ -587,7 +647,9 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
     // Create the Entity class.
     AnnotationSpec entityAnnotation = AnnotationSpec.builder(Entity.class).build();
     AnnotationSpec tableAnnotation =
-        AnnotationSpec.builder(Table.class).addMember("name", "$S", "`BeneficiaryMonthly`").build();
+        AnnotationSpec.builder(Table.class)
+            .addMember("name", "$S", "`" + BENEFICIARY_MONTHLY_TABLE + "`")
+            .build();
     TypeSpec.Builder beneficiaryMonthlyEntity =
         TypeSpec.classBuilder("BeneficiaryMonthly")
             .addAnnotation(entityAnnotation)
@@ -1150,6 +1212,39 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
             .build();
     headerEntityClass.addMethod(lastUpdatedSetter);
 
+    // Add a samhsaRelated field (and its accessors) to the claims.
+    if (mappingSpec.getHasSamhsaFlag()) {
+      headerEntityClass.addSuperinterface(
+          ClassName.get("gov.cms.bfd.model.rif", "SamhsaFlaggedRecord"));
+
+      final FieldSpec samhsaFlagField =
+          FieldSpec.builder(Boolean.class, HEADER_ENTITY_SAMHSA_FLAG_FIELD, Modifier.PRIVATE)
+              .addAnnotation(
+                  AnnotationSpec.builder(Column.class)
+                      .addMember("name", "$S", "`" + HEADER_ENTITY_SAMHSA_FLAG_FIELD + "`")
+                      .addMember("nullable", "$L", true)
+                      .build())
+              .build();
+      headerEntityClass.addField(samhsaFlagField);
+
+      final MethodSpec samhsaFlagGetter =
+          MethodSpec.methodBuilder("get" + capitalize(samhsaFlagField.name))
+              .addModifiers(Modifier.PUBLIC)
+              .addStatement("return Optional.ofNullable($N)", samhsaFlagField)
+              .returns(ParameterizedTypeName.get(Optional.class, Boolean.class))
+              .build();
+      headerEntityClass.addMethod(samhsaFlagGetter);
+
+      final MethodSpec samhsaFlagSetter =
+          MethodSpec.methodBuilder(calculateSetterName(samhsaFlagField))
+              .addModifiers(Modifier.PUBLIC)
+              .addParameter(ParameterSpec.builder(Boolean.class, samhsaFlagField.name).build())
+              .addStatement("this.$N = $N", samhsaFlagField, samhsaFlagField)
+              .returns(TypeName.VOID)
+              .build();
+      headerEntityClass.addMethod(samhsaFlagSetter);
+    }
+
     TypeSpec headerEntityFinal = headerEntityClass.build();
     JavaFile headerEntityFile =
         JavaFile.builder(mappingSpec.getPackageName(), headerEntityFinal).build();
@@ -1179,21 +1274,68 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
         TypeSpec.classBuilder(mappingSpec.getParserClass())
             .addModifiers(Modifier.PUBLIC, Modifier.FINAL);
 
+    /*
+     * Generate two versions of the parsing method: one for Apache Commons CSV's CSVRecords, and one
+     * for MappedRifFileReader's RifRows. Both provide the same column access methods.
+     */
+    parsingClass.addMethod(
+        generateParseMethod(
+            mappingSpec,
+            headerEntity,
+            lineEntity,
+            "parseRif",
+            ClassName.get("org.apache.commons.csv", "CSVRecord"),
+            "csvRecords"));
+    parsingClass.addMethod(
+        generateParseMethod(
+            mappingSpec,
+            headerEntity,
+            lineEntity,
+            "parseRifRows",
+            ClassName.get("gov.cms.bfd.model.rif.parse", "RifRow"),
+            "rifRows"));
+
+    TypeSpec parsingClassFinal = parsingClass.build();
+    JavaFile parsingClassFile =
+        JavaFile.builder(mappingSpec.getPackageName(), parsingClassFinal).build();
+    parsingClassFile.writeTo(processingEnv.getFiler());
+
+    return parsingClassFinal;
+  }
+
+  /**
+   * Generates a RIF-to-Entity parsing method for the specified record type.
+   *
+   * @param mappingSpec the {@link MappingSpec} of the layout to generate code for
+   * @param headerEntity the Java {@link Entity} that was generated for the header fields
+   * @param lineEntity the Java {@link Entity} that was generated for the line fields, if any
+   * @param methodName the name of the method to generate
+   * @param csvRecordType the type of the records that will be parsed, which must provide a <code>
+   *     get(Enum)</code> method
+   * @param recordsName the name of the generated method's records {@link List} parameter
+   * @return the parsing method that was generated
+   */
+  private static MethodSpec generateParseMethod(
+      MappingSpec mappingSpec,
+      TypeSpec headerEntity,
+      Optional<TypeSpec> lineEntity,
+      String methodName,
+      ClassName csvRecordType,
+      String recordsName) {
     // Grab some common types we'll need.
-    ClassName csvRecordType = ClassName.get("org.apache.commons.csv", "CSVRecord");
     ClassName parseUtilsType = ClassName.get("gov.cms.bfd.model.rif.parse", "RifParsingUtils");
 
     MethodSpec.Builder parseMethod =
-        MethodSpec.methodBuilder("parseRif")
+        MethodSpec.methodBuilder(methodName)
             .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
             .returns(mappingSpec.getHeaderEntity())
             .addParameter(
-                ParameterizedTypeName.get(ClassName.get(List.class), csvRecordType), "csvRecords");
+                ParameterizedTypeName.get(ClassName.get(List.class), csvRecordType), recordsName);
 
     parseMethod.addComment("Verify the inputs.");
-    parseMethod.addStatement("$T.requireNonNull(csvRecords)", Objects.class);
+    parseMethod.addStatement("$T.requireNonNull($L)", Objects.class, recordsName);
     parseMethod
-        .beginControlFlow("if (csvRecords.size() < 1)")
+        .beginControlFlow("if ($L.size() < 1)", recordsName)
         .addStatement("throw new $T()", IllegalArgumentException.class)
         .endControlFlow();
 
@@ -1204,31 +1346,33 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
         fieldIndex < mappingSpec.getRifLayout().getRifFields().size();
         fieldIndex++) {
       RifField rifField = mappingSpec.getRifLayout().getRifFields().get(fieldIndex);
+      boolean isLineField =
+          mappingSpec.getHasLines() && fieldIndex >= mappingSpec.calculateFirstLineFieldIndex();
 
-      // Find the Entity field for the RifField.
-      Stream<FieldSpec> entitiesFieldsStream =
-          mappingSpec.getHasLines()
-              ? Stream.concat(
-                  headerEntity.fieldSpecs.stream(), lineEntity.get().fieldSpecs.stream())
-              : headerEntity.fieldSpecs.stream();
+      /*
+       * Find the Entity field for the RifField, in the entity that the field belongs to. The line
+       * entity also has a copy of some header fields (e.g. "beneficiaryId"), which must not be
+       * picked for the header's columns.
+       */
+      TypeSpec fieldEntity = isLineField ? lineEntity.get() : headerEntity;
       FieldSpec entityField =
-          entitiesFieldsStream
+          fieldEntity.fieldSpecs.stream()
               .filter(f -> f.name.equals(rifField.getJavaFieldName()))
-              .findAny()
+              .findFirst()
               .get();
 
       // Are we starting the header parsing?
       if (fieldIndex == 0) {
         parseMethod.addCode("\n// Parse the header fields.\n");
-        parseMethod.addCode("$T headerRecord = csvRecords.get(0);\n", csvRecordType);
+        parseMethod.addCode("$T headerRecord = $L.get(0);\n", csvRecordType, recordsName);
       }
 
       // Are we starting the line parsing?
       if (mappingSpec.getHasLines() && fieldIndex == mappingSpec.calculateFirstLineFieldIndex()) {
         parseMethod.addCode("\n// Parse the line fields.\n");
         parseMethod.beginControlFlow(
-            "for (int lineIndex = 0; lineIndex < csvRecords.size(); lineIndex++)");
-        parseMethod.addStatement("$T lineRecord = csvRecords.get(lineIndex)", csvRecordType);
+            "for (int lineIndex = 0; lineIndex < $L.size(); lineIndex++)", recordsName);
+        parseMethod.addStatement("$T lineRecord = $L.get(lineIndex)", csvRecordType, recordsName);
         parseMethod.addStatement("$1T line = new $1T()", mappingSpec.getLineEntity());
 
         FieldSpec lineEntityParentField =
@@ -1242,7 +1386,7 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
       // Determine which variables to use in assignment statement.
       String entityName;
       String recordName;
-      if (mappingSpec.getHasLines() && fieldIndex >= mappingSpec.calculateFirstLineFieldIndex()) {
+      if (isLineField) {
         entityName = "line";
         recordName = "lineRecord";
       } else {
@@ -1314,14 +1458,7 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
     }
 
     parseMethod.addStatement("return header");
-    parsingClass.addMethod(parseMethod.build());
-
-    TypeSpec parsingClassFinal = parsingClass.build();
-    JavaFile parsingClassFile =
-        JavaFile.builder(mappingSpec.getPackageName(), parsingClassFinal).build();
-    parsingClassFile.writeTo(processingEnv.getFiler());
-
-    return parsingClassFinal;
+    return parseMethod.build();
   }
 
   /**
@@ -1331,12 +1468,17 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
    * @param mappingSpec the {@link MappingSpec} of the layout to generate code for
    * @param headerEntity the Java {@link Entity} that was generated for the header fields
    * @param lineEntity the Java {@link Entity} that was generated for the line fields, if any
+   * @param beneficiaryMonthlyEntity the Java {@link Entity} that was generated for the beneficiary
+   *     monthly fields, if any
    * @return the Java CSV writing class that was generated
    * @throws IOException An {@link IOException} may be thrown if errors are encountered trying to
    *     generate source files.
    */
   private TypeSpec generateCsvWriter(
-      MappingSpec mappingSpec, TypeSpec headerEntity, Optional<TypeSpec> lineEntity)
+      MappingSpec mappingSpec,
+      TypeSpec headerEntity,
+      Optional<TypeSpec> lineEntity,
+      Optional<TypeSpec> beneficiaryMonthlyEntity)
       throws IOException {
     TypeSpec.Builder csvWriterClass =
         TypeSpec.classBuilder(mappingSpec.getCsvWriterClass())
@@ -1367,24 +1509,14 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
     csvWriterMethod.addStatement("$T headerRecords = new $T[2][]", recordsListType, Object.class);
     String headerColumnsList =
         headerEntity.fieldSpecs.stream()
-            .filter(
-                f -> {
-                  if (mappingSpec.getHasLines()
-                      && f.name.equals(mappingSpec.getHeaderEntityLinesField())) return false;
-                  return true;
-                })
-            .map(f -> "\"" + f.name + "\"")
+            .filter(f -> isCsvColumnField(f))
+            .map(f -> "\"" + calculateCsvColumnName(f) + "\"")
             .collect(Collectors.joining(", "));
     csvWriterMethod.addStatement(
         "headerRecords[0] = new $1T{ $2L }", recordType, headerColumnsList);
     String headerGettersList =
         headerEntity.fieldSpecs.stream()
-            .filter(
-                f -> {
-                  if (mappingSpec.getHasLines()
-                      && f.name.equals(mappingSpec.getHeaderEntityLinesField())) return false;
-                  return true;
-                })
+            .filter(f -> isCsvColumnField(f))
             .map(f -> calculateFieldToCsvValueCode("entity", f, mappingSpec, null, null))
             .collect(Collectors.joining(", "));
     csvWriterMethod.addStatement(
@@ -1412,7 +1544,8 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
           "csvRecordsByTable.put($S, lineRecords)", mappingSpec.getLineTable());
       String lineColumnsList =
           lineEntity.get().fieldSpecs.stream()
-              .map(f -> "\"" + f.name + "\"")
+              .filter(f -> isCsvColumnField(f))
+              .map(f -> "\"" + calculateCsvColumnName(f) + "\"")
               .collect(Collectors.joining(", "));
       csvWriterMethod.addStatement("lineRecords[0] = new $1T{ $2L }", recordType, lineColumnsList);
       csvWriterMethod.beginControlFlow(
@@ -1433,6 +1566,7 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
               .get();
       String lineGettersList =
           lineEntity.get().fieldSpecs.stream()
+              .filter(f -> isCsvColumnField(f))
               .map(
                   f -> {
                     return calculateFieldToCsvValueCode(
@@ -1444,9 +1578,162 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
       csvWriterMethod.endControlFlow();
     }
 
+    // Generate the beneficiary monthly conversion.
+    if (mappingSpec.getHasBeneficiaryMonthly()) {
+      csvWriterMethod.addCode("\n");
+      csvWriterMethod.addComment("Convert the beneficiary monthly fields.");
+      csvWriterMethod.addStatement(
+          "$T monthlyRecords = new $T[entity.getBeneficiaryMonthlys().size() + 1][]",
+          recordsListType,
+          Object.class);
+      csvWriterMethod.addStatement(
+          "csvRecordsByTable.put($S, monthlyRecords)", BENEFICIARY_MONTHLY_TABLE);
+      String monthlyColumnsList =
+          beneficiaryMonthlyEntity.get().fieldSpecs.stream()
+              .filter(f -> isCsvColumnField(f))
+              .map(f -> "\"" + calculateCsvColumnName(f) + "\"")
+              .collect(Collectors.joining(", "));
+      csvWriterMethod.addStatement(
+          "monthlyRecords[0] = new $1T{ $2L }", recordType, monthlyColumnsList);
+      csvWriterMethod.beginControlFlow(
+          "for (int monthlyIndex = 0; monthlyIndex < entity.getBeneficiaryMonthlys().size(); monthlyIndex++)");
+      csvWriterMethod.addStatement(
+          "$T monthlyEntity = entity.getBeneficiaryMonthlys().get(monthlyIndex)",
+          mappingSpec.getBeneficiaryMonthlyEntity());
+      String monthlyGettersList =
+          beneficiaryMonthlyEntity.get().fieldSpecs.stream()
+              .filter(f -> isCsvColumnField(f))
+              .map(
+                  f ->
+                      calculateBeneficiaryMonthlyFieldToCsvValueCode(
+                          "monthlyEntity", f, mappingSpec))
+              .collect(Collectors.joining(", "));
+      csvWriterMethod.addStatement(
+          "$1T monthlyRecord = new $1T{ $2L }", recordType, monthlyGettersList);
+      csvWriterMethod.addStatement("monthlyRecords[monthlyIndex + 1] = monthlyRecord");
+      csvWriterMethod.endControlFlow();
+    }
+
     csvWriterMethod.addStatement("return csvRecordsByTable");
     csvWriterClass.addMethod(csvWriterMethod.build());
 
+    /*
+     * Also generate a streaming variant of the above, for use in high-throughput bulk loads. Rather
+     * than building a Map of arrays for every entity, it hands each table's rows to a consumer one
+     * at a time, reusing a single row array per table. The column names are exposed as constants,
+     * so they only need to be looked up once.
+     */
+    ParameterizedTypeName rowConsumerType =
+        ParameterizedTypeName.get(
+            ClassName.get(BiConsumer.class), ClassName.get(String.class), recordType);
+    MethodSpec.Builder csvRowsWriterMethod =
+        MethodSpec.methodBuilder("writeCsvRows")
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+            .returns(void.class)
+            .addParameter(mappingSpec.getHeaderEntity(), "entity")
+            .addParameter(rowConsumerType, "rowConsumer");
+    csvRowsWriterMethod.addComment("Verify the input.");
+    csvRowsWriterMethod.addStatement("$T.requireNonNull(entity)", Objects.class);
+    csvRowsWriterMethod.addCode("\n");
+    csvRowsWriterMethod.addComment(
+        "Note: each table's row array is reused, so consumers must not hold on to them.");
+
+    List<FieldSpec> headerColumnFields =
+        headerEntity.fieldSpecs.stream()
+            .filter(f -> isCsvColumnField(f))
+            .collect(Collectors.toList());
+    addCsvTableConstants(
+        csvWriterClass, "HEADER", mappingSpec.getHeaderTable(), headerColumnFields);
+    String headerIdColumn =
+        mappingSpec.getHeaderEntityGeneratedIdField() != null
+            ? mappingSpec.getHeaderEntityGeneratedIdField()
+            : mappingSpec.getHeaderEntityIdField();
+    csvWriterClass.addField(
+        FieldSpec.builder(
+                String.class, "HEADER_ID_COLUMN", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+            .initializer("$S", headerIdColumn)
+            .build());
+    csvRowsWriterMethod.addStatement(
+        "$T headerRow = new $T[$L]", recordType, Object.class, headerColumnFields.size());
+    for (int columnIndex = 0; columnIndex < headerColumnFields.size(); columnIndex++) {
+      csvRowsWriterMethod.addStatement(
+          "headerRow[$L] = $L",
+          columnIndex,
+          calculateFieldToCsvValueCode(
+              "entity", headerColumnFields.get(columnIndex), mappingSpec, null, null));
+    }
+    csvRowsWriterMethod.addStatement("rowConsumer.accept(HEADER_TABLE, headerRow)");
+
+    if (mappingSpec.getHasLines()) {
+      FieldSpec linesField =
+          headerEntity.fieldSpecs.stream()
+              .filter(f -> f.name.equals(mappingSpec.getHeaderEntityLinesField()))
+              .findAny()
+              .get();
+      FieldSpec parentField =
+          lineEntity.get().fieldSpecs.stream()
+              .filter(f -> f.name.equals(mappingSpec.getLineEntityParentField()))
+              .findAny()
+              .get();
+      FieldSpec headerIdField =
+          headerEntity.fieldSpecs.stream()
+              .filter(f -> f.name.equals(mappingSpec.getHeaderEntityIdField()))
+              .findAny()
+              .get();
+      List<FieldSpec> lineColumnFields =
+          lineEntity.get().fieldSpecs.stream()
+              .filter(f -> isCsvColumnField(f))
+              .collect(Collectors.toList());
+      addCsvTableConstants(csvWriterClass, "LINE", mappingSpec.getLineTable(), lineColumnFields);
+
+      csvRowsWriterMethod.addCode("\n");
+      csvRowsWriterMethod.addStatement(
+          "$T lineRow = new $T[$L]", recordType, Object.class, lineColumnFields.size());
+      csvRowsWriterMethod.beginControlFlow(
+          "for ($T lineEntity : entity.$L())",
+          mappingSpec.getLineEntity(),
+          calculateGetterName(linesField));
+      for (int columnIndex = 0; columnIndex < lineColumnFields.size(); columnIndex++) {
+        csvRowsWriterMethod.addStatement(
+            "lineRow[$L] = $L",
+            columnIndex,
+            calculateFieldToCsvValueCode(
+                "lineEntity",
+                lineColumnFields.get(columnIndex),
+                mappingSpec,
+                parentField,
+                headerIdField));
+      }
+      csvRowsWriterMethod.addStatement("rowConsumer.accept(LINE_TABLE, lineRow)");
+      csvRowsWriterMethod.endControlFlow();
+    }
+
+    if (mappingSpec.getHasBeneficiaryMonthly()) {
+      List<FieldSpec> monthlyColumnFields =
+          beneficiaryMonthlyEntity.get().fieldSpecs.stream()
+              .filter(f -> isCsvColumnField(f))
+              .collect(Collectors.toList());
+      addCsvTableConstants(
+          csvWriterClass, "BENEFICIARY_MONTHLY", BENEFICIARY_MONTHLY_TABLE, monthlyColumnFields);
+
+      csvRowsWriterMethod.addCode("\n");
+      csvRowsWriterMethod.addStatement(
+          "$T monthlyRow = new $T[$L]", recordType, Object.class, monthlyColumnFields.size());
+      csvRowsWriterMethod.beginControlFlow(
+          "for ($T monthlyEntity : entity.getBeneficiaryMonthlys())",
+          mappingSpec.getBeneficiaryMonthlyEntity());
+      for (int columnIndex = 0; columnIndex < monthlyColumnFields.size(); columnIndex++) {
+        csvRowsWriterMethod.addStatement(
+            "monthlyRow[$L] = $L",
+            columnIndex,
+            calculateBeneficiaryMonthlyFieldToCsvValueCode(
+                "monthlyEntity", monthlyColumnFields.get(columnIndex), mappingSpec));
+      }
+      csvRowsWriterMethod.addStatement("rowConsumer.accept(BENEFICIARY_MONTHLY_TABLE, monthlyRow)");
+      csvRowsWriterMethod.endControlFlow();
+    }
+    csvWriterClass.addMethod(csvRowsWriterMethod.build());
+
     TypeSpec parsingClassFinal = csvWriterClass.build();
     JavaFile parsingClassFile =
         JavaFile.builder(mappingSpec.getPackageName(), parsingClassFinal).build();
@@ -1456,7 +1743,48 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
   }
 
   /**
-   * Used in {@link #generateCsvWriter(MappingSpec, TypeSpec, Optional)} and generates the
+   * Used in {@link #generateCsvWriter(MappingSpec, TypeSpec, Optional, Optional)} to add the <code>
+   * *_TABLE</code> and <code>*_COLUMNS</code> constants for one of the SQL tables written by the
+   * generated <code>writeCsvRows(...)</code> method.
+   *
+   * @param csvWriterClass the CSV writer class being generated
+   * @param constantsPrefix the prefix to use for the constants' names
+   * @param tableName the (unquoted) name of the SQL table
+   * @param columnFields the JPA entity fields stored in that SQL table, in column order
+   */
+  private static void addCsvTableConstants(
+      TypeSpec.Builder csvWriterClass,
+      String constantsPrefix,
+      String tableName,
+      List<FieldSpec> columnFields) {
+    csvWriterClass.addField(
+        FieldSpec.builder(
+                String.class,
+                constantsPrefix + "_TABLE",
+                Modifier.PUBLIC,
+                Modifier.STATIC,
+                Modifier.FINAL)
+            .initializer("$S", tableName)
+            .build());
+
+    String columnsList =
+        columnFields.stream()
+            .map(f -> "\"" + calculateCsvColumnName(f) + "\"")
+            .collect(Collectors.joining(", "));
+    csvWriterClass.addField(
+        FieldSpec.builder(
+                ParameterizedTypeName.get(List.class, String.class),
+                constantsPrefix + "_COLUMNS",
+                Modifier.PUBLIC,
+                Modifier.STATIC,
+                Modifier.FINAL)
+            .initializer(
+                "$T.unmodifiableList($T.asList($L))", Collections.class, Arrays.class, columnsList)
+            .build());
+  }
+
+  /**
+   * Used in {@link #generateCsvWriter(MappingSpec, TypeSpec, Optional, Optional)} and generates the
    * field-to-CSV-value conversion code for the specified field.
    *
    * @param instanceName the name of the object that the value will be pulled from
@@ -1479,15 +1807,29 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
     code.append(".");
 
     Optional<RifField> rifField =
-        mappingSpec.getRifLayout().getRifFields().stream()
+        Stream.concat(
+                mappingSpec.getRifLayout().getRifFields().stream(),
+                mappingSpec.getHeaderEntityAdditionalDatabaseFields().stream())
             .filter(f -> field.name.equals(f.getJavaFieldName()))
-            .findAny();
+            .findFirst();
     if (field == parentField) {
       // This is the line-level "parent" field.
       code.append(calculateGetterName(parentField));
       code.append("().");
       code.append(calculateGetterName(headerIdField));
       code.append("()");
+    } else if (field.type.equals(ClassName.get(Date.class))) {
+      /*
+       * This is the lastUpdated field, whose getter returns an Optional<Date>. Date.toString()
+       * isn't something PostgreSQL can parse, so convert it to an ISO-8601 Instant.
+       */
+      code.append(calculateGetterName(field));
+      code.append("().map(d -> d.toInstant()).orElse(null)");
+    } else if (field.name.equals(HEADER_ENTITY_SAMHSA_FLAG_FIELD)) {
+      // This is the samhsaRelated field, whose getter returns an Optional<Boolean>.
+      code.append("get");
+      code.append(capitalize(field.name));
+      code.append("().orElse(null)");
     } else if (rifField.isPresent() && rifField.get().isRifColumnOptional()) {
       code.append(calculateGetterName(field));
       code.append("().orElse(null)");
@@ -1499,6 +1841,59 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
     return code.toString();
   }
 
+  /**
+   * Used in {@link #generateCsvWriter(MappingSpec, TypeSpec, Optional, Optional)} and generates the
+   * field-to-CSV-value conversion code for the specified <code>BeneficiaryMonthly</code> field.
+   *
+   * @param instanceName the name of the object that the value will be pulled from
+   * @param field the field to generate conversion code for
+   * @param mappingSpec the {@link MappingSpec} of the parent beneficiary entity
+   * @return the field-to-CSV-value conversion code for the specified field
+   */
+  private static String calculateBeneficiaryMonthlyFieldToCsvValueCode(
+      String instanceName, FieldSpec field, MappingSpec mappingSpec) {
+    if (field.name.equals(mappingSpec.getBeneficiaryMonthlyEntityParentField()))
+      return String.format("%s.%s().getBeneficiaryId()", instanceName, calculateGetterName(field));
+    else if (field.name.equals(mappingSpec.getEntityBeneficiaryMonthlyField()))
+      return String.format("%s.%s()", instanceName, calculateGetterName(field));
+
+    // All of the other BeneficiaryMonthly fields are optional.
+    return String.format("%s.%s().orElse(null)", instanceName, calculateGetterName(field));
+  }
+
+  /**
+   * @param field the JPA entity {@link FieldSpec} to check
+   * @return <code>true</code> if the specified field is stored in a column of its entity's own SQL
+   *     table, <code>false</code> if it's {@link Transient} or is a {@link OneToMany} collection of
+   *     child entities
+   */
+  private static boolean isCsvColumnField(FieldSpec field) {
+    return field.annotations.stream()
+        .noneMatch(
+            a ->
+                a.type.equals(ClassName.get(Transient.class))
+                    || a.type.equals(ClassName.get(OneToMany.class)));
+  }
+
+  /**
+   * @param field the JPA entity {@link FieldSpec} to get the SQL column name of
+   * @return the (unquoted) name of the SQL column that the specified field is stored in
+   */
+  private static String calculateCsvColumnName(FieldSpec field) {
+    boolean hasQuotedColumnName =
+        field.annotations.stream()
+            .anyMatch(
+                a ->
+                    a.type.equals(ClassName.get(Column.class))
+                        || a.type.equals(ClassName.get(JoinColumn.class)));
+
+    /*
+     * Fields without an explicit column name (e.g. lastUpdated) were added to the schema with
+     * unquoted identifiers, which PostgreSQL folds to lower case.
+     */
+    return hasQuotedColumnName ? field.name : field.name.toLowerCase();
+  }
+
   /**
    * @param fields the fields that should be hashed
    * @return a new <code>hashCode()</code> implementation that uses the specified fields
@@ -0,0 +1,209 @@
+package gov.cms.bfd.model.rif;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Encodes the beneficiary IDs of a {@link LoadedBatch} as compact <code>bytea</code> values, and
+ * decodes them back again.
+ *
+ * <p>Beneficiary IDs are numeric in practice, so when all of a batch's IDs are canonical decimal
+ * <code>long</code>s, they're sorted and stored as variable-length deltas, which typically takes
+ * 1-3 bytes per ID, rather than the 10-15 bytes (plus separator) needed for the comma-joined text
+ * that was used before. Otherwise, the IDs are stored as length-prefixed UTF-8 strings. Either way,
+ * the encoding starts with a format byte and the number of IDs, so the count can be read without
+ * decoding anything else. Note that the numeric encoding doesn't preserve the IDs' order.
+ */
+final class BeneficiaryIdCodec {
+  /** The format byte for sorted, delta-encoded numeric IDs. */
+  private static final byte FORMAT_NUMERIC = 1;
+
+  /** The format byte for length-prefixed UTF-8 string IDs. */
+  private static final byte FORMAT_STRINGS = 2;
+
+  /** Not used: this class has only static methods. */
+  private BeneficiaryIdCodec() {}
+
+  /**
+   * @param beneficiaryIds the beneficiary IDs to encode
+   * @return the encoded form of the specified beneficiary IDs
+   */
+  static byte[] encode(List<String> beneficiaryIds) {
+    long[] numericIds = parseNumericIds(beneficiaryIds);
+    ByteWriter writer = new ByteWriter(1 + 5 + beneficiaryIds.size() * 3);
+    if (numericIds != null) {
+      Arrays.sort(numericIds);
+      writer.write(FORMAT_NUMERIC);
+      writer.writeVarLong(numericIds.length);
+      long previousId = 0L;
+      for (int i = 0; i < numericIds.length; i++) {
+        // The first value is stored as-is (zigzagged, as it may be negative); the rest as deltas.
+        if (i == 0) writer.writeVarLong((numericIds[0] << 1) ^ (numericIds[0] >> 63));
+        else writer.writeVarLong(numericIds[i] - previousId);
+        previousId = numericIds[i];
+      }
+    } else {
+      writer.write(FORMAT_STRINGS);
+      writer.writeVarLong(beneficiaryIds.size());
+      for (String beneficiaryId : beneficiaryIds) {
+        byte[] idBytes = beneficiaryId.getBytes(StandardCharsets.UTF_8);
+        writer.writeVarLong(idBytes.length);
+        writer.write(idBytes);
+      }
+    }
+    return writer.toByteArray();
+  }
+
+  /**
+   * @param encoded the output of {@link #encode(List)} to decode
+   * @return the number of beneficiary IDs in the specified encoded value
+   */
+  static int count(byte[] encoded) {
+    ByteReader reader = new ByteReader(encoded);
+    reader.readFormat();
+    return (int) reader.readVarLong();
+  }
+
+  /**
+   * @param encoded the output of {@link #encode(List)} to decode
+   * @param beneficiaryIdConsumer the {@link Consumer} to pass each decoded beneficiary ID to
+   */
+  static void decode(byte[] encoded, Consumer<String> beneficiaryIdConsumer) {
+    ByteReader reader = new ByteReader(encoded);
+    byte format = reader.readFormat();
+    long count = reader.readVarLong();
+    if (format == FORMAT_NUMERIC) {
+      long id = 0L;
+      for (long i = 0; i < count; i++) {
+        long value = reader.readVarLong();
+        if (i == 0) id = (value >>> 1) ^ -(value & 1);
+        else id += value;
+        beneficiaryIdConsumer.accept(Long.toString(id));
+      }
+    } else {
+      for (long i = 0; i < count; i++) {
+        int length = (int) reader.readVarLong();
+        beneficiaryIdConsumer.accept(reader.readString(length));
+      }
+    }
+  }
+
+  /**
+   * @param encoded the output of {@link #encode(List)} to decode
+   * @return the decoded beneficiary IDs
+   */
+  static List<String> decode(byte[] encoded) {
+    List<String> beneficiaryIds = new ArrayList<>(count(encoded));
+    decode(encoded, beneficiaryIds::add);
+    return beneficiaryIds;
+  }
+
+  /**
+   * @param beneficiaryIds the beneficiary IDs to parse
+   * @return the numeric values of the specified beneficiary IDs, or <code>null</code> if any of
+   *     them isn't the canonical decimal form of a <code>long</code> (in which case it wouldn't
+   *     survive a round trip)
+   */
+  private static long[] parseNumericIds(List<String> beneficiaryIds) {
+    long[] numericIds = new long[beneficiaryIds.size()];
+    for (int i = 0; i < numericIds.length; i++) {
+      String beneficiaryId = beneficiaryIds.get(i);
+      try {
+        numericIds[i] = Long.parseLong(beneficiaryId);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+      if (!Long.toString(numericIds[i]).equals(beneficiaryId)) return null;
+    }
+    return numericIds;
+  }
+
+  /** A minimal growable byte buffer, with support for unsigned LEB128 variable-length values. */
+  private static final class ByteWriter {
+    private byte[] bytes;
+    private int length;
+
+    /** @param initialCapacity the initial size of the buffer */
+    ByteWriter(int initialCapacity) {
+      this.bytes = new byte[initialCapacity];
+      this.length = 0;
+    }
+
+    /** @param value the byte to append */
+    void write(byte value) {
+      ensureCapacity(1);
+      bytes[length++] = value;
+    }
+
+    /** @param values the bytes to append */
+    void write(byte[] values) {
+      ensureCapacity(values.length);
+      System.arraycopy(values, 0, bytes, length, values.length);
+      length += values.length;
+    }
+
+    /** @param value the value to append, treated as unsigned, using 7 bits per byte */
+    void writeVarLong(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0L) {
+        bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[length++] = (byte) value;
+    }
+
+    /** @return a copy of the bytes written so far */
+    byte[] toByteArray() {
+      return Arrays.copyOf(bytes, length);
+    }
+
+    /** @param extraBytes the number of bytes that are about to be appended */
+    private void ensureCapacity(int extraBytes) {
+      if (length + extraBytes > bytes.length)
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extraBytes));
+    }
+  }
+
+  /** Reads back the values written by a {@link ByteWriter}. */
+  private static final class ByteReader {
+    private final byte[] bytes;
+    private int position;
+
+    /** @param bytes the bytes to read */
+    ByteReader(byte[] bytes) {
+      this.bytes = bytes;
+      this.position = 0;
+    }
+
+    /** @return the format byte, after checking that it's one of the supported ones */
+    byte readFormat() {
+      byte format = bytes[position++];
+      if (format != FORMAT_NUMERIC && format != FORMAT_STRINGS)
+        throw new IllegalArgumentException("Unsupported beneficiary ID format: " + format);
+      return format;
+    }
+
+    /** @return the next value written by {@link ByteWriter#writeVarLong(long)} */
+    long readVarLong() {
+      long value = 0L;
+      for (int shift = 0; ; shift += 7) {
+        byte next = bytes[position++];
+        value |= (long) (next & 0x7F) << shift;
+        if ((next & 0x80) == 0) return value;
+      }
+    }
+
+    /**
+     * @param length the number of bytes to read
+     * @return the UTF-8 string in the next <code>length</code> bytes
+     */
+    String readString(int length) {
+      String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+      position += length;
+      return value;
+    }
+  }
+}
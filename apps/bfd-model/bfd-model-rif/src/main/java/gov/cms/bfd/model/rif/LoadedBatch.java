@@ -4,7 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 import javax.persistence.*;
 
 /** JPA class for the LoadedBatches table */
@@ -25,13 +25,27 @@ public class LoadedBatch {
   @Column(name = "`loadedFileId`", nullable = false)
   private long loadedFileId;
 
-  @Column(name = "`beneficiaries`", columnDefinition = "varchar", nullable = false)
+  /**
+   * The comma-separated beneficiary IDs of batches that were loaded before {@link #beneficiaryIds}
+   * was added, or <code>null</code> for newer batches.
+   */
+  @Column(name = "`beneficiaries`", columnDefinition = "varchar", nullable = true)
   private String beneficiaries;
 
+  /** The beneficiary IDs of the batch, as encoded by {@link BeneficiaryIdCodec}. */
+  @Column(name = "`beneficiaryIds`", nullable = true)
+  private byte[] beneficiaryIds;
+
   @Column(name = "`created`", nullable = false)
   @Temporal(TemporalType.TIMESTAMP)
   private Date created;
 
+  @Column(name = "`recordOffset`", nullable = true)
+  private Long recordOffset;
+
+  @Column(name = "`recordCount`", nullable = true)
+  private Integer recordCount;
+
   /** default constructor */
   public LoadedBatch() {}
 
@@ -64,13 +78,13 @@ public class LoadedBatch {
     this();
     this.loadedBatchId = loadedBatchId;
     this.loadedFileId = loadedFileId;
-    this.beneficiaries = convertToString(beneficiaries);
+    this.beneficiaryIds = BeneficiaryIdCodec.encode(beneficiaries);
     this.created = created;
   }
 
   /** @return the loadedBatchId */
   public long getLoadedBatchId() {
-    return loadedFileId;
+    return loadedBatchId;
   }
 
   /** @param loadedBatchId the identifier to set */
@@ -88,7 +102,11 @@ public class LoadedBatch {
     this.loadedFileId = loadedFileId;
   }
 
-  /** @return the beneficiaries */
+  /**
+   * @return the comma-separated beneficiaries of a batch loaded before {@link #getBeneficiaryIds()}
+   *     was introduced, or <code>null</code> (see {@link #getBeneficiariesAsList()} for a way to
+   *     get the beneficiaries of any batch)
+   */
   public String getBeneficiaries() {
     return beneficiaries;
   }
@@ -98,6 +116,20 @@ public class LoadedBatch {
     this.beneficiaries = beneficiaries;
   }
 
+  /**
+   * @return the encoded beneficiaries of the batch, or <code>null</code> if it was loaded before
+   *     this was introduced (see {@link #getBeneficiariesAsList()} for a way to get the
+   *     beneficiaries of any batch)
+   */
+  public byte[] getBeneficiaryIds() {
+    return beneficiaryIds;
+  }
+
+  /** @param beneficiaryIds the encoded beneficiaries to set */
+  public void setBeneficiaryIds(byte[] beneficiaryIds) {
+    this.beneficiaryIds = beneficiaryIds;
+  }
+
   /** @return the creation time stamp */
   public Date getCreated() {
     return created;
@@ -108,24 +140,69 @@ public class LoadedBatch {
     this.created = created;
   }
 
+  /**
+   * @return the (zero-based) index, within the file, of the first record in this batch, or <code>
+   *     null</code> if it wasn't recorded
+   */
+  public Long getRecordOffset() {
+    return recordOffset;
+  }
+
+  /** @param recordOffset the record offset to set */
+  public void setRecordOffset(Long recordOffset) {
+    this.recordOffset = recordOffset;
+  }
+
+  /**
+   * @return the number of consecutive records, starting at {@link #getRecordOffset()}, in this
+   *     batch, or <code>null</code> if it wasn't recorded
+   */
+  public Integer getRecordCount() {
+    return recordCount;
+  }
+
+  /** @param recordCount the record count to set */
+  public void setRecordCount(Integer recordCount) {
+    this.recordCount = recordCount;
+  }
+
   /**
    * Set the beneficiaries from a list
    *
    * @param beneficiaries list to convert
    */
   public void setBeneficiaries(List<String> beneficiaries) {
-    this.beneficiaries = convertToString(beneficiaries);
+    this.beneficiaries = null;
+    this.beneficiaryIds = BeneficiaryIdCodec.encode(beneficiaries);
   }
 
   /**
-   * Get the beneficiaries as a list
+   * Get the beneficiaries as a list. Note that their order isn't necessarily preserved.
    *
    * @return beneficiaries as list
    */
   public List<String> getBeneficiariesAsList() {
+    if (beneficiaryIds != null) return BeneficiaryIdCodec.decode(beneficiaryIds);
     return convertToList(this.beneficiaries);
   }
 
+  /**
+   * Pass each of the beneficiaries to the specified {@link Consumer}, without building a list of
+   * them first. Note that their order isn't necessarily preserved.
+   *
+   * @param beneficiaryConsumer to pass the beneficiaries to
+   */
+  public void forEachBeneficiary(Consumer<String> beneficiaryConsumer) {
+    if (beneficiaryIds != null) BeneficiaryIdCodec.decode(beneficiaryIds, beneficiaryConsumer);
+    else convertToList(this.beneficiaries).forEach(beneficiaryConsumer);
+  }
+
+  /** @return the number of beneficiaries in the batch */
+  public int getBeneficiaryCount() {
+    if (beneficiaryIds != null) return BeneficiaryIdCodec.count(beneficiaryIds);
+    return convertToList(this.beneficiaries).size();
+  }
+
   /**
    * Utility function to combine to batch into a larger batch. Useful for small number of batches.
    *
@@ -139,27 +216,18 @@ public class LoadedBatch {
     LoadedBatch sum = new LoadedBatch();
     sum.loadedBatchId = a.loadedBatchId;
     sum.loadedFileId = a.loadedFileId;
-    sum.beneficiaries =
-        a.beneficiaries.isEmpty()
-            ? b.beneficiaries
-            : b.beneficiaries.isEmpty()
-                ? a.beneficiaries
-                : a.beneficiaries + SEPARATOR + b.beneficiaries;
+    List<String> beneficiaries = new ArrayList<>(a.getBeneficiariesAsList());
+    beneficiaries.addAll(b.getBeneficiariesAsList());
+    sum.beneficiaryIds = BeneficiaryIdCodec.encode(beneficiaries);
     sum.created = (a.created.after(b.created)) ? a.created : b.created;
     return sum;
   }
 
   /*
-   * Dev Note: A JPA AttributeConverter could be created instead of these static methods. This is
-   * slightly simpler and, since conversion is done once, just as efficient.
+   * Dev Note: A JPA AttributeConverter could be created instead of this static method. This is
+   * slightly simpler and, since conversion is done once, just as efficient. It's only needed for
+   * batches that were loaded before the beneficiaryIds column was added.
    */
-  private static String convertToString(List<String> list) {
-    if (list == null || list.isEmpty()) {
-      return "";
-    }
-    return list.stream().collect(Collectors.joining(SEPARATOR));
-  }
-
   private static List<String> convertToList(String commaSeparated) {
     if (commaSeparated == null || commaSeparated.isEmpty()) {
       return new ArrayList<>();
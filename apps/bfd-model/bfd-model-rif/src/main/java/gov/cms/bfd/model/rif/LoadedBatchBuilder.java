@@ -4,10 +4,12 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
-/** Class to build a LoadedBatch. Thread safe. */
+/** Class to build a LoadedBatch. Not thread safe: each batch should be built by a single thread. */
 public class LoadedBatchBuilder {
   private final List<String> beneficiaries;
   private final long loadedFileId;
+  private final Long recordOffset;
+  private final Integer recordCount;
   private final Date timestamp;
 
   /**
@@ -18,16 +20,33 @@ public class LoadedBatchBuilder {
    */
   public LoadedBatchBuilder(long loadedFileId, int capacityIncrement) {
     this.loadedFileId = loadedFileId;
+    this.recordOffset = null;
+    this.recordCount = null;
     this.beneficiaries = new ArrayList<>(capacityIncrement);
     this.timestamp = new Date();
   }
 
+  /**
+   * Create a builder for a batch of consecutive records from a particular file event
+   *
+   * @param loadedFileId to start building
+   * @param recordOffset the index, within the file, of the first record in the batch
+   * @param recordCount the number of records in the batch
+   */
+  public LoadedBatchBuilder(long loadedFileId, long recordOffset, int recordCount) {
+    this.loadedFileId = loadedFileId;
+    this.recordOffset = recordOffset;
+    this.recordCount = recordCount;
+    this.beneficiaries = new ArrayList<>(recordCount);
+    this.timestamp = new Date();
+  }
+
   /**
    * Associate a beneficiaryId with this LoadedFile
    *
    * @param beneficiaryId to put in the filter
    */
-  public synchronized void associateBeneficiary(String beneficiaryId) {
+  public void associateBeneficiary(String beneficiaryId) {
     if (beneficiaryId == null || beneficiaryId.isEmpty()) {
       throw new IllegalArgumentException("Null or empty beneficiary");
     }
@@ -35,15 +54,18 @@ public class LoadedBatchBuilder {
   }
 
   /**
-   * Create a LoadedBatch from the data in the builder
+   * Create a LoadedBatch from the data in the builder. The builder can still be used afterwards,
+   * without affecting the LoadedBatch.
    *
    * @return a new LoadedBatch
    */
-  public synchronized LoadedBatch build() {
+  public LoadedBatch build() {
     final LoadedBatch loadedBatch = new LoadedBatch();
     loadedBatch.setLoadedFileId(loadedFileId);
-    loadedBatch.setBeneficiaries(beneficiaries);
+    loadedBatch.setBeneficiaries(new ArrayList<>(beneficiaries));
     loadedBatch.setCreated(timestamp);
+    loadedBatch.setRecordOffset(recordOffset);
+    loadedBatch.setRecordCount(recordCount);
     return loadedBatch;
   }
 
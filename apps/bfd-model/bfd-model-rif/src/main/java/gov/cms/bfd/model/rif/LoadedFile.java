@@ -8,6 +8,13 @@ import javax.persistence.*;
 @Entity
 @Table(name = "`LoadedFiles`")
 public class LoadedFile {
+  /**
+   * The false positive rate that {@link #getBeneficiaryFilter()} Bloom filters are built with. Uses
+   * a lot of memory to get this rate, but it's worth it for the speedup, as each false positive
+   * costs a database query.
+   */
+  public static final double BENEFICIARY_FILTER_FALSE_POSITIVE_PERCENTAGE = 0.01;
+
   @Id
   @Column(name = "`loadedFileId`", nullable = false)
   @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loadedFiles_loadedFileId_seq")
@@ -24,6 +31,27 @@ public class LoadedFile {
   @Temporal(TemporalType.TIMESTAMP)
   private Date created;
 
+  @Column(name = "`dataSetTimestamp`", nullable = true)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date dataSetTimestamp;
+
+  @Column(name = "`fileName`", nullable = true)
+  private String fileName;
+
+  @Column(name = "`completed`", nullable = true)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date completed;
+
+  @Column(name = "`beneficiaryFilter`", nullable = true)
+  private byte[] beneficiaryFilter;
+
+  @Column(name = "`beneficiaryFilterBatches`", nullable = true)
+  private Integer beneficiaryFilterBatches;
+
+  @Column(name = "`beneficiaryFilterWatermark`", nullable = true)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date beneficiaryFilterWatermark;
+
   @OneToMany(
       mappedBy = "loadedFileId",
       orphanRemoval = false,
@@ -87,6 +115,90 @@ public class LoadedFile {
     this.created = created;
   }
 
+  /**
+   * @return the timestamp of the data set that the file was part of, or <code>null</code> if it
+   *     wasn't recorded
+   */
+  public Date getDataSetTimestamp() {
+    return dataSetTimestamp;
+  }
+
+  /** @param dataSetTimestamp the data set timestamp to set */
+  public void setDataSetTimestamp(Date dataSetTimestamp) {
+    this.dataSetTimestamp = dataSetTimestamp;
+  }
+
+  /**
+   * @return the name of the file (see {@link RifFile#getDisplayName()}), or <code>null</code> if it
+   *     wasn't recorded
+   */
+  public String getFileName() {
+    return fileName;
+  }
+
+  /** @param fileName the file name to set */
+  public void setFileName(String fileName) {
+    this.fileName = fileName;
+  }
+
+  /**
+   * @return when the file finished loading without any failed batches, or <code>null</code> if it
+   *     hasn't (yet)
+   */
+  public Date getCompleted() {
+    return completed;
+  }
+
+  /** @param completed the completion time stamp to set */
+  public void setCompleted(Date completed) {
+    this.completed = completed;
+  }
+
+  /**
+   * @return the serialized Spark-sketch <code>BloomFilter</code>s (one or more, one after the
+   *     other) of the beneficiary IDs in this file's {@link #getBatches()}, or <code>null</code> if
+   *     none has been published yet (or the file was loaded before these were published). While the
+   *     file is still loading, this only covers some of its batches: see {@link
+   *     #getBeneficiaryFilterWatermark()}.
+   */
+  public byte[] getBeneficiaryFilter() {
+    return beneficiaryFilter;
+  }
+
+  /** @param beneficiaryFilter the serialized beneficiary Bloom filter to set */
+  public void setBeneficiaryFilter(byte[] beneficiaryFilter) {
+    this.beneficiaryFilter = beneficiaryFilter;
+  }
+
+  /**
+   * @return the number of {@link LoadedBatch}es that {@link #getBeneficiaryFilter()} is known to
+   *     cover (those created before {@link #getBeneficiaryFilterWatermark()}, if that's set), or
+   *     <code>null</code> if there's no filter
+   */
+  public Integer getBeneficiaryFilterBatches() {
+    return beneficiaryFilterBatches;
+  }
+
+  /** @param beneficiaryFilterBatches the number of batches the filter was built from, to set */
+  public void setBeneficiaryFilterBatches(Integer beneficiaryFilterBatches) {
+    this.beneficiaryFilterBatches = beneficiaryFilterBatches;
+  }
+
+  /**
+   * @return the time that {@link #getBeneficiaryFilter()} is complete up to: it covers every one of
+   *     this file's {@link LoadedBatch}es that was created before this, but maybe not those created
+   *     at or after it (which have to be added from {@link #getBatches()}), or <code>null</code> if
+   *     the filter covers all of them
+   */
+  public Date getBeneficiaryFilterWatermark() {
+    return beneficiaryFilterWatermark;
+  }
+
+  /** @param beneficiaryFilterWatermark the beneficiary filter's watermark to set */
+  public void setBeneficiaryFilterWatermark(Date beneficiaryFilterWatermark) {
+    this.beneficiaryFilterWatermark = beneficiaryFilterWatermark;
+  }
+
   /** @return the batches associated with this file */
   public Set<LoadedBatch> getBatches() {
     return batches;
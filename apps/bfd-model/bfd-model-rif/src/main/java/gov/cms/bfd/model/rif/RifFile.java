@@ -1,7 +1,10 @@
 package gov.cms.bfd.model.rif;
 
+import gov.cms.bfd.model.rif.parse.MappedRifFileReader;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Optional;
 
 /** Represents a RIF file that can be read and deleted. */
 public interface RifFile {
@@ -21,4 +24,13 @@ public interface RifFile {
 
   /** @return a new {@link InputStream} to the RIF file's contents */
   InputStream open();
+
+  /**
+   * @return the {@link Path} of a complete copy of the RIF file's contents on local disk, if one is
+   *     available, which allows the file to be read via {@link MappedRifFileReader} rather than
+   *     {@link #open()}
+   */
+  default Optional<Path> getLocalPath() {
+    return Optional.empty();
+  }
 }
@@ -10,6 +10,7 @@ import java.util.stream.Stream;
 public final class RifFileRecords {
   private final RifFileEvent sourceEvent;
   private final Stream<RifRecordEvent<?>> records;
+  private final long firstRecordOffset;
 
   /**
    * Constructs a new {@link RifFileRecords} instance.
@@ -18,11 +19,25 @@ public final class RifFileRecords {
    * @param records the value to use for {@link #getRecords()}
    */
   public RifFileRecords(RifFileEvent sourceEvent, Stream<RifRecordEvent<?>> records) {
+    this(sourceEvent, records, 0L);
+  }
+
+  /**
+   * Constructs a new {@link RifFileRecords} instance.
+   *
+   * @param sourceEvent the value to use for {@link #getSourceEvent()}
+   * @param records the value to use for {@link #getRecords()}
+   * @param firstRecordOffset the value to use for {@link #getFirstRecordOffset()}
+   */
+  public RifFileRecords(
+      RifFileEvent sourceEvent, Stream<RifRecordEvent<?>> records, long firstRecordOffset) {
     Objects.requireNonNull(sourceEvent);
     Objects.requireNonNull(records);
+    if (firstRecordOffset < 0) throw new IllegalArgumentException();
 
     this.sourceEvent = sourceEvent;
     this.records = records;
+    this.firstRecordOffset = firstRecordOffset;
   }
 
   /**
@@ -41,12 +56,23 @@ public final class RifFileRecords {
     return records;
   }
 
+  /**
+   * @return the (zero-based) index, within the {@link RifFile}, of the first record in {@link
+   *     #getRecords()}, which will be non-zero if the records before it were skipped (e.g. because
+   *     they had already been loaded)
+   */
+  public long getFirstRecordOffset() {
+    return firstRecordOffset;
+  }
+
   /** @see java.lang.Object#toString() */
   @Override
   public String toString() {
     StringBuilder builder = new StringBuilder();
     builder.append("RifFileRecords [sourceEvent=");
     builder.append(sourceEvent);
+    builder.append(", firstRecordOffset=");
+    builder.append(firstRecordOffset);
     builder.append("]");
     return builder.toString();
   }
@@ -0,0 +1,17 @@
+package gov.cms.bfd.model.rif;
+
+import java.util.Optional;
+
+/**
+ * Common interface for the claim RifRecords, which are flagged as SAMHSA-related (or not) when
+ * they're loaded, so that they can be filtered out in the database.
+ */
+public interface SamhsaFlaggedRecord extends RifRecordBase {
+  /**
+   * @return <code>true</code> if the claim is SAMHSA-related, <code>false</code> if it isn't, or
+   *     {@link Optional#empty()} if it was loaded before the flag was introduced
+   */
+  Optional<Boolean> getSamhsaRelated();
+
+  void setSamhsaRelated(Boolean samhsaRelated);
+}
@@ -0,0 +1,420 @@
+package gov.cms.bfd.model.rif.parse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.apache.commons.csv.CSVParser;
+
+/**
+ * A faster alternative to {@link RifParsingUtils#createCsvParser(gov.cms.bfd.model.rif.RifFile)}
+ * for RIF files that are available on local disk. Rather than streaming the file through a {@link
+ * java.io.Reader} and a {@link CSVParser}, this memory-maps the file and tokenizes each row
+ * directly from the mapped bytes into a reusable <code>char[]</code> buffer, producing one compact
+ * {@link RifRow} per row.
+ *
+ * <p>Rows are parsed according to the same rules as {@link RifParsingUtils#CSV_FORMAT}: the first
+ * row is the header, fields are delimited by <code>'|'</code>, fields may be wrapped in <code>'"'
+ * </code> quotes, and <code>'\'</code> escapes the following character. Just like {@link CSVParser}
+ * (as that format doesn't ignore empty lines), an empty row is returned as a row with a single
+ * empty field, and rows are numbered starting from <code>1</code> for the first row after the
+ * header. Rows must end with LF or CRLF. Only the ASCII-compatible {@link Charset}s that RIF files
+ * are actually delivered in are supported.
+ *
+ * <p>Files of any size can be read: they're mapped in windows of (at most) {@link
+ * #DEFAULT_WINDOW_SIZE} bytes at a time, so no single row may be larger than that.
+ *
+ * <p>This class is not thread-safe, though the {@link RifRow}s that it produces are.
+ */
+public final class MappedRifFileReader implements Iterator<RifRow>, Closeable {
+  /** The default maximum number of bytes of the file that will be mapped at any one time. */
+  static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+
+  private static final char DELIMITER = RifParsingUtils.CSV_FORMAT.getDelimiter();
+  private static final char QUOTE = RifParsingUtils.CSV_FORMAT.getQuoteCharacter();
+  private static final char ESCAPE = RifParsingUtils.CSV_FORMAT.getEscapeCharacter();
+  private static final byte BYTE_LF = '\n';
+  private static final byte BYTE_CR = '\r';
+  private static final byte BYTE_DELIMITER = (byte) DELIMITER;
+  private static final byte BYTE_QUOTE = (byte) QUOTE;
+  private static final byte BYTE_ESCAPE = (byte) ESCAPE;
+  private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+  private final FileChannel channel;
+  private final long fileSize;
+  private final int windowSize;
+  private final CharsetDecoder decoder;
+  private final RifRow.Header header;
+
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long position;
+  private long recordNumber;
+  private char[] rowBuffer;
+  private int[] fieldBoundsBuffer;
+  private RifRow nextRow;
+
+  /**
+   * Constructs a new {@link MappedRifFileReader} instance, and reads in the file's header row.
+   *
+   * @param file the {@link Path} of the RIF file to read
+   * @param charset the {@link Charset} that the RIF file is encoded in, which must be one of {@link
+   *     StandardCharsets#UTF_8}, {@link StandardCharsets#US_ASCII}, or {@link
+   *     StandardCharsets#ISO_8859_1}
+   */
+  public MappedRifFileReader(Path file, Charset charset) {
+    this(file, charset, DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * Constructs a new {@link MappedRifFileReader} instance, and reads in the file's header row.
+   *
+   * @param file the {@link Path} of the RIF file to read
+   * @param charset the {@link Charset} that the RIF file is encoded in, which must be one of {@link
+   *     StandardCharsets#UTF_8}, {@link StandardCharsets#US_ASCII}, or {@link
+   *     StandardCharsets#ISO_8859_1}
+   * @param windowSize the maximum number of bytes of the file to map at any one time
+   */
+  MappedRifFileReader(Path file, Charset charset, int windowSize) {
+    if (!isCharsetSupported(charset))
+      throw new IllegalArgumentException("Unsupported charset: " + charset);
+
+    try {
+      this.channel = FileChannel.open(file, StandardOpenOption.READ);
+      this.fileSize = channel.size();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.windowSize = windowSize;
+    this.decoder =
+        charset
+            .newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.rowBuffer = new char[8 * 1024];
+    this.fieldBoundsBuffer = new int[2 * 256];
+
+    this.windowStart = 0L;
+    this.position = 0L;
+    this.recordNumber = 0L;
+    mapWindow(0L);
+    if (charset.equals(StandardCharsets.UTF_8) && startsWithUtf8Bom()) position = UTF8_BOM.length;
+
+    // Just like CSVParser, an empty file is treated as having no columns and no rows.
+    RifRow headerRow = readRow(new RifRow.Header(new ArrayList<>()));
+    List<String> names = new ArrayList<>();
+    if (headerRow != null)
+      for (int index = 0; index < headerRow.size(); index++) names.add(headerRow.get(index));
+    this.header = new RifRow.Header(names);
+    this.recordNumber = 0L;
+    this.nextRow = headerRow != null ? readRow(header) : null;
+  }
+
+  /**
+   * @param charset the {@link Charset} to check
+   * @return <code>true</code> if {@link MappedRifFileReader} can read RIF files encoded in the
+   *     specified {@link Charset}, <code>false</code> if not
+   */
+  public static boolean isCharsetSupported(Charset charset) {
+    return charset.equals(StandardCharsets.UTF_8)
+        || charset.equals(StandardCharsets.US_ASCII)
+        || charset.equals(StandardCharsets.ISO_8859_1);
+  }
+
+  /** @return the header names of the RIF file's fields, in order */
+  public List<String> getHeaderNames() {
+    return header.getNames();
+  }
+
+  /** @see java.util.Iterator#hasNext() */
+  @Override
+  public boolean hasNext() {
+    return nextRow != null;
+  }
+
+  /** @see java.util.Iterator#next() */
+  @Override
+  public RifRow next() {
+    if (nextRow == null) throw new NoSuchElementException();
+
+    RifRow row = nextRow;
+    nextRow = readRow(header);
+    return row;
+  }
+
+  /** @see java.io.Closeable#close() */
+  @Override
+  public void close() throws IOException {
+    nextRow = null;
+    window = null;
+    channel.close();
+  }
+
+  /** @return <code>true</code> if the file starts with a UTF-8 byte order mark */
+  private boolean startsWithUtf8Bom() {
+    if (window.limit() < UTF8_BOM.length) return false;
+    for (int index = 0; index < UTF8_BOM.length; index++)
+      if (window.get(index) != UTF8_BOM[index]) return false;
+    return true;
+  }
+
+  /**
+   * Maps the window of the file that starts at the specified position.
+   *
+   * @param start the position in the file that the new window should start at
+   */
+  private void mapWindow(long start) {
+    try {
+      long size = Math.min(windowSize, fileSize - start);
+      window = channel.map(MapMode.READ_ONLY, start, size);
+      windowStart = start;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads the next row of the file, starting at {@link #position}, and advances past it.
+   *
+   * @param rowHeader the {@link RifRow.Header} to use for the new {@link RifRow}
+   * @return the next {@link RifRow}, or <code>null</code> if the end of the file has been reached
+   */
+  private RifRow readRow(RifRow.Header rowHeader) {
+    if (position >= fileSize) return null;
+
+    int rowEnd = findRowEnd();
+    int rowStart = (int) (position - windowStart);
+    position = windowStart + rowEnd;
+
+    // Skip past the line ending (if any), and drop any CR that preceded it.
+    int contentEnd = rowEnd;
+    if (rowEnd < window.limit()) position++;
+    if (contentEnd > rowStart && window.get(contentEnd - 1) == BYTE_CR) contentEnd--;
+
+    // Empty rows aren't skipped: they tokenize to a single empty field, just as in CSVParser.
+    recordNumber++;
+    int valuesLength = decodeRow(rowStart, contentEnd);
+    int fieldCount = tokenizeRow(valuesLength);
+    return new RifRow(
+        rowHeader,
+        recordNumber,
+        Arrays.copyOf(rowBuffer, fieldBoundsBuffer[2 * fieldCount - 1]),
+        Arrays.copyOf(fieldBoundsBuffer, 2 * fieldCount));
+  }
+
+  /**
+   * Finds the end of the row that starts at {@link #position}, re-mapping {@link #window} if that
+   * row extends past its end.
+   *
+   * <p>This has to track quoting and escaping, as line breaks inside of quoted fields or after an
+   * escape are part of the row, rather than the end of it. All of the special characters are ASCII,
+   * so they can never appear inside of a multi-byte UTF-8 sequence, and it's safe to scan for them
+   * byte-by-byte.
+   *
+   * @return the offset (in {@link #window}) of the row's terminating LF, or {@link #window}'s limit
+   *     if the row ends at the end of the file
+   */
+  private int findRowEnd() {
+    if (position - windowStart >= window.limit()) mapWindow(position);
+
+    while (true) {
+      int offset = (int) (position - windowStart);
+      int limit = window.limit();
+      boolean atFieldStart = true;
+      boolean inQuotes = false;
+
+      while (offset < limit) {
+        byte b = window.get(offset);
+        if (b == BYTE_ESCAPE) {
+          offset += 2;
+          atFieldStart = false;
+          continue;
+        } else if (inQuotes) {
+          if (b == BYTE_QUOTE) {
+            // A doubled quote is an escaped quote, otherwise this closes the quoted section.
+            if (offset + 1 < limit && window.get(offset + 1) == BYTE_QUOTE) offset++;
+            else inQuotes = false;
+          }
+        } else if (b == BYTE_LF) {
+          return offset;
+        } else if (b == BYTE_DELIMITER) {
+          atFieldStart = true;
+          offset++;
+          continue;
+        } else if (b == BYTE_QUOTE && atFieldStart) {
+          inQuotes = true;
+        }
+
+        atFieldStart = false;
+        offset++;
+      }
+
+      // The row ran off the end of the window: either the file ended, or we need a new window.
+      if (windowStart + limit >= fileSize) return limit;
+      if (position == windowStart)
+        throw new InvalidRifFileFormatException(
+            String.format("RIF row at byte %d is larger than %d bytes.", position, windowSize));
+      mapWindow(position);
+    }
+  }
+
+  /**
+   * Decodes the specified bytes of {@link #window} into {@link #rowBuffer}, growing it if needed.
+   *
+   * @param start the offset (in {@link #window}) of the first byte to decode
+   * @param end the offset (in {@link #window}) just past the last byte to decode
+   * @return the number of characters that were decoded
+   */
+  private int decodeRow(int start, int end) {
+    int length = end - start;
+    if (rowBuffer.length < length) rowBuffer = new char[Math.max(length, 2 * rowBuffer.length)];
+
+    // Fast path: pure ASCII rows (which is nearly all of them) map one byte to one char.
+    int index = 0;
+    for (; index < length; index++) {
+      byte b = window.get(start + index);
+      if (b < 0) break;
+      rowBuffer[index] = (char) b;
+    }
+    if (index == length) return length;
+
+    // Slow path: decode the remainder of the row properly.
+    ByteBuffer bytes = window.duplicate();
+    bytes.limit(end).position(start + index);
+    CharBuffer chars = CharBuffer.wrap(rowBuffer);
+    chars.position(index);
+    decoder.reset();
+    CoderResult result = decoder.decode(bytes, chars, true);
+    if (!result.isUnderflow()) throw new InvalidRifFileFormatException(result.toString());
+    decoder.flush(chars);
+    return chars.position();
+  }
+
+  /**
+   * Splits the row in {@link #rowBuffer} into fields, recording their bounds in {@link
+   * #fieldBoundsBuffer}. Quotes and escapes are removed from the field values in place, so the
+   * fields' values may end up shorter than the original row.
+   *
+   * @param length the number of characters in the row
+   * @return the number of fields in the row
+   */
+  private int tokenizeRow(int length) {
+    int fieldCount = 0;
+    int read = 0;
+    int write = 0;
+    int fieldStart = 0;
+    boolean atFieldStart = true;
+    boolean inQuotes = false;
+    while (read < length) {
+      char c = rowBuffer[read];
+      if (c == ESCAPE) {
+        if (read + 1 >= length)
+          throw new InvalidRifFileFormatException(
+              String.format("EOF whilst processing escape sequence in record %d.", recordNumber));
+
+        // Unrecognized escape sequences are passed through as-is, just like CSVParser does.
+        char escaped = rowBuffer[read + 1];
+        int unescaped = unescape(escaped);
+        if (unescaped < 0) {
+          rowBuffer[write++] = c;
+          rowBuffer[write++] = escaped;
+        } else {
+          rowBuffer[write++] = (char) unescaped;
+        }
+        read += 2;
+        atFieldStart = false;
+        continue;
+      } else if (inQuotes) {
+        if (c == QUOTE) {
+          // A doubled quote is an escaped quote, otherwise this closes the quoted section.
+          if (read + 1 < length && rowBuffer[read + 1] == QUOTE) {
+            read++;
+          } else {
+            inQuotes = false;
+            read++;
+            continue;
+          }
+        }
+      } else if (c == DELIMITER) {
+        fieldCount = addField(fieldCount, fieldStart, write);
+        fieldStart = write;
+        atFieldStart = true;
+        read++;
+        continue;
+      } else if (c == QUOTE && atFieldStart) {
+        inQuotes = true;
+        atFieldStart = false;
+        read++;
+        continue;
+      }
+
+      rowBuffer[write++] = c;
+      atFieldStart = false;
+      read++;
+    }
+
+    return addField(fieldCount, fieldStart, write);
+  }
+
+  /**
+   * Records the bounds of a field in {@link #fieldBoundsBuffer}, growing it if needed.
+   *
+   * @param fieldCount the number of fields recorded so far for the current row
+   * @param start the offset (in {@link #rowBuffer}) of the field's first character
+   * @param end the offset (in {@link #rowBuffer}) just past the field's last character
+   * @return the new number of fields recorded for the current row
+   */
+  private int addField(int fieldCount, int start, int end) {
+    if (fieldBoundsBuffer.length < 2 * (fieldCount + 1))
+      fieldBoundsBuffer = Arrays.copyOf(fieldBoundsBuffer, 2 * fieldBoundsBuffer.length);
+
+    fieldBoundsBuffer[2 * fieldCount] = start;
+    fieldBoundsBuffer[2 * fieldCount + 1] = end;
+    return fieldCount + 1;
+  }
+
+  /**
+   * @param escaped the character that followed an escape character
+   * @return the character that the escape sequence represents, or <code>-1</code> if it isn't a
+   *     recognized escape sequence (using the same rules as {@link CSVParser})
+   */
+  private static int unescape(char escaped) {
+    switch (escaped) {
+      case 'r':
+        return '\r';
+      case 'n':
+        return '\n';
+      case 't':
+        return '\t';
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case '\r':
+      case '\n':
+      case '\t':
+      case '\b':
+      case '\f':
+        return escaped;
+      default:
+        if (escaped == DELIMITER || escaped == QUOTE || escaped == ESCAPE) return escaped;
+        return -1;
+    }
+  }
+}
@@ -9,6 +9,7 @@ import java.nio.charset.Charset;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
@@ -30,6 +31,42 @@ public final class RifParsingUtils {
           .appendPattern("dd-MMM-yyyy HH:mm:ss")
           .toFormatter();
 
+  private static final DateTimeFormatter RIF_DATE_FORMATTER =
+      new DateTimeFormatterBuilder()
+          .parseCaseInsensitive()
+          .appendPattern("dd-MMM-yyyy")
+          .toFormatter();
+
+  private static final DateTimeFormatter RIF_COMPACT_DATE_FORMATTER =
+      new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("yyyyMMdd").toFormatter();
+
+  /** The upper-case English month abbreviations, as used in {@link #RIF_DATE_FORMATTER}. */
+  private static final String[] MONTH_ABBREVIATIONS = {
+    "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"
+  };
+
+  /** The number of entries in {@link #DATE_CACHE}, which must be a power of two. */
+  private static final int DATE_CACHE_SIZE = 1024;
+
+  /**
+   * A small direct-mapped cache of recently parsed dates, indexed by (a few bits of) each date
+   * {@link String}'s hash code. Entries are immutable and may be overwritten at any time, so racy
+   * reads and writes from multiple threads are harmless: at worst, a date gets parsed again.
+   */
+  private static final CachedDate[] DATE_CACHE = new CachedDate[DATE_CACHE_SIZE];
+
+  /**
+   * The maximum length of the numbers that {@link #parseInteger(String)} will decode directly:
+   * anything with this many digits or fewer is guaranteed to fit in an <code>int</code>.
+   */
+  private static final int MAX_FAST_INTEGER_DIGITS = 9;
+
+  /**
+   * The maximum number of digits that {@link #parseDecimal(String)} will decode directly: anything
+   * with this many digits or fewer is guaranteed to fit in a <code>long</code>.
+   */
+  private static final int MAX_FAST_DECIMAL_DIGITS = 18;
+
   /**
    * @param file the {@link RifFile} to parse
    * @return a {@link CSVParser} for the specified {@link RifFile}
@@ -97,9 +134,29 @@ public final class RifParsingUtils {
    */
   public static Integer parseInteger(String intText) {
     /*
-     * Might seem silly to pull this out, but it makes the code a bit easier
-     * to read, and ensures that this parsing is standardized.
+     * Almost every value here is a short, unsigned, ASCII number, which can be decoded directly
+     * without any of Integer.parseInt(...)'s radix and Unicode digit handling. Anything else
+     * (signs, overflow, garbage) falls back to the standard parsing.
      */
+    int length = intText.length();
+    if (length > 0 && length <= MAX_FAST_INTEGER_DIGITS) {
+      int value = 0;
+      for (int i = 0; i < length; i++) {
+        int digit = intText.charAt(i) - '0';
+        if (digit < 0 || digit > 9) return parseIntegerSlowly(intText);
+        value = value * 10 + digit;
+      }
+      return value;
+    }
+
+    return parseIntegerSlowly(intText);
+  }
+
+  /**
+   * @param intText the number string to parse
+   * @return the specified text parsed into an {@link Integer}, via {@link Integer#parseInt(String)}
+   */
+  private static Integer parseIntegerSlowly(String intText) {
     try {
       return Integer.parseInt(intText);
     } catch (NumberFormatException e) {
@@ -126,20 +183,56 @@ public final class RifParsingUtils {
    * @return the specified text parsed into a {@link BigDecimal}
    */
   public static BigDecimal parseDecimal(String decimalText) {
+    if (decimalText.isEmpty()) return BigDecimal.ZERO;
+
     /*
-     * Might seem silly to pull this out, but it makes the code a bit easier
-     * to read, and ensures that this parsing is standardized.
+     * RIF amounts are plain (no exponent) decimals with only a handful of digits, e.g.
+     * "-123.45", which fit in a long. Decoding those directly and handing the result to
+     * BigDecimal.valueOf(...) yields exactly the same value and scale as new BigDecimal(String),
+     * without its char[] copy and general-purpose parsing. Anything else falls back to that.
      */
-    if (decimalText.isEmpty()) {
-      return new BigDecimal(0);
-    } else {
-      try {
-        return new BigDecimal(decimalText);
-      } catch (NumberFormatException e) {
-        throw new InvalidRifValueException(
-            String.format("Unable to parse decimal value: '%s'.", decimalText), e);
+    int length = decimalText.length();
+    int start = 0;
+    boolean negative = false;
+    char first = decimalText.charAt(0);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      start = 1;
+    }
+
+    long unscaledValue = 0;
+    int digitCount = 0;
+    int scale = 0;
+    boolean seenPoint = false;
+    for (int i = start; i < length; i++) {
+      char c = decimalText.charAt(i);
+      if (c >= '0' && c <= '9') {
+        if (++digitCount > MAX_FAST_DECIMAL_DIGITS) return parseDecimalSlowly(decimalText);
+        unscaledValue = unscaledValue * 10 + (c - '0');
+        if (seenPoint) scale++;
+      } else if (c == '.' && !seenPoint) {
+        seenPoint = true;
+      } else {
+        return parseDecimalSlowly(decimalText);
       }
     }
+    if (digitCount == 0) return parseDecimalSlowly(decimalText);
+
+    return BigDecimal.valueOf(negative ? -unscaledValue : unscaledValue, scale);
+  }
+
+  /**
+   * @param decimalText the (non-empty) decimal string to parse
+   * @return the specified text parsed into a {@link BigDecimal}, via {@link
+   *     BigDecimal#BigDecimal(String)}
+   */
+  private static BigDecimal parseDecimalSlowly(String decimalText) {
+    try {
+      return new BigDecimal(decimalText);
+    } catch (NumberFormatException e) {
+      throw new InvalidRifValueException(
+          String.format("Unable to parse decimal value: '%s'.", decimalText), e);
+    }
   }
 
   /**
@@ -161,29 +254,116 @@ public final class RifParsingUtils {
    */
   public static LocalDate parseDate(String dateText) {
     /*
-     * Might seem silly to pull this out, but it makes the code a bit easier
-     * to read, and ensures that this parsing is standardized.
+     * RIF files contain dozens of dates per claim, but only a relatively small number of distinct
+     * date values, so check the cache of recently-parsed dates first.
      */
+    int cacheIndex = dateText.hashCode() & (DATE_CACHE_SIZE - 1);
+    CachedDate cachedDate = DATE_CACHE[cacheIndex];
+    if (cachedDate != null && cachedDate.dateText.equals(dateText)) return cachedDate.date;
 
-    DateTimeFormatter rifDateFormatter;
     /*
      * Incoming dates usually are in the format of dd-MMM-yyyy (01-MAR-2019). There
      * are a couple instances where a date may come in the format of yyyyMMdd
      * (20190301). Thus the reason for the following code.
      */
-    if (dateText.matches("\\d{8}")) {
-      rifDateFormatter =
-          new DateTimeFormatterBuilder()
-              .parseCaseInsensitive()
-              .appendPattern("yyyyMMdd")
-              .toFormatter();
-    } else {
-      rifDateFormatter =
-          new DateTimeFormatterBuilder()
-              .parseCaseInsensitive()
-              .appendPattern("dd-MMM-yyyy")
-              .toFormatter();
+    LocalDate date = null;
+    if (dateText.length() == 11) date = decodeRifDate(dateText);
+    else if (dateText.length() == 8) date = decodeCompactDate(dateText);
+    if (date == null) date = parseDateSlowly(dateText);
+
+    DATE_CACHE[cacheIndex] = new CachedDate(dateText, date);
+    return date;
+  }
+
+  /**
+   * Decodes the common <code>dd-MMM-yyyy</code> date format directly, without the overhead of a
+   * {@link DateTimeFormatter}.
+   *
+   * @param dateText the (11 character) date string to decode
+   * @return the specified text as a {@link LocalDate}, or <code>null</code> if it couldn't be
+   *     decoded by this fast path (in which case {@link #parseDateSlowly(String)} should be used)
+   */
+  private static LocalDate decodeRifDate(String dateText) {
+    if (dateText.charAt(2) != '-' || dateText.charAt(6) != '-') return null;
+
+    int day = decodeDigits(dateText, 0, 2);
+    int month = decodeMonth(dateText, 3);
+    int year = decodeDigits(dateText, 7, 11);
+    return toDate(year, month, day);
+  }
+
+  /**
+   * Decodes the <code>yyyyMMdd</code> date format directly, without the overhead of a {@link
+   * DateTimeFormatter}.
+   *
+   * @param dateText the (8 character) date string to decode
+   * @return the specified text as a {@link LocalDate}, or <code>null</code> if it couldn't be
+   *     decoded by this fast path (in which case {@link #parseDateSlowly(String)} should be used)
+   */
+  private static LocalDate decodeCompactDate(String dateText) {
+    int year = decodeDigits(dateText, 0, 4);
+    int month = decodeDigits(dateText, 4, 6);
+    int day = decodeDigits(dateText, 6, 8);
+    return toDate(year, month, day);
+  }
+
+  /**
+   * @param year the year to use, or <code>-1</code> if it was invalid
+   * @param month the month-of-year to use, or <code>-1</code> if it was invalid
+   * @param day the day-of-month to use, or <code>-1</code> if it was invalid
+   * @return the specified {@link LocalDate}, or <code>null</code> if the specified fields aren't
+   *     unambiguously valid (leaving it up to {@link #parseDateSlowly(String)} to decide)
+   */
+  private static LocalDate toDate(int year, int month, int day) {
+    if (year < 1 || month < 1 || month > 12 || day < 1) return null;
+    if (day > 28 && day > YearMonth.of(year, month).lengthOfMonth()) return null;
+    return LocalDate.of(year, month, day);
+  }
+
+  /**
+   * @param text the text to decode
+   * @param start the index of the first digit to decode (inclusive)
+   * @param end the index of the last digit to decode (exclusive)
+   * @return the non-negative number represented by the specified ASCII digits, or <code>-1</code>
+   *     if any of those characters aren't ASCII digits
+   */
+  private static int decodeDigits(String text, int start, int end) {
+    int value = 0;
+    for (int i = start; i < end; i++) {
+      int digit = text.charAt(i) - '0';
+      if (digit < 0 || digit > 9) return -1;
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  /**
+   * @param text the text to decode
+   * @param start the index of the three-letter English month abbreviation to decode
+   * @return the (one-based) month-of-year represented by the specified (case-insensitive) month
+   *     abbreviation, or <code>-1</code> if it isn't one
+   */
+  private static int decodeMonth(String text, int start) {
+    char c1 = Character.toUpperCase(text.charAt(start));
+    char c2 = Character.toUpperCase(text.charAt(start + 1));
+    char c3 = Character.toUpperCase(text.charAt(start + 2));
+    for (int month = 0; month < MONTH_ABBREVIATIONS.length; month++) {
+      String abbreviation = MONTH_ABBREVIATIONS[month];
+      if (abbreviation.charAt(0) == c1
+          && abbreviation.charAt(1) == c2
+          && abbreviation.charAt(2) == c3) return month + 1;
     }
+    return -1;
+  }
+
+  /**
+   * @param dateText the date string to parse
+   * @return the specified text as a {@link LocalDate}, parsed via {@link #RIF_DATE_FORMATTER} or
+   *     {@link #RIF_COMPACT_DATE_FORMATTER}
+   */
+  private static LocalDate parseDateSlowly(String dateText) {
+    DateTimeFormatter rifDateFormatter =
+        dateText.matches("\\d{8}") ? RIF_COMPACT_DATE_FORMATTER : RIF_DATE_FORMATTER;
 
     try {
       LocalDate dateFrom = LocalDate.parse(dateText, rifDateFormatter);
@@ -269,4 +449,21 @@ public final class RifParsingUtils {
       return Optional.of(parseCharacter(charText));
     }
   }
+
+  /** An entry in {@link RifParsingUtils#DATE_CACHE}. */
+  private static final class CachedDate {
+    private final String dateText;
+    private final LocalDate date;
+
+    /**
+     * Constructs a new {@link CachedDate} instance.
+     *
+     * @param dateText the date string that was parsed
+     * @param date the {@link LocalDate} that the date string was parsed into
+     */
+    CachedDate(String dateText, LocalDate date) {
+      this.dateText = dateText;
+      this.date = date;
+    }
+  }
 }
@@ -0,0 +1,173 @@
+package gov.cms.bfd.model.rif.parse;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * A single row from a RIF file, as produced by {@link MappedRifFileReader}. This is a lighter
+ * weight alternative to {@link CSVRecord}: rather than a separate {@link String} per field, each
+ * row stores all of its (already unescaped) field values in a single <code>char[]</code>, along
+ * with the offsets of each field. {@link String}s are only created for the fields that are actually
+ * requested.
+ *
+ * <p>Column access mirrors {@link CSVRecord}'s, so that the generated <code>*Parser</code> classes
+ * can use either. Instances are immutable and may be safely passed between threads.
+ */
+public final class RifRow {
+  private final Header header;
+  private final long recordNumber;
+  private final char[] values;
+  private final int[] fieldBounds;
+
+  /**
+   * Constructs a new {@link RifRow} instance.
+   *
+   * @param header the {@link Header} of the file that this {@link RifRow} is from
+   * @param recordNumber the value to use for {@link #getRecordNumber()}
+   * @param values the characters of all of this row's field values, concatenated together
+   * @param fieldBounds the start (inclusive) and end (exclusive) offsets into <code>values</code>
+   *     of each field, with two elements per field
+   */
+  RifRow(Header header, long recordNumber, char[] values, int[] fieldBounds) {
+    this.header = header;
+    this.recordNumber = recordNumber;
+    this.values = values;
+    this.fieldBounds = fieldBounds;
+  }
+
+  /**
+   * @return the (one-based) number of this row in its file, matching {@link
+   *     CSVRecord#getRecordNumber()}: the first row after the header is row <code>1</code>, and
+   *     empty rows are counted (as they're returned as rows with a single empty field)
+   */
+  public long getRecordNumber() {
+    return recordNumber;
+  }
+
+  /** @return the number of fields in this row */
+  public int size() {
+    return fieldBounds.length / 2;
+  }
+
+  /**
+   * @param index the (zero-based) index of the field to get
+   * @return the value of the specified field
+   */
+  public String get(int index) {
+    if (index < 0 || index >= size()) throw new ArrayIndexOutOfBoundsException(index);
+    int start = fieldBounds[2 * index];
+    return new String(values, start, fieldBounds[2 * index + 1] - start);
+  }
+
+  /**
+   * @param name the header name of the field to get
+   * @return the value of the specified field
+   */
+  public String get(String name) {
+    return get(name, header.indexOf(name));
+  }
+
+  /**
+   * @param column the RIF column {@link Enum} constant for the field to get, whose {@link
+   *     Enum#toString()} must match one of the file's header names
+   * @return the value of the specified field
+   */
+  public String get(Enum<?> column) {
+    return get(column.toString(), header.indexOf(column));
+  }
+
+  /**
+   * @param name the header name of the field to get
+   * @param index the index of the field to get, or <code>-1</code> if it's not in the header
+   * @return the value of the specified field
+   */
+  private String get(String name, int index) {
+    if (index < 0)
+      throw new IllegalArgumentException(
+          String.format("Mapping for %s not found, expected one of %s", name, header.getNames()));
+    if (index >= size())
+      throw new IllegalArgumentException(
+          String.format(
+              "Index for header '%s' is %d but RifRow only has %d values!", name, index, size()));
+    return get(index);
+  }
+
+  /** @see java.lang.Object#toString() */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("RifRow [recordNumber=");
+    builder.append(recordNumber);
+    builder.append(", values=[");
+    for (int index = 0; index < size(); index++) {
+      if (index > 0) builder.append(", ");
+      builder.append(get(index));
+    }
+    builder.append("]]");
+    return builder.toString();
+  }
+
+  /**
+   * The header row of a RIF file, which is shared by all of that file's {@link RifRow}s. Caches the
+   * field index for each RIF column {@link Enum} constant, so that {@link RifRow#get(Enum)} doesn't
+   * need to do any {@link String} hashing.
+   */
+  static final class Header {
+    private final List<String> names;
+    private final Map<String, Integer> indices;
+    private final ConcurrentMap<Class<?>, int[]> enumIndices;
+
+    /**
+     * Constructs a new {@link Header} instance.
+     *
+     * @param names the header names of the file's fields, in order
+     */
+    Header(List<String> names) {
+      this.names = Collections.unmodifiableList(names);
+      this.indices = new HashMap<>();
+      for (int index = 0; index < names.size(); index++) indices.put(names.get(index), index);
+      this.enumIndices = new ConcurrentHashMap<>();
+    }
+
+    /** @return the header names of the file's fields, in order */
+    List<String> getNames() {
+      return names;
+    }
+
+    /**
+     * @param name the header name to find
+     * @return the index of the field with the specified name, or <code>-1</code> if there is none
+     */
+    int indexOf(String name) {
+      Integer index = indices.get(name);
+      return index != null ? index : -1;
+    }
+
+    /**
+     * @param column the RIF column {@link Enum} constant to find
+     * @return the index of the field for the specified column, or <code>-1</code> if there is none
+     */
+    int indexOf(Enum<?> column) {
+      int[] ordinalIndices =
+          enumIndices.computeIfAbsent(column.getDeclaringClass(), this::mapEnumConstants);
+      return ordinalIndices[column.ordinal()];
+    }
+
+    /**
+     * @param enumClass the RIF column {@link Enum} {@link Class} to map
+     * @return the field index for each of the specified {@link Enum}'s constants, by ordinal
+     */
+    private int[] mapEnumConstants(Class<?> enumClass) {
+      Object[] constants = enumClass.getEnumConstants();
+      int[] ordinalIndices = new int[constants.length];
+      for (Object constant : constants)
+        ordinalIndices[((Enum<?>) constant).ordinal()] = indexOf(constant.toString());
+      return ordinalIndices;
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package gov.cms.bfd.model.rif.samhsa;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+
+/**
+ * The lists of SAMHSA-related codes, as loaded from the <code>samhsa-related-codes/codes-*.csv
+ * </code> classpath resources, along with the normalization rules used to compare claims' codes
+ * against them.
+ *
+ * <p>See <code>/bluebutton-data-server.git/dev/design-samhsa-filtering.md</code> for details on the
+ * design of this feature.
+ *
+ * <p>This class is designed to be thread-safe, as it's expensive to construct and so should be used
+ * as a singleton.
+ */
+public final class SamhsaCodes {
+  /** The {@link CSVFormat} used to parse the SAMHSA-related code CSV files. */
+  private static final CSVFormat CSV_FORMAT = CSVFormat.EXCEL.withHeader();
+
+  private final Set<String> drgCodes;
+  private final Set<String> cptCodes;
+  private final Set<String> icd9ProcedureCodes;
+  private final Set<String> icd9DiagnosisCodes;
+  private final Set<String> icd10ProcedureCodes;
+  private final Set<String> icd10DiagnosisCodes;
+
+  /**
+   * Constructs a new {@link SamhsaCodes}, loading the lists of SAMHSA-related codes from the
+   * classpath.
+   */
+  public SamhsaCodes() {
+    this.drgCodes =
+        resourceCsvColumnToSet(
+            "samhsa-related-codes/codes-drg.csv", "MS-DRGs", SamhsaCodes::normalizeDrgCode);
+    this.cptCodes =
+        resourceCsvColumnToSet(
+            "samhsa-related-codes/codes-cpt.csv", "CPT Code", Function.identity());
+    this.icd9ProcedureCodes =
+        resourceCsvColumnToSet(
+            "samhsa-related-codes/codes-icd-9-procedure.csv",
+            "ICD-9-CM",
+            SamhsaCodes::normalizeIcd9Code);
+    this.icd9DiagnosisCodes =
+        resourceCsvColumnToSet(
+            "samhsa-related-codes/codes-icd-9-diagnosis.csv",
+            "ICD-9-CM Diagnosis Code",
+            SamhsaCodes::normalizeIcd9Code);
+    this.icd10ProcedureCodes =
+        resourceCsvColumnToSet(
+            "samhsa-related-codes/codes-icd-10-procedure.csv",
+            "ICD-10-PCS Code",
+            SamhsaCodes::normalizeIcd10Code);
+    this.icd10DiagnosisCodes =
+        resourceCsvColumnToSet(
+            "samhsa-related-codes/codes-icd-10-diagnosis.csv",
+            "ICD-10-CM Diagnosis Code",
+            SamhsaCodes::normalizeIcd10Code);
+  }
+
+  /**
+   * @param csvResourceName the classpath resource name of the CSV file to parse
+   * @param columnToReturn the name of the column to return from the CSV file
+   * @param normalizer the {@link Function} to normalize each of the column's values with
+   * @return an unmodifiable {@link Set} of the normalized values from the specified column of the
+   *     specified CSV file
+   */
+  private static Set<String> resourceCsvColumnToSet(
+      String csvResourceName, String columnToReturn, Function<String, String> normalizer) {
+    CSVParser csvParser = null;
+    try (InputStream csvStream =
+            Thread.currentThread().getContextClassLoader().getResourceAsStream(csvResourceName);
+        InputStreamReader csvReader = new InputStreamReader(csvStream, StandardCharsets.UTF_8); ) {
+      csvParser = new CSVParser(csvReader, CSV_FORMAT);
+      List<String> columnValues = new ArrayList<>();
+      csvParser.forEach(
+          record -> {
+            columnValues.add(normalizer.apply(record.get(columnToReturn)));
+          });
+      return Collections.unmodifiableSet(new HashSet<>(columnValues));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      if (csvParser != null) {
+        try {
+          csvParser.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param drgCode the DRG code to check, as stored in the CCW (which has already normalized it to
+   *     the 3 digit code)
+   * @return <code>true</code> if the specified DRG code is SAMHSA-related, <code>false</code> if it
+   *     is not
+   */
+  public boolean isSamhsaDrgCode(String drgCode) {
+    return drgCodes.contains(drgCode);
+  }
+
+  /**
+   * @param hcpcsCode the HCPCS code to check
+   * @return <code>true</code> if the specified HCPCS code is a SAMHSA-related CPT code, <code>
+   *     false</code> if it is not
+   */
+  public boolean isSamhsaCptCode(String hcpcsCode) {
+    /*
+     * Note: CPT codes represent a subset of possible HCPCS codes (but are the only
+     * subset that we blacklist from).
+     */
+    return cptCodes.contains(normalizeHcpcsCode(hcpcsCode));
+  }
+
+  /**
+   * @param icd9Code the ICD-9 diagnosis code to check
+   * @return <code>true</code> if the specified ICD-9 diagnosis code is SAMHSA-related, <code>false
+   *     </code> if it is not
+   */
+  public boolean isSamhsaIcd9Diagnosis(String icd9Code) {
+    return icd9DiagnosisCodes.contains(normalizeIcd9Code(icd9Code));
+  }
+
+  /**
+   * @param icd9Code the ICD-9 procedure code to check
+   * @return <code>true</code> if the specified ICD-9 procedure code is SAMHSA-related, <code>false
+   *     </code> if it is not
+   */
+  public boolean isSamhsaIcd9Procedure(String icd9Code) {
+    return icd9ProcedureCodes.contains(normalizeIcd9Code(icd9Code));
+  }
+
+  /**
+   * @param icd10Code the ICD-10 diagnosis code to check
+   * @return <code>true</code> if the specified ICD-10 diagnosis code is SAMHSA-related, <code>
+   *     false</code> if it is not
+   */
+  public boolean isSamhsaIcd10Diagnosis(String icd10Code) {
+    return icd10DiagnosisCodes.contains(normalizeIcd10Code(icd10Code));
+  }
+
+  /**
+   * @param icd10Code the ICD-10 procedure code to check
+   * @return <code>true</code> if the specified ICD-10 procedure code is SAMHSA-related, <code>
+   *     false</code> if it is not
+   */
+  public boolean isSamhsaIcd10Procedure(String icd10Code) {
+    return icd10ProcedureCodes.contains(normalizeIcd10Code(icd10Code));
+  }
+
+  /**
+   * @param icd9Code the ICD-9 code to normalize
+   * @return the specified ICD-9 code, but with whitespace trimmed, the first (if any) decimal point
+   *     removed, and converted to all-caps
+   */
+  private static String normalizeIcd9Code(String icd9Code) {
+    icd9Code = icd9Code.trim();
+    icd9Code = icd9Code.replaceFirst("\\.", "");
+    icd9Code = icd9Code.toUpperCase();
+
+    return icd9Code;
+  }
+
+  /**
+   * Example input: MS-DRG 522 Example output: 522
+   *
+   * @param code the DRG code to normalize
+   * @return the specified DRG code, but with the "MS-DRG" prefix and space removed.
+   */
+  private static String normalizeDrgCode(String code) {
+    code = code.trim();
+    code = code.replace("MS-DRG ", "");
+    return code;
+  }
+
+  /**
+   * @param icd10Code the ICD-10 code to normalize
+   * @return the specified ICD-10 code, but with whitespace trimmed, the first (if any) decimal
+   *     point removed, and converted to all-caps
+   */
+  private static String normalizeIcd10Code(String icd10Code) {
+    icd10Code = icd10Code.trim();
+    icd10Code = icd10Code.replaceFirst("\\.", "");
+    icd10Code = icd10Code.toUpperCase();
+
+    return icd10Code;
+  }
+
+  /**
+   * @param hcpcsCode the HCPCS code to normalize
+   * @return the specified HCPCS code, but with whitespace trimmed and converted to all-caps
+   */
+  private static String normalizeHcpcsCode(String hcpcsCode) {
+    hcpcsCode = hcpcsCode.trim();
+    hcpcsCode = hcpcsCode.toUpperCase();
+
+    return hcpcsCode;
+  }
+}
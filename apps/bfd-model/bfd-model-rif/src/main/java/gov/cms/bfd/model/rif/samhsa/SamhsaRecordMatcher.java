@@ -0,0 +1,180 @@
+package gov.cms.bfd.model.rif.samhsa;
+
+import gov.cms.bfd.model.rif.SamhsaFlaggedRecord;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * A {@link Predicate} that, when <code>true</code>, indicates that a claim {@link
+ * SamhsaFlaggedRecord} (as parsed from a RIF file) is SAMHSA-related. This is used to flag claims
+ * as they're loaded, so that SAMHSA-related claims can be excluded by the database, rather than by
+ * transforming and then checking every claim.
+ *
+ * <p>This must give the same answer as <code>
+ * gov.cms.bfd.server.war.stu3.providers.SamhsaMatcher</code> would for the claim's transformed
+ * <code>ExplanationOfBenefit</code>, so it checks the same fields (as detailed in <code>
+ * /bluebutton-data-server.git/dev/design-samhsa-filtering.md</code>) against the same {@link
+ * SamhsaCodes}:
+ *
+ * <ul>
+ *   <li>Every <code>diagnosis*Code</code> and <code>procedure*Code</code> field that has a
+ *       corresponding <code>*CodeVersion</code> field, as an ICD-9 or ICD-10 code per that version.
+ *   <li>The <code>diagnosisRelatedGroupCd</code> field, as a DRG code.
+ *   <li>Each claim line's <code>hcpcsCode</code> field, as a CPT code.
+ * </ul>
+ *
+ * <p>The generated claim entities all follow those naming conventions, so the fields are found via
+ * reflection (once per entity class), rather than by listing all of their getters here.
+ *
+ * <p>This class is designed to be thread-safe, as it's expensive to construct and so should be used
+ * as a singleton.
+ */
+public final class SamhsaRecordMatcher implements Predicate<SamhsaFlaggedRecord> {
+  private static final String LINES_FIELD = "lines";
+  private static final String HCPCS_FIELD = "hcpcsCode";
+  private static final String DRG_FIELD = "diagnosisRelatedGroupCd";
+
+  private final SamhsaCodes samhsaCodes;
+
+  /** The checks to run against each entity class' instances, built on first use. */
+  private final Map<Class<?>, List<Predicate<Object>>> checksByEntityClass;
+
+  /**
+   * Constructs a new {@link SamhsaRecordMatcher}.
+   *
+   * @param samhsaCodes the {@link SamhsaCodes} to check claims' codes against
+   */
+  public SamhsaRecordMatcher(SamhsaCodes samhsaCodes) {
+    this.samhsaCodes = Objects.requireNonNull(samhsaCodes);
+    this.checksByEntityClass = new ConcurrentHashMap<>();
+  }
+
+  /** @see java.util.function.Predicate#test(java.lang.Object) */
+  @Override
+  public boolean test(SamhsaFlaggedRecord claim) {
+    return containsSamhsaCode(claim);
+  }
+
+  /**
+   * @param entity the claim or claim line entity to check
+   * @return <code>true</code> if the specified entity (or any of its lines) contains any
+   *     known-SAMHSA-related codes, <code>false</code> if it does not
+   */
+  private boolean containsSamhsaCode(Object entity) {
+    List<Predicate<Object>> checks =
+        checksByEntityClass.computeIfAbsent(entity.getClass(), this::createChecks);
+    for (Predicate<Object> check : checks) {
+      if (check.test(entity)) return true;
+    }
+
+    // No blacklisted codes found: this claim isn't SAMHSA-related.
+    return false;
+  }
+
+  /**
+   * @param entityClass the claim or claim line entity class to create the checks for
+   * @return a {@link Predicate} for each of the specified entity class' fields that can contain a
+   *     SAMHSA-related code, which returns <code>true</code> if it does
+   */
+  private List<Predicate<Object>> createChecks(Class<?> entityClass) {
+    List<Predicate<Object>> checks = new ArrayList<>();
+    for (Field field : entityClass.getDeclaredFields()) {
+      String name = field.getName();
+      if (name.equals(LINES_FIELD)) {
+        field.setAccessible(true);
+        checks.add(
+            entity -> {
+              Collection<?> lines = (Collection<?>) readField(field, entity);
+              return lines != null && lines.stream().anyMatch(this::containsSamhsaCode);
+            });
+      } else if (name.equals(HCPCS_FIELD)) {
+        field.setAccessible(true);
+        checks.add(
+            entity -> {
+              String code = (String) readField(field, entity);
+              return code != null && samhsaCodes.isSamhsaCptCode(code);
+            });
+      } else if (name.equals(DRG_FIELD)) {
+        field.setAccessible(true);
+        checks.add(
+            entity -> {
+              String code = (String) readField(field, entity);
+              return code != null && samhsaCodes.isSamhsaDrgCode(code);
+            });
+      } else if ((name.startsWith("diagnosis") || name.startsWith("procedure"))
+          && name.endsWith("Code")) {
+        Field versionField = findField(entityClass, name + "Version");
+        if (versionField == null) continue;
+
+        boolean diagnosis = name.startsWith("diagnosis");
+        field.setAccessible(true);
+        versionField.setAccessible(true);
+        checks.add(
+            entity ->
+                isSamhsaIcdCode(
+                    (String) readField(field, entity),
+                    (Character) readField(versionField, entity),
+                    diagnosis));
+      }
+    }
+    return checks;
+  }
+
+  /**
+   * @param code the ICD code to check, or <code>null</code> if it's not present
+   * @param version the CCW encoding of the code's ICD version (see <code>
+   *     gov.cms.bfd.server.war.commons.IcdCode</code>), or <code>null</code> if it's not present
+   * @param diagnosis <code>true</code> if the code is a diagnosis code, <code>false</code> if it's
+   *     a procedure code
+   * @return <code>true</code> if the specified ICD code is SAMHSA-related, <code>false</code> if it
+   *     is not
+   */
+  private boolean isSamhsaIcdCode(String code, Character version, boolean diagnosis) {
+    if (code == null) return false;
+
+    if (version == null || version.equals('9')) {
+      return diagnosis
+          ? samhsaCodes.isSamhsaIcd9Diagnosis(code)
+          : samhsaCodes.isSamhsaIcd9Procedure(code);
+    } else if (version.equals('0')) {
+      return diagnosis
+          ? samhsaCodes.isSamhsaIcd10Diagnosis(code)
+          : samhsaCodes.isSamhsaIcd10Procedure(code);
+    } else {
+      // Fail safe: if we don't know the ICD version, assume the code is SAMHSA.
+      return true;
+    }
+  }
+
+  /**
+   * @param entityClass the class to find the field in
+   * @param name the name of the field to find
+   * @return the specified declared {@link Field}, or <code>null</code> if there is no such field
+   */
+  private static Field findField(Class<?> entityClass, String name) {
+    try {
+      return entityClass.getDeclaredField(name);
+    } catch (NoSuchFieldException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @param field the (accessible) {@link Field} to read
+   * @param entity the entity to read the {@link Field} of
+   * @return the value of the specified {@link Field} in the specified entity
+   */
+  private static Object readField(Field field, Object entity) {
+    try {
+      return field.get(entity);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,2 @@
+/** Contains the utilities used to identify SAMHSA-related claims. */
+package gov.cms.bfd.model.rif.samhsa;
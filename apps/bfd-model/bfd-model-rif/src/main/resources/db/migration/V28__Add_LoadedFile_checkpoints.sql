@@ -0,0 +1,13 @@
+/*
+ * Record which RIF file (from which data set) each "LoadedFiles" row is for, and which of that
+ * file's records each "LoadedBatches" row covers. Together, these allow an interrupted load of a
+ * RIF file to resume from where it left off, rather than from the start of the file.
+ *
+ * The columns are nullable, as there's no way to populate them for the rows that already exist.
+ */
+
+alter table "LoadedFiles" add column "dataSetTimestamp" timestamp with time zone;
+alter table "LoadedFiles" add column "fileName" varchar(1024);
+
+alter table "LoadedBatches" add column "recordOffset" bigint;
+alter table "LoadedBatches" add column "recordCount" integer;
@@ -0,0 +1,13 @@
+/*
+ * Store each "LoadedBatches" row's beneficiary IDs in a compact binary encoding (sorted,
+ * delta-encoded numbers, where possible; see BeneficiaryIdCodec), rather than as comma-joined text.
+ * This shrinks one of the most heavily-written tables during loads, and lets the server read the
+ * IDs back without any string splitting.
+ *
+ * The existing rows keep their "beneficiaries" text, which is still read when "beneficiaryIds" is
+ * null. New rows leave it null. The old rows will age out as "LoadedFiles" are trimmed.
+ */
+
+alter table "LoadedBatches" add column "beneficiaryIds" ${type.bytea};
+
+alter table "LoadedBatches" alter column "beneficiaries" ${logic.drop-not-null};
@@ -0,0 +1,13 @@
+/*
+ * Once a file has finished loading, the ETL pipeline now builds the Bloom filter of its
+ * beneficiary IDs and stores it (serialized) on the "LoadedFiles" row, along with the number of
+ * batches it was built from. That way, each server can just read the one blob, rather than every
+ * server fetching all of the file's "LoadedBatches" rows and rebuilding the same filter.
+ *
+ * Both columns are null for files that are still loading, or that were loaded before this change;
+ * the servers still build those filters from the batches.
+ */
+
+alter table "LoadedFiles" add column "beneficiaryFilter" ${type.bytea};
+
+alter table "LoadedFiles" add column "beneficiaryFilterBatches" ${type.int4};
@@ -0,0 +1,24 @@
+/*
+ * Each claim line row now also stores its parent claim's "beneficiaryId", so that the line tables
+ * can be hash-partitioned on the same key as the claim tables (which is done separately, by the
+ * PostgreSQL-only db/scripts/Partition_claims_by_beneficiary.sql script, as it has to rewrite every
+ * row).
+ *
+ * The column is populated for all newly-loaded lines. Per the V23 migration's notes, adding a
+ * nullable column without a default is just a metadata change, so the existing rows are left null
+ * here; the partitioning script backfills them.
+ */
+
+alter table "CarrierClaimLines" add column "beneficiaryId" varchar(15);
+
+alter table "DMEClaimLines" add column "beneficiaryId" varchar(15);
+
+alter table "HHAClaimLines" add column "beneficiaryId" varchar(15);
+
+alter table "HospiceClaimLines" add column "beneficiaryId" varchar(15);
+
+alter table "InpatientClaimLines" add column "beneficiaryId" varchar(15);
+
+alter table "OutpatientClaimLines" add column "beneficiaryId" varchar(15);
+
+alter table "SNFClaimLines" add column "beneficiaryId" varchar(15);
@@ -0,0 +1,33 @@
+/*
+ * Add an index on each claim table's beneficiary and service (end) date, so that EOB searches with
+ * a "service-date" range (typically "the last 90 days") only have to read the matching claims,
+ * rather than all of the beneficiary's claims.
+ *
+ * Note that indexes can't be created concurrently on partitioned tables: the
+ * db/scripts/Partition_claims_by_beneficiary.sql script creates these indexes itself, so it should
+ * only be run after this migration.
+ */
+
+create index ${logic.index-create-concurrently} "CarrierClaims_beneficiaryId_dateThrough_idx"
+    on "CarrierClaims" ("beneficiaryId", "dateThrough");
+
+create index ${logic.index-create-concurrently} "DMEClaims_beneficiaryId_dateThrough_idx"
+    on "DMEClaims" ("beneficiaryId", "dateThrough");
+
+create index ${logic.index-create-concurrently} "HHAClaims_beneficiaryId_dateThrough_idx"
+    on "HHAClaims" ("beneficiaryId", "dateThrough");
+
+create index ${logic.index-create-concurrently} "HospiceClaims_beneficiaryId_dateThrough_idx"
+    on "HospiceClaims" ("beneficiaryId", "dateThrough");
+
+create index ${logic.index-create-concurrently} "InpatientClaims_beneficiaryId_dateThrough_idx"
+    on "InpatientClaims" ("beneficiaryId", "dateThrough");
+
+create index ${logic.index-create-concurrently} "OutpatientClaims_beneficiaryId_dateThrough_idx"
+    on "OutpatientClaims" ("beneficiaryId", "dateThrough");
+
+create index ${logic.index-create-concurrently} "PartDEvents_beneficiaryId_prescriptionFillDate_idx"
+    on "PartDEvents" ("beneficiaryId", "prescriptionFillDate");
+
+create index ${logic.index-create-concurrently} "SNFClaims_beneficiaryId_dateThrough_idx"
+    on "SNFClaims" ("beneficiaryId", "dateThrough");
@@ -0,0 +1,26 @@
+/*
+ * Add a column to each claim table that records whether or not the claim is SAMHSA-related, as
+ * calculated by the pipeline when the claim is loaded. This allows EOB searches with
+ * "excludeSAMHSA=true" to filter out those claims in the database, rather than transforming every
+ * claim and then discarding the SAMHSA-related ones.
+ *
+ * Per the note in V23__Add_lastUpdated.sql, adding a column without a default is merely a metadata
+ * change. Claims that were loaded before this migration will have a null flag, which the server
+ * treats as unknown: it falls back to checking those claims after transforming them.
+ */
+
+alter table "CarrierClaims" add column "samhsaRelated" boolean;
+
+alter table "DMEClaims" add column "samhsaRelated" boolean;
+
+alter table "HHAClaims" add column "samhsaRelated" boolean;
+
+alter table "HospiceClaims" add column "samhsaRelated" boolean;
+
+alter table "InpatientClaims" add column "samhsaRelated" boolean;
+
+alter table "OutpatientClaims" add column "samhsaRelated" boolean;
+
+alter table "PartDEvents" add column "samhsaRelated" boolean;
+
+alter table "SNFClaims" add column "samhsaRelated" boolean;
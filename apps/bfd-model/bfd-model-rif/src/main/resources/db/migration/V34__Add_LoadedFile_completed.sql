@@ -0,0 +1,12 @@
+/*
+ * Record when each "LoadedFiles" row's RIF file finished loading, without any failed batches. An
+ * interrupted load of a RIF file only resumes from the attempts since that file (from that data
+ * set) last finished loading, so a deliberate reload of the same data set still loads every record.
+ *
+ * The rows that already exist can't be told apart, so they're all treated as having finished
+ * loading: at worst, an interrupted load from before this change is reloaded from the start.
+ */
+
+alter table "LoadedFiles" add column "completed" timestamp with time zone;
+
+update "LoadedFiles" set "completed" = "created";
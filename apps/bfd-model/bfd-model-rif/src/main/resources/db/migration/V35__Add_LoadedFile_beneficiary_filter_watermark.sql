@@ -0,0 +1,14 @@
+/*
+ * The ETL pipeline now adds each batch's beneficiary IDs to its file's Bloom filter as the batch
+ * is committed, and publishes that filter periodically while the file is loading (and once more
+ * when it's done), rather than only once the whole file has loaded successfully.
+ *
+ * A filter published mid-load covers all of the file's batches created before its watermark, but
+ * may be missing some of those created at or after it (that weren't committed yet). The servers
+ * add those later batches to the published filter themselves.
+ *
+ * The column is null for filters published before this change, which covered all of their
+ * file's batches.
+ */
+
+alter table "LoadedFiles" add column "beneficiaryFilterWatermark" timestamp with time zone;
@@ -0,0 +1,14 @@
+/*
+ * Records the secondary indexes and foreign keys that the ETL pipeline has dropped for an
+ * index-free bulk load, along with their definitions (as reported by PostgreSQL's catalog when they
+ * were dropped), so that exactly those are rebuilt afterwards. Each row is deleted once its index or
+ * foreign key has been rebuilt.
+ */
+
+create table "DroppedSecondaryIndexes" (
+  "name" varchar(255) not null,
+  "tableName" varchar(255) not null,
+  "foreignKey" boolean not null,
+  "definition" varchar(4096) not null,
+  constraint "DroppedSecondaryIndexes_pkey" primary key ("name", "foreignKey")
+);
@@ -0,0 +1,149 @@
+/*
+ * APPLY ONLY TO POSTGRESQL (12+) DATABASES, WHILE THE ETL PIPELINE IS STOPPED
+ *
+ * Converts the claim tables and their claim line tables into tables that are hash-partitioned on
+ * "beneficiaryId". Claims are only ever queried by beneficiary, so this lets PostgreSQL prune those
+ * queries down to a single partition, and spreads concurrent loads' writes (and their index
+ * maintenance) across the partitions, rather than every loader thread contending on one set of
+ * indexes per table.
+ *
+ * This can't be a Flyway migration: it has to rewrite every claim and line row, which takes hours
+ * for a production-sized database, and HSQL (used for the tests) doesn't support partitioning. It
+ * requires the V31 migration, which added the lines' "beneficiaryId" column; any lines loaded
+ * before that are backfilled from their parent claims here. It should also only be run after the
+ * V32 migration, as that creates its service date indexes concurrently, which PostgreSQL doesn't
+ * support for partitioned tables; this script creates those indexes itself.
+ *
+ * PostgreSQL requires that a partitioned table's unique constraints include its partition key, so
+ * the primary keys become ("claimId", "beneficiaryId") and ("parentClaim", "lineNumber",
+ * "beneficiaryId"), and the lines' foreign keys now reference both columns. The constraint and
+ * index names are unchanged. Claim IDs remain unique in practice, as they're still unique per
+ * beneficiary and the application never changes a claim's beneficiary.
+ *
+ * Everything is done in a single transaction, so if anything fails (e.g. if a line is found
+ * without a parent claim), the database is left as it was.
+ *
+ * Usage: psql --set=ON_ERROR_STOP=1 --file=Partition_claims_by_beneficiary.sql
+ */
+
+BEGIN;
+
+DO $$
+DECLARE
+  -- The number of hash partitions to create for each table. Each table has to be re-partitioned
+  -- to change this later, so it's sized for growth: aim for partitions of no more than ~100GB.
+  partition_count constant integer := 16;
+
+  claims_table text;
+  claims_id_column text;
+  service_date_column text;
+  lines_table text;
+  line_columns text;
+  partitioned_table text;
+  source_table text;
+  expected_rows bigint;
+  copied_rows bigint;
+BEGIN
+  FOREACH claims_table IN ARRAY array[
+      'CarrierClaims',
+      'DMEClaims',
+      'HHAClaims',
+      'HospiceClaims',
+      'InpatientClaims',
+      'OutpatientClaims',
+      'PartDEvents',
+      'SNFClaims'] LOOP
+    IF claims_table = 'PartDEvents' THEN
+      claims_id_column := 'eventId';
+      service_date_column := 'prescriptionFillDate';
+      lines_table := null;
+    ELSE
+      claims_id_column := 'claimId';
+      service_date_column := 'dateThrough';
+      lines_table := replace(claims_table, 'Claims', 'ClaimLines');
+    END IF;
+    RAISE NOTICE 'Partitioning "%"...', claims_table;
+
+    -- Create the new partitioned tables, alongside the original ones.
+    FOREACH source_table IN ARRAY array_remove(array[claims_table, lines_table], null) LOOP
+      partitioned_table := source_table || '_partitioned';
+      EXECUTE format(
+          'create table %I (like %I including defaults including storage)'
+              || ' partition by hash ("beneficiaryId")',
+          partitioned_table, source_table);
+      FOR i IN 0 .. partition_count - 1 LOOP
+        EXECUTE format(
+            'create table %I partition of %I for values with (modulus %s, remainder %s)',
+            source_table || '_p' || i, partitioned_table, partition_count, i);
+      END LOOP;
+    END LOOP;
+
+    -- Copy the claims over.
+    EXECUTE format('insert into %I select * from %I', claims_table || '_partitioned', claims_table);
+
+    -- Copy the lines over, taking their "beneficiaryId" from their parent claim.
+    IF lines_table IS NOT NULL THEN
+      SELECT string_agg(
+          CASE WHEN c.column_name = 'beneficiaryId'
+            THEN 'claims."beneficiaryId"'
+            ELSE 'lines.' || quote_ident(c.column_name) END,
+          ', ' ORDER BY c.ordinal_position)
+        INTO line_columns
+        FROM information_schema.columns c
+        WHERE c.table_schema = current_schema() AND c.table_name = lines_table;
+      IF line_columns NOT LIKE '%claims."beneficiaryId"%' THEN
+        RAISE EXCEPTION '"%" has no "beneficiaryId" column: apply the V31 migration first.',
+            lines_table;
+      END IF;
+
+      EXECUTE format(
+          'insert into %I select %s from %I lines'
+              || ' join %I claims on claims.%I = lines."parentClaim"',
+          lines_table || '_partitioned', line_columns, lines_table, claims_table, claims_id_column);
+      GET DIAGNOSTICS copied_rows = ROW_COUNT;
+      EXECUTE format('select count(*) from %I', lines_table) INTO expected_rows;
+      IF copied_rows <> expected_rows THEN
+        RAISE EXCEPTION '"%" has % rows without a parent claim.',
+            lines_table, expected_rows - copied_rows;
+      END IF;
+
+      EXECUTE format('drop table %I', lines_table);
+      EXECUTE format('alter table %I rename to %I', lines_table || '_partitioned', lines_table);
+    END IF;
+
+    -- Swap the new tables in, and recreate the constraints and indexes.
+    EXECUTE format('drop table %I', claims_table);
+    EXECUTE format('alter table %I rename to %I', claims_table || '_partitioned', claims_table);
+    EXECUTE format(
+        'alter table %I add constraint %I primary key (%I, "beneficiaryId")',
+        claims_table, claims_table || '_pkey', claims_id_column);
+    EXECUTE format(
+        'alter table %I add constraint %I foreign key ("beneficiaryId") references "Beneficiaries"',
+        claims_table, claims_table || '_beneficiaryId_to_Beneficiaries');
+    EXECUTE format(
+        'create index %I on %I ("beneficiaryId")',
+        claims_table || '_beneficiaryId_idx', claims_table);
+    EXECUTE format(
+        'create index %I on %I ("beneficiaryId", %I)',
+        claims_table || '_beneficiaryId_' || service_date_column || '_idx', claims_table,
+        service_date_column);
+
+    IF lines_table IS NOT NULL THEN
+      EXECUTE format('alter table %I alter column "beneficiaryId" set not null', lines_table);
+      EXECUTE format(
+          'alter table %I add constraint %I'
+              || ' primary key ("parentClaim", "lineNumber", "beneficiaryId")',
+          lines_table, lines_table || '_pkey');
+      EXECUTE format(
+          'alter table %I add constraint %I foreign key ("parentClaim", "beneficiaryId")'
+              || ' references %I (%I, "beneficiaryId")',
+          lines_table, lines_table || '_parentClaim_to_' || claims_table, claims_table,
+          claims_id_column);
+    END IF;
+  END LOOP;
+END
+$$;
+
+COMMIT;
+
+ANALYZE;
@@ -0,0 +1,65 @@
+package gov.cms.bfd.model.rif;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link gov.cms.bfd.model.rif.BeneficiaryIdCodec}. */
+public final class BeneficiaryIdCodecTest {
+  /**
+   * Verifies that numeric beneficiary IDs (including negative synthetic ones and duplicates)
+   * survive a round trip, and are encoded compactly.
+   */
+  @Test
+  public void roundTripsNumericIds() {
+    List<String> beneficiaryIds =
+        Arrays.asList(
+            "567834",
+            "-19990000000001",
+            "567835",
+            "567834",
+            String.valueOf(Long.MAX_VALUE),
+            String.valueOf(Long.MIN_VALUE));
+
+    byte[] encoded = BeneficiaryIdCodec.encode(beneficiaryIds);
+    Assert.assertEquals(beneficiaryIds.size(), BeneficiaryIdCodec.count(encoded));
+    assertSameIds(beneficiaryIds, BeneficiaryIdCodec.decode(encoded));
+
+    List<String> consecutiveIds = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) consecutiveIds.add(String.valueOf(100_000_000L + i * 3));
+    Assert.assertTrue(BeneficiaryIdCodec.encode(consecutiveIds).length < 1010);
+  }
+
+  /** Verifies that non-numeric and non-canonical beneficiary IDs survive a round trip. */
+  @Test
+  public void roundTripsStringIds() {
+    List<String> beneficiaryIds = Arrays.asList("0042", "42", "abc", "");
+
+    byte[] encoded = BeneficiaryIdCodec.encode(beneficiaryIds);
+    Assert.assertEquals(beneficiaryIds.size(), BeneficiaryIdCodec.count(encoded));
+    Assert.assertEquals(beneficiaryIds, BeneficiaryIdCodec.decode(encoded));
+  }
+
+  /** Verifies that an empty list of beneficiary IDs survives a round trip. */
+  @Test
+  public void roundTripsEmptyList() {
+    byte[] encoded = BeneficiaryIdCodec.encode(Collections.emptyList());
+    Assert.assertEquals(0, BeneficiaryIdCodec.count(encoded));
+    Assert.assertTrue(BeneficiaryIdCodec.decode(encoded).isEmpty());
+  }
+
+  /**
+   * @param expected the expected beneficiary IDs, in any order
+   * @param actual the actual beneficiary IDs, in any order
+   */
+  private static void assertSameIds(List<String> expected, List<String> actual) {
+    List<String> expectedSorted = new ArrayList<>(expected);
+    List<String> actualSorted = new ArrayList<>(actual);
+    Collections.sort(expectedSorted);
+    Collections.sort(actualSorted);
+    Assert.assertEquals(expectedSorted, actualSorted);
+  }
+}
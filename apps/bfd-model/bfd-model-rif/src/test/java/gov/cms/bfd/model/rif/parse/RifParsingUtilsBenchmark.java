@@ -0,0 +1,150 @@
+package gov.cms.bfd.model.rif.parse;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH micro-benchmarks for the {@link RifParsingUtils} date and number parsing methods, which are
+ * each called many times for every RIF record. Each benchmark is paired with a <code>*Original
+ * </code> benchmark of the implementation that those methods originally used, for comparison.
+ *
+ * <p>These aren't run as part of the build. To run them, compile the tests (<code>
+ * mvn test-compile</code>) and then run {@link #main(String[])} from an IDE, or with the test
+ * classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RifParsingUtilsBenchmark {
+  /** A representative mix of RIF date values, including some repeats (as real files have). */
+  private static final String[] DATES = {
+    "17-MAR-2016",
+    "18-MAR-2016",
+    "17-MAR-2016",
+    "01-JAN-2000",
+    "30-SEP-2015",
+    "02-Dec-2019",
+    "20190301",
+    "17-MAR-2016",
+    "28-FEB-1939",
+    "11-jun-2020"
+  };
+
+  /** A representative mix of RIF decimal (amount) values. */
+  private static final String[] DECIMALS = {
+    "130.45", "0", "20.20", "-12.5", "129.45", "82.29", "0.00", "60", "44.4", "199999.99"
+  };
+
+  /** A representative mix of RIF integer values. */
+  private static final String[] INTEGERS = {"1", "3", "12", "0", "365", "2", "45", "7", "100", "9"};
+
+  /**
+   * Runs all of the benchmarks in this class.
+   *
+   * @param args (not used)
+   * @throws RunnerException (indicates a benchmark failure)
+   */
+  public static void main(String[] args) throws RunnerException {
+    Options options =
+        new OptionsBuilder().include(RifParsingUtilsBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+
+  /** @param blackhole the {@link Blackhole} to send results to */
+  @Benchmark
+  public void parseDate(Blackhole blackhole) {
+    for (String dateText : DATES) blackhole.consume(RifParsingUtils.parseDate(dateText));
+  }
+
+  /** @param blackhole the {@link Blackhole} to send results to */
+  @Benchmark
+  public void parseDateOriginal(Blackhole blackhole) {
+    for (String dateText : DATES) blackhole.consume(parseDateOriginal(dateText));
+  }
+
+  /** @param blackhole the {@link Blackhole} to send results to */
+  @Benchmark
+  public void parseDecimal(Blackhole blackhole) {
+    for (String decimalText : DECIMALS)
+      blackhole.consume(RifParsingUtils.parseDecimal(decimalText));
+  }
+
+  /** @param blackhole the {@link Blackhole} to send results to */
+  @Benchmark
+  public void parseDecimalOriginal(Blackhole blackhole) {
+    for (String decimalText : DECIMALS) blackhole.consume(parseDecimalOriginal(decimalText));
+  }
+
+  /** @param blackhole the {@link Blackhole} to send results to */
+  @Benchmark
+  public void parseInteger(Blackhole blackhole) {
+    for (String intText : INTEGERS) blackhole.consume(RifParsingUtils.parseInteger(intText));
+  }
+
+  /** @param blackhole the {@link Blackhole} to send results to */
+  @Benchmark
+  public void parseIntegerOriginal(Blackhole blackhole) {
+    for (String intText : INTEGERS) blackhole.consume(parseIntegerOriginal(intText));
+  }
+
+  /**
+   * @param dateText the date string to parse
+   * @return the specified text as a {@link LocalDate}, parsed the way that {@link
+   *     RifParsingUtils#parseDate(String)} originally did
+   */
+  private static LocalDate parseDateOriginal(String dateText) {
+    DateTimeFormatter rifDateFormatter;
+    if (dateText.matches("\\d{8}")) {
+      rifDateFormatter =
+          new DateTimeFormatterBuilder()
+              .parseCaseInsensitive()
+              .appendPattern("yyyyMMdd")
+              .toFormatter();
+    } else {
+      rifDateFormatter =
+          new DateTimeFormatterBuilder()
+              .parseCaseInsensitive()
+              .appendPattern("dd-MMM-yyyy")
+              .toFormatter();
+    }
+    return LocalDate.parse(dateText, rifDateFormatter);
+  }
+
+  /**
+   * @param decimalText the decimal string to parse
+   * @return the specified text as a {@link BigDecimal}, parsed the way that {@link
+   *     RifParsingUtils#parseDecimal(String)} originally did
+   */
+  private static BigDecimal parseDecimalOriginal(String decimalText) {
+    return decimalText.isEmpty() ? new BigDecimal(0) : new BigDecimal(decimalText);
+  }
+
+  /**
+   * @param intText the number string to parse
+   * @return the specified text as an {@link Integer}, parsed the way that {@link
+   *     RifParsingUtils#parseInteger(String)} originally did
+   */
+  private static Integer parseIntegerOriginal(String intText) {
+    return Integer.parseInt(intText);
+  }
+}
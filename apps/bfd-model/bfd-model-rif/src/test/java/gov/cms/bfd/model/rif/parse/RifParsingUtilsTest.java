@@ -0,0 +1,122 @@
+package gov.cms.bfd.model.rif.parse;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatterBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link gov.cms.bfd.model.rif.parse.RifParsingUtils}. */
+public final class RifParsingUtilsTest {
+  /**
+   * Verifies that {@link RifParsingUtils#parseInteger(String)} handles both its fast path and its
+   * fallback correctly.
+   */
+  @Test
+  public void parseInteger() {
+    for (String intText :
+        new String[] {"0", "7", "007", "123456789", "1234567890", "2147483647", "-42", "+42"})
+      Assert.assertEquals(intText, Integer.valueOf(intText), RifParsingUtils.parseInteger(intText));
+
+    for (String intText : new String[] {"", "-", "1.0", "12a", "2147483648", " 1"})
+      assertInvalid(() -> RifParsingUtils.parseInteger(intText));
+  }
+
+  /**
+   * Verifies that {@link RifParsingUtils#parseDecimal(String)} returns exactly the same value and
+   * scale as {@link BigDecimal#BigDecimal(String)} does, for both its fast path and its fallback.
+   */
+  @Test
+  public void parseDecimal() {
+    Assert.assertEquals(new BigDecimal(0), RifParsingUtils.parseDecimal(""));
+
+    for (String decimalText :
+        new String[] {
+          "0",
+          "0.00",
+          "-0.00",
+          "60",
+          "130.45",
+          "-20.20",
+          "+1.5",
+          ".5",
+          "5.",
+          "00012.340",
+          "123456789012345678",
+          "1234567890123456789",
+          "-99999999999999999.99",
+          "1E+3",
+          "1.5e-2"
+        }) {
+      BigDecimal expected = new BigDecimal(decimalText);
+      BigDecimal actual = RifParsingUtils.parseDecimal(decimalText);
+      Assert.assertEquals(decimalText, expected, actual);
+      Assert.assertEquals(decimalText, expected.scale(), actual.scale());
+    }
+
+    for (String decimalText : new String[] {"-", ".", "+.", "1.2.3", "12a", "1,000"})
+      assertInvalid(() -> RifParsingUtils.parseDecimal(decimalText));
+  }
+
+  /**
+   * Verifies that {@link RifParsingUtils#parseDate(String)} returns the same results as a {@link
+   * java.time.format.DateTimeFormatter} for both of the RIF date formats, including for dates that
+   * its fast path leaves to that fallback.
+   */
+  @Test
+  public void parseDate() {
+    for (String dateText :
+        new String[] {
+          "01-MAR-2019",
+          "01-Mar-2019",
+          "01-mar-2019",
+          "31-DEC-1999",
+          "29-FEB-2016",
+          "29-FEB-2015",
+          "30-APR-2018",
+          "31-APR-2018",
+          "19-JAN-0001"
+        }) {
+      LocalDate expected = parseDate(dateText, "dd-MMM-yyyy");
+      // Parse each date twice, so that the cached result is checked, too.
+      Assert.assertEquals(dateText, expected, RifParsingUtils.parseDate(dateText));
+      Assert.assertEquals(dateText, expected, RifParsingUtils.parseDate(dateText));
+    }
+
+    for (String dateText : new String[] {"20190301", "19991231", "20160229", "20150229"}) {
+      LocalDate expected = parseDate(dateText, "yyyyMMdd");
+      Assert.assertEquals(dateText, expected, RifParsingUtils.parseDate(dateText));
+      Assert.assertEquals(dateText, expected, RifParsingUtils.parseDate(dateText));
+    }
+
+    for (String dateText :
+        new String[] {"", "1-MAR-2019", "01-XYZ-2019", "01/MAR/2019", "32-MAR-2019", "20191301"})
+      assertInvalid(() -> RifParsingUtils.parseDate(dateText));
+  }
+
+  /**
+   * @param dateText the date string to parse
+   * @param pattern the {@link java.time.format.DateTimeFormatter} pattern to parse with
+   * @return the specified text parsed into a {@link LocalDate}, the same way that {@link
+   *     RifParsingUtils} always used to
+   */
+  private static LocalDate parseDate(String dateText, String pattern) {
+    return LocalDate.parse(
+        dateText,
+        new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern(pattern).toFormatter());
+  }
+
+  /**
+   * Verifies that the specified parsing operation fails with an {@link InvalidRifValueException}.
+   *
+   * @param parsing the parsing operation to run
+   */
+  private static void assertInvalid(Runnable parsing) {
+    try {
+      parsing.run();
+      Assert.fail("Expected an InvalidRifValueException.");
+    } catch (InvalidRifValueException e) {
+      // Expected.
+    }
+  }
+}
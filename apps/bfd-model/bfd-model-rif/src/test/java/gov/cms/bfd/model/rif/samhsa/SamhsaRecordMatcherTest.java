@@ -0,0 +1,86 @@
+package gov.cms.bfd.model.rif.samhsa;
+
+import gov.cms.bfd.model.rif.CarrierClaim;
+import gov.cms.bfd.model.rif.CarrierClaimLine;
+import gov.cms.bfd.model.rif.InpatientClaim;
+import gov.cms.bfd.model.rif.PartDEvent;
+import java.util.Optional;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link gov.cms.bfd.model.rif.samhsa.SamhsaRecordMatcher}. */
+public final class SamhsaRecordMatcherTest {
+  private static final SamhsaRecordMatcher MATCHER = new SamhsaRecordMatcher(new SamhsaCodes());
+
+  /** Verifies that a claim without any SAMHSA-related codes is not matched. */
+  @Test
+  public void nonSamhsaClaim() {
+    CarrierClaim claim = new CarrierClaim();
+    claim.setDiagnosis2Code(Optional.of("R6889"));
+    claim.setDiagnosis2CodeVersion(Optional.of('0'));
+    CarrierClaimLine line = new CarrierClaimLine();
+    line.setHcpcsCode(Optional.of("99213"));
+    claim.getLines().add(line);
+
+    Assert.assertFalse(MATCHER.test(claim));
+  }
+
+  /** Verifies that a claim with a SAMHSA-related ICD-9 diagnosis code is matched. */
+  @Test
+  public void samhsaIcd9DiagnosisCode() {
+    CarrierClaim claim = new CarrierClaim();
+    claim.setDiagnosis2Code(Optional.of("29189"));
+    claim.setDiagnosis2CodeVersion(Optional.of('9'));
+
+    Assert.assertTrue(MATCHER.test(claim));
+  }
+
+  /** Verifies that a claim with a SAMHSA-related ICD-10 diagnosis code is matched. */
+  @Test
+  public void samhsaIcd10DiagnosisCode() {
+    CarrierClaim claim = new CarrierClaim();
+    claim.setDiagnosis2Code(Optional.of("F1010"));
+    claim.setDiagnosis2CodeVersion(Optional.of('0'));
+
+    Assert.assertTrue(MATCHER.test(claim));
+  }
+
+  /**
+   * Verifies that a claim with a code of an unknown ICD version is matched, as it might be
+   * SAMHSA-related.
+   */
+  @Test
+  public void unknownIcdVersion() {
+    CarrierClaim claim = new CarrierClaim();
+    claim.setDiagnosis2Code(Optional.of("R6889"));
+    claim.setDiagnosis2CodeVersion(Optional.of('5'));
+
+    Assert.assertTrue(MATCHER.test(claim));
+  }
+
+  /** Verifies that a claim with a line that has a SAMHSA-related CPT code is matched. */
+  @Test
+  public void samhsaCptCode() {
+    CarrierClaim claim = new CarrierClaim();
+    CarrierClaimLine line = new CarrierClaimLine();
+    line.setHcpcsCode(Optional.of("h0005 "));
+    claim.getLines().add(line);
+
+    Assert.assertTrue(MATCHER.test(claim));
+  }
+
+  /** Verifies that a claim with a SAMHSA-related DRG code is matched. */
+  @Test
+  public void samhsaDrgCode() {
+    InpatientClaim claim = new InpatientClaim();
+    claim.setDiagnosisRelatedGroupCd(Optional.of("522"));
+
+    Assert.assertTrue(MATCHER.test(claim));
+  }
+
+  /** Verifies that Part D events, which don't have any SAMHSA-related fields, aren't matched. */
+  @Test
+  public void partDEvent() {
+    Assert.assertFalse(MATCHER.test(new PartDEvent()));
+  }
+}
@@ -6,6 +6,7 @@ import gov.cms.bfd.model.rif.RifFileType;
 import gov.cms.bfd.pipeline.rif.extract.ExtractionOptions;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest;
 import gov.cms.bfd.pipeline.rif.load.LoadAppOptions;
+import gov.cms.bfd.pipeline.rif.load.LoadTuningOptions;
 import gov.cms.bfd.pipeline.rif.load.RifLoaderIdleTasks;
 import java.io.Serializable;
 import java.util.Optional;
@@ -40,6 +41,32 @@ public final class AppConfiguration implements Serializable {
    */
   public static final String ENV_VAR_KEY_ALLOWED_RIF_TYPE = "DATA_SET_TYPE_ALLOWED";
 
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * ExtractionOptions#isStreamingDownloadsEnabled()} value.
+   */
+  public static final String ENV_VAR_KEY_STREAMING_DOWNLOADS_ENABLED =
+      "S3_STREAMING_DOWNLOADS_ENABLED";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * ExtractionOptions#getDownloadThreads()} value.
+   */
+  public static final String ENV_VAR_KEY_DOWNLOAD_THREADS = "S3_DOWNLOAD_THREADS";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * ExtractionOptions#getDownloadPartThreads()} value.
+   */
+  public static final String ENV_VAR_KEY_DOWNLOAD_PART_THREADS = "S3_DOWNLOAD_PART_THREADS";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * ExtractionOptions#getDataSetNotificationFile()} value.
+   */
+  public static final String ENV_VAR_KEY_DATA_SET_NOTIFICATION_FILE =
+      "S3_DATA_SET_NOTIFICATION_FILE";
+
   /**
    * The name of the environment variable that should be used to provide the {@link
    * #getLoadOptions()} {@link LoadAppOptions#getHicnHashIterations()} value.
@@ -95,6 +122,56 @@ public final class AppConfiguration implements Serializable {
    */
   public static final String ENV_VAR_KEY_FIXUP_THREADS = "FIXUP_THREADS";
 
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadTuningOptions#isCopyLoadEnabled()} value.
+   */
+  public static final String ENV_VAR_KEY_COPY_LOAD_ENABLED = "COPY_LOAD_ENABLED";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadTuningOptions#getHashCacheSize()} value.
+   */
+  public static final String ENV_VAR_KEY_HASH_CACHE_SIZE = "HASH_CACHE_SIZE";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadTuningOptions#getMaxRecordBatchSize()} value.
+   */
+  public static final String ENV_VAR_KEY_MAX_RECORD_BATCH_SIZE = "MAX_RECORD_BATCH_SIZE";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadTuningOptions#getMaxJdbcBatchSize()} value.
+   */
+  public static final String ENV_VAR_KEY_MAX_JDBC_BATCH_SIZE = "MAX_JDBC_BATCH_SIZE";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadTuningOptions#getMaxConcurrentFiles()} value.
+   */
+  public static final String ENV_VAR_KEY_MAX_CONCURRENT_FILES = "LOADER_CONCURRENT_FILES";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadTuningOptions#getIndexRebuildThreads()} value.
+   */
+  public static final String ENV_VAR_KEY_INDEX_REBUILD_THREADS = "INDEX_REBUILD_THREADS";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadTuningOptions#getIndexDropMaxExistingRows()} value.
+   */
+  public static final String ENV_VAR_KEY_INDEX_DROP_MAX_EXISTING_ROWS =
+      "INDEX_DROP_MAX_EXISTING_ROWS";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadTuningOptions#isIndexFreeBulkLoadEnabled()} value.
+   */
+  public static final String ENV_VAR_KEY_INDEX_FREE_BULK_LOAD_ENABLED =
+      "INDEX_FREE_BULK_LOAD_ENABLED";
+
   private final ExtractionOptions extractionOptions;
   private final LoadAppOptions loadOptions;
 
@@ -168,6 +245,53 @@ public final class AppConfiguration implements Serializable {
       allowedRifFileType = null;
     }
 
+    String streamingDownloadsEnabledText = System.getenv(ENV_VAR_KEY_STREAMING_DOWNLOADS_ENABLED);
+    boolean streamingDownloadsEnabled = false;
+    if (streamingDownloadsEnabledText != null && !streamingDownloadsEnabledText.isEmpty()) {
+      Optional<Boolean> parsedStreamingDownloadsEnabled =
+          parseBoolean(streamingDownloadsEnabledText);
+      if (!parsedStreamingDownloadsEnabled.isPresent())
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_STREAMING_DOWNLOADS_ENABLED, streamingDownloadsEnabledText));
+      streamingDownloadsEnabled = parsedStreamingDownloadsEnabled.get();
+    }
+
+    String downloadThreadsText = System.getenv(ENV_VAR_KEY_DOWNLOAD_THREADS);
+    int downloadThreads = ExtractionOptions.DEFAULT_DOWNLOAD_THREADS;
+    if (downloadThreadsText != null && !downloadThreadsText.isEmpty()) {
+      try {
+        downloadThreads = Integer.parseInt(downloadThreadsText);
+      } catch (NumberFormatException e) {
+        downloadThreads = -1;
+      }
+      if (downloadThreads < 1)
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_DOWNLOAD_THREADS, downloadThreadsText));
+    }
+
+    String downloadPartThreadsText = System.getenv(ENV_VAR_KEY_DOWNLOAD_PART_THREADS);
+    int downloadPartThreads = ExtractionOptions.DEFAULT_DOWNLOAD_PART_THREADS;
+    if (downloadPartThreadsText != null && !downloadPartThreadsText.isEmpty()) {
+      try {
+        downloadPartThreads = Integer.parseInt(downloadPartThreadsText);
+      } catch (NumberFormatException e) {
+        downloadPartThreads = -1;
+      }
+      if (downloadPartThreads < 1)
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_DOWNLOAD_PART_THREADS, downloadPartThreadsText));
+    }
+
+    String dataSetNotificationFile = System.getenv(ENV_VAR_KEY_DATA_SET_NOTIFICATION_FILE);
+    if (dataSetNotificationFile != null && dataSetNotificationFile.isEmpty())
+      dataSetNotificationFile = null;
+
     String hicnHashIterationsText = System.getenv(ENV_VAR_KEY_HICN_HASH_ITERATIONS);
     if (hicnHashIterationsText == null || hicnHashIterationsText.isEmpty())
       throw new AppConfigurationException(
@@ -268,6 +392,120 @@ public final class AppConfiguration implements Serializable {
       fixupThreads = Integer.parseInt(fixupThreadsText);
     }
 
+    String copyLoadEnabledText = System.getenv(ENV_VAR_KEY_COPY_LOAD_ENABLED);
+    boolean copyLoadEnabled = false;
+    if (copyLoadEnabledText != null && !copyLoadEnabledText.isEmpty()) {
+      Optional<Boolean> parsedCopyLoadEnabled = parseBoolean(copyLoadEnabledText);
+      if (!parsedCopyLoadEnabled.isPresent())
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_COPY_LOAD_ENABLED, copyLoadEnabledText));
+      copyLoadEnabled = parsedCopyLoadEnabled.get();
+    }
+
+    String hashCacheSizeText = System.getenv(ENV_VAR_KEY_HASH_CACHE_SIZE);
+    int hashCacheSize = LoadTuningOptions.DEFAULT_HASH_CACHE_SIZE;
+    if (hashCacheSizeText != null && !hashCacheSizeText.isEmpty()) {
+      try {
+        hashCacheSize = Integer.parseInt(hashCacheSizeText);
+      } catch (NumberFormatException e) {
+        hashCacheSize = -1;
+      }
+      if (hashCacheSize < 0)
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_HASH_CACHE_SIZE, hashCacheSizeText));
+    }
+
+    String maxRecordBatchSizeText = System.getenv(ENV_VAR_KEY_MAX_RECORD_BATCH_SIZE);
+    int maxRecordBatchSize = LoadTuningOptions.DEFAULT_MAX_RECORD_BATCH_SIZE;
+    if (maxRecordBatchSizeText != null && !maxRecordBatchSizeText.isEmpty()) {
+      try {
+        maxRecordBatchSize = Integer.parseInt(maxRecordBatchSizeText);
+      } catch (NumberFormatException e) {
+        maxRecordBatchSize = -1;
+      }
+      if (maxRecordBatchSize < 1)
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_MAX_RECORD_BATCH_SIZE, maxRecordBatchSizeText));
+    }
+
+    String maxJdbcBatchSizeText = System.getenv(ENV_VAR_KEY_MAX_JDBC_BATCH_SIZE);
+    int maxJdbcBatchSize = LoadTuningOptions.DEFAULT_MAX_JDBC_BATCH_SIZE;
+    if (maxJdbcBatchSizeText != null && !maxJdbcBatchSizeText.isEmpty()) {
+      try {
+        maxJdbcBatchSize = Integer.parseInt(maxJdbcBatchSizeText);
+      } catch (NumberFormatException e) {
+        maxJdbcBatchSize = -1;
+      }
+      if (maxJdbcBatchSize < 1)
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_MAX_JDBC_BATCH_SIZE, maxJdbcBatchSizeText));
+    }
+
+    String maxConcurrentFilesText = System.getenv(ENV_VAR_KEY_MAX_CONCURRENT_FILES);
+    int maxConcurrentFiles = LoadTuningOptions.DEFAULT_MAX_CONCURRENT_FILES;
+    if (maxConcurrentFilesText != null && !maxConcurrentFilesText.isEmpty()) {
+      try {
+        maxConcurrentFiles = Integer.parseInt(maxConcurrentFilesText);
+      } catch (NumberFormatException e) {
+        maxConcurrentFiles = -1;
+      }
+      if (maxConcurrentFiles < 1)
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_MAX_CONCURRENT_FILES, maxConcurrentFilesText));
+    }
+
+    String indexRebuildThreadsText = System.getenv(ENV_VAR_KEY_INDEX_REBUILD_THREADS);
+    int indexRebuildThreads = LoadTuningOptions.DEFAULT_INDEX_REBUILD_THREADS;
+    if (indexRebuildThreadsText != null && !indexRebuildThreadsText.isEmpty()) {
+      try {
+        indexRebuildThreads = Integer.parseInt(indexRebuildThreadsText);
+      } catch (NumberFormatException e) {
+        indexRebuildThreads = -1;
+      }
+      if (indexRebuildThreads < 0)
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_INDEX_REBUILD_THREADS, indexRebuildThreadsText));
+    }
+
+    String indexDropMaxExistingRowsText = System.getenv(ENV_VAR_KEY_INDEX_DROP_MAX_EXISTING_ROWS);
+    long indexDropMaxExistingRows = LoadTuningOptions.DEFAULT_INDEX_DROP_MAX_EXISTING_ROWS;
+    if (indexDropMaxExistingRowsText != null && !indexDropMaxExistingRowsText.isEmpty()) {
+      try {
+        indexDropMaxExistingRows = Long.parseLong(indexDropMaxExistingRowsText);
+      } catch (NumberFormatException e) {
+        indexDropMaxExistingRows = -1;
+      }
+      if (indexDropMaxExistingRows < 0)
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_INDEX_DROP_MAX_EXISTING_ROWS, indexDropMaxExistingRowsText));
+    }
+
+    String indexFreeBulkLoadEnabledText = System.getenv(ENV_VAR_KEY_INDEX_FREE_BULK_LOAD_ENABLED);
+    boolean indexFreeBulkLoadEnabled = false;
+    if (indexFreeBulkLoadEnabledText != null && !indexFreeBulkLoadEnabledText.isEmpty()) {
+      Optional<Boolean> parsedIndexFreeBulkLoadEnabled = parseBoolean(indexFreeBulkLoadEnabledText);
+      if (!parsedIndexFreeBulkLoadEnabled.isPresent())
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_INDEX_FREE_BULK_LOAD_ENABLED, indexFreeBulkLoadEnabledText));
+      indexFreeBulkLoadEnabled = parsedIndexFreeBulkLoadEnabled.get();
+    }
+
     /*
      * Just for convenience: make sure DefaultAWSCredentialsProviderChain
      * has whatever it needs.
@@ -289,7 +527,14 @@ public final class AppConfiguration implements Serializable {
     }
 
     return new AppConfiguration(
-        new ExtractionOptions(s3BucketName, allowedRifFileType),
+        new ExtractionOptions(
+            s3BucketName,
+            allowedRifFileType,
+            null,
+            streamingDownloadsEnabled,
+            downloadThreads,
+            downloadPartThreads,
+            dataSetNotificationFile),
         new LoadAppOptions(
             hicnHashIterations,
             hicnHashPepper,
@@ -299,7 +544,16 @@ public final class AppConfiguration implements Serializable {
             loaderThreads,
             idempotencyRequired.get().booleanValue(),
             fixupsEnabled,
-            fixupThreads));
+            fixupThreads,
+            new LoadTuningOptions()
+                .withCopyLoadEnabled(copyLoadEnabled)
+                .withHashCacheSize(hashCacheSize)
+                .withMaxRecordBatchSize(maxRecordBatchSize)
+                .withMaxJdbcBatchSize(maxJdbcBatchSize)
+                .withMaxConcurrentFiles(maxConcurrentFiles)
+                .withIndexRebuildThreads(indexRebuildThreads)
+                .withIndexDropMaxExistingRows(indexDropMaxExistingRows)
+                .withIndexFreeBulkLoadEnabled(indexFreeBulkLoadEnabled)));
   }
 
   /**
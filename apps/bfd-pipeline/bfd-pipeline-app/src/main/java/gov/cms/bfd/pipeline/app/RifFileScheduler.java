@@ -0,0 +1,96 @@
+package gov.cms.bfd.pipeline.app;
+
+import gov.cms.bfd.model.rif.RifFileEvent;
+import gov.cms.bfd.model.rif.RifFileType;
+import gov.cms.bfd.model.rif.RifFilesEvent;
+import gov.cms.bfd.pipeline.rif.load.LoadTuningOptions;
+import gov.cms.bfd.sharedutils.exceptions.BadCodeMonkeyException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides the order in which the {@link RifFileEvent}s of a {@link RifFilesEvent} get processed.
+ * The beneficiary files are processed first, one at a time and in their original order, as the
+ * claims in the other files have foreign keys to them. Once those are done, the claim files don't
+ * depend on each other at all, so up to {@link LoadTuningOptions#getMaxConcurrentFiles()} of them
+ * are processed at the same time.
+ */
+final class RifFileScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RifFileScheduler.class);
+
+  /** The {@link RifFileType}s that the other {@link RifFileType}s depend on. */
+  static final Set<RifFileType> BENEFICIARY_FILE_TYPES =
+      EnumSet.of(
+          RifFileType.BENEFICIARY,
+          RifFileType.BENEFICIARY_HISTORY,
+          RifFileType.MEDICARE_BENEFICIARY_ID_HISTORY);
+
+  private final int maxConcurrentFiles;
+
+  /**
+   * Constructs a new {@link RifFileScheduler}.
+   *
+   * @param maxConcurrentFiles the maximum number of claim files to process at the same time
+   */
+  RifFileScheduler(int maxConcurrentFiles) {
+    if (maxConcurrentFiles < 1) throw new IllegalArgumentException();
+    this.maxConcurrentFiles = maxConcurrentFiles;
+  }
+
+  /**
+   * Processes all of the specified {@link RifFilesEvent}'s {@link RifFileEvent}s, blocking until
+   * they're all complete.
+   *
+   * @param rifFilesEvent the {@link RifFilesEvent} whose {@link RifFileEvent}s should be processed
+   * @param fileProcessor the {@link Consumer} that will process (and block on) each {@link
+   *     RifFileEvent}
+   */
+  void process(RifFilesEvent rifFilesEvent, Consumer<RifFileEvent> fileProcessor) {
+    List<RifFileEvent> claimFileEvents = new ArrayList<>();
+    for (RifFileEvent rifFileEvent : rifFilesEvent.getFileEvents()) {
+      if (BENEFICIARY_FILE_TYPES.contains(rifFileEvent.getFile().getFileType()))
+        fileProcessor.accept(rifFileEvent);
+      else claimFileEvents.add(rifFileEvent);
+    }
+
+    int threads = Math.min(maxConcurrentFiles, claimFileEvents.size());
+    if (threads <= 1) {
+      claimFileEvents.forEach(fileProcessor::accept);
+      return;
+    }
+
+    LOGGER.info(
+        "Processing {} claim files, up to {} at a time...", claimFileEvents.size(), threads);
+    ExecutorService filesExecutor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> fileFutures = new ArrayList<>(claimFileEvents.size());
+      for (RifFileEvent rifFileEvent : claimFileEvents)
+        fileFutures.add(filesExecutor.submit(() -> fileProcessor.accept(rifFileEvent)));
+
+      for (Future<?> fileFuture : fileFutures) {
+        try {
+          fileFuture.get();
+        } catch (InterruptedException e) {
+          // We're not expecting interrupts here, so go boom.
+          throw new BadCodeMonkeyException(e);
+        } catch (ExecutionException e) {
+          // Don't start any files that are still waiting; the failure is already being handled.
+          fileFutures.forEach(future -> future.cancel(false));
+          if (e.getCause() instanceof Error) throw (Error) e.getCause();
+          throw (RuntimeException) e.getCause();
+        }
+      }
+    } finally {
+      filesExecutor.shutdown();
+    }
+  }
+}
@@ -6,12 +6,12 @@ import com.codahale.metrics.Slf4jReporter;
 import com.codahale.metrics.Timer;
 import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
 import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
-import gov.cms.bfd.model.rif.RifFileEvent;
 import gov.cms.bfd.model.rif.RifFileRecords;
 import gov.cms.bfd.model.rif.RifFilesEvent;
 import gov.cms.bfd.pipeline.rif.extract.RifFilesProcessor;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetMonitor;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetMonitorListener;
+import gov.cms.bfd.pipeline.rif.load.LoadTuningOptions;
 import gov.cms.bfd.pipeline.rif.load.RifLoader;
 import gov.cms.bfd.pipeline.rif.load.RifRecordLoadResult;
 import java.lang.Thread.UncaughtExceptionHandler;
@@ -78,6 +78,9 @@ public final class S3ToDatabaseLoadApp {
      */
     RifFilesProcessor rifProcessor = new RifFilesProcessor();
     RifLoader rifLoader = new RifLoader(appMetrics, appConfig.getLoadOptions());
+    LoadTuningOptions loadTuningOptions = appConfig.getLoadOptions().getTuningOptions();
+    RifFileScheduler rifFileScheduler =
+        new RifFileScheduler(appConfig.getLoadOptions().getTuningOptions().getMaxConcurrentFiles());
 
     /*
      * Create the DataSetMonitorListener that will glue those stages
@@ -117,23 +120,38 @@ public final class S3ToDatabaseLoadApp {
                    */
                 };
 
+            /*
+             * Only when index-free bulk loads have been explicitly enabled (for initial and
+             * backfill loads), this drops the secondary indexes (unless the tables are already too
+             * big, or the indexes are still being rebuilt). They're only rebuilt, in the
+             * background, once there are no more data sets waiting to be loaded.
+             */
+            if (loadTuningOptions.isIndexFreeBulkLoadEnabled()) rifLoader.dropSecondaryIndexes();
+
             /*
              * Each ETL stage produces a stream that will be handed off to
-             * and processed by the next stage.
+             * and processed by the next stage. The scheduler decides which
+             * of the data set's files can be run through those stages at
+             * the same time.
              */
-            for (RifFileEvent rifFileEvent : rifFilesEvent.getFileEvents()) {
-              Slf4jReporter dataSetFileMetricsReporter =
-                  Slf4jReporter.forRegistry(rifFileEvent.getEventMetrics())
-                      .outputTo(LOGGER)
-                      .build();
-              dataSetFileMetricsReporter.start(2, TimeUnit.MINUTES);
+            rifFileScheduler.process(
+                rifFilesEvent,
+                rifFileEvent -> {
+                  Slf4jReporter dataSetFileMetricsReporter =
+                      Slf4jReporter.forRegistry(rifFileEvent.getEventMetrics())
+                          .outputTo(LOGGER)
+                          .build();
+                  dataSetFileMetricsReporter.start(2, TimeUnit.MINUTES);
 
-              RifFileRecords rifFileRecords = rifProcessor.produceRecords(rifFileEvent);
-              rifLoader.process(rifFileRecords, errorHandler, resultHandler);
+                  // Resume from where any previous, interrupted attempt to load the file left off.
+                  long checkpoint = rifLoader.findCheckpoint(rifFileEvent);
+                  RifFileRecords rifFileRecords =
+                      rifProcessor.produceRecords(rifFileEvent, checkpoint);
+                  rifLoader.process(rifFileRecords, errorHandler, resultHandler);
 
-              dataSetFileMetricsReporter.stop();
-              dataSetFileMetricsReporter.report();
-            }
+                  dataSetFileMetricsReporter.stop();
+                  dataSetFileMetricsReporter.report();
+                });
             timerDataSet.stop();
           }
 
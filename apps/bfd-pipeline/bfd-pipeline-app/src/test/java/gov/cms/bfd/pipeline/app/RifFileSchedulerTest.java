@@ -0,0 +1,85 @@
+package gov.cms.bfd.pipeline.app;
+
+import gov.cms.bfd.model.rif.RifFileType;
+import gov.cms.bfd.model.rif.RifFilesEvent;
+import gov.cms.bfd.model.rif.samples.StaticRifResource;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link gov.cms.bfd.pipeline.app.RifFileScheduler}. */
+public final class RifFileSchedulerTest {
+  /**
+   * Verifies that {@link RifFileScheduler} processes the beneficiary files before any of the claim
+   * files, and then processes the claim files concurrently.
+   */
+  @Test
+  public void beneficiariesFirstThenClaimsConcurrently() {
+    RifFilesEvent rifFilesEvent =
+        new RifFilesEvent(
+            Instant.now(),
+            StaticRifResource.SAMPLE_A_PDE.toRifFile(),
+            StaticRifResource.SAMPLE_A_BENES.toRifFile(),
+            StaticRifResource.SAMPLE_A_CARRIER.toRifFile(),
+            StaticRifResource.SAMPLE_A_BENEFICIARY_HISTORY.toRifFile(),
+            StaticRifResource.SAMPLE_A_DME.toRifFile());
+
+    // Each claim file waits for the others to start, which will only happen if they're concurrent.
+    CountDownLatch claimFilesStarted = new CountDownLatch(3);
+    List<RifFileType> processedFileTypes = Collections.synchronizedList(new ArrayList<>());
+    new RifFileScheduler(3)
+        .process(
+            rifFilesEvent,
+            rifFileEvent -> {
+              RifFileType fileType = rifFileEvent.getFile().getFileType();
+              if (!RifFileScheduler.BENEFICIARY_FILE_TYPES.contains(fileType)) {
+                claimFilesStarted.countDown();
+                awaitQuietly(claimFilesStarted);
+              }
+              processedFileTypes.add(fileType);
+            });
+
+    Assert.assertEquals(5, processedFileTypes.size());
+    Assert.assertEquals(RifFileType.BENEFICIARY, processedFileTypes.get(0));
+    Assert.assertEquals(RifFileType.BENEFICIARY_HISTORY, processedFileTypes.get(1));
+    Assert.assertEquals(0, claimFilesStarted.getCount());
+  }
+
+  /**
+   * Verifies that a failure while processing a claim file is passed back to the {@link
+   * RifFileScheduler}'s caller.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void claimFileFailuresArePropagated() {
+    RifFilesEvent rifFilesEvent =
+        new RifFilesEvent(
+            Instant.now(),
+            StaticRifResource.SAMPLE_A_CARRIER.toRifFile(),
+            StaticRifResource.SAMPLE_A_PDE.toRifFile());
+
+    new RifFileScheduler(2)
+        .process(
+            rifFilesEvent,
+            rifFileEvent -> {
+              if (rifFileEvent.getFile().getFileType() == RifFileType.PDE)
+                throw new IllegalStateException();
+            });
+  }
+
+  /**
+   * @param latch the {@link CountDownLatch} to wait (a limited time) for
+   * @throws IllegalStateException (indicates that the latch timed out or the wait was interrupted)
+   */
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      if (!latch.await(30, TimeUnit.SECONDS)) throw new IllegalStateException();
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
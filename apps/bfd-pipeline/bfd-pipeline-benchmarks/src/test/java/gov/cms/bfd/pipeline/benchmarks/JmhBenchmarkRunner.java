@@ -0,0 +1,43 @@
+package gov.cms.bfd.pipeline.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs this project's local JMH micro-benchmarks (the <code>*JmhBenchmark</code> classes), which
+ * measure the pipeline's hot paths using the sample data from <code>bfd-model-rif-samples</code>.
+ * Unlike {@link S3ToDatabaseLoadAppBenchmark}, these don't need any AWS resources, and can be run
+ * on a developer's machine in a few minutes, e.g.:
+ *
+ * <pre>
+ * $ mvn clean install -DskipITs
+ * $ mvn -pl bfd-pipeline-benchmarks exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=gov.cms.bfd.pipeline.benchmarks.JmhBenchmarkRunner \
+ *     -Dexec.args="RifLoaderJmhBenchmark"
+ * </pre>
+ *
+ * <p>The results are also written to <code>target/jmh-results.json</code>, so that runs from before
+ * and after a change can be compared.
+ */
+public final class JmhBenchmarkRunner {
+  /**
+   * Runs the JMH benchmarks.
+   *
+   * @param args an optional regular expression for the benchmarks to run, which defaults to all of
+   *     them
+   * @throws RunnerException (indicates a benchmark failure)
+   */
+  public static void main(String[] args) throws RunnerException {
+    String include = args.length > 0 ? args[0] : ".*JmhBenchmark.*";
+    Options options =
+        new OptionsBuilder()
+            .include(include)
+            .resultFormat(ResultFormatType.JSON)
+            .result("target/jmh-results.json")
+            .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,183 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import gov.cms.bfd.model.rif.BeneficiaryHistoryParser;
+import gov.cms.bfd.model.rif.BeneficiaryParser;
+import gov.cms.bfd.model.rif.CarrierClaimParser;
+import gov.cms.bfd.model.rif.DMEClaimParser;
+import gov.cms.bfd.model.rif.HHAClaimParser;
+import gov.cms.bfd.model.rif.HospiceClaimParser;
+import gov.cms.bfd.model.rif.InpatientClaimParser;
+import gov.cms.bfd.model.rif.MedicareBeneficiaryIdHistoryParser;
+import gov.cms.bfd.model.rif.OutpatientClaimParser;
+import gov.cms.bfd.model.rif.PartDEventParser;
+import gov.cms.bfd.model.rif.RifFileType;
+import gov.cms.bfd.model.rif.SNFClaimParser;
+import gov.cms.bfd.model.rif.parse.RifParsingUtils;
+import gov.cms.bfd.model.rif.samples.StaticRifResource;
+import gov.cms.bfd.pipeline.benchmarks.JmhBenchmarkRunner;
+import gov.cms.bfd.pipeline.rif.extract.CsvRecordGroupingIterator.ColumnValueCsvRecordGrouper;
+import gov.cms.bfd.pipeline.rif.extract.exceptions.UnsupportedRifFileTypeException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH micro-benchmarks for the extract side of the pipeline: grouping RIF rows into records with
+ * {@link CsvRecordGroupingIterator}, and then parsing those groups with the generated <code>
+ * *Parser.parseRif(...)</code> methods. Each benchmark processes one whole (in-memory) {@link
+ * StaticRifResource}, so that results are comparable between runs.
+ *
+ * <p>Run via {@link JmhBenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RifFilesProcessorJmhBenchmark {
+  /** The names of the {@link StaticRifResource}s to benchmark, which are all on the classpath. */
+  @Param({
+    "SAMPLE_A_BENES",
+    "SAMPLE_A_BENEFICIARY_HISTORY",
+    "SAMPLE_A_MEDICARE_BENEFICIARY_ID_HISTORY",
+    "SAMPLE_A_CARRIER",
+    "SAMPLE_A_INPATIENT",
+    "SAMPLE_A_OUTPATIENT",
+    "SAMPLE_A_SNF",
+    "SAMPLE_A_HOSPICE",
+    "SAMPLE_A_HHA",
+    "SAMPLE_A_DME",
+    "SAMPLE_A_PDE",
+    "SAMPLE_U_BENES",
+    "SAMPLE_U_CARRIER"
+  })
+  public String resourceName;
+
+  private RifFileType rifFileType;
+  private byte[] rifFileBytes;
+  private List<List<CSVRecord>> recordGroups;
+
+  /**
+   * Reads the selected {@link StaticRifResource} into memory, and groups its records, so that the
+   * benchmarks themselves don't include any I/O.
+   *
+   * @throws IOException (indicates a benchmark setup failure)
+   */
+  @Setup
+  public void setup() throws IOException {
+    StaticRifResource resource = StaticRifResource.valueOf(resourceName);
+    rifFileType = resource.getRifFileType();
+    try (InputStream resourceStream = resource.getResourceUrl().openStream()) {
+      rifFileBytes = IOUtils.toByteArray(resourceStream);
+    }
+
+    recordGroups = new ArrayList<>();
+    try (CSVParser parser = createParser()) {
+      new CsvRecordGroupingIterator(parser, createGrouper()).forEachRemaining(recordGroups::add);
+    }
+  }
+
+  /**
+   * Benchmarks {@link CsvRecordGroupingIterator}, including the underlying {@link CSVParser}.
+   *
+   * @param blackhole the {@link Blackhole} to send results to
+   * @throws IOException (indicates a benchmark failure)
+   */
+  @Benchmark
+  public void groupRecords(Blackhole blackhole) throws IOException {
+    try (CSVParser parser = createParser()) {
+      new CsvRecordGroupingIterator(parser, createGrouper()).forEachRemaining(blackhole::consume);
+    }
+  }
+
+  /**
+   * Benchmarks the generated <code>*Parser.parseRif(...)</code> method for the selected {@link
+   * StaticRifResource}'s {@link RifFileType}.
+   *
+   * @param blackhole the {@link Blackhole} to send results to
+   */
+  @Benchmark
+  public void parseRif(Blackhole blackhole) {
+    for (List<CSVRecord> recordGroup : recordGroups)
+      blackhole.consume(parseRif(rifFileType, recordGroup));
+  }
+
+  /** @return a new {@link CSVParser} for {@link #rifFileBytes} */
+  private CSVParser createParser() {
+    return RifParsingUtils.createCsvParser(
+        RifParsingUtils.CSV_FORMAT, new ByteArrayInputStream(rifFileBytes), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return a {@link ColumnValueCsvRecordGrouper} that groups {@link #rifFileType} records the same
+   *     way that {@link RifFilesProcessor} does
+   */
+  private ColumnValueCsvRecordGrouper createGrouper() {
+    switch (rifFileType) {
+      case CARRIER:
+      case INPATIENT:
+      case OUTPATIENT:
+      case SNF:
+      case HOSPICE:
+      case HHA:
+      case DME:
+        return new ColumnValueCsvRecordGrouper(rifFileType.getIdColumn());
+      default:
+        return new ColumnValueCsvRecordGrouper(null);
+    }
+  }
+
+  /**
+   * @param rifFileType the {@link RifFileType} of the record to parse
+   * @param recordGroup the {@link CSVRecord}s of the record to parse
+   * @return the parsed record
+   */
+  private static Object parseRif(RifFileType rifFileType, List<CSVRecord> recordGroup) {
+    switch (rifFileType) {
+      case BENEFICIARY:
+        return BeneficiaryParser.parseRif(recordGroup);
+      case BENEFICIARY_HISTORY:
+        return BeneficiaryHistoryParser.parseRif(recordGroup);
+      case MEDICARE_BENEFICIARY_ID_HISTORY:
+        return MedicareBeneficiaryIdHistoryParser.parseRif(recordGroup);
+      case PDE:
+        return PartDEventParser.parseRif(recordGroup);
+      case CARRIER:
+        return CarrierClaimParser.parseRif(recordGroup);
+      case INPATIENT:
+        return InpatientClaimParser.parseRif(recordGroup);
+      case OUTPATIENT:
+        return OutpatientClaimParser.parseRif(recordGroup);
+      case SNF:
+        return SNFClaimParser.parseRif(recordGroup);
+      case HOSPICE:
+        return HospiceClaimParser.parseRif(recordGroup);
+      case HHA:
+        return HHAClaimParser.parseRif(recordGroup);
+      case DME:
+        return DMEClaimParser.parseRif(recordGroup);
+      default:
+        throw new UnsupportedRifFileTypeException("Unsupported file type:" + rifFileType);
+    }
+  }
+}
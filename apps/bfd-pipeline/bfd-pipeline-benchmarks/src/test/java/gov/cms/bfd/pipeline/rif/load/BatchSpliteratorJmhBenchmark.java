@@ -0,0 +1,61 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.pipeline.benchmarks.JmhBenchmarkRunner;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH micro-benchmarks for {@link BatchSpliterator}, which {@link RifLoader} uses to split each RIF
+ * file's records up into transaction-sized batches.
+ *
+ * <p>Run via {@link JmhBenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchSpliteratorJmhBenchmark {
+  /** The number of elements to split into batches. */
+  private static final int ELEMENT_COUNT = 100_000;
+
+  /** The batch sizes to benchmark with, including the one that {@link RifLoader} uses. */
+  @Param({"1", "100", "10000"})
+  public int batchSize;
+
+  /**
+   * Benchmarks {@link BatchSpliterator#batches(java.util.stream.Stream, int)} for a sequential
+   * {@link java.util.stream.Stream}, as used by {@link RifLoader}.
+   *
+   * @param blackhole the {@link Blackhole} to send results to
+   */
+  @Benchmark
+  public void batches(Blackhole blackhole) {
+    BatchSpliterator.batches(IntStream.range(0, ELEMENT_COUNT).boxed(), batchSize)
+        .forEach(blackhole::consume);
+  }
+
+  /**
+   * Benchmarks {@link BatchSpliterator#batches(java.util.stream.Stream, int)} for a parallel {@link
+   * java.util.stream.Stream}.
+   *
+   * @param blackhole the {@link Blackhole} to send results to
+   */
+  @Benchmark
+  public void batchesParallel(Blackhole blackhole) {
+    BatchSpliterator.batches(IntStream.range(0, ELEMENT_COUNT).boxed().parallel(), batchSize)
+        .forEach(blackhole::consume);
+  }
+}
@@ -0,0 +1,115 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.Beneficiary;
+import gov.cms.bfd.model.rif.BeneficiaryParser;
+import gov.cms.bfd.model.rif.parse.RifParsingUtils;
+import gov.cms.bfd.model.rif.samples.StaticRifResource;
+import gov.cms.bfd.pipeline.benchmarks.JmhBenchmarkRunner;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKeyFactory;
+import javax.sql.DataSource;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH micro-benchmarks for the CPU-bound parts of {@link RifLoader}'s record processing: identifier
+ * hashing and the {@link gov.cms.bfd.model.rif.BeneficiaryMonthly} merging done for updated {@link
+ * Beneficiary}s. Neither requires a database: {@link #updateBeneficiaryMonthly()} is always run
+ * against the same previously-loaded {@link Beneficiary}.
+ *
+ * <p>Run via {@link JmhBenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RifLoaderJmhBenchmark {
+  /**
+   * The number of hash iterations to benchmark with: the value used in tests, and a value that is
+   * more representative of production configurations.
+   */
+  @Param({"2", "1000"})
+  public int hicnHashIterations;
+
+  private LoadAppOptions options;
+  private SecretKeyFactory secretKeyFactory;
+  private Beneficiary beneficiaryFromDb;
+  private Beneficiary updatedBeneficiary;
+
+  /**
+   * Prepares the {@link LoadAppOptions} and sample {@link Beneficiary} data used by the benchmarks.
+   *
+   * @throws IOException (indicates a benchmark setup failure)
+   */
+  @Setup
+  public void setup() throws IOException {
+    options =
+        new LoadAppOptions(
+            hicnHashIterations,
+            RifLoaderTestUtils.HICN_HASH_PEPPER,
+            (DataSource) null,
+            1,
+            true,
+            false,
+            1);
+    secretKeyFactory = RifLoader.createSecretKeyFactory();
+
+    beneficiaryFromDb = BeneficiaryParser.parseRif(readRecords(StaticRifResource.SAMPLE_U_BENES));
+    beneficiaryFromDb.setBeneficiaryMonthlys(
+        new ArrayList<>(RifLoader.createBeneficiaryMonthlys(beneficiaryFromDb)));
+    updatedBeneficiary =
+        BeneficiaryParser.parseRif(
+            readRecords(StaticRifResource.SAMPLE_U_BENES_CHANGED_WITH_8_MONTHS));
+  }
+
+  /**
+   * Benchmarks {@link RifLoader#computeHicnHash(LoadAppOptions, SecretKeyFactory, String)}, which
+   * is the same computation used for MBIs.
+   *
+   * @return the computed hash
+   */
+  @Benchmark
+  public String computeIdentifierHash() {
+    return RifLoader.computeHicnHash(options, secretKeyFactory, "543217066U");
+  }
+
+  /**
+   * Benchmarks {@link RifLoader#updateBeneficiaryMonthly(Beneficiary, Beneficiary)}. Repeated calls
+   * with the same {@link Beneficiary}s are fine: each one just replaces the updated {@link
+   * Beneficiary}'s {@link gov.cms.bfd.model.rif.BeneficiaryMonthly} records.
+   *
+   * @return the updated {@link Beneficiary}
+   */
+  @Benchmark
+  public Beneficiary updateBeneficiaryMonthly() {
+    RifLoader.updateBeneficiaryMonthly(beneficiaryFromDb, updatedBeneficiary);
+    return updatedBeneficiary;
+  }
+
+  /**
+   * @param resource the {@link StaticRifResource} to read
+   * @return all of the {@link CSVRecord}s in the specified {@link StaticRifResource}
+   * @throws IOException (indicates a benchmark setup failure)
+   */
+  private static List<CSVRecord> readRecords(StaticRifResource resource) throws IOException {
+    try (CSVParser parser = RifParsingUtils.createCsvParser(resource.toRifFile())) {
+      return parser.getRecords();
+    }
+  }
+}
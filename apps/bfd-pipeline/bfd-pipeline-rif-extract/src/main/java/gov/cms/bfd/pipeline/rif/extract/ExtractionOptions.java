@@ -6,6 +6,8 @@ import gov.cms.bfd.model.rif.RifFileType;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest;
 import gov.cms.bfd.pipeline.rif.extract.s3.S3Utilities;
 import java.io.Serializable;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -13,9 +15,19 @@ import java.util.function.Predicate;
 public final class ExtractionOptions implements Serializable {
   private static final long serialVersionUID = 1L;
 
+  /** The default value for {@link #getDownloadThreads()}, which is what was always used before. */
+  public static final int DEFAULT_DOWNLOAD_THREADS = 1;
+
+  /** The default value for {@link #getDownloadPartThreads()}. */
+  public static final int DEFAULT_DOWNLOAD_PART_THREADS = 8;
+
   private final String s3BucketName;
   private final RifFileType allowedRifFileType;
   private final Integer s3ListMaxKeys;
+  private final boolean streamingDownloadsEnabled;
+  private final int downloadThreads;
+  private final int downloadPartThreads;
+  private final String dataSetNotificationFile;
 
   /**
    * Constructs a new {@link ExtractionOptions} instance.
@@ -36,9 +48,88 @@ public final class ExtractionOptions implements Serializable {
    */
   public ExtractionOptions(
       String s3BucketName, RifFileType allowedRifFileType, Integer s3ListMaxKeys) {
+    this(s3BucketName, allowedRifFileType, s3ListMaxKeys, false);
+  }
+
+  /**
+   * Constructs a new {@link ExtractionOptions} instance.
+   *
+   * @param s3BucketName the value to use for {@link #getS3BucketName()}
+   * @param allowedRifFileType the value to use for {@link #getDataSetFilter()}
+   * @param s3ListMaxKeys the value to use for {@link #getS3ListMaxKeys()}
+   * @param streamingDownloadsEnabled the value to use for {@link #isStreamingDownloadsEnabled()}
+   */
+  public ExtractionOptions(
+      String s3BucketName,
+      RifFileType allowedRifFileType,
+      Integer s3ListMaxKeys,
+      boolean streamingDownloadsEnabled) {
+    this(
+        s3BucketName,
+        allowedRifFileType,
+        s3ListMaxKeys,
+        streamingDownloadsEnabled,
+        DEFAULT_DOWNLOAD_THREADS,
+        DEFAULT_DOWNLOAD_PART_THREADS);
+  }
+
+  /**
+   * Constructs a new {@link ExtractionOptions} instance.
+   *
+   * @param s3BucketName the value to use for {@link #getS3BucketName()}
+   * @param allowedRifFileType the value to use for {@link #getDataSetFilter()}
+   * @param s3ListMaxKeys the value to use for {@link #getS3ListMaxKeys()}
+   * @param streamingDownloadsEnabled the value to use for {@link #isStreamingDownloadsEnabled()}
+   * @param downloadThreads the value to use for {@link #getDownloadThreads()}
+   * @param downloadPartThreads the value to use for {@link #getDownloadPartThreads()}
+   */
+  public ExtractionOptions(
+      String s3BucketName,
+      RifFileType allowedRifFileType,
+      Integer s3ListMaxKeys,
+      boolean streamingDownloadsEnabled,
+      int downloadThreads,
+      int downloadPartThreads) {
+    this(
+        s3BucketName,
+        allowedRifFileType,
+        s3ListMaxKeys,
+        streamingDownloadsEnabled,
+        downloadThreads,
+        downloadPartThreads,
+        null);
+  }
+
+  /**
+   * Constructs a new {@link ExtractionOptions} instance.
+   *
+   * @param s3BucketName the value to use for {@link #getS3BucketName()}
+   * @param allowedRifFileType the value to use for {@link #getDataSetFilter()}
+   * @param s3ListMaxKeys the value to use for {@link #getS3ListMaxKeys()}
+   * @param streamingDownloadsEnabled the value to use for {@link #isStreamingDownloadsEnabled()}
+   * @param downloadThreads the value to use for {@link #getDownloadThreads()}
+   * @param downloadPartThreads the value to use for {@link #getDownloadPartThreads()}
+   * @param dataSetNotificationFile the value to use for {@link #getDataSetNotificationFile()}, or
+   *     <code>null</code>
+   */
+  public ExtractionOptions(
+      String s3BucketName,
+      RifFileType allowedRifFileType,
+      Integer s3ListMaxKeys,
+      boolean streamingDownloadsEnabled,
+      int downloadThreads,
+      int downloadPartThreads,
+      String dataSetNotificationFile) {
+    if (downloadThreads < 1) throw new IllegalArgumentException();
+    if (downloadPartThreads < 1) throw new IllegalArgumentException();
+
     this.s3BucketName = s3BucketName;
     this.allowedRifFileType = allowedRifFileType;
     this.s3ListMaxKeys = s3ListMaxKeys;
+    this.streamingDownloadsEnabled = streamingDownloadsEnabled;
+    this.downloadThreads = downloadThreads;
+    this.downloadPartThreads = downloadPartThreads;
+    this.dataSetNotificationFile = dataSetNotificationFile;
   }
 
   /**
@@ -100,6 +191,42 @@ public final class ExtractionOptions implements Serializable {
     return Optional.ofNullable(s3ListMaxKeys);
   }
 
+  /**
+   * @return <code>true</code> if RIF files should be parsed as they're streamed from S3, or <code>
+   *     false</code> if each should be downloaded to a local temp file (and its checksum verified)
+   *     before parsing starts
+   */
+  public boolean isStreamingDownloadsEnabled() {
+    return streamingDownloadsEnabled;
+  }
+
+  /**
+   * @return the maximum number of RIF files that will be downloaded at once (subject to there being
+   *     enough free disk space for them)
+   */
+  public int getDownloadThreads() {
+    return downloadThreads;
+  }
+
+  /**
+   * @return the maximum number of parts of each RIF file that will be downloaded in parallel: both
+   *     the ranged <code>GET</code>s used for {@link #isStreamingDownloadsEnabled()}, and the
+   *     parallel downloads of multipart-uploaded objects otherwise
+   */
+  public int getDownloadPartThreads() {
+    return downloadPartThreads;
+  }
+
+  /**
+   * @return the local file that will be touched (e.g. by whatever is relaying S3 event
+   *     notifications for the bucket) whenever a new data set might be available, or {@link
+   *     Optional#empty()} if S3 should just be polled for new data sets (when present, S3 is
+   *     scanned as soon as the file's modification time changes, and only rarely otherwise)
+   */
+  public Optional<Path> getDataSetNotificationFile() {
+    return Optional.ofNullable(dataSetNotificationFile).map(Paths::get);
+  }
+
   /** @see java.lang.Object#toString() */
   @Override
   public String toString() {
@@ -108,6 +235,14 @@ public final class ExtractionOptions implements Serializable {
     builder.append(s3BucketName);
     builder.append(", allowedRifFileType=");
     builder.append(allowedRifFileType);
+    builder.append(", streamingDownloadsEnabled=");
+    builder.append(streamingDownloadsEnabled);
+    builder.append(", downloadThreads=");
+    builder.append(downloadThreads);
+    builder.append(", downloadPartThreads=");
+    builder.append(downloadPartThreads);
+    builder.append(", dataSetNotificationFile=");
+    builder.append(dataSetNotificationFile);
     builder.append("]");
     return builder.toString();
   }
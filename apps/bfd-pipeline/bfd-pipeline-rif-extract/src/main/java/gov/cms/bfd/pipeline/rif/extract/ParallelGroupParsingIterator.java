@@ -0,0 +1,187 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import gov.cms.bfd.sharedutils.exceptions.BadCodeMonkeyException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * This {@link Iterator} moves the (expensive) parsing of record groups (e.g. a claim's {@link
+ * CSVRecord}s) off of the caller's thread and onto a pool of parser threads, while still returning
+ * the parsed results in exactly the same order as the groups were read in.
+ *
+ * <p>Groups are read from the wrapped {@link Iterator} (e.g. a {@link CsvRecordGroupingIterator})
+ * on the caller's thread, in chunks of {@link #GROUPS_PER_CHUNK}, and each chunk is then parsed as
+ * a single task. Groups are never split up or merged. To bound memory usage, only a fixed number of
+ * chunks are allowed to be in flight (i.e. read but not yet returned) at any one time: once that
+ * limit is hit, no further groups are read until the caller has consumed the oldest chunk.
+ *
+ * <p>Like {@link CsvRecordGroupingIterator}, this class is not thread-safe, and <strong>may not be
+ * used with parallel {@link Stream}s</strong>. Its parser threads are shut down automatically once
+ * it has been exhausted or a parsing failure has been returned, but it should still be {@link
+ * #close()}d if it's abandoned before then.
+ *
+ * @param <G> the type of the record groups to parse, e.g. a {@link List} of {@link CSVRecord}s
+ * @param <T> the type that each record group will be parsed into
+ */
+final class ParallelGroupParsingIterator<G, T> implements Iterator<T>, AutoCloseable {
+  /** The number of record groups that will be parsed together, as a single task. */
+  static final int GROUPS_PER_CHUNK = 100;
+
+  private final Iterator<G> recordGroups;
+  private final Function<G, T> groupParser;
+  private final int parserThreads;
+  private final int maxChunksInFlight;
+  private final ExecutorService parserExecutor;
+
+  private final Deque<Future<List<T>>> chunksInFlight;
+  private final AtomicInteger queueDepth;
+  private final AtomicInteger activeParsers;
+  private Iterator<T> currentChunk;
+
+  /**
+   * Constructs a new {@link ParallelGroupParsingIterator} instance.
+   *
+   * @param recordGroups the record groups to parse, e.g. a {@link CsvRecordGroupingIterator}
+   * @param groupParser the {@link Function} that will be used to parse each record group, which
+   *     must be thread-safe
+   * @param parserThreads the number of parser threads to use
+   */
+  ParallelGroupParsingIterator(
+      Iterator<G> recordGroups, Function<G, T> groupParser, int parserThreads) {
+    if (parserThreads < 1) throw new IllegalArgumentException();
+
+    this.recordGroups = recordGroups;
+    this.groupParser = groupParser;
+    this.parserThreads = parserThreads;
+
+    /*
+     * Allow enough chunks in flight that every parser thread can have one in progress and one
+     * waiting, so that they never sit idle while the caller is busy with a completed chunk.
+     */
+    this.maxChunksInFlight = 2 * parserThreads;
+    this.parserExecutor =
+        Executors.newFixedThreadPool(
+            parserThreads,
+            new ThreadFactoryBuilder().setNameFormat("rif-parser-%d").setDaemon(true).build());
+
+    this.chunksInFlight = new ArrayDeque<>(maxChunksInFlight);
+    this.queueDepth = new AtomicInteger(0);
+    this.activeParsers = new AtomicInteger(0);
+    this.currentChunk = Collections.emptyIterator();
+  }
+
+  /**
+   * @return the number of chunks of record groups that have been read, but whose parsed results
+   *     have not yet been returned
+   */
+  int getQueueDepth() {
+    return queueDepth.get();
+  }
+
+  /**
+   * @return the fraction (from <code>0.0</code> to <code>1.0</code>) of the parser threads that are
+   *     currently busy parsing
+   */
+  double getParserUtilization() {
+    return activeParsers.get() / (double) parserThreads;
+  }
+
+  /** @see java.util.Iterator#hasNext() */
+  @Override
+  public boolean hasNext() {
+    while (!currentChunk.hasNext()) {
+      submitChunks();
+      if (chunksInFlight.isEmpty()) {
+        close();
+        return false;
+      }
+
+      Future<List<T>> oldestChunk = chunksInFlight.removeFirst();
+      queueDepth.decrementAndGet();
+
+      // Top the pipeline back up before waiting, so the parsers stay busy.
+      submitChunks();
+      currentChunk = waitForChunk(oldestChunk).iterator();
+    }
+
+    return true;
+  }
+
+  /** @see java.util.Iterator#next() */
+  @Override
+  public T next() {
+    if (!hasNext()) throw new NoSuchElementException();
+    return currentChunk.next();
+  }
+
+  /** @see java.lang.AutoCloseable#close() */
+  @Override
+  public void close() {
+    parserExecutor.shutdownNow();
+  }
+
+  /**
+   * Reads in and submits chunks of record groups for parsing, until either the maximum number of
+   * chunks are in flight or there are no more groups to read.
+   */
+  private void submitChunks() {
+    while (chunksInFlight.size() < maxChunksInFlight && recordGroups.hasNext()) {
+      List<G> chunk = new ArrayList<>(GROUPS_PER_CHUNK);
+      while (chunk.size() < GROUPS_PER_CHUNK && recordGroups.hasNext())
+        chunk.add(recordGroups.next());
+
+      chunksInFlight.addLast(parserExecutor.submit(() -> parseChunk(chunk)));
+      queueDepth.incrementAndGet();
+    }
+  }
+
+  /**
+   * @param chunk the record groups to parse
+   * @return the parsed results for each of the specified record groups, in order
+   */
+  private List<T> parseChunk(List<G> chunk) {
+    activeParsers.incrementAndGet();
+    try {
+      List<T> results = new ArrayList<>(chunk.size());
+      for (G recordGroup : chunk) results.add(groupParser.apply(recordGroup));
+      return results;
+    } finally {
+      activeParsers.decrementAndGet();
+    }
+  }
+
+  /**
+   * @param chunk the {@link Future} for the chunk to wait for
+   * @return the parsed results of the specified chunk
+   */
+  private List<T> waitForChunk(Future<List<T>> chunk) {
+    try {
+      return chunk.get();
+    } catch (InterruptedException e) {
+      close();
+      // We're not expecting interrupts here, so go boom.
+      throw new BadCodeMonkeyException(e);
+    } catch (ExecutionException e) {
+      close();
+
+      // Pass parsing failures through as-is, as if they'd happened on this thread.
+      if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+      if (e.getCause() instanceof Error) throw (Error) e.getCause();
+      throw new BadCodeMonkeyException(e);
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package gov.cms.bfd.pipeline.rif.extract;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import gov.cms.bfd.model.rif.Beneficiary;
@@ -27,22 +28,31 @@ import gov.cms.bfd.model.rif.RifFile;
 import gov.cms.bfd.model.rif.RifFileEvent;
 import gov.cms.bfd.model.rif.RifFileRecords;
 import gov.cms.bfd.model.rif.RifFileType;
-import gov.cms.bfd.model.rif.RifFilesEvent;
+import gov.cms.bfd.model.rif.RifRecordBase;
 import gov.cms.bfd.model.rif.RifRecordEvent;
 import gov.cms.bfd.model.rif.SNFClaim;
 import gov.cms.bfd.model.rif.SNFClaimParser;
 import gov.cms.bfd.model.rif.parse.InvalidRifValueException;
+import gov.cms.bfd.model.rif.parse.MappedRifFileReader;
 import gov.cms.bfd.model.rif.parse.RifParsingUtils;
+import gov.cms.bfd.model.rif.parse.RifRow;
 import gov.cms.bfd.pipeline.rif.extract.CsvRecordGroupingIterator.ColumnValueCsvRecordGrouper;
 import gov.cms.bfd.pipeline.rif.extract.CsvRecordGroupingIterator.CsvRecordGrouper;
 import gov.cms.bfd.pipeline.rif.extract.exceptions.UnsupportedRifFileTypeException;
 import gov.cms.bfd.sharedutils.exceptions.BadCodeMonkeyException;
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import org.apache.commons.csv.CSVParser;
@@ -55,309 +65,380 @@ public final class RifFilesProcessor {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RifFilesProcessor.class);
 
-  /**
-   * @param rifFileEvent the {@link RifFileEvent} that is being processed
-   * @return a {@link RifFileRecords} with the {@link RifRecordEvent}s produced from the specified
-   *     {@link RifFileEvent}
-   */
-  public RifFileRecords produceRecords(RifFileEvent rifFileEvent) {
-    RifFile file = rifFileEvent.getFile();
-
-    /*
-     * Approach used here to parse CSV as a Java 8 Stream is courtesy of
-     * https://rumianom.pl/rumianom/entry/apache-commons-csv-with-java.
-     */
-
-    CSVParser parser = RifParsingUtils.createCsvParser(file);
-
-    boolean isGrouped;
-    BiFunction<RifFileEvent, List<CSVRecord>, RifRecordEvent<?>> recordParser;
-    if (file.getFileType() == RifFileType.BENEFICIARY) {
-      isGrouped = false;
-      recordParser = RifFilesProcessor::buildBeneficiaryEvent;
-    } else if (file.getFileType() == RifFileType.BENEFICIARY_HISTORY) {
-      isGrouped = false;
-      recordParser = RifFilesProcessor::buildBeneficiaryHistoryEvent;
-    } else if (file.getFileType() == RifFileType.MEDICARE_BENEFICIARY_ID_HISTORY) {
-      isGrouped = false;
-      recordParser = RifFilesProcessor::buildMedicareBeneficiaryIdHistoryEvent;
-    } else if (file.getFileType() == RifFileType.PDE) {
-      isGrouped = false;
-      recordParser = RifFilesProcessor::buildPartDEvent;
-    } else if (file.getFileType() == RifFileType.CARRIER) {
-      isGrouped = true;
-      recordParser = RifFilesProcessor::buildCarrierClaimEvent;
-    } else if (file.getFileType() == RifFileType.INPATIENT) {
-      isGrouped = true;
-      recordParser = RifFilesProcessor::buildInpatientClaimEvent;
-    } else if (file.getFileType() == RifFileType.OUTPATIENT) {
-      isGrouped = true;
-      recordParser = RifFilesProcessor::buildOutpatientClaimEvent;
-    } else if (file.getFileType() == RifFileType.SNF) {
-      isGrouped = true;
-      recordParser = RifFilesProcessor::buildSNFClaimEvent;
-    } else if (file.getFileType() == RifFileType.HOSPICE) {
-      isGrouped = true;
-      recordParser = RifFilesProcessor::buildHospiceClaimEvent;
-    } else if (file.getFileType() == RifFileType.HHA) {
-      isGrouped = true;
-      recordParser = RifFilesProcessor::buildHHAClaimEvent;
-    } else if (file.getFileType() == RifFileType.DME) {
-      isGrouped = true;
-      recordParser = RifFilesProcessor::buildDMEClaimEvent;
-    } else {
-      throw new UnsupportedRifFileTypeException("Unsupported file type:" + file.getFileType());
-    }
-
-    /*
-     * Use the CSVParser to drive a Stream of grouped CSVRecords
-     * (specifically, group by claim ID/lines).
-     */
-    CsvRecordGrouper grouper =
-        new ColumnValueCsvRecordGrouper(isGrouped ? file.getFileType().getIdColumn() : null);
-    Iterator<List<CSVRecord>> csvIterator = new CsvRecordGroupingIterator(parser, grouper);
-    Spliterator<List<CSVRecord>> spliterator =
-        Spliterators.spliteratorUnknownSize(csvIterator, Spliterator.ORDERED | Spliterator.NONNULL);
-    Stream<List<CSVRecord>> csvRecordStream =
-        StreamSupport.stream(spliterator, false)
-            .onClose(
-                () -> {
-                  try {
-                    /*
-                     * This will also close the Reader and InputStream that the
-                     * CSVParser was consuming.
-                     */
-                    parser.close();
-                  } catch (IOException e) {
-                    LOGGER.warn("Unable to close CSVParser", e);
-                  }
-                });
-
-    /* Map each record group to a single RifRecordEvent. */
-    Stream<RifRecordEvent<?>> rifRecordStream =
-        csvRecordStream.map(
-            csvRecordGroup -> {
-              try {
-                Timer.Context parsingTimer =
-                    rifFileEvent
-                        .getEventMetrics()
-                        .timer(MetricRegistry.name(getClass().getSimpleName(), "recordParsing"))
-                        .time();
-                RifRecordEvent<?> recordEvent = recordParser.apply(rifFileEvent, csvRecordGroup);
-                parsingTimer.close();
-
-                return recordEvent;
-              } catch (InvalidRifValueException e) {
-                LOGGER.warn(
-                    "Parse error encountered near line number '{}'.",
-                    csvRecordGroup.get(0).getRecordNumber());
-                throw new InvalidRifValueException(e);
-              }
-            });
+  /** The {@link RecordEventBuilder} to use for each supported {@link RifFileType}. */
+  private static final Map<RifFileType, RecordEventBuilder<?>> EVENT_BUILDERS =
+      createEventBuilders();
 
-    return new RifFileRecords(rifFileEvent, rifRecordStream);
-  }
+  private final int parserThreads;
 
   /**
-   * @param fileEvent the {@link RifFileEvent} being processed
-   * @param csvRecords the {@link CSVRecord} to be mapped (in a single-element {@link List}), which
-   *     must be from a {@link RifFileType#BENEFICIARY} {@link RifFile}
-   * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
+   * Constructs a new {@link RifFilesProcessor} instance, which will use one parser thread per
+   * available processor.
    */
-  private static RifRecordEvent<Beneficiary> buildBeneficiaryEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
-    if (csvRecords.size() != 1) throw new BadCodeMonkeyException();
-    CSVRecord csvRecord = csvRecords.get(0);
-
-    if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecord.toString());
-
-    RecordAction recordAction = RecordAction.match(csvRecord.get("DML_IND"));
-    Beneficiary beneficiaryRow = BeneficiaryParser.parseRif(csvRecords);
-    return new RifRecordEvent<Beneficiary>(
-        fileEvent, recordAction, beneficiaryRow.getBeneficiaryId(), beneficiaryRow);
+  public RifFilesProcessor() {
+    this(Runtime.getRuntime().availableProcessors());
   }
 
   /**
-   * @param fileEvent the {@link RifFileEvent} being processed
-   * @param csvRecords the {@link CSVRecord} to be mapped (in a single-element {@link List}), which
-   *     must be from a {@link RifFileType#BENEFICIARY_HISTORY} {@link RifFile}
-   * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
+   * Constructs a new {@link RifFilesProcessor} instance.
+   *
+   * @param parserThreads the number of threads to use when parsing each {@link RifFile}'s records,
+   *     which must be at least <code>1</code>
    */
-  private static RifRecordEvent<BeneficiaryHistory> buildBeneficiaryHistoryEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
-    if (csvRecords.size() != 1) throw new BadCodeMonkeyException();
-    CSVRecord csvRecord = csvRecords.get(0);
-
-    if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecord.toString());
-
-    RecordAction recordAction = RecordAction.match(csvRecord.get("DML_IND"));
-    BeneficiaryHistory beneficiaryHistoryRow = BeneficiaryHistoryParser.parseRif(csvRecords);
-    return new RifRecordEvent<BeneficiaryHistory>(
-        fileEvent, recordAction, beneficiaryHistoryRow.getBeneficiaryId(), beneficiaryHistoryRow);
+  public RifFilesProcessor(int parserThreads) {
+    if (parserThreads < 1) throw new IllegalArgumentException();
+    this.parserThreads = parserThreads;
   }
 
-  /**
-   * @param fileEvent the {@link RifFileEvent} being processed
-   * @param csvRecords the {@link CSVRecord} to be mapped (in a single-element {@link List}), which
-   *     must be from a {@link RifFileType#Medicare_Beneficiary_Id_History} {@link RifFile}
-   * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
-   */
-  private static RifRecordEvent<MedicareBeneficiaryIdHistory>
-      buildMedicareBeneficiaryIdHistoryEvent(RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
-    if (csvRecords.size() != 1) throw new BadCodeMonkeyException();
-    CSVRecord csvRecord = csvRecords.get(0);
-
-    if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecord.toString());
-
-    RecordAction recordAction = RecordAction.INSERT;
-    MedicareBeneficiaryIdHistory medicareBeneficiaryIdHistoryRow =
-        MedicareBeneficiaryIdHistoryParser.parseRif(csvRecords);
-    return new RifRecordEvent<MedicareBeneficiaryIdHistory>(
-        fileEvent,
-        recordAction,
-        medicareBeneficiaryIdHistoryRow.getBeneficiaryId().get(),
-        medicareBeneficiaryIdHistoryRow);
+  /** @return the {@link RecordEventBuilder} to use for each supported {@link RifFileType} */
+  private static Map<RifFileType, RecordEventBuilder<?>> createEventBuilders() {
+    Map<RifFileType, RecordEventBuilder<?>> builders = new EnumMap<>(RifFileType.class);
+    builders.put(
+        RifFileType.BENEFICIARY,
+        new RecordEventBuilder<Beneficiary>(
+            false,
+            true,
+            BeneficiaryParser::parseRif,
+            BeneficiaryParser::parseRifRows,
+            Beneficiary::getBeneficiaryId));
+    builders.put(
+        RifFileType.BENEFICIARY_HISTORY,
+        new RecordEventBuilder<BeneficiaryHistory>(
+            false,
+            true,
+            BeneficiaryHistoryParser::parseRif,
+            BeneficiaryHistoryParser::parseRifRows,
+            BeneficiaryHistory::getBeneficiaryId));
+    builders.put(
+        RifFileType.MEDICARE_BENEFICIARY_ID_HISTORY,
+        new RecordEventBuilder<MedicareBeneficiaryIdHistory>(
+            false,
+            false,
+            MedicareBeneficiaryIdHistoryParser::parseRif,
+            MedicareBeneficiaryIdHistoryParser::parseRifRows,
+            record -> record.getBeneficiaryId().get()));
+    builders.put(
+        RifFileType.PDE,
+        new RecordEventBuilder<PartDEvent>(
+            false,
+            true,
+            PartDEventParser::parseRif,
+            PartDEventParser::parseRifRows,
+            PartDEvent::getBeneficiaryId));
+    builders.put(
+        RifFileType.CARRIER,
+        new RecordEventBuilder<CarrierClaim>(
+            true,
+            true,
+            CarrierClaimParser::parseRif,
+            CarrierClaimParser::parseRifRows,
+            CarrierClaim::getBeneficiaryId));
+    builders.put(
+        RifFileType.INPATIENT,
+        new RecordEventBuilder<InpatientClaim>(
+            true,
+            true,
+            InpatientClaimParser::parseRif,
+            InpatientClaimParser::parseRifRows,
+            InpatientClaim::getBeneficiaryId));
+    builders.put(
+        RifFileType.OUTPATIENT,
+        new RecordEventBuilder<OutpatientClaim>(
+            true,
+            true,
+            OutpatientClaimParser::parseRif,
+            OutpatientClaimParser::parseRifRows,
+            OutpatientClaim::getBeneficiaryId));
+    builders.put(
+        RifFileType.SNF,
+        new RecordEventBuilder<SNFClaim>(
+            true,
+            true,
+            SNFClaimParser::parseRif,
+            SNFClaimParser::parseRifRows,
+            SNFClaim::getBeneficiaryId));
+    builders.put(
+        RifFileType.HOSPICE,
+        new RecordEventBuilder<HospiceClaim>(
+            true,
+            true,
+            HospiceClaimParser::parseRif,
+            HospiceClaimParser::parseRifRows,
+            HospiceClaim::getBeneficiaryId));
+    builders.put(
+        RifFileType.HHA,
+        new RecordEventBuilder<HHAClaim>(
+            true,
+            true,
+            HHAClaimParser::parseRif,
+            HHAClaimParser::parseRifRows,
+            HHAClaim::getBeneficiaryId));
+    builders.put(
+        RifFileType.DME,
+        new RecordEventBuilder<DMEClaim>(
+            true,
+            true,
+            DMEClaimParser::parseRif,
+            DMEClaimParser::parseRifRows,
+            DMEClaim::getBeneficiaryId));
+    return builders;
   }
 
   /**
-   * @param fileEvent the {@link RifFilesEvent} being processed
-   * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
-   *     RifFileType#PDE} {@link RifFile}
-   * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
+   * @param rifFileEvent the {@link RifFileEvent} that is being processed
+   * @return a {@link RifFileRecords} with the {@link RifRecordEvent}s produced from the specified
+   *     {@link RifFileEvent}
    */
-  private static RifRecordEvent<PartDEvent> buildPartDEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
-    if (csvRecords.size() != 1) throw new BadCodeMonkeyException();
-    if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
-
-    CSVRecord csvRecord = csvRecords.get(0);
-
-    RecordAction recordAction = RecordAction.match(csvRecord.get("DML_IND"));
-    PartDEvent partDEvent = PartDEventParser.parseRif(csvRecords);
-    return new RifRecordEvent<PartDEvent>(
-        fileEvent, recordAction, partDEvent.getBeneficiaryId(), partDEvent);
+  public RifFileRecords produceRecords(RifFileEvent rifFileEvent) {
+    return produceRecords(rifFileEvent, 0L);
   }
 
   /**
-   * @param fileEvent the {@link RifFileEvent} being processed that is being processed
-   * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
-   *     RifFileType#INPATIENT} {@link RifFile}
-   * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
+   * @param rifFileEvent the {@link RifFileEvent} that is being processed
+   * @param recordsToSkip the number of records (i.e. record groups, for claims) at the start of the
+   *     file to skip over without parsing, e.g. because they were already loaded by a previous
+   *     attempt to process the file
+   * @return a {@link RifFileRecords} with the {@link RifRecordEvent}s produced from the specified
+   *     {@link RifFileEvent}, starting at the specified record (see {@link
+   *     RifFileRecords#getFirstRecordOffset()})
    */
-  private static RifRecordEvent<InpatientClaim> buildInpatientClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
-    if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
-
-    CSVRecord firstCsvRecord = csvRecords.get(0);
-
-    RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    InpatientClaim claim = InpatientClaimParser.parseRif(csvRecords);
-    return new RifRecordEvent<InpatientClaim>(
-        fileEvent, recordAction, claim.getBeneficiaryId(), claim);
-  }
+  public RifFileRecords produceRecords(RifFileEvent rifFileEvent, long recordsToSkip) {
+    if (recordsToSkip < 0) throw new IllegalArgumentException();
+    RifFile file = rifFileEvent.getFile();
 
-  /**
-   * @param fileEvent the {@link RifFileEvent} being processed that is being processed
-   * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
-   *     RifFileType#OUTPATIENT} {@link RifFile}
-   * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
-   */
-  private static RifRecordEvent<OutpatientClaim> buildOutpatientClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
-    if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
+    RecordEventBuilder<?> eventBuilder = EVENT_BUILDERS.get(file.getFileType());
+    if (eventBuilder == null)
+      throw new UnsupportedRifFileTypeException("Unsupported file type:" + file.getFileType());
 
-    CSVRecord firstCsvRecord = csvRecords.get(0);
+    Enum<?> groupingColumn = eventBuilder.isGrouped() ? file.getFileType().getIdColumn() : null;
 
-    RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    OutpatientClaim claim = OutpatientClaimParser.parseRif(csvRecords);
-    return new RifRecordEvent<OutpatientClaim>(
-        fileEvent, recordAction, claim.getBeneficiaryId(), claim);
-  }
+    /*
+     * Files that have already been downloaded to local disk can be read via the (much faster)
+     * MappedRifFileReader. Otherwise, fall back to streaming them through a CSVParser. Either way,
+     * parsing is CPU-heavy enough that a single thread can't keep up with the loader, so the record
+     * groups are parsed in parallel (but still returned in order) by a separate pool of threads.
+     */
+    Closeable recordSource;
+    ParallelGroupParsingIterator<?, RifRecordEvent<?>> recordIterator;
+    Optional<Path> localPath = file.getLocalPath();
+    if (localPath.isPresent() && MappedRifFileReader.isCharsetSupported(file.getCharset())) {
+      MappedRifFileReader reader = new MappedRifFileReader(localPath.get(), file.getCharset());
+      recordSource = reader;
+
+      // Group the RifRows by claim ID/lines, and map each group to a single RifRecordEvent.
+      recordIterator =
+          new ParallelGroupParsingIterator<>(
+              skip(new RifRowGroupingIterator(reader, groupingColumn), recordsToSkip),
+              createGroupParser(
+                  rifFileEvent, eventBuilder::buildRowsEvent, RifRow::getRecordNumber),
+              parserThreads);
+    } else {
+      /*
+       * Approach used here to parse CSV as a Java 8 Stream is courtesy of
+       * https://rumianom.pl/rumianom/entry/apache-commons-csv-with-java.
+       */
+      CSVParser parser = RifParsingUtils.createCsvParser(file);
+      recordSource = parser;
+
+      /*
+       * Use the CSVParser to drive an Iterator of grouped CSVRecords
+       * (specifically, group by claim ID/lines).
+       */
+      CsvRecordGrouper grouper = new ColumnValueCsvRecordGrouper(groupingColumn);
+      Iterator<List<CSVRecord>> csvIterator =
+          skip(new CsvRecordGroupingIterator(parser, grouper), recordsToSkip);
+
+      /* Map each record group to a single RifRecordEvent. */
+      recordIterator =
+          new ParallelGroupParsingIterator<>(
+              csvIterator,
+              createGroupParser(
+                  rifFileEvent, eventBuilder::buildCsvEvent, CSVRecord::getRecordNumber),
+              parserThreads);
+    }
 
-  /**
-   * @param fileEvent the {@link RifFileEvent} being processed
-   * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
-   *     RifFileType#CARRIER} {@link RifFile}
-   * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
-   */
-  private static RifRecordEvent<CarrierClaim> buildCarrierClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
-    if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
+    rifFileEvent
+        .getEventMetrics()
+        .register(
+            MetricRegistry.name(getClass().getSimpleName(), "recordParsing", "queueDepth"),
+            new Gauge<Integer>() {
+              /** @see com.codahale.metrics.Gauge#getValue() */
+              @Override
+              public Integer getValue() {
+                return recordIterator.getQueueDepth();
+              }
+            });
+    rifFileEvent
+        .getEventMetrics()
+        .register(
+            MetricRegistry.name(getClass().getSimpleName(), "recordParsing", "utilization"),
+            new Gauge<Double>() {
+              /** @see com.codahale.metrics.Gauge#getValue() */
+              @Override
+              public Double getValue() {
+                return recordIterator.getParserUtilization();
+              }
+            });
 
-    CSVRecord firstCsvRecord = csvRecords.get(0);
+    Spliterator<RifRecordEvent<?>> spliterator =
+        Spliterators.spliteratorUnknownSize(
+            recordIterator, Spliterator.ORDERED | Spliterator.NONNULL);
+    Stream<RifRecordEvent<?>> rifRecordStream =
+        StreamSupport.stream(spliterator, false)
+            .onClose(
+                () -> {
+                  recordIterator.close();
+                  try {
+                    /*
+                     * For CSVParsers, this will also close the Reader and
+                     * InputStream that they were consuming.
+                     */
+                    recordSource.close();
+                  } catch (IOException e) {
+                    LOGGER.warn("Unable to close RIF file reader", e);
+                  }
+                });
 
-    RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    CarrierClaim claim = CarrierClaimParser.parseRif(csvRecords);
-    return new RifRecordEvent<CarrierClaim>(
-        fileEvent, recordAction, claim.getBeneficiaryId(), claim);
+    return new RifFileRecords(rifFileEvent, rifRecordStream, recordsToSkip);
   }
 
   /**
-   * @param fileEvent the {@link RifFileEvent} being processed
-   * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
-   *     RifFileType#SNF} {@link RifFile}
-   * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
+   * Advances the specified {@link Iterator} past the specified number of record groups. Those
+   * groups still have to be read, but skipping them here avoids the (much more expensive) work of
+   * parsing them.
+   *
+   * @param <T> the type of record groups being iterated over
+   * @param groupIterator the {@link Iterator} of record groups to advance
+   * @param recordsToSkip the number of record groups to skip
+   * @return the specified {@link Iterator}, after advancing it
    */
-  private static RifRecordEvent<SNFClaim> buildSNFClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
-    if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
-
-    CSVRecord firstCsvRecord = csvRecords.get(0);
-
-    RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    SNFClaim claim = SNFClaimParser.parseRif(csvRecords);
-    return new RifRecordEvent<SNFClaim>(fileEvent, recordAction, claim.getBeneficiaryId(), claim);
+  private static <T> Iterator<T> skip(Iterator<T> groupIterator, long recordsToSkip) {
+    if (recordsToSkip > 0) LOGGER.info("Skipping the first '{}' records.", recordsToSkip);
+    for (long i = 0; i < recordsToSkip && groupIterator.hasNext(); i++) groupIterator.next();
+    return groupIterator;
   }
 
   /**
-   * @param fileEvent the {@link RifFileEvent} being processed
-   * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
-   *     RifFileType#HOSPICE} {@link RifFile}
-   * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
+   * @param <R> the type of the records being parsed, e.g. {@link CSVRecord} or {@link RifRow}
+   * @param rifFileEvent the {@link RifFileEvent} that is being processed
+   * @param recordParser the {@link BiFunction} that will build a {@link RifRecordEvent} from each
+   *     group of records
+   * @param recordNumberGetter the {@link ToLongFunction} that provides each record's line number
+   * @return a {@link Function} that wraps the specified {@link BiFunction} with the appropriate
+   *     metrics and error logging
    */
-  private static RifRecordEvent<HospiceClaim> buildHospiceClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
-    if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
-
-    CSVRecord firstCsvRecord = csvRecords.get(0);
-
-    RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    HospiceClaim claim = HospiceClaimParser.parseRif(csvRecords);
-    return new RifRecordEvent<HospiceClaim>(
-        fileEvent, recordAction, claim.getBeneficiaryId(), claim);
+  private <R> Function<List<R>, RifRecordEvent<?>> createGroupParser(
+      RifFileEvent rifFileEvent,
+      BiFunction<RifFileEvent, List<R>, RifRecordEvent<?>> recordParser,
+      ToLongFunction<R> recordNumberGetter) {
+    return recordGroup -> {
+      try {
+        Timer.Context parsingTimer =
+            rifFileEvent
+                .getEventMetrics()
+                .timer(MetricRegistry.name(getClass().getSimpleName(), "recordParsing"))
+                .time();
+        RifRecordEvent<?> recordEvent = recordParser.apply(rifFileEvent, recordGroup);
+        parsingTimer.close();
+
+        return recordEvent;
+      } catch (InvalidRifValueException e) {
+        LOGGER.warn(
+            "Parse error encountered near line number '{}'.",
+            recordNumberGetter.applyAsLong(recordGroup.get(0)));
+        throw new InvalidRifValueException(e);
+      }
+    };
   }
 
   /**
-   * @param fileEvent the {@link RifFileEvent} being processed
-   * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
-   *     RifFileType#HHA} {@link RifFile}
-   * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
+   * Builds the {@link RifRecordEvent}s for the records of a single {@link RifFileType}, from either
+   * the {@link CSVRecord}s or the {@link RifRow}s of each record's group of rows.
+   *
+   * @param <T> the type of record that is built
    */
-  private static RifRecordEvent<HHAClaim> buildHHAClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
-    if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
-
-    CSVRecord firstCsvRecord = csvRecords.get(0);
+  private static final class RecordEventBuilder<T extends RifRecordBase> {
+    private final boolean grouped;
+    private final boolean hasRecordAction;
+    private final Function<List<CSVRecord>, T> csvParser;
+    private final Function<List<RifRow>, T> rowParser;
+    private final Function<T, String> beneficiaryIdGetter;
+
+    /**
+     * Constructs a new {@link RecordEventBuilder}.
+     *
+     * @param grouped <code>true</code> if each record is built from a group of rows (i.e. a claim
+     *     and its lines), <code>false</code> if each record is built from a single row
+     * @param hasRecordAction <code>true</code> if the rows have a <code>DML_IND</code> column with
+     *     the {@link RecordAction} to use, <code>false</code> if they should always be inserted
+     * @param csvParser the generated parser method that builds a record from {@link CSVRecord}s
+     * @param rowParser the generated parser method that builds a record from {@link RifRow}s
+     * @param beneficiaryIdGetter provides the beneficiary ID of each record
+     */
+    RecordEventBuilder(
+        boolean grouped,
+        boolean hasRecordAction,
+        Function<List<CSVRecord>, T> csvParser,
+        Function<List<RifRow>, T> rowParser,
+        Function<T, String> beneficiaryIdGetter) {
+      this.grouped = grouped;
+      this.hasRecordAction = hasRecordAction;
+      this.csvParser = csvParser;
+      this.rowParser = rowParser;
+      this.beneficiaryIdGetter = beneficiaryIdGetter;
+    }
 
-    RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    HHAClaim claim = HHAClaimParser.parseRif(csvRecords);
-    return new RifRecordEvent<HHAClaim>(fileEvent, recordAction, claim.getBeneficiaryId(), claim);
-  }
+    /**
+     * @return <code>true</code> if each record is built from a group of rows, <code>false</code> if
+     *     each record is built from a single row
+     */
+    boolean isGrouped() {
+      return grouped;
+    }
 
-  /**
-   * @param fileEvent the {@link RifFileEvent} being processed
-   * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
-   *     RifFileType#DME} {@link RifFile}
-   * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
-   */
-  private static RifRecordEvent<DMEClaim> buildDMEClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
-    if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
+    /**
+     * @param fileEvent the {@link RifFileEvent} being processed
+     * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from the {@link RifFile}
+     *     of the specified {@link RifFileEvent}, and must be a single record's group of rows
+     * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
+     */
+    RifRecordEvent<T> buildCsvEvent(RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
+      return buildEvent(fileEvent, csvRecords, csvParser, CSVRecord::get);
+    }
 
-    CSVRecord firstCsvRecord = csvRecords.get(0);
+    /**
+     * @param fileEvent the {@link RifFileEvent} being processed
+     * @param rifRows the {@link RifRow}s to be mapped, which must be from the {@link RifFile} of
+     *     the specified {@link RifFileEvent}, and must be a single record's group of rows
+     * @return a {@link RifRecordEvent} built from the specified {@link RifRow}s
+     */
+    RifRecordEvent<T> buildRowsEvent(RifFileEvent fileEvent, List<RifRow> rifRows) {
+      return buildEvent(fileEvent, rifRows, rowParser, RifRow::get);
+    }
 
-    RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    DMEClaim claim = DMEClaimParser.parseRif(csvRecords);
-    return new RifRecordEvent<DMEClaim>(fileEvent, recordAction, claim.getBeneficiaryId(), claim);
+    /**
+     * @param <R> the type of the rows being mapped, e.g. {@link CSVRecord} or {@link RifRow}
+     * @param fileEvent the {@link RifFileEvent} being processed
+     * @param rows the rows to be mapped, which must be a single record's group of rows
+     * @param parser the parser to build the record with
+     * @param columnGetter provides the value of a named column in a row
+     * @return a {@link RifRecordEvent} built from the specified rows
+     */
+    private <R> RifRecordEvent<T> buildEvent(
+        RifFileEvent fileEvent,
+        List<R> rows,
+        Function<List<R>, T> parser,
+        BiFunction<R, String, String> columnGetter) {
+      if (!grouped && rows.size() != 1) throw new BadCodeMonkeyException();
+      if (LOGGER.isTraceEnabled()) LOGGER.trace(rows.toString());
+
+      RecordAction recordAction =
+          hasRecordAction
+              ? RecordAction.match(columnGetter.apply(rows.get(0), "DML_IND"))
+              : RecordAction.INSERT;
+      T record = parser.apply(rows);
+      return new RifRecordEvent<T>(
+          fileEvent, recordAction, beneficiaryIdGetter.apply(record), record);
+    }
   }
 }
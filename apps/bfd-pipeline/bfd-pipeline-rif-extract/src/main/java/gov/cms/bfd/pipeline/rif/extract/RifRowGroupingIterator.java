@@ -0,0 +1,68 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import gov.cms.bfd.model.rif.parse.RifRow;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The {@link RifRow} equivalent of {@link CsvRecordGroupingIterator}: groups together consecutive
+ * {@link RifRow}s that have the same value for a specified column (e.g. all of the lines for a
+ * single claim).
+ *
+ * <p>Like {@link CsvRecordGroupingIterator}, this class is not thread-safe.
+ */
+final class RifRowGroupingIterator implements Iterator<List<RifRow>> {
+  private final Iterator<RifRow> rowIter;
+  private final Enum<?> groupingColumn;
+
+  /**
+   * The first {@link RifRow} of the next group, which had to be read in to find the end of the
+   * current group, if any.
+   */
+  private RifRow rowFromNextGroup;
+
+  /**
+   * Constructs a new {@link RifRowGroupingIterator} instance.
+   *
+   * @param rowIter the {@link RifRow}s to group
+   * @param groupingColumn the column to group by, or <code>null</code> if no rows should be grouped
+   */
+  RifRowGroupingIterator(Iterator<RifRow> rowIter, Enum<?> groupingColumn) {
+    this.rowIter = rowIter;
+    this.groupingColumn = groupingColumn;
+    this.rowFromNextGroup = null;
+  }
+
+  /** @see java.util.Iterator#hasNext() */
+  @Override
+  public boolean hasNext() {
+    return rowFromNextGroup != null || rowIter.hasNext();
+  }
+
+  /** @see java.util.Iterator#next() */
+  @Override
+  public List<RifRow> next() {
+    if (!hasNext()) throw new NoSuchElementException();
+
+    List<RifRow> rowGroup = new ArrayList<>(1);
+    RifRow firstRowInGroup = rowFromNextGroup != null ? rowFromNextGroup : rowIter.next();
+    rowFromNextGroup = null;
+    rowGroup.add(firstRowInGroup);
+    if (groupingColumn == null) return rowGroup;
+
+    String groupValue = firstRowInGroup.get(groupingColumn);
+    while (rowIter.hasNext()) {
+      RifRow nextRow = rowIter.next();
+      if (groupValue.equals(nextRow.get(groupingColumn))) {
+        rowGroup.add(nextRow);
+      } else {
+        rowFromNextGroup = nextRow;
+        break;
+      }
+    }
+
+    return rowGroup;
+  }
+}
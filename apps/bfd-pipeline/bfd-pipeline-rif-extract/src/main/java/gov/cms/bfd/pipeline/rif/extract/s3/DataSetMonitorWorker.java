@@ -9,11 +9,6 @@ import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestId;
 import gov.cms.bfd.pipeline.rif.extract.s3.task.DataSetMoveTask;
 import gov.cms.bfd.pipeline.rif.extract.s3.task.S3TaskManager;
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -38,8 +33,6 @@ import org.slf4j.LoggerFactory;
 public final class DataSetMonitorWorker implements Runnable {
   private static final Logger LOGGER = LoggerFactory.getLogger(DataSetMonitorWorker.class);
 
-  private static final int GIGA = 1000 * 1000 * 1000;
-
   /** The directory name that pending/incoming RIF data sets will be pulled from in S3. */
   public static final String S3_PREFIX_PENDING_DATA_SETS = "Incoming";
 
@@ -80,6 +73,7 @@ public final class DataSetMonitorWorker implements Runnable {
   private final S3TaskManager s3TaskManager;
 
   private final DataSetQueue dataSetQueue;
+  private final DataSetScanThrottle scanThrottle;
 
   /**
    * Constructs a new {@link DataSetMonitorWorker} instance.
@@ -100,15 +94,24 @@ public final class DataSetMonitorWorker implements Runnable {
     this.s3TaskManager = s3TaskManager;
 
     this.dataSetQueue = new DataSetQueue(appMetrics, options, s3TaskManager);
+    this.scanThrottle = new DataSetScanThrottle(options.getDataSetNotificationFile());
   }
 
   /** @see java.lang.Runnable#run() */
   @Override
   public void run() {
+    // If there's been nothing to process lately (and no notification since), don't scan yet.
+    if (!scanThrottle.isScanDue()) {
+      appMetrics.meter(MetricRegistry.name(getClass().getSimpleName(), "scansSkipped")).mark();
+      listener.noDataAvailable();
+      return;
+    }
+
     LOGGER.debug("Scanning for data sets to process...");
 
     // Update the queue from S3.
     dataSetQueue.updatePendingDataSets();
+    scanThrottle.recordScan(!dataSetQueue.isEmpty());
 
     // If no manifest was found, we're done (until next time).
     if (dataSetQueue.isEmpty()) {
@@ -132,10 +135,12 @@ public final class DataSetMonitorWorker implements Runnable {
      * processing it.
      */
     boolean alreadyLoggedWaitingEvent = false;
+    long waitMillis = DataSetScanThrottle.MIN_IDLE_SCAN_DELAY_MILLIS;
     while (!dataSetIsAvailable(manifestToProcess)) {
       /*
        * We're very patient here, so we keep looping, but it's prudent to
-       * pause between each iteration. TODO should eventually time out,
+       * pause between each iteration, and to back off as the upload drags
+       * on (large uploads take hours). TODO should eventually time out,
        * once we know how long transfers might take
        */
       try {
@@ -143,7 +148,8 @@ public final class DataSetMonitorWorker implements Runnable {
           LOGGER.info("Data set not ready. Waiting for it to finish uploading...");
           alreadyLoggedWaitingEvent = true;
         }
-        Thread.sleep(1000 * 1);
+        Thread.sleep(waitMillis);
+        waitMillis = Math.min(DataSetScanThrottle.MAX_IDLE_SCAN_DELAY_MILLIS, waitMillis * 2);
       } catch (InterruptedException e) {
         /*
          * Many Java applications use InterruptedExceptions to signal
@@ -165,31 +171,30 @@ public final class DataSetMonitorWorker implements Runnable {
         manifestToProcess.getEntries().stream()
             .map(
                 manifestEntry ->
-                    new S3RifFile(
-                        appMetrics, manifestEntry, s3TaskManager.downloadAsync(manifestEntry)))
+                    options.isStreamingDownloadsEnabled()
+                        ? new S3RifFile(
+                            appMetrics,
+                            manifestEntry,
+                            () -> s3TaskManager.openStream(manifestEntry))
+                        : new S3RifFile(
+                            appMetrics, manifestEntry, s3TaskManager.downloadAsync(manifestEntry)))
             .collect(Collectors.toList());
     RifFilesEvent rifFilesEvent =
         new RifFilesEvent(manifestToProcess.getTimestamp(), new ArrayList<>(rifFiles));
 
     /*
      * To save time for the next data set, peek ahead at it. If it's available and
-     * it looks like there's enough disk space, start downloading it early in the
-     * background.
+     * there's enough disk space for all of it (alongside the current downloads),
+     * start downloading it early in the background. (When streaming, there's
+     * nothing to download ahead of time.)
      */
     Optional<DataSetManifest> secondManifestToProcess = dataSetQueue.getSecondDataSetToProcess();
-    if (secondManifestToProcess.isPresent() && dataSetIsAvailable(secondManifestToProcess.get())) {
-      Path tmpdir = Paths.get(System.getProperty("java.io.tmpdir"));
-      long usableFreeTempSpace;
-      try {
-        usableFreeTempSpace = Files.getFileStore(tmpdir).getUsableSpace();
-      } catch (IOException e) {
-        throw new UncheckedIOException(e);
-      }
-
-      if (usableFreeTempSpace >= (50 * GIGA)) {
-        secondManifestToProcess.get().getEntries().stream()
-            .forEach(manifestEntry -> s3TaskManager.downloadAsync(manifestEntry));
-      }
+    if (!options.isStreamingDownloadsEnabled()
+        && secondManifestToProcess.isPresent()
+        && dataSetIsAvailable(secondManifestToProcess.get())
+        && s3TaskManager.hasDiskSpaceFor(secondManifestToProcess.get())) {
+      secondManifestToProcess.get().getEntries().stream()
+          .forEach(manifestEntry -> s3TaskManager.downloadAsync(manifestEntry));
     }
 
     /*
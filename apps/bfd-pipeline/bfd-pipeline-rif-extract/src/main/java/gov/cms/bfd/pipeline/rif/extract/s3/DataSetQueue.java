@@ -19,6 +19,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.xml.bind.JAXBContext;
@@ -56,6 +57,12 @@ public final class DataSetQueue {
    */
   private final Set<DataSetManifestId> knownInvalidManifests;
 
+  /**
+   * The count of manifests that have been moved to {@value
+   * DataSetMonitorWorker#S3_PREFIX_COMPLETED_DATA_SETS}, or <code>null</code> if that hasn't been
+   * counted yet. This is only listed from S3 once, as that prefix grows with every data set ever
+   * processed; after that, it's incremented as our own data sets leave the pending prefix.
+   */
   private Integer completedManifestsCount;
 
   /**
@@ -83,6 +90,7 @@ public final class DataSetQueue {
   public void updatePendingDataSets() {
     // Find the pending manifests.
     Set<DataSetManifestId> manifestIdsPendingNow = listPendingManifests();
+    if (completedManifestsCount == null) completedManifestsCount = countCompletedManifests();
 
     /*
      * Add any newly discovered manifests to the list of those to be
@@ -136,7 +144,7 @@ public final class DataSetQueue {
       if (!manifestIdsPendingNow.contains(manifestId)) {
         manifestsToProcessIterator.remove();
         knownInvalidManifests.remove(manifestId);
-        recentlyProcessedManifests.remove(manifestId);
+        if (recentlyProcessedManifests.remove(manifestId)) completedManifestsCount++;
         s3TaskManager.cleanupOldDataSet(manifestId);
       }
     }
@@ -144,7 +152,8 @@ public final class DataSetQueue {
 
   /**
    * @return the {@link DataSetManifestId}s for the manifests that are found in S3 under the {@value
-   *     #S3_PREFIX_PENDING_DATA_SETS} key prefix, sorted in expected processing order.
+   *     DataSetMonitorWorker#S3_PREFIX_PENDING_DATA_SETS} key prefix, sorted in expected processing
+   *     order.
    */
   private Set<DataSetManifestId> listPendingManifests() {
     Timer.Context timerS3Scanning =
@@ -153,48 +162,77 @@ public final class DataSetQueue {
     Set<DataSetManifestId> manifestIds = new HashSet<>();
 
     /*
-     * Request a list of all objects in the configured bucket and directory.
-     * (In the results, we'll be looking for the oldest manifest file, if
-     * any.)
+     * Only list the pending objects: the completed ones only ever grow in
+     * number, and aren't needed here. (In the results, we'll be looking
+     * for the oldest manifest file, if any.)
      */
+    listObjects(
+        DataSetMonitorWorker.S3_PREFIX_PENDING_DATA_SETS,
+        key -> {
+          if (DataSetMonitorWorker.REGEX_PENDING_MANIFEST.matcher(key).matches()) {
+            /*
+             * We've got an object that *looks like* it might be a
+             * manifest file. But we need to parse the key to ensure
+             * that it starts with a valid timestamp.
+             */
+            DataSetManifestId manifestId = DataSetManifestId.parseManifestIdFromS3Key(key);
+            if (manifestId != null) manifestIds.add(manifestId);
+          }
+        });
+
+    LOGGER.debug("Scanned for data sets in S3. Found '{}'.", manifestIds.size());
+    timerS3Scanning.close();
+
+    return manifestIds;
+  }
+
+  /**
+   * @return the number of manifests that are found in S3 under the {@value
+   *     DataSetMonitorWorker#S3_PREFIX_COMPLETED_DATA_SETS} key prefix
+   */
+  private int countCompletedManifests() {
+    Timer.Context timerS3Scanning =
+        appMetrics
+            .timer(MetricRegistry.name(getClass().getSimpleName(), "s3ScanningCompleted"))
+            .time();
+    int[] completedCount = new int[] {0};
+    listObjects(
+        DataSetMonitorWorker.S3_PREFIX_COMPLETED_DATA_SETS,
+        key -> {
+          if (DataSetMonitorWorker.REGEX_COMPLETED_MANIFEST.matcher(key).matches())
+            completedCount[0]++;
+        });
+    timerS3Scanning.close();
+
+    return completedCount[0];
+  }
+
+  /**
+   * Lists the keys of all of the objects in the configured bucket under the specified "directory".
+   *
+   * @param directory the top-level "directory" (key prefix, without a trailing slash) to list
+   * @param keyConsumer the {@link Consumer} to pass each {@link S3ObjectSummary#getKey()} to
+   */
+  private void listObjects(String directory, Consumer<String> keyConsumer) {
     ListObjectsV2Request s3BucketListRequest = new ListObjectsV2Request();
     s3BucketListRequest.setBucketName(options.getS3BucketName());
+    s3BucketListRequest.setPrefix(directory + "/");
     if (options.getS3ListMaxKeys().isPresent())
       s3BucketListRequest.setMaxKeys(options.getS3ListMaxKeys().get());
 
     /*
      * S3 will return results in separate pages. Loop through all of the
-     * pages, looking for manifests.
+     * pages.
      */
-    int completedManifestsCount = 0;
     ListObjectsV2Result s3ObjectListing;
     do {
       s3ObjectListing = s3TaskManager.getS3Client().listObjectsV2(s3BucketListRequest);
 
-      for (S3ObjectSummary objectSummary : s3ObjectListing.getObjectSummaries()) {
-        String key = objectSummary.getKey();
-        if (DataSetMonitorWorker.REGEX_PENDING_MANIFEST.matcher(key).matches()) {
-          /*
-           * We've got an object that *looks like* it might be a
-           * manifest file. But we need to parse the key to ensure
-           * that it starts with a valid timestamp.
-           */
-          DataSetManifestId manifestId = DataSetManifestId.parseManifestIdFromS3Key(key);
-          if (manifestId != null) manifestIds.add(manifestId);
-        } else if (DataSetMonitorWorker.REGEX_COMPLETED_MANIFEST.matcher(key).matches()) {
-          completedManifestsCount++;
-        }
-      }
+      for (S3ObjectSummary objectSummary : s3ObjectListing.getObjectSummaries())
+        keyConsumer.accept(objectSummary.getKey());
 
       s3BucketListRequest.setContinuationToken(s3ObjectListing.getNextContinuationToken());
     } while (s3ObjectListing.isTruncated());
-
-    this.completedManifestsCount = completedManifestsCount;
-
-    LOGGER.debug("Scanned for data sets in S3. Found '{}'.", manifestsToProcess.size());
-    timerS3Scanning.close();
-
-    return manifestIds;
   }
 
   /**
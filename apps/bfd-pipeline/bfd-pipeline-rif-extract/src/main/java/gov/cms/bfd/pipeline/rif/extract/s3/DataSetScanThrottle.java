@@ -0,0 +1,123 @@
+package gov.cms.bfd.pipeline.rif.extract.s3;
+
+import gov.cms.bfd.pipeline.rif.extract.ExtractionOptions;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides when {@link DataSetMonitorWorker} should next scan S3 for data sets. Each scan lists
+ * objects in the bucket, which isn't free, and the worker is run every second or so. While data
+ * sets keep being found, every run scans. Once none are found, the delay between scans doubles
+ * after each empty scan, from {@link #MIN_IDLE_SCAN_DELAY_MILLIS} up to a maximum, and goes back to
+ * zero as soon as something is found again.
+ *
+ * <p>If an {@link ExtractionOptions#getDataSetNotificationFile()} is configured, any change to its
+ * modification time triggers an immediate scan. In that mode, the maximum delay is much longer
+ * ({@link #MAX_NOTIFIED_SCAN_DELAY_MILLIS}), as the periodic scans are only there to catch missed
+ * notifications.
+ *
+ * <p>Instances are not thread-safe.
+ */
+final class DataSetScanThrottle {
+  /** The delay before the next scan, after the first empty scan. */
+  static final long MIN_IDLE_SCAN_DELAY_MILLIS = 1000L;
+
+  /** The maximum delay between scans, when no notification file is configured. */
+  static final long MAX_IDLE_SCAN_DELAY_MILLIS = 30L * 1000L;
+
+  /** The maximum delay between scans, when a notification file is configured. */
+  static final long MAX_NOTIFIED_SCAN_DELAY_MILLIS = 10L * 60L * 1000L;
+
+  private final Path notificationFile;
+  private final long maxScanDelayMillis;
+  private final LongSupplier clock;
+  private long scanDelayMillis;
+  private long nextScanMillis;
+  private long notificationFileModified;
+
+  /**
+   * Constructs a new {@link DataSetScanThrottle}.
+   *
+   * @param notificationFile the {@link ExtractionOptions#getDataSetNotificationFile()} value
+   */
+  DataSetScanThrottle(Optional<Path> notificationFile) {
+    this(notificationFile, System::currentTimeMillis);
+  }
+
+  /**
+   * Constructs a new {@link DataSetScanThrottle}.
+   *
+   * @param notificationFile the {@link ExtractionOptions#getDataSetNotificationFile()} value
+   * @param clock supplies the current time, in epoch milliseconds
+   */
+  DataSetScanThrottle(Optional<Path> notificationFile, LongSupplier clock) {
+    this.notificationFile = notificationFile.orElse(null);
+    this.maxScanDelayMillis =
+        notificationFile.isPresent() ? MAX_NOTIFIED_SCAN_DELAY_MILLIS : MAX_IDLE_SCAN_DELAY_MILLIS;
+    this.clock = clock;
+
+    this.scanDelayMillis = 0L;
+    this.nextScanMillis = Long.MIN_VALUE;
+    this.notificationFileModified = this.notificationFile != null ? readNotificationFile() : -1L;
+  }
+
+  /**
+   * @return <code>true</code> if S3 should be scanned now, <code>false</code> if the scan should be
+   *     skipped
+   */
+  boolean isScanDue() {
+    if (notificationFile != null) {
+      long modified = readNotificationFile();
+      if (modified != notificationFileModified) {
+        notificationFileModified = modified;
+        return true;
+      }
+    }
+
+    return clock.getAsLong() >= nextScanMillis;
+  }
+
+  /**
+   * Records the outcome of a scan, to decide when the next one is due.
+   *
+   * @param dataSetsFound <code>true</code> if the scan found any data sets to process, <code>false
+   *     </code> if not
+   */
+  void recordScan(boolean dataSetsFound) {
+    if (dataSetsFound) {
+      scanDelayMillis = 0L;
+      nextScanMillis = Long.MIN_VALUE;
+      return;
+    }
+
+    scanDelayMillis =
+        scanDelayMillis == 0L
+            ? MIN_IDLE_SCAN_DELAY_MILLIS
+            : Math.min(maxScanDelayMillis, scanDelayMillis * 2);
+    nextScanMillis = clock.getAsLong() + scanDelayMillis;
+  }
+
+  /** @return the current delay between scans, in milliseconds */
+  long getScanDelayMillis() {
+    return scanDelayMillis;
+  }
+
+  /**
+   * @return the modification time of the {@link #notificationFile}, in epoch milliseconds, or
+   *     <code>-1</code> if it doesn't exist
+   */
+  private long readNotificationFile() {
+    try {
+      return Files.getLastModifiedTime(notificationFile).toMillis();
+    } catch (NoSuchFileException e) {
+      return -1L;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
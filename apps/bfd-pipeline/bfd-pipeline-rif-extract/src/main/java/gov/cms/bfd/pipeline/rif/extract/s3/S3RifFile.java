@@ -18,18 +18,24 @@ import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This {@link RifFile} implementation can be used for files that are backed by {@link S3Object}s.
  * Note that this lazy-loads the files, to ensure that connections are not opened until needed.
+ *
+ * <p>Instances either wait for a complete local download of the file, or (when created with a
+ * {@link Supplier} of streams) read the file as it's being streamed from S3.
  */
 public final class S3RifFile implements RifFile {
   private static final Logger LOGGER = LoggerFactory.getLogger(S3RifFile.class);
@@ -37,6 +43,7 @@ public final class S3RifFile implements RifFile {
   private final MetricRegistry appMetrics;
   private final DataSetManifestEntry manifestEntry;
   private final Future<ManifestEntryDownloadResult> manifestEntryDownload;
+  private final Supplier<InputStream> manifestEntryStreamer;
 
   /**
    * Constructs a new {@link S3RifFile} instance.
@@ -58,6 +65,30 @@ public final class S3RifFile implements RifFile {
     this.appMetrics = appMetrics;
     this.manifestEntry = manifestEntry;
     this.manifestEntryDownload = manifestEntryDownload;
+    this.manifestEntryStreamer = null;
+  }
+
+  /**
+   * Constructs a new streaming {@link S3RifFile} instance, which never has a local copy.
+   *
+   * @param appMetrics the {@link MetricRegistry} for the overall application
+   * @param manifestEntry the specific {@link DataSetManifestEntry} represented by this {@link
+   *     S3RifFile}
+   * @param manifestEntryStreamer the {@link Supplier} that {@link #open()} will use to start
+   *     streaming the RIF file's contents from S3
+   */
+  public S3RifFile(
+      MetricRegistry appMetrics,
+      DataSetManifestEntry manifestEntry,
+      Supplier<InputStream> manifestEntryStreamer) {
+    Objects.requireNonNull(appMetrics);
+    Objects.requireNonNull(manifestEntry);
+    Objects.requireNonNull(manifestEntryStreamer);
+
+    this.appMetrics = appMetrics;
+    this.manifestEntry = manifestEntry;
+    this.manifestEntryDownload = null;
+    this.manifestEntryStreamer = manifestEntryStreamer;
   }
 
   /** @see gov.cms.bfd.model.rif.RifFile#getFileType() */
@@ -85,6 +116,11 @@ public final class S3RifFile implements RifFile {
   /** @see gov.cms.bfd.model.rif.RifFile#open() */
   @Override
   public InputStream open() {
+    if (manifestEntryStreamer != null) {
+      LOGGER.info("Streaming RIF file: '{}'...", getDisplayName());
+      return new BufferedInputStream(manifestEntryStreamer.get());
+    }
+
     ManifestEntryDownloadResult fileDownloadResult = waitForDownload();
 
     // Open a stream for the file.
@@ -100,6 +136,13 @@ public final class S3RifFile implements RifFile {
     return fileDownloadStream;
   }
 
+  /** @see gov.cms.bfd.model.rif.RifFile#getLocalPath() */
+  @Override
+  public Optional<Path> getLocalPath() {
+    if (manifestEntryStreamer != null) return Optional.empty();
+    return Optional.of(waitForDownload().getLocalDownload());
+  }
+
   /**
    * @return the completed {@link ManifestEntryDownloadResult} for {@link #manifestEntryDownload}
    */
@@ -144,6 +187,9 @@ public final class S3RifFile implements RifFile {
    * S3 object data locally.
    */
   public void cleanupTempFile() {
+    // Streamed files are never written to disk.
+    if (manifestEntryStreamer != null) return;
+
     LOGGER.debug("Cleaning up '{}'...", this);
 
     /*
@@ -167,10 +213,12 @@ public final class S3RifFile implements RifFile {
   public String toString() {
     String localDownloadPath;
     try {
-      localDownloadPath =
-          manifestEntryDownload.isDone()
-              ? manifestEntryDownload.get().getLocalDownload().toAbsolutePath().toString()
-              : "(not downloaded)";
+      if (manifestEntryDownload == null) localDownloadPath = "(streamed)";
+      else
+        localDownloadPath =
+            manifestEntryDownload.isDone()
+                ? manifestEntryDownload.get().getLocalDownload().toAbsolutePath().toString()
+                : "(not downloaded)";
     } catch (InterruptedException e) {
       // We're not expecting interrupts here, so go boom.
       throw new BadCodeMonkeyException(e);
@@ -61,27 +61,40 @@ public final class ManifestEntryDownloadTask implements Callable<ManifestEntryDo
   public ManifestEntryDownloadResult call() throws Exception {
     try {
       GetObjectRequest objectRequest =
-          new GetObjectRequest(
-              options.getS3BucketName(),
-              String.format(
-                  "%s/%s/%s",
-                  DataSetMonitorWorker.S3_PREFIX_PENDING_DATA_SETS,
-                  manifestEntry.getParentManifest().getTimestampText(),
-                  manifestEntry.getName()));
+          new GetObjectRequest(options.getS3BucketName(), computeObjectKey(manifestEntry));
       Path localTempFile = Files.createTempFile("data-pipeline-s3-temp", ".rif");
 
-      Timer.Context downloadTimer =
-          appMetrics
-              .timer(MetricRegistry.name(getClass().getSimpleName(), "downloadSystemTime"))
-              .time();
-      LOGGER.debug(
-          "Downloading '{}' to '{}'...", manifestEntry, localTempFile.toAbsolutePath().toString());
-      Download downloadHandle =
-          s3TaskManager.getS3TransferManager().download(objectRequest, localTempFile.toFile());
-      downloadHandle.waitForCompletion();
-      LOGGER.debug(
-          "Downloaded '{}' to '{}'.", manifestEntry, localTempFile.toAbsolutePath().toString());
-      downloadTimer.close();
+      // Don't start the download until there's room for it on disk.
+      long objectSize = s3TaskManager.getObjectSize(manifestEntry);
+      s3TaskManager.reserveDiskSpace(manifestEntry, objectSize);
+
+      Download downloadHandle;
+      try {
+        Timer.Context downloadTimer =
+            appMetrics
+                .timer(MetricRegistry.name(getClass().getSimpleName(), "downloadSystemTime"))
+                .time();
+        LOGGER.debug(
+            "Downloading '{}' to '{}'...",
+            manifestEntry,
+            localTempFile.toAbsolutePath().toString());
+        downloadHandle =
+            s3TaskManager.getS3TransferManager().download(objectRequest, localTempFile.toFile());
+        downloadHandle.waitForCompletion();
+        LOGGER.debug(
+            "Downloaded '{}' to '{}'.", manifestEntry, localTempFile.toAbsolutePath().toString());
+        long downloadNanos = downloadTimer.stop();
+
+        // Record the download throughput, both overall and per-file.
+        appMetrics
+            .meter(MetricRegistry.name(getClass().getSimpleName(), "downloadedBytes"))
+            .mark(objectSize);
+        appMetrics
+            .histogram(MetricRegistry.name(getClass().getSimpleName(), "bytesPerSecond"))
+            .update((long) (objectSize / (Math.max(1L, downloadNanos) / 1_000_000_000.0)));
+      } finally {
+        s3TaskManager.releaseDiskSpace(objectSize);
+      }
 
       // generate MD5ChkSum value on file just downloaded
       Timer.Context md5ChkSumTimer =
@@ -114,6 +127,18 @@ public final class ManifestEntryDownloadTask implements Callable<ManifestEntryDo
     }
   }
 
+  /**
+   * @param manifestEntry the {@link DataSetManifestEntry} to get the S3 key for
+   * @return the S3 key of the specified pending {@link DataSetManifestEntry}'s RIF file
+   */
+  static String computeObjectKey(DataSetManifestEntry manifestEntry) {
+    return String.format(
+        "%s/%s/%s",
+        DataSetMonitorWorker.S3_PREFIX_PENDING_DATA_SETS,
+        manifestEntry.getParentManifest().getTimestampText(),
+        manifestEntry.getName());
+  }
+
   /**
    * Calculates and returns a Base64 encoded MD5chksum value for the file just downloaded from S3
    *
@@ -0,0 +1,289 @@
+package gov.cms.bfd.pipeline.rif.extract.s3.task;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.util.IOUtils;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import gov.cms.bfd.pipeline.rif.extract.ExtractionOptions;
+import gov.cms.bfd.pipeline.rif.extract.exceptions.AwsFailureException;
+import gov.cms.bfd.pipeline.rif.extract.exceptions.ChecksumException;
+import gov.cms.bfd.sharedutils.exceptions.BadCodeMonkeyException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link InputStream} that reads an S3 object's contents as they're being downloaded, rather
+ * than waiting for a complete local copy. The object is fetched via parallel ranged <code>GET
+ * </code>s of {@link #PART_SIZE} bytes each, up to {@link
+ * ExtractionOptions#getDownloadPartThreads()} of which are running or buffered ahead of the reader
+ * at any time (which also bounds the memory used by each stream). The parts are handed out in
+ * order, and the object's MD5 checksum is computed incrementally as each part is handed out.
+ *
+ * <p>Note that the checksum can only be verified once the whole object has been read: a mismatch
+ * will cause the final {@link #read()} call to throw a {@link ChecksumException}. Callers must
+ * therefore treat everything read from the stream as provisional until it has been read to the end.
+ *
+ * <p>Instances are not thread-safe; each should only be read from a single thread.
+ */
+public final class S3RangedObjectInputStream extends InputStream {
+  private static final Logger LOGGER = LoggerFactory.getLogger(S3RangedObjectInputStream.class);
+
+  /** The number of bytes requested by each ranged <code>GET</code>. */
+  static final int PART_SIZE = 8 * 1024 * 1024;
+
+  /** The number of times a failed part download will be attempted, in total. */
+  private static final int MAX_PART_ATTEMPTS = 3;
+
+  private final AmazonS3 s3Client;
+  private final ExecutorService partsExecutor;
+  private final int partsInFlight;
+  private final MetricRegistry appMetrics;
+  private final String bucketName;
+  private final String key;
+  private final long objectLength;
+  private final String expectedMD5ChkSum;
+  private final MessageDigest md5Digest;
+  private final Deque<Future<byte[]>> pendingParts;
+  private long nextPartStart;
+  private byte[] currentPart;
+  private int currentPartPosition;
+  private boolean checksumVerified;
+  private boolean closed;
+
+  /**
+   * Constructs a new {@link S3RangedObjectInputStream}, and starts downloading the first parts of
+   * the specified S3 object.
+   *
+   * @param s3Client the {@link AmazonS3} client to use
+   * @param partsExecutor the {@link ExecutorService} to run the ranged <code>GET</code>s on
+   * @param partsInFlight the maximum number of parts to have downloading or buffered at once
+   * @param appMetrics the {@link MetricRegistry} for the overall application
+   * @param bucketName the name of the S3 bucket containing the object to read
+   * @param key the S3 key of the object to read
+   */
+  public S3RangedObjectInputStream(
+      AmazonS3 s3Client,
+      ExecutorService partsExecutor,
+      int partsInFlight,
+      MetricRegistry appMetrics,
+      String bucketName,
+      String key) {
+    this.s3Client = s3Client;
+    this.partsExecutor = partsExecutor;
+    this.partsInFlight = partsInFlight;
+    this.appMetrics = appMetrics;
+    this.bucketName = bucketName;
+    this.key = key;
+
+    ObjectMetadata objectMetadata;
+    try {
+      objectMetadata = s3Client.getObjectMetadata(bucketName, key);
+    } catch (AmazonClientException e) {
+      throw new AwsFailureException(e);
+    }
+    this.objectLength = objectMetadata.getContentLength();
+    this.expectedMD5ChkSum = objectMetadata.getUserMetaDataOf("md5chksum");
+
+    try {
+      this.md5Digest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      // MD5 is guaranteed to be supported by every JVM.
+      throw new BadCodeMonkeyException(e);
+    }
+
+    this.pendingParts = new ArrayDeque<>(partsInFlight);
+    this.nextPartStart = 0L;
+    this.currentPart = new byte[0];
+    this.currentPartPosition = 0;
+    this.checksumVerified = false;
+    this.closed = false;
+
+    LOGGER.debug("Streaming '{}' ({} bytes) from S3...", key, objectLength);
+    submitParts();
+  }
+
+  /** @see java.io.InputStream#read() */
+  @Override
+  public int read() throws IOException {
+    if (!advanceToUnreadPart()) return -1;
+    return currentPart[currentPartPosition++] & 0xFF;
+  }
+
+  /** @see java.io.InputStream#read(byte[], int, int) */
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (offset < 0 || length < 0 || length > buffer.length - offset)
+      throw new IndexOutOfBoundsException();
+    if (length == 0) return 0;
+    if (!advanceToUnreadPart()) return -1;
+
+    int count = Math.min(length, currentPart.length - currentPartPosition);
+    System.arraycopy(currentPart, currentPartPosition, buffer, offset, count);
+    currentPartPosition += count;
+    return count;
+  }
+
+  /** @see java.io.InputStream#available() */
+  @Override
+  public int available() throws IOException {
+    if (closed) throw new IOException("Stream closed.");
+    return currentPart.length - currentPartPosition;
+  }
+
+  /**
+   * Stops any parts that haven't yet started downloading from being downloaded, and discards the
+   * parts that have.
+   *
+   * @see java.io.InputStream#close()
+   */
+  @Override
+  public void close() {
+    if (closed) return;
+    closed = true;
+
+    // Downloads don't respond to interrupts, so just let any in-progress ones finish.
+    pendingParts.forEach(part -> part.cancel(false));
+    pendingParts.clear();
+    currentPart = new byte[0];
+    currentPartPosition = 0;
+  }
+
+  /**
+   * Makes sure {@link #currentPart} has unread bytes in it, waiting for the next part to finish
+   * downloading if necessary.
+   *
+   * @return <code>true</code> if {@link #currentPart} has unread bytes, or <code>false</code> if
+   *     the end of the object has been reached (and its checksum verified)
+   * @throws IOException (indicates that the next part could not be downloaded)
+   */
+  private boolean advanceToUnreadPart() throws IOException {
+    if (closed) throw new IOException("Stream closed.");
+
+    while (currentPartPosition >= currentPart.length) {
+      Future<byte[]> nextPart = pendingParts.poll();
+      if (nextPart == null) {
+        verifyChecksum();
+        return false;
+      }
+
+      currentPart = waitForPart(nextPart);
+      currentPartPosition = 0;
+      md5Digest.update(currentPart);
+
+      // Keep the pipeline full.
+      submitParts();
+    }
+
+    return true;
+  }
+
+  /** Submits ranged <code>GET</code>s for the next parts, until {@link #partsInFlight} are. */
+  private void submitParts() {
+    while (pendingParts.size() < partsInFlight && nextPartStart < objectLength) {
+      long partStart = nextPartStart;
+      long partEnd = Math.min(objectLength, partStart + PART_SIZE) - 1;
+      pendingParts.add(partsExecutor.submit(() -> downloadPart(partStart, partEnd)));
+      nextPartStart = partEnd + 1;
+    }
+  }
+
+  /**
+   * @param partStart the offset of the first byte to download (inclusive)
+   * @param partEnd the offset of the last byte to download (inclusive)
+   * @return the downloaded bytes
+   * @throws IOException (indicates that the part could not be downloaded, even after retrying)
+   */
+  private byte[] downloadPart(long partStart, long partEnd) throws IOException {
+    Timer.Context partTimer =
+        appMetrics.timer(MetricRegistry.name(getClass().getSimpleName(), "partDownloads")).time();
+    for (int attempt = 1; ; attempt++) {
+      GetObjectRequest partRequest =
+          new GetObjectRequest(bucketName, key).withRange(partStart, partEnd);
+      try (S3Object partObject = s3Client.getObject(partRequest)) {
+        byte[] partBytes = IOUtils.toByteArray(partObject.getObjectContent());
+        if (partBytes.length != partEnd - partStart + 1)
+          throw new IOException(
+              String.format(
+                  "Expected %d bytes for range %d-%d of '%s', but got %d.",
+                  partEnd - partStart + 1, partStart, partEnd, key, partBytes.length));
+
+        partTimer.stop();
+        appMetrics
+            .meter(MetricRegistry.name(getClass().getSimpleName(), "bytesDownloaded"))
+            .mark(partBytes.length);
+        return partBytes;
+      } catch (IOException | AmazonClientException e) {
+        if (attempt >= MAX_PART_ATTEMPTS) throw e;
+        LOGGER.warn(
+            "Failed to download range {}-{} of '{}' (attempt {} of {}). Retrying...",
+            partStart,
+            partEnd,
+            key,
+            attempt,
+            MAX_PART_ATTEMPTS,
+            e);
+      }
+    }
+  }
+
+  /**
+   * @param part the {@link Future} for the part to wait for
+   * @return the downloaded bytes of the specified part
+   * @throws IOException (indicates that the part could not be downloaded)
+   */
+  private byte[] waitForPart(Future<byte[]> part) throws IOException {
+    Timer.Context waitTimer = null;
+    if (!part.isDone())
+      waitTimer =
+          appMetrics
+              .timer(MetricRegistry.name(getClass().getSimpleName(), "waitingForParts"))
+              .time();
+
+    try {
+      return part.get();
+    } catch (InterruptedException e) {
+      // We're not expecting interrupts here, so go boom.
+      throw new BadCodeMonkeyException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+      throw new AwsFailureException(e.getCause());
+    } finally {
+      if (waitTimer != null) waitTimer.stop();
+    }
+  }
+
+  /**
+   * Verifies that the MD5 checksum of all of the parts that were read matches the one recorded in
+   * the S3 object's metadata (if any).
+   *
+   * @throws ChecksumException (indicates that the object's contents were corrupted)
+   */
+  private void verifyChecksum() {
+    if (checksumVerified) return;
+
+    String generatedMD5ChkSum = Base64.getEncoder().encodeToString(md5Digest.digest());
+    // TODO Remove null check below once Jira CBBD-368 is completed
+    if (expectedMD5ChkSum != null && !generatedMD5ChkSum.equals(expectedMD5ChkSum))
+      throw new ChecksumException(
+          String.format(
+              "Checksum doesn't match on streamed S3 object '%s': computed '%s', expected '%s'.",
+              key, generatedMD5ChkSum, expectedMD5ChkSum));
+
+    checksumVerified = true;
+    LOGGER.debug("Streamed '{}' from S3.", key);
+  }
+}
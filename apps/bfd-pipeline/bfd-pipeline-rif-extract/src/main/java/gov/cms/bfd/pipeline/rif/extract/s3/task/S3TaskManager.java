@@ -4,6 +4,7 @@ import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import gov.cms.bfd.pipeline.rif.extract.ExtractionOptions;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry;
@@ -13,8 +14,15 @@ import gov.cms.bfd.pipeline.rif.extract.s3.S3Utilities;
 import gov.cms.bfd.pipeline.rif.extract.s3.TaskExecutor;
 import gov.cms.bfd.pipeline.rif.extract.s3.task.ManifestEntryDownloadTask.ManifestEntryDownloadResult;
 import gov.cms.bfd.sharedutils.exceptions.BadCodeMonkeyException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
@@ -24,6 +32,12 @@ import org.slf4j.LoggerFactory;
 public final class S3TaskManager {
   private static final Logger LOGGER = LoggerFactory.getLogger(S3TaskManager.class);
 
+  /**
+   * The amount of free temp disk space (in bytes) that downloads will always leave alone, for the
+   * rest of the system to use.
+   */
+  static final long DISK_SPACE_HEADROOM = 5L * 1000 * 1000 * 1000;
+
   private final MetricRegistry appMetrics;
   private final ExtractionOptions options;
   private final AmazonS3 s3Client;
@@ -31,12 +45,28 @@ public final class S3TaskManager {
   private final TaskExecutor downloadTasksExecutor;
   private final TaskExecutor moveTasksExecutor;
 
+  /**
+   * Runs the ranged <code>GET</code>s for {@link #openStream(DataSetManifestEntry)}. Unlike the
+   * other executors, this isn't a {@link TaskExecutor}: part download failures are reported to the
+   * stream's reader, and shouldn't also take down the application.
+   */
+  private final ExecutorService streamingPartsExecutor;
+
   /**
    * Tracks the asynchronous downloads of {@link DataSetManifestEntry}s, which will produce {@link
    * ManifestEntryDownloadResult}.
    */
   private final Map<DataSetManifestEntry, Future<ManifestEntryDownloadResult>> downloadTasks;
 
+  /** Guards {@link #reservedDownloadBytes}, and is notified whenever that is reduced. */
+  private final Object diskSpaceLock;
+
+  /**
+   * The total size (in bytes) of the downloads that have been admitted by {@link
+   * #reserveDiskSpace(DataSetManifestEntry, long)} but haven't yet completed.
+   */
+  private long reservedDownloadBytes;
+
   /**
    * Constructs a new {@link S3TaskManager}.
    *
@@ -48,11 +78,24 @@ public final class S3TaskManager {
     this.options = options;
 
     this.s3Client = S3Utilities.createS3Client(options);
-    this.s3TransferManager = TransferManagerBuilder.standard().withS3Client(s3Client).build();
+    /*
+     * The TransferManager's threads are shared by all of the concurrent downloads, each of which
+     * will download the parts of multipart-uploaded objects in parallel.
+     */
+    int transferThreads = options.getDownloadThreads() * options.getDownloadPartThreads();
+    this.s3TransferManager =
+        TransferManagerBuilder.standard()
+            .withS3Client(s3Client)
+            .withExecutorFactory(() -> Executors.newFixedThreadPool(transferThreads))
+            .build();
 
-    this.downloadTasksExecutor = new TaskExecutor("Download RIF Executor", 1);
+    this.downloadTasksExecutor =
+        new TaskExecutor("Download RIF Executor", options.getDownloadThreads());
     this.moveTasksExecutor = new TaskExecutor("Move Completed RIF Executor", 2);
+    this.streamingPartsExecutor = Executors.newFixedThreadPool(options.getDownloadPartThreads());
     this.downloadTasks = new HashMap<>();
+    this.diskSpaceLock = new Object();
+    this.reservedDownloadBytes = 0L;
   }
 
   /** @return the {@link AmazonS3} client being used by this {@link S3TaskManager} */
@@ -95,6 +138,123 @@ public final class S3TaskManager {
     return downloadFuture;
   }
 
+  /**
+   * Opens a stream of the specified {@link DataSetManifestEntry}'s RIF file that can be read from
+   * as it's being downloaded, which allows parsing to start right away. Used instead of {@link
+   * #downloadAsync(DataSetManifestEntry)} when {@link
+   * ExtractionOptions#isStreamingDownloadsEnabled()} is set.
+   *
+   * @param manifestEntry the {@link DataSetManifestEntry} to stream
+   * @return a new {@link S3RangedObjectInputStream} for the specified {@link DataSetManifestEntry}
+   */
+  public InputStream openStream(DataSetManifestEntry manifestEntry) {
+    return new S3RangedObjectInputStream(
+        s3Client,
+        streamingPartsExecutor,
+        options.getDownloadPartThreads(),
+        appMetrics,
+        options.getS3BucketName(),
+        ManifestEntryDownloadTask.computeObjectKey(manifestEntry));
+  }
+
+  /**
+   * @param manifestEntry the {@link DataSetManifestEntry} to get the size of
+   * @return the size (in bytes) of the specified {@link DataSetManifestEntry}'s S3 object
+   */
+  long getObjectSize(DataSetManifestEntry manifestEntry) {
+    return s3Client
+        .getObjectMetadata(
+            options.getS3BucketName(), ManifestEntryDownloadTask.computeObjectKey(manifestEntry))
+        .getContentLength();
+  }
+
+  /**
+   * Checks whether all of the specified {@link DataSetManifest}'s files could be downloaded right
+   * now, without running the temp disk low on space. Used to decide whether or not to start
+   * downloading the next data set early.
+   *
+   * @param manifest the {@link DataSetManifest} to check
+   * @return <code>true</code> if there's enough free temp disk space for all of the specified
+   *     {@link DataSetManifest}'s files that aren't already downloading, on top of all the
+   *     downloads already in progress, or <code>false</code> if there isn't
+   */
+  public boolean hasDiskSpaceFor(DataSetManifest manifest) {
+    long requiredBytes = 0L;
+    for (DataSetManifestEntry manifestEntry : manifest.getEntries()) {
+      if (downloadTasks.containsKey(manifestEntry)) continue;
+      requiredBytes += getObjectSize(manifestEntry);
+    }
+
+    synchronized (diskSpaceLock) {
+      long availableBytes = getUsableTempSpace() - DISK_SPACE_HEADROOM - reservedDownloadBytes;
+      LOGGER.debug(
+          "Data set '{}' needs '{}' bytes of temp space, and '{}' are available.",
+          manifest.getId(),
+          requiredBytes,
+          availableBytes);
+      return availableBytes >= requiredBytes;
+    }
+  }
+
+  /**
+   * Blocks until there's enough free temp disk space to download the specified {@link
+   * DataSetManifestEntry}, and then reserves that space until {@link #releaseDiskSpace(long)} is
+   * called. Note that if no other downloads are in progress, the space will be reserved right away
+   * regardless: waiting couldn't free up any more space, and if the file really doesn't fit, its
+   * download will fail.
+   *
+   * @param manifestEntry the {@link DataSetManifestEntry} that is about to be downloaded
+   * @param objectSize the size (in bytes) of the {@link DataSetManifestEntry}'s S3 object
+   * @throws InterruptedException (not expected, as the application doesn't use interrupts)
+   */
+  void reserveDiskSpace(DataSetManifestEntry manifestEntry, long objectSize)
+      throws InterruptedException {
+    synchronized (diskSpaceLock) {
+      Timer.Context waitTimer = null;
+      while (reservedDownloadBytes > 0
+          && getUsableTempSpace() - DISK_SPACE_HEADROOM - reservedDownloadBytes < objectSize) {
+        if (waitTimer == null) {
+          LOGGER.info(
+              "Waiting for enough free disk space to download '{}' ({} bytes)...",
+              manifestEntry,
+              objectSize);
+          waitTimer =
+              appMetrics
+                  .timer(MetricRegistry.name(getClass().getSimpleName(), "waitingForDiskSpace"))
+                  .time();
+        }
+
+        // Space can also be freed up by completed downloads being cleaned up, so re-check often.
+        diskSpaceLock.wait(TimeUnit.SECONDS.toMillis(10));
+      }
+
+      if (waitTimer != null) waitTimer.stop();
+      reservedDownloadBytes += objectSize;
+    }
+  }
+
+  /**
+   * Releases disk space that was reserved by {@link #reserveDiskSpace(DataSetManifestEntry, long)},
+   * once the download that needed it has completed (or failed).
+   *
+   * @param objectSize the number of bytes to release
+   */
+  void releaseDiskSpace(long objectSize) {
+    synchronized (diskSpaceLock) {
+      reservedDownloadBytes -= objectSize;
+      diskSpaceLock.notifyAll();
+    }
+  }
+
+  /** @return the number of bytes currently available to this JVM in the temp directory */
+  private static long getUsableTempSpace() {
+    try {
+      return Files.getFileStore(Paths.get(System.getProperty("java.io.tmpdir"))).getUsableSpace();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   /**
    * The {@link DataSetQueue} needs to call this method as it discovers that {@link
    * DataSetManifest}s are no longer present in the "Incoming" queue in S3 -- most likely because
@@ -131,6 +291,12 @@ public final class S3TaskManager {
      */
     this.downloadTasksExecutor.shutdown();
 
+    /*
+     * Streams are only read by the data set processing, which has already stopped by now, so any
+     * parts still being downloaded aren't needed.
+     */
+    this.streamingPartsExecutor.shutdownNow();
+
     try {
       if (!this.moveTasksExecutor.isTerminated()) {
         LOGGER.info("Waiting for all S3 rename/move operations to complete...");
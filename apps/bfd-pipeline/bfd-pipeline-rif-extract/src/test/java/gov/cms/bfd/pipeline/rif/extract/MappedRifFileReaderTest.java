@@ -0,0 +1,103 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import gov.cms.bfd.model.rif.RifFile;
+import gov.cms.bfd.model.rif.parse.MappedRifFileReader;
+import gov.cms.bfd.model.rif.parse.RifParsingUtils;
+import gov.cms.bfd.model.rif.parse.RifRow;
+import gov.cms.bfd.model.rif.samples.StaticRifResource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link MappedRifFileReader}, which verify that it reads RIF files exactly the same
+ * way as the {@link CSVParser} returned by {@link RifParsingUtils#createCsvParser(RifFile)} does.
+ */
+public class MappedRifFileReaderTest {
+  /**
+   * Verifies that {@link MappedRifFileReader} produces the same rows and values as {@link
+   * CSVParser} for each of the <code>SAMPLE_A_*</code> {@link StaticRifResource}s.
+   *
+   * @throws IOException (indicates a test failure)
+   */
+  @Test
+  public void matchesCsvParserForSampleA() throws IOException {
+    for (StaticRifResource resource : StaticRifResource.values()) {
+      if (!resource.name().startsWith("SAMPLE_A_")) continue;
+
+      Path localFile = Files.createTempFile("mapped-rif-", ".txt");
+      try {
+        try (InputStream resourceStream = resource.getResourceUrl().openStream()) {
+          Files.copy(resourceStream, localFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        RifFile rifFile = resource.toRifFile();
+        try (CSVParser csvParser = RifParsingUtils.createCsvParser(rifFile)) {
+          assertSameRows(resource.name(), csvParser, localFile, rifFile.getCharset());
+        }
+      } finally {
+        Files.deleteIfExists(localFile);
+      }
+    }
+  }
+
+  /**
+   * Verifies that {@link MappedRifFileReader} handles empty rows (including a trailing one) the
+   * same way that {@link CSVParser} does for {@link RifParsingUtils#CSV_FORMAT}, which doesn't
+   * ignore them.
+   *
+   * @throws IOException (indicates a test failure)
+   */
+  @Test
+  public void matchesCsvParserForEmptyRows() throws IOException {
+    String contents = "A|B\n1|2\n\n3|4\r\n\r\n\n\"5\n6\"|7\n\n";
+    Path localFile = Files.createTempFile("mapped-rif-", ".txt");
+    try {
+      Files.write(localFile, contents.getBytes(StandardCharsets.UTF_8));
+      try (CSVParser csvParser =
+          new CSVParser(new StringReader(contents), RifParsingUtils.CSV_FORMAT)) {
+        assertSameRows("emptyRows", csvParser, localFile, StandardCharsets.UTF_8);
+      }
+    } finally {
+      Files.deleteIfExists(localFile);
+    }
+  }
+
+  /**
+   * @param name the name of the file being compared, for assertion messages
+   * @param csvParser the {@link CSVParser} to compare against
+   * @param localFile a local copy of the file being parsed by the specified {@link CSVParser}
+   * @param charset the {@link Charset} that the file is encoded in
+   * @throws IOException (indicates a test failure)
+   */
+  private static void assertSameRows(
+      String name, CSVParser csvParser, Path localFile, Charset charset) throws IOException {
+    try (MappedRifFileReader rowReader = new MappedRifFileReader(localFile, charset)) {
+      Assert.assertEquals(
+          name, new ArrayList<>(csvParser.getHeaderMap().keySet()), rowReader.getHeaderNames());
+
+      Iterator<CSVRecord> csvRecords = csvParser.iterator();
+      while (csvRecords.hasNext()) {
+        CSVRecord csvRecord = csvRecords.next();
+        Assert.assertTrue(name, rowReader.hasNext());
+        RifRow rifRow = rowReader.next();
+
+        Assert.assertEquals(name, csvRecord.getRecordNumber(), rifRow.getRecordNumber());
+        Assert.assertEquals(name, csvRecord.size(), rifRow.size());
+        for (int index = 0; index < csvRecord.size(); index++)
+          Assert.assertEquals(name, csvRecord.get(index), rifRow.get(index));
+      }
+      Assert.assertFalse(name, rowReader.hasNext());
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link gov.cms.bfd.pipeline.rif.extract.ParallelGroupParsingIterator}. */
+public class ParallelGroupParsingIteratorTest {
+  /**
+   * Verifies that {@link gov.cms.bfd.pipeline.rif.extract.ParallelGroupParsingIterator} returns
+   * every {@link CSVRecord} group, intact and in the original order, even when there are many more
+   * groups than fit in a single chunk.
+   *
+   * @throws IOException (indicates a test failure)
+   */
+  @Test
+  public void groupsAreParsedInOrder() throws IOException {
+    // Create some mock data: groups of one to three records each.
+    int groupCount = ParallelGroupParsingIterator.GROUPS_PER_CHUNK * 10 + 7;
+    StringBuilder csv = new StringBuilder();
+    for (int groupIndex = 0; groupIndex < groupCount; groupIndex++) {
+      for (int lineIndex = 0; lineIndex <= groupIndex % 3; lineIndex++)
+        csv.append(groupIndex).append(',').append(lineIndex).append('\n');
+    }
+    CSVParser parser = CSVFormat.EXCEL.parse(new StringReader(csv.toString()));
+    CsvRecordGroupingIterator groupingIter =
+        new CsvRecordGroupingIterator(
+            parser, (record1, record2) -> record1.get(0).equals(record2.get(0)));
+
+    // Run the iterator, "parsing" each group into its ID and size.
+    List<String> parsedGroups = new ArrayList<>();
+    try (ParallelGroupParsingIterator<List<CSVRecord>, String> parsingIter =
+        new ParallelGroupParsingIterator<>(
+            groupingIter, group -> group.get(0).get(0) + ":" + group.size(), 4)) {
+      parsingIter.forEachRemaining(parsedGroups::add);
+      Assert.assertEquals(0, parsingIter.getQueueDepth());
+    }
+
+    // Verify the results.
+    Assert.assertEquals(groupCount, parsedGroups.size());
+    for (int groupIndex = 0; groupIndex < groupCount; groupIndex++)
+      Assert.assertEquals(groupIndex + ":" + (groupIndex % 3 + 1), parsedGroups.get(groupIndex));
+  }
+
+  /**
+   * Verifies that {@link gov.cms.bfd.pipeline.rif.extract.ParallelGroupParsingIterator} passes
+   * through parsing failures from its parser threads, unwrapped.
+   *
+   * @throws IOException (indicates a test failure)
+   */
+  @Test(expected = IllegalStateException.class)
+  public void parsingFailuresArePassedThrough() throws IOException {
+    CSVParser parser = CSVFormat.EXCEL.parse(new StringReader("a,b\nc,d\n"));
+    CsvRecordGroupingIterator groupingIter =
+        new CsvRecordGroupingIterator(parser, (record1, record2) -> false);
+
+    try (ParallelGroupParsingIterator<List<CSVRecord>, String> parsingIter =
+        new ParallelGroupParsingIterator<>(
+            groupingIter,
+            group -> {
+              throw new IllegalStateException();
+            },
+            2)) {
+      parsingIter.forEachRemaining(parsed -> {});
+    }
+  }
+}
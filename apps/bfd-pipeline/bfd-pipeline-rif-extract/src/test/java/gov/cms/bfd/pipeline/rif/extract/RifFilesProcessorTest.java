@@ -442,6 +442,42 @@ public final class RifFilesProcessorTest {
         rifEventsList.get(0).getFileEvent().getFile().getFileType());
   }
 
+  /**
+   * Ensures that the <code>BENE_ID</code> column of claims with lines is parsed into the claim
+   * header's <code>beneficiaryId</code> field, and copied from there into each of its lines' (which
+   * have a field of the same name).
+   */
+  @Test
+  public void claimLinesGetHeaderBeneficiaryId() {
+    RifFilesProcessor processor = new RifFilesProcessor();
+
+    RifFilesEvent carrierFilesEvent =
+        new RifFilesEvent(Instant.now(), StaticRifResource.SAMPLE_A_CARRIER.toRifFile());
+    List<RifRecordEvent<?>> carrierEvents =
+        processor
+            .produceRecords(carrierFilesEvent.getFileEvents().get(0))
+            .getRecords()
+            .collect(Collectors.toList());
+    CarrierClaim carrierClaim = (CarrierClaim) carrierEvents.get(0).getRecord();
+    Assert.assertEquals("567834", carrierClaim.getBeneficiaryId());
+    Assert.assertFalse(carrierClaim.getLines().isEmpty());
+    for (CarrierClaimLine line : carrierClaim.getLines())
+      Assert.assertEquals(carrierClaim.getBeneficiaryId(), line.getBeneficiaryId());
+
+    RifFilesEvent inpatientFilesEvent =
+        new RifFilesEvent(Instant.now(), StaticRifResource.SAMPLE_A_INPATIENT.toRifFile());
+    List<RifRecordEvent<?>> inpatientEvents =
+        processor
+            .produceRecords(inpatientFilesEvent.getFileEvents().get(0))
+            .getRecords()
+            .collect(Collectors.toList());
+    InpatientClaim inpatientClaim = (InpatientClaim) inpatientEvents.get(0).getRecord();
+    Assert.assertEquals("567834", inpatientClaim.getBeneficiaryId());
+    Assert.assertFalse(inpatientClaim.getLines().isEmpty());
+    for (InpatientClaimLine line : inpatientClaim.getLines())
+      Assert.assertEquals(inpatientClaim.getBeneficiaryId(), line.getBeneficiaryId());
+  }
+
   /**
    * Ensures that {@link gov.cms.bfd.pipeline.rif.extract.RifFilesProcessor} can correctly handle
    * {@link StaticRifResource#SAMPLE_A_INPATIENT}.
@@ -0,0 +1,69 @@
+package gov.cms.bfd.pipeline.rif.extract.s3;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link gov.cms.bfd.pipeline.rif.extract.s3.DataSetScanThrottle}. */
+public final class DataSetScanThrottleTest {
+  /**
+   * Verifies that {@link DataSetScanThrottle} backs off exponentially while scans keep coming up
+   * empty, and stops backing off once something is found.
+   */
+  @Test
+  public void backsOffWhileIdle() {
+    AtomicLong clock = new AtomicLong(1_000_000L);
+    DataSetScanThrottle throttle = new DataSetScanThrottle(Optional.empty(), clock::get);
+    Assert.assertTrue(throttle.isScanDue());
+
+    long expectedDelay = DataSetScanThrottle.MIN_IDLE_SCAN_DELAY_MILLIS;
+    for (int i = 0; i < 10; i++) {
+      throttle.recordScan(false);
+      Assert.assertEquals(expectedDelay, throttle.getScanDelayMillis());
+      clock.addAndGet(expectedDelay - 1);
+      Assert.assertFalse(throttle.isScanDue());
+      clock.incrementAndGet();
+      Assert.assertTrue(throttle.isScanDue());
+      expectedDelay = Math.min(DataSetScanThrottle.MAX_IDLE_SCAN_DELAY_MILLIS, expectedDelay * 2);
+    }
+    Assert.assertEquals(
+        DataSetScanThrottle.MAX_IDLE_SCAN_DELAY_MILLIS, throttle.getScanDelayMillis());
+
+    throttle.recordScan(true);
+    Assert.assertEquals(0L, throttle.getScanDelayMillis());
+    Assert.assertTrue(throttle.isScanDue());
+  }
+
+  /**
+   * Verifies that {@link DataSetScanThrottle} scans right away when its notification file is
+   * touched, even while backed off.
+   *
+   * @throws Exception (indicates a test error)
+   */
+  @Test
+  public void scansWhenNotified() throws Exception {
+    Path notificationFile = Files.createTempFile("data-set-notifications", ".txt");
+    try {
+      Files.setLastModifiedTime(notificationFile, FileTime.fromMillis(1_000_000L));
+      AtomicLong clock = new AtomicLong(1_000_000L);
+      DataSetScanThrottle throttle =
+          new DataSetScanThrottle(Optional.of(notificationFile), clock::get);
+      Assert.assertTrue(throttle.isScanDue());
+      throttle.recordScan(false);
+      Assert.assertFalse(throttle.isScanDue());
+
+      Files.setLastModifiedTime(notificationFile, FileTime.fromMillis(2_000_000L));
+      Assert.assertTrue(throttle.isScanDue());
+      Assert.assertFalse(throttle.isScanDue());
+
+      Files.delete(notificationFile);
+      Assert.assertTrue(throttle.isScanDue());
+    } finally {
+      Files.deleteIfExists(notificationFile);
+    }
+  }
+}
@@ -5,6 +5,7 @@ import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.Bucket;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.transfer.Download;
+import com.amazonaws.util.IOUtils;
 import com.codahale.metrics.MetricRegistry;
 import gov.cms.bfd.model.rif.RifFileType;
 import gov.cms.bfd.model.rif.samples.StaticRifResource;
@@ -15,6 +16,7 @@ import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetMonitorWorker;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetTestUtilities;
 import gov.cms.bfd.pipeline.rif.extract.s3.S3Utilities;
+import gov.cms.bfd.pipeline.rif.extract.s3.task.ManifestEntryDownloadTask.ManifestEntryDownloadResult;
 import gov.cms.bfd.sharedutils.exceptions.BadCodeMonkeyException;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -23,6 +25,9 @@ import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
 import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -115,4 +120,96 @@ public final class ManifestEntryDownloadTaskIT {
       if (bucket != null) DataSetTestUtilities.deleteObjectsAndBucket(s3Client, bucket);
     }
   }
+
+  /**
+   * Verifies that {@link S3TaskManager#openStream(DataSetManifestEntry)} returns the S3 object's
+   * full contents, and that its checksum passes.
+   */
+  @Test
+  public void streamsObjectContents() throws Exception {
+    AmazonS3 s3Client = S3Utilities.createS3Client(new ExtractionOptions("foo"));
+    Bucket bucket = null;
+    try {
+      bucket = DataSetTestUtilities.createTestBucket(s3Client);
+      ExtractionOptions options = new ExtractionOptions(bucket.getName(), null, null, true);
+      DataSetManifest manifest =
+          new DataSetManifest(
+              Instant.now(),
+              0,
+              new DataSetManifestEntry("beneficiaries.rif", RifFileType.BENEFICIARY));
+      s3Client.putObject(DataSetTestUtilities.createPutRequest(bucket, manifest));
+      s3Client.putObject(
+          DataSetTestUtilities.createPutRequest(
+              bucket,
+              manifest,
+              manifest.getEntries().get(0),
+              StaticRifResource.SAMPLE_A_BENES.getResourceUrl()));
+
+      s3TaskManager = new S3TaskManager(new MetricRegistry(), options);
+      byte[] expectedContents;
+      try (InputStream expectedStream =
+          StaticRifResource.SAMPLE_A_BENES.getResourceUrl().openStream()) {
+        expectedContents = IOUtils.toByteArray(expectedStream);
+      }
+      byte[] streamedContents;
+      try (InputStream streamedStream = s3TaskManager.openStream(manifest.getEntries().get(0))) {
+        streamedContents = IOUtils.toByteArray(streamedStream);
+      }
+
+      Assert.assertArrayEquals(expectedContents, streamedContents);
+    } finally {
+      if (s3TaskManager != null) s3TaskManager.shutdownSafely();
+      if (bucket != null) DataSetTestUtilities.deleteObjectsAndBucket(s3Client, bucket);
+    }
+  }
+
+  /**
+   * Verifies that {@link S3TaskManager#downloadAsync(DataSetManifestEntry)} can download several
+   * {@link DataSetManifestEntry}s at once, when {@link ExtractionOptions#getDownloadThreads()}
+   * allows it.
+   */
+  @Test
+  public void downloadsConcurrently() throws Exception {
+    AmazonS3 s3Client = S3Utilities.createS3Client(new ExtractionOptions("foo"));
+    Bucket bucket = null;
+    try {
+      bucket = DataSetTestUtilities.createTestBucket(s3Client);
+      ExtractionOptions options = new ExtractionOptions(bucket.getName(), null, null, false, 3, 2);
+      DataSetManifest manifest =
+          new DataSetManifest(
+              Instant.now(),
+              0,
+              new DataSetManifestEntry("beneficiaries.rif", RifFileType.BENEFICIARY),
+              new DataSetManifestEntry("carrier.rif", RifFileType.CARRIER),
+              new DataSetManifestEntry("pde.rif", RifFileType.PDE));
+      s3Client.putObject(DataSetTestUtilities.createPutRequest(bucket, manifest));
+      StaticRifResource[] resources = {
+        StaticRifResource.SAMPLE_A_BENES,
+        StaticRifResource.SAMPLE_A_CARRIER,
+        StaticRifResource.SAMPLE_A_PDE
+      };
+      for (int i = 0; i < resources.length; i++)
+        s3Client.putObject(
+            DataSetTestUtilities.createPutRequest(
+                bucket, manifest, manifest.getEntries().get(i), resources[i].getResourceUrl()));
+
+      MetricRegistry appMetrics = new MetricRegistry();
+      s3TaskManager = new S3TaskManager(appMetrics, options);
+      Assert.assertTrue(s3TaskManager.hasDiskSpaceFor(manifest));
+      List<Future<ManifestEntryDownloadResult>> downloads = new ArrayList<>();
+      for (DataSetManifestEntry manifestEntry : manifest.getEntries())
+        downloads.add(s3TaskManager.downloadAsync(manifestEntry));
+
+      for (Future<ManifestEntryDownloadResult> download : downloads) {
+        Path localDownload = download.get().getLocalDownload();
+        Assert.assertTrue(Files.size(localDownload) > 0);
+        Files.delete(localDownload);
+      }
+      Assert.assertEquals(
+          3, appMetrics.histogram("ManifestEntryDownloadTask.bytesPerSecond").getCount());
+    } finally {
+      if (s3TaskManager != null) s3TaskManager.shutdownSafely();
+      if (bucket != null) DataSetTestUtilities.deleteObjectsAndBucket(s3Client, bucket);
+    }
+  }
 }
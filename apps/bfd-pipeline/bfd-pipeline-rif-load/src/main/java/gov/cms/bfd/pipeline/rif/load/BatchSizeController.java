@@ -0,0 +1,229 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.RifFileType;
+import java.util.EnumMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tunes the number of records that {@link RifLoader} includes in each transaction, and the JDBC
+ * statement batch size used within those transactions, separately for each {@link RifFileType},
+ * based on the results of the batches that have already been loaded.
+ *
+ * <p>The "right" values for these vary a lot between record types: a single-row beneficiary is
+ * nothing like a carrier claim with dozens of lines. Rather than trying to guess, this class runs a
+ * simple hill-climbing search for each {@link RifFileType}: every {@link #WINDOW_BATCHES} batches,
+ * it compares the per-connection throughput (records loaded per second of transaction time) to the
+ * previous window's, keeps adjusting whichever setting it last adjusted in the same direction if
+ * that helped, and reverses direction if it didn't. The two settings take turns being adjusted.
+ * Failed batches, and windows where the per-record commit latency balloons (which is what lock
+ * contention looks like from here), shrink the number of records per transaction right away. Both
+ * settings are always kept between <code>1</code> and the {@link LoadAppOptions} maximums.
+ *
+ * <p>Instances may be used by multiple threads simultaneously.
+ */
+public final class BatchSizeController {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchSizeController.class);
+
+  /**
+   * The number of records per transaction that each {@link RifFileType} starts out with, which is
+   * what was found (by trial and error) to work reasonably well for most record types.
+   */
+  static final int INITIAL_RECORD_BATCH_SIZE = 100;
+
+  /**
+   * The JDBC statement batch size that each {@link RifFileType} starts out with. Most
+   * recommendations suggest this should be 5-30.
+   */
+  static final int INITIAL_JDBC_BATCH_SIZE = 10;
+
+  /**
+   * The number of batches whose results are aggregated before each adjustment. Individual batches
+   * are far too noisy to tune from.
+   */
+  static final int WINDOW_BATCHES = 20;
+
+  /** The factor that each adjustment grows or shrinks a setting by. */
+  private static final double STEP_FACTOR = 1.25;
+
+  /**
+   * How many times worse than the best-observed value the per-record commit latency has to get
+   * before it's treated as a sign of lock contention.
+   */
+  private static final double CONTENTION_FACTOR = 4.0;
+
+  private final int maxRecordBatchSize;
+  private final int maxJdbcBatchSize;
+  private final Map<RifFileType, FileTypeState> states;
+
+  /**
+   * Constructs a new {@link BatchSizeController} instance.
+   *
+   * @param options the {@link LoadAppOptions} to use, which specify the upper limits for the
+   *     settings being tuned
+   */
+  public BatchSizeController(LoadAppOptions options) {
+    this.maxRecordBatchSize = options.getTuningOptions().getMaxRecordBatchSize();
+    this.maxJdbcBatchSize = options.getTuningOptions().getMaxJdbcBatchSize();
+    this.states = new EnumMap<>(RifFileType.class);
+  }
+
+  /**
+   * @param rifFileType the {@link RifFileType} of the records to be loaded
+   * @return the number of records that should currently be included in each transaction for the
+   *     specified {@link RifFileType}
+   */
+  public synchronized int getRecordBatchSize(RifFileType rifFileType) {
+    return getState(rifFileType).recordBatchSize;
+  }
+
+  /**
+   * @param rifFileType the {@link RifFileType} of the records to be loaded
+   * @return the JDBC statement batch size that should currently be used for the specified {@link
+   *     RifFileType}
+   */
+  public synchronized int getJdbcBatchSize(RifFileType rifFileType) {
+    return getState(rifFileType).jdbcBatchSize;
+  }
+
+  /**
+   * Records the results of a successfully-loaded batch, adjusting the settings for its {@link
+   * RifFileType} if a full window of results is now available.
+   *
+   * @param rifFileType the {@link RifFileType} of the batch's records
+   * @param recordCount the number of records that were in the batch
+   * @param transactionNanos how long the batch's transaction took, in total
+   * @param commitNanos how much of that time was spent committing the transaction
+   */
+  public synchronized void batchCompleted(
+      RifFileType rifFileType, int recordCount, long transactionNanos, long commitNanos) {
+    FileTypeState state = getState(rifFileType);
+    state.windowBatches++;
+    state.windowRecords += recordCount;
+    state.windowTransactionNanos += transactionNanos;
+    state.windowCommitNanos += commitNanos;
+    if (state.windowBatches < WINDOW_BATCHES) return;
+
+    double throughput = state.windowRecords / (double) Math.max(1L, state.windowTransactionNanos);
+    double commitNanosPerRecord = state.windowCommitNanos / (double) state.windowRecords;
+    state.resetWindow();
+
+    if (commitNanosPerRecord > CONTENTION_FACTOR * state.bestCommitNanosPerRecord) {
+      // Smaller transactions hold fewer locks, for less time.
+      state.recordBatchSize = shrink(state.recordBatchSize);
+      state.recordBatchDirection = -1;
+      state.tuningJdbc = false;
+      state.previousThroughput = Double.NaN;
+      LOGGER.debug("Commit latency spiked for '{}' records: {}", rifFileType, state);
+      return;
+    }
+    state.bestCommitNanosPerRecord = Math.min(state.bestCommitNanosPerRecord, commitNanosPerRecord);
+
+    // If the last adjustment made things worse, head back the other way.
+    if (!Double.isNaN(state.previousThroughput) && throughput < state.previousThroughput) {
+      if (state.tuningJdbc) state.jdbcBatchDirection = -state.jdbcBatchDirection;
+      else state.recordBatchDirection = -state.recordBatchDirection;
+    }
+    state.previousThroughput = throughput;
+
+    // Take turns adjusting each of the settings.
+    state.tuningJdbc = !state.tuningJdbc;
+    if (state.tuningJdbc)
+      state.jdbcBatchSize = step(state.jdbcBatchSize, state.jdbcBatchDirection, maxJdbcBatchSize);
+    else
+      state.recordBatchSize =
+          step(state.recordBatchSize, state.recordBatchDirection, maxRecordBatchSize);
+    LOGGER.debug("Adjusted batch sizes for '{}' records: {}", rifFileType, state);
+  }
+
+  /**
+   * Records that a batch failed to load, immediately halving the number of records per transaction
+   * for its {@link RifFileType}.
+   *
+   * @param rifFileType the {@link RifFileType} of the batch's records
+   */
+  public synchronized void batchFailed(RifFileType rifFileType) {
+    FileTypeState state = getState(rifFileType);
+    state.recordBatchSize = Math.max(1, state.recordBatchSize / 2);
+    state.recordBatchDirection = -1;
+    state.previousThroughput = Double.NaN;
+    state.resetWindow();
+  }
+
+  /**
+   * @param rifFileType the {@link RifFileType} to get the {@link FileTypeState} for
+   * @return the {@link FileTypeState} for the specified {@link RifFileType}, which will be created
+   *     if it doesn't already exist
+   */
+  private FileTypeState getState(RifFileType rifFileType) {
+    return states.computeIfAbsent(
+        rifFileType,
+        t ->
+            new FileTypeState(
+                Math.min(INITIAL_RECORD_BATCH_SIZE, maxRecordBatchSize),
+                Math.min(INITIAL_JDBC_BATCH_SIZE, maxJdbcBatchSize)));
+  }
+
+  /**
+   * @param value the current value of a setting
+   * @param direction <code>1</code> to grow the setting, or <code>-1</code> to shrink it
+   * @param max the maximum allowed value for the setting
+   * @return the adjusted value for the setting
+   */
+  private static int step(int value, int direction, int max) {
+    int stepped =
+        direction > 0 ? Math.max(value + 1, (int) Math.round(value * STEP_FACTOR)) : shrink(value);
+    return Math.max(1, Math.min(max, stepped));
+  }
+
+  /**
+   * @param value the current value of a setting
+   * @return the shrunken value for the setting
+   */
+  private static int shrink(int value) {
+    return Math.max(1, Math.min(value - 1, (int) Math.round(value / STEP_FACTOR)));
+  }
+
+  /** Tracks the current settings and the in-progress window of results for a RIF file type. */
+  private static final class FileTypeState {
+    private int recordBatchSize;
+    private int jdbcBatchSize;
+    private int recordBatchDirection = 1;
+    private int jdbcBatchDirection = 1;
+    private boolean tuningJdbc = true;
+    private double previousThroughput = Double.NaN;
+    private double bestCommitNanosPerRecord = Double.POSITIVE_INFINITY;
+    private int windowBatches;
+    private long windowRecords;
+    private long windowTransactionNanos;
+    private long windowCommitNanos;
+
+    /**
+     * Constructs a new {@link FileTypeState} instance.
+     *
+     * @param recordBatchSize the initial number of records per transaction
+     * @param jdbcBatchSize the initial JDBC statement batch size
+     */
+    FileTypeState(int recordBatchSize, int jdbcBatchSize) {
+      this.recordBatchSize = recordBatchSize;
+      this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    /** Discards the results collected for the current window. */
+    void resetWindow() {
+      windowBatches = 0;
+      windowRecords = 0;
+      windowTransactionNanos = 0;
+      windowCommitNanos = 0;
+    }
+
+    /** @see java.lang.Object#toString() */
+    @Override
+    public String toString() {
+      return String.format(
+          "[recordBatchSize=%d, jdbcBatchSize=%d, previousThroughput=%.1f records/s]",
+          recordBatchSize, jdbcBatchSize, previousThroughput * 1_000_000_000L);
+    }
+  }
+}
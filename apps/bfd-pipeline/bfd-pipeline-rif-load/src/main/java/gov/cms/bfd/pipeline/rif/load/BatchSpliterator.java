@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Spliterator;
 import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -17,9 +18,20 @@ import java.util.stream.StreamSupport;
  */
 public final class BatchSpliterator<T> implements Spliterator<List<T>> {
   private final Spliterator<T> base;
-  private final int batchSize;
+  private final IntSupplier batchSize;
 
   public BatchSpliterator(Spliterator<T> base, int batchSize) {
+    this(base, () -> batchSize);
+  }
+
+  /**
+   * Constructs a new {@link BatchSpliterator} instance whose batch size may vary over time.
+   *
+   * @param base the {@link Spliterator} whose elements are to be batched
+   * @param batchSize supplies the size to use for each batch, as it's started (any value less than
+   *     <code>1</code> will be treated as <code>1</code>)
+   */
+  public BatchSpliterator(Spliterator<T> base, IntSupplier batchSize) {
     this.base = base;
     this.batchSize = batchSize;
   }
@@ -31,10 +43,22 @@ public final class BatchSpliterator<T> implements Spliterator<List<T>> {
             new BatchSpliterator<>(stream.spliterator(), batchSize), stream.isParallel());
   }
 
+  /**
+   * @param stream the {@link Stream} whose elements are to be batched
+   * @param batchSize supplies the size to use for each batch, as it's started (any value less than
+   *     <code>1</code> will be treated as <code>1</code>)
+   * @return a {@link Stream} of the batched elements
+   */
+  public static <T> Stream<List<T>> batches(Stream<T> stream, IntSupplier batchSize) {
+    return StreamSupport.stream(
+        new BatchSpliterator<>(stream.spliterator(), batchSize), stream.isParallel());
+  }
+
   @Override
   public boolean tryAdvance(Consumer<? super List<T>> action) {
-    final List<T> batch = new ArrayList<>(batchSize);
-    for (int i = 0; i < batchSize && base.tryAdvance(batch::add); i++) ;
+    final int currentBatchSize = currentBatchSize();
+    final List<T> batch = new ArrayList<>(currentBatchSize);
+    for (int i = 0; i < currentBatchSize && base.tryAdvance(batch::add); i++) ;
     if (batch.isEmpty()) return false;
     action.accept(batch);
     return true;
@@ -42,7 +66,7 @@ public final class BatchSpliterator<T> implements Spliterator<List<T>> {
 
   @Override
   public Spliterator<List<T>> trySplit() {
-    if (base.estimateSize() <= batchSize) return null;
+    if (base.estimateSize() <= currentBatchSize()) return null;
     final Spliterator<T> splitBase = this.base.trySplit();
     return splitBase == null ? null : new BatchSpliterator<>(splitBase, batchSize);
   }
@@ -50,11 +74,16 @@ public final class BatchSpliterator<T> implements Spliterator<List<T>> {
   @Override
   public long estimateSize() {
     final double baseSize = base.estimateSize();
-    return baseSize == 0 ? 0 : (long) Math.ceil(baseSize / (double) batchSize);
+    return baseSize == 0 ? 0 : (long) Math.ceil(baseSize / (double) currentBatchSize());
   }
 
   @Override
   public int characteristics() {
     return base.characteristics();
   }
+
+  /** @return the size to use for the next batch, which will always be at least <code>1</code> */
+  private int currentBatchSize() {
+    return Math.max(1, batchSize.getAsInt());
+  }
 }
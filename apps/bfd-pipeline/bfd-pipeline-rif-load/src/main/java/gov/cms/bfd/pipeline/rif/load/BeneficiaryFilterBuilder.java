@@ -0,0 +1,221 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.LoadedBatch;
+import gov.cms.bfd.model.rif.LoadedBatchBuilder;
+import gov.cms.bfd.model.rif.LoadedFile;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import org.apache.spark.util.sketch.BloomFilter;
+
+/**
+ * Builds the {@link LoadedFile#getBeneficiaryFilter()} Bloom filter for a single {@link
+ * LoadedFile}, one {@link LoadedBatch} at a time, as each batch is committed. Thread safe.
+ *
+ * <p>The number of beneficiaries in the file isn't known up front, so the filter is "scalable" (see
+ * <a href="https://doi.org/10.1016/j.ipl.2006.10.007">Scalable Bloom Filters</a>): once a filter
+ * segment fills up, another segment twice its size is started, with a tighter false positive rate,
+ * so that the overall rate stays under {@link
+ * LoadedFile#BENEFICIARY_FILTER_FALSE_POSITIVE_PERCENTAGE}. The segments are serialized one after
+ * the other.
+ *
+ * <p>Batches are loaded in parallel, and so are committed out of order. To let readers of a filter
+ * that's published mid-load find the batches it might be missing, each {@link Snapshot} has a
+ * watermark: the creation time of the oldest batch that was still in flight. Every batch created
+ * before that is in the snapshot (or failed, and so isn't in the database at all).
+ */
+final class BeneficiaryFilterBuilder {
+  /** How often to publish the filter of a file that's still loading. */
+  static final Duration PUBLISH_INTERVAL = Duration.ofMinutes(1);
+
+  /** The number of beneficiaries that the first filter segment is sized for. */
+  private static final long INITIAL_SEGMENT_CAPACITY = 100_000;
+
+  /** How much tighter each segment's false positive rate is than the previous segment's. */
+  private static final double TIGHTENING_RATIO = 0.8;
+
+  private final long loadedFileId;
+  private final List<BloomFilter> segments = new ArrayList<>();
+  private long segmentCapacity = 0;
+  private long segmentSize = 0;
+  private long beneficiaryCount = 0;
+
+  /** The {@link LoadedBatchBuilder#getTimestamp()}s of the batches that are still in flight. */
+  private final List<Date> inFlightBatches = new ArrayList<>();
+
+  /** The creation times of the added batches that weren't yet before a snapshot's watermark. */
+  private final List<Date> recentBatches = new ArrayList<>();
+
+  /** The number of added batches that were before a snapshot's watermark. */
+  private int settledBatchCount = 0;
+
+  private Instant nextPublish;
+
+  /**
+   * Constructs a new {@link BeneficiaryFilterBuilder}.
+   *
+   * @param loadedFileId the {@link LoadedFile#getLoadedFileId()} of the file to build the filter
+   *     for
+   */
+  BeneficiaryFilterBuilder(long loadedFileId) {
+    this.loadedFileId = loadedFileId;
+    this.nextPublish = Instant.now().plus(PUBLISH_INTERVAL);
+  }
+
+  /** @return the {@link LoadedFile#getLoadedFileId()} of the file that the filter is for */
+  long getLoadedFileId() {
+    return loadedFileId;
+  }
+
+  /**
+   * Starts a new batch, which must later be passed to either {@link #batchCommitted(LoadedBatch)}
+   * or {@link #batchFailed(LoadedBatchBuilder)}. The {@link LoadedBatchBuilder} is created here so
+   * that its timestamp can't be before the watermark of a snapshot that it's missing from.
+   *
+   * @param recordOffset the index, within the file, of the first record in the batch
+   * @param recordCount the number of records in the batch
+   * @return the {@link LoadedBatchBuilder} for the new batch
+   */
+  synchronized LoadedBatchBuilder startBatch(long recordOffset, int recordCount) {
+    LoadedBatchBuilder loadedBatchBuilder =
+        new LoadedBatchBuilder(loadedFileId, recordOffset, recordCount);
+    inFlightBatches.add(loadedBatchBuilder.getTimestamp());
+    return loadedBatchBuilder;
+  }
+
+  /**
+   * Adds the beneficiaries of the specified batch, which has been committed, to the filter.
+   *
+   * @param loadedBatch the {@link LoadedBatch} that was committed
+   */
+  synchronized void batchCommitted(LoadedBatch loadedBatch) {
+    loadedBatch.forEachBeneficiary(this::put);
+    recentBatches.add(loadedBatch.getCreated());
+    inFlightBatches.remove(loadedBatch.getCreated());
+  }
+
+  /**
+   * Records that the specified batch failed (and so won't be in the database).
+   *
+   * @param loadedBatchBuilder the {@link LoadedBatchBuilder} of the batch that failed
+   */
+  synchronized void batchFailed(LoadedBatchBuilder loadedBatchBuilder) {
+    inFlightBatches.remove(loadedBatchBuilder.getTimestamp());
+  }
+
+  /**
+   * Checks whether it's time to publish the filter again and, if so, claims that publication, so
+   * that only one of the load threads does it.
+   *
+   * @return <code>true</code> if the caller should publish a {@link #snapshot(boolean)}, <code>
+   *     false
+   *     </code> if not
+   */
+  synchronized boolean claimPublish() {
+    Instant now = Instant.now();
+    if (now.isBefore(nextPublish)) return false;
+
+    nextPublish = now.plus(PUBLISH_INTERVAL);
+    return true;
+  }
+
+  /**
+   * @param fileFinished <code>true</code> if no more batches will be started for the file, <code>
+   *     false</code> if it's still loading
+   * @return a {@link Snapshot} of the filter as it currently stands
+   */
+  synchronized Snapshot snapshot(boolean fileFinished) {
+    Date watermark =
+        fileFinished && inFlightBatches.isEmpty()
+            ? null
+            : inFlightBatches.stream().min(Comparator.naturalOrder()).orElseGet(Date::new);
+    recentBatches.removeIf(
+        created -> {
+          if (watermark != null && !created.before(watermark)) return false;
+          settledBatchCount++;
+          return true;
+        });
+
+    if (segments.isEmpty()) addSegment();
+    ByteArrayOutputStream serializedFilter = new ByteArrayOutputStream();
+    try {
+      for (BloomFilter segment : segments) segment.writeTo(serializedFilter);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return new Snapshot(
+        serializedFilter.toByteArray(), settledBatchCount, watermark, beneficiaryCount);
+  }
+
+  /** @param beneficiaryId the beneficiary ID to add to the filter */
+  private void put(String beneficiaryId) {
+    if (segments.isEmpty() || segmentSize >= segmentCapacity) addSegment();
+
+    segments.get(segments.size() - 1).putString(beneficiaryId);
+    segmentSize++;
+    beneficiaryCount++;
+  }
+
+  /** Starts a new filter segment, twice the size of the previous one. */
+  private void addSegment() {
+    segmentCapacity =
+        segments.isEmpty() ? INITIAL_SEGMENT_CAPACITY : Math.multiplyExact(segmentCapacity, 2);
+    double falsePositiveRate =
+        LoadedFile.BENEFICIARY_FILTER_FALSE_POSITIVE_PERCENTAGE
+            * (1 - TIGHTENING_RATIO)
+            * Math.pow(TIGHTENING_RATIO, segments.size());
+    segments.add(BloomFilter.create(segmentCapacity, falsePositiveRate));
+    segmentSize = 0;
+  }
+
+  /** An immutable snapshot of a {@link BeneficiaryFilterBuilder}'s filter, ready to publish. */
+  static final class Snapshot {
+    private final byte[] serializedFilter;
+    private final int batchCount;
+    private final Date watermark;
+    private final long beneficiaryCount;
+
+    /**
+     * Constructs a new {@link Snapshot}.
+     *
+     * @param serializedFilter the value to use for {@link #getSerializedFilter()}
+     * @param batchCount the value to use for {@link #getBatchCount()}
+     * @param watermark the value to use for {@link #getWatermark()}
+     * @param beneficiaryCount the value to use for {@link #getBeneficiaryCount()}
+     */
+    private Snapshot(
+        byte[] serializedFilter, int batchCount, Date watermark, long beneficiaryCount) {
+      this.serializedFilter = serializedFilter;
+      this.batchCount = batchCount;
+      this.watermark = watermark;
+      this.beneficiaryCount = beneficiaryCount;
+    }
+
+    /** @return the value to publish as {@link LoadedFile#getBeneficiaryFilter()} */
+    byte[] getSerializedFilter() {
+      return serializedFilter;
+    }
+
+    /** @return the value to publish as {@link LoadedFile#getBeneficiaryFilterBatches()} */
+    int getBatchCount() {
+      return batchCount;
+    }
+
+    /** @return the value to publish as {@link LoadedFile#getBeneficiaryFilterWatermark()} */
+    Date getWatermark() {
+      return watermark;
+    }
+
+    /** @return the number of beneficiary IDs (including any duplicates) in the filter */
+    long getBeneficiaryCount() {
+      return beneficiaryCount;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Arrays;
+import javax.crypto.SecretKeyFactory;
+
+/**
+ * Computes the one-way cryptographic hashes of beneficiary HICNs and MBIs (see {@link
+ * RifLoader#computeHicnHash(LoadAppOptions, SecretKeyFactory, String)}), caching the results.
+ *
+ * <p>Those hashes are (deliberately) very expensive to compute, and are the dominant CPU cost of
+ * loading beneficiary data. The same identifiers recur across each month's beneficiary files, the
+ * beneficiary history files, and the {@link RifLoaderIdleTasks} fixups, so a single instance of
+ * this class is shared by all of those. The cache is bounded to {@link
+ * LoadTuningOptions#getHashCacheSize()} entries (evicting the least recently used ones first), and
+ * may be used by multiple threads simultaneously.
+ */
+public final class IdentifierHashCache {
+  private final LoadAppOptions options;
+  private final SecretKeyFactory secretKeyFactory;
+  private final Cache<CacheKey, String> cache;
+  private final Meter hits;
+  private final Meter misses;
+
+  /**
+   * Constructs a new {@link IdentifierHashCache} instance.
+   *
+   * @param options the {@link LoadAppOptions} to use, which specify the hashing parameters and
+   *     cache size
+   * @param secretKeyFactory the {@link SecretKeyFactory} to hash with
+   * @param appMetrics the {@link MetricRegistry} being used for the overall application (as opposed
+   *     to a specific data set)
+   */
+  IdentifierHashCache(
+      LoadAppOptions options, SecretKeyFactory secretKeyFactory, MetricRegistry appMetrics) {
+    this.options = options;
+    this.secretKeyFactory = secretKeyFactory;
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(options.getTuningOptions().getHashCacheSize())
+            .build();
+
+    this.hits = appMetrics.meter(MetricRegistry.name(getClass().getSimpleName(), "hits"));
+    this.misses = appMetrics.meter(MetricRegistry.name(getClass().getSimpleName(), "misses"));
+  }
+
+  /**
+   * @param hicn the Medicare beneficiary HICN to be hashed
+   * @return the result of {@link RifLoader#computeHicnHash(LoadAppOptions, SecretKeyFactory,
+   *     String)} for the specified HICN
+   */
+  public String computeHicnHash(String hicn) {
+    return computeIdentifierHash(hicn);
+  }
+
+  /**
+   * @param mbi the Medicare beneficiary id to be hashed
+   * @return the result of {@link RifLoader#computeMbiHash(LoadAppOptions, SecretKeyFactory,
+   *     String)} for the specified MBI
+   */
+  public String computeMbiHash(String mbi) {
+    return computeIdentifierHash(mbi);
+  }
+
+  /**
+   * @param identifier the HICN or MBI to be hashed
+   * @return a one-way cryptographic hash of the specified identifier, from the cache if possible
+   */
+  private String computeIdentifierHash(String identifier) {
+    CacheKey key =
+        new CacheKey(identifier, options.getHicnHashPepper(), options.getHicnHashIterations());
+    String hash = cache.getIfPresent(key);
+    if (hash != null) {
+      hits.mark();
+      return hash;
+    }
+
+    /*
+     * Note: the hash is deliberately computed outside of the cache, rather than via
+     * Cache.get(key, loader), so that slow hashing never blocks other threads' cache access. At
+     * worst, two threads will hash the same new identifier at the same time, which is harmless.
+     */
+    misses.mark();
+    hash = RifLoader.computeHicnHash(options, secretKeyFactory, identifier);
+    cache.put(key, hash);
+    return hash;
+  }
+
+  /**
+   * The key for {@link IdentifierHashCache#cache}, which includes all of the hashing inputs: the
+   * identifier, pepper, and iteration count.
+   */
+  private static final class CacheKey {
+    private final String identifier;
+    private final byte[] pepper;
+    private final int iterations;
+    private final int hashCode;
+
+    /**
+     * Constructs a new {@link CacheKey} instance.
+     *
+     * @param identifier the HICN or MBI being hashed
+     * @param pepper the pepper being hashed with
+     * @param iterations the number of hash iterations being used
+     */
+    CacheKey(String identifier, byte[] pepper, int iterations) {
+      this.identifier = identifier;
+      this.pepper = pepper;
+      this.iterations = iterations;
+      this.hashCode = 31 * (31 * identifier.hashCode() + Arrays.hashCode(pepper)) + iterations;
+    }
+
+    /** @see java.lang.Object#hashCode() */
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    /** @see java.lang.Object#equals(java.lang.Object) */
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof CacheKey)) return false;
+      CacheKey other = (CacheKey) obj;
+      return iterations == other.iterations
+          && identifier.equals(other.identifier)
+          && Arrays.equals(pepper, other.pepper);
+    }
+  }
+}
@@ -30,6 +30,7 @@ public final class LoadAppOptions implements Serializable {
   private final boolean idempotencyRequired;
   private final boolean fixupsEnabled;
   private final int fixupThreads;
+  private final LoadTuningOptions tuningOptions;
 
   /**
    * Constructs a new {@link LoadAppOptions} instance.
@@ -54,7 +55,46 @@ public final class LoadAppOptions implements Serializable {
       boolean idempotencyRequired,
       boolean fixupsEnabled,
       int fixupThreads) {
+    this(
+        hicnHashIterations,
+        hicnHashPepper,
+        databaseUrl,
+        databaseUsername,
+        databasePassword,
+        loaderThreads,
+        idempotencyRequired,
+        fixupsEnabled,
+        fixupThreads,
+        new LoadTuningOptions());
+  }
+
+  /**
+   * Constructs a new {@link LoadAppOptions} instance.
+   *
+   * @param hicnHashIterations the value to use for {@link #getHicnHashIterations()}
+   * @param hicnHashPepper the value to use for {@link #getHicnHashPepper()}
+   * @param databaseUrl the value to use for {@link #getDatabaseUrl()}
+   * @param databaseUsername the value to use for {@link #getDatabaseUsername()}
+   * @param databasePassword the value to use for {@link #getDatabasePassword()}
+   * @param loaderThreads the value to use for {@link #getLoaderThreads()}
+   * @param idempotencyRequired the value to use for {@link #isIdempotencyRequired()}
+   * @param fixupsEnabled the value to use for {@link #isFixupsEnabled()}
+   * @param fixupThreads the value fot use for {@link #getFixupThreads()}
+   * @param tuningOptions the value to use for {@link #getTuningOptions()}
+   */
+  public LoadAppOptions(
+      int hicnHashIterations,
+      byte[] hicnHashPepper,
+      String databaseUrl,
+      String databaseUsername,
+      char[] databasePassword,
+      int loaderThreads,
+      boolean idempotencyRequired,
+      boolean fixupsEnabled,
+      int fixupThreads,
+      LoadTuningOptions tuningOptions) {
     if (loaderThreads < 1) throw new IllegalArgumentException();
+    if (tuningOptions == null) throw new IllegalArgumentException();
 
     this.hicnHashIterations = hicnHashIterations;
     this.hicnHashPepper = hicnHashPepper;
@@ -66,6 +106,7 @@ public final class LoadAppOptions implements Serializable {
     this.idempotencyRequired = idempotencyRequired;
     this.fixupsEnabled = fixupsEnabled;
     this.fixupThreads = fixupThreads;
+    this.tuningOptions = tuningOptions;
   }
 
   /**
@@ -87,7 +128,40 @@ public final class LoadAppOptions implements Serializable {
       boolean idempotencyRequired,
       boolean fixupsEnabled,
       int fixupThreads) {
+    this(
+        hicnHashIterations,
+        hicnHashPepper,
+        databaseDataSource,
+        loaderThreads,
+        idempotencyRequired,
+        fixupsEnabled,
+        fixupThreads,
+        new LoadTuningOptions());
+  }
+
+  /**
+   * Constructs a new {@link LoadAppOptions} instance.
+   *
+   * @param hicnHashIterations the value to use for {@link #getHicnHashIterations()}
+   * @param hicnHashPepper the value to use for {@link #getHicnHashPepper()}
+   * @param databaseDataSource the value to use for {@link #getDatabaseDataSource()}
+   * @param loaderThreads the value to use for {@link #getLoaderThreads()}
+   * @param idempotencyRequired the value to use for {@link #isIdempotencyRequired()}
+   * @param fixupsEnabled the value to use for {@link #isFixupsEnabled()}
+   * @param fixupThreads the value fot use for {@link #getFixupThreads()}
+   * @param tuningOptions the value to use for {@link #getTuningOptions()}
+   */
+  public LoadAppOptions(
+      int hicnHashIterations,
+      byte[] hicnHashPepper,
+      DataSource databaseDataSource,
+      int loaderThreads,
+      boolean idempotencyRequired,
+      boolean fixupsEnabled,
+      int fixupThreads,
+      LoadTuningOptions tuningOptions) {
     if (loaderThreads < 1) throw new IllegalArgumentException();
+    if (tuningOptions == null) throw new IllegalArgumentException();
 
     this.hicnHashIterations = hicnHashIterations;
     this.hicnHashPepper = hicnHashPepper;
@@ -99,6 +173,7 @@ public final class LoadAppOptions implements Serializable {
     this.idempotencyRequired = idempotencyRequired;
     this.fixupsEnabled = fixupsEnabled;
     this.fixupThreads = fixupThreads;
+    this.tuningOptions = tuningOptions;
   }
 
   /**
@@ -187,6 +262,11 @@ public final class LoadAppOptions implements Serializable {
     return fixupThreads;
   }
 
+  /** @return the optional, performance-related {@link LoadTuningOptions} to use */
+  public LoadTuningOptions getTuningOptions() {
+    return tuningOptions;
+  }
+
   /** @see java.lang.Object#toString() */
   @Override
   public String toString() {
@@ -211,6 +291,8 @@ public final class LoadAppOptions implements Serializable {
     builder.append(fixupsEnabled);
     builder.append(", fixupThreads=");
     builder.append(fixupThreads);
+    builder.append(", tuningOptions=");
+    builder.append(tuningOptions);
     builder.append("]");
     return builder.toString();
   }
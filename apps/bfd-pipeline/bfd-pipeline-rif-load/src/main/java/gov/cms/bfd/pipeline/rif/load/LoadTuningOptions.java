@@ -0,0 +1,344 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import java.io.Serializable;
+
+/**
+ * Models the optional, performance-related {@link LoadAppOptions}, all of which have reasonable
+ * defaults. Instances are immutable: use the <code>with...(...)</code> methods to create a copy
+ * with a different value, e.g. <code>new LoadTuningOptions().withMaxConcurrentFiles(4)</code>.
+ */
+public final class LoadTuningOptions implements Serializable {
+  private static final long serialVersionUID = 4790126314520374187L;
+
+  /**
+   * A reasonable suggested default value for {@link #getHashCacheSize()}: enough to cover a large
+   * batch of beneficiaries' HICNs and MBIs, while only using a few tens of MB of heap.
+   */
+  public static final int DEFAULT_HASH_CACHE_SIZE = 100_000;
+
+  /**
+   * A reasonable suggested default value for {@link #getMaxRecordBatchSize()}: well above what most
+   * record types will settle at, while keeping the number of records held in memory per loader
+   * thread modest.
+   */
+  public static final int DEFAULT_MAX_RECORD_BATCH_SIZE = 1_000;
+
+  /** A reasonable suggested default value for {@link #getMaxJdbcBatchSize()}. */
+  public static final int DEFAULT_MAX_JDBC_BATCH_SIZE = 100;
+
+  /**
+   * The default value for {@link #getMaxConcurrentFiles()}, which loads each data set's files one
+   * at a time.
+   */
+  public static final int DEFAULT_MAX_CONCURRENT_FILES = 1;
+
+  /**
+   * The default value for {@link #getIndexRebuildThreads()}, which leaves the secondary indexes in
+   * place while loading.
+   */
+  public static final int DEFAULT_INDEX_REBUILD_THREADS = 0;
+
+  /**
+   * The default value for {@link #getIndexDropMaxExistingRows()}, which only drops the secondary
+   * indexes for initial loads, into tables that are still empty.
+   */
+  public static final long DEFAULT_INDEX_DROP_MAX_EXISTING_ROWS = 0L;
+
+  private final boolean copyLoadEnabled;
+  private final int hashCacheSize;
+  private final int maxRecordBatchSize;
+  private final int maxJdbcBatchSize;
+  private final int maxConcurrentFiles;
+  private final int indexRebuildThreads;
+  private final long indexDropMaxExistingRows;
+  private final boolean indexFreeBulkLoadEnabled;
+
+  /** Constructs a new {@link LoadTuningOptions} instance, with all of the default values. */
+  public LoadTuningOptions() {
+    this(
+        false,
+        DEFAULT_HASH_CACHE_SIZE,
+        DEFAULT_MAX_RECORD_BATCH_SIZE,
+        DEFAULT_MAX_JDBC_BATCH_SIZE,
+        DEFAULT_MAX_CONCURRENT_FILES,
+        DEFAULT_INDEX_REBUILD_THREADS,
+        DEFAULT_INDEX_DROP_MAX_EXISTING_ROWS,
+        false);
+  }
+
+  /**
+   * Constructs a new {@link LoadTuningOptions} instance.
+   *
+   * @param copyLoadEnabled the value to use for {@link #isCopyLoadEnabled()}
+   * @param hashCacheSize the value to use for {@link #getHashCacheSize()}
+   * @param maxRecordBatchSize the value to use for {@link #getMaxRecordBatchSize()}
+   * @param maxJdbcBatchSize the value to use for {@link #getMaxJdbcBatchSize()}
+   * @param maxConcurrentFiles the value to use for {@link #getMaxConcurrentFiles()}
+   * @param indexRebuildThreads the value to use for {@link #getIndexRebuildThreads()}
+   * @param indexDropMaxExistingRows the value to use for {@link #getIndexDropMaxExistingRows()}
+   * @param indexFreeBulkLoadEnabled the value to use for {@link #isIndexFreeBulkLoadEnabled()}
+   */
+  private LoadTuningOptions(
+      boolean copyLoadEnabled,
+      int hashCacheSize,
+      int maxRecordBatchSize,
+      int maxJdbcBatchSize,
+      int maxConcurrentFiles,
+      int indexRebuildThreads,
+      long indexDropMaxExistingRows,
+      boolean indexFreeBulkLoadEnabled) {
+    if (hashCacheSize < 0) throw new IllegalArgumentException();
+    if (maxRecordBatchSize < 1) throw new IllegalArgumentException();
+    if (maxJdbcBatchSize < 1) throw new IllegalArgumentException();
+    if (maxConcurrentFiles < 1) throw new IllegalArgumentException();
+    if (indexRebuildThreads < 0) throw new IllegalArgumentException();
+    if (indexDropMaxExistingRows < 0) throw new IllegalArgumentException();
+
+    this.copyLoadEnabled = copyLoadEnabled;
+    this.hashCacheSize = hashCacheSize;
+    this.maxRecordBatchSize = maxRecordBatchSize;
+    this.maxJdbcBatchSize = maxJdbcBatchSize;
+    this.maxConcurrentFiles = maxConcurrentFiles;
+    this.indexRebuildThreads = indexRebuildThreads;
+    this.indexDropMaxExistingRows = indexDropMaxExistingRows;
+    this.indexFreeBulkLoadEnabled = indexFreeBulkLoadEnabled;
+  }
+
+  /**
+   * @return
+   *     <p><code>true</code> if {@link RifLoader} should stream brand new records into the database
+   *     via PostgreSQL's <code>COPY ... FROM STDIN</code>, rather than via one JPA <code>
+   *     INSERT</code> per row, <code>false</code> if it should always use JPA (the default)
+   *     <p>This only takes effect when {@link LoadAppOptions#isIdempotencyRequired()} is <code>
+   *     false</code>, the database is PostgreSQL, and the records being loaded are all {@link
+   *     gov.cms.bfd.model.rif.RecordAction#INSERT}s. It's intended for initial/bulk loads of data
+   *     that is known to not already be present in the database.
+   */
+  public boolean isCopyLoadEnabled() {
+    return copyLoadEnabled;
+  }
+
+  /**
+   * @param copyLoadEnabled the value to use for {@link #isCopyLoadEnabled()}
+   * @return a copy of this {@link LoadTuningOptions}, with the specified value
+   */
+  public LoadTuningOptions withCopyLoadEnabled(boolean copyLoadEnabled) {
+    return new LoadTuningOptions(
+        copyLoadEnabled,
+        hashCacheSize,
+        maxRecordBatchSize,
+        maxJdbcBatchSize,
+        maxConcurrentFiles,
+        indexRebuildThreads,
+        indexDropMaxExistingRows,
+        indexFreeBulkLoadEnabled);
+  }
+
+  /**
+   * @return the maximum number of HICN and MBI hashes that {@link IdentifierHashCache} should keep,
+   *     or <code>0</code> to disable that caching
+   */
+  public int getHashCacheSize() {
+    return hashCacheSize;
+  }
+
+  /**
+   * @param hashCacheSize the value to use for {@link #getHashCacheSize()}
+   * @return a copy of this {@link LoadTuningOptions}, with the specified value
+   */
+  public LoadTuningOptions withHashCacheSize(int hashCacheSize) {
+    return new LoadTuningOptions(
+        copyLoadEnabled,
+        hashCacheSize,
+        maxRecordBatchSize,
+        maxJdbcBatchSize,
+        maxConcurrentFiles,
+        indexRebuildThreads,
+        indexDropMaxExistingRows,
+        indexFreeBulkLoadEnabled);
+  }
+
+  /**
+   * @return the largest number of records that {@link RifLoader} may include in a single
+   *     transaction, as tuned by {@link BatchSizeController}
+   */
+  public int getMaxRecordBatchSize() {
+    return maxRecordBatchSize;
+  }
+
+  /**
+   * @param maxRecordBatchSize the value to use for {@link #getMaxRecordBatchSize()}
+   * @return a copy of this {@link LoadTuningOptions}, with the specified value
+   */
+  public LoadTuningOptions withMaxRecordBatchSize(int maxRecordBatchSize) {
+    return new LoadTuningOptions(
+        copyLoadEnabled,
+        hashCacheSize,
+        maxRecordBatchSize,
+        maxJdbcBatchSize,
+        maxConcurrentFiles,
+        indexRebuildThreads,
+        indexDropMaxExistingRows,
+        indexFreeBulkLoadEnabled);
+  }
+
+  /**
+   * @return the largest JDBC statement batch size that {@link RifLoader} may use, as tuned by
+   *     {@link BatchSizeController}
+   */
+  public int getMaxJdbcBatchSize() {
+    return maxJdbcBatchSize;
+  }
+
+  /**
+   * @param maxJdbcBatchSize the value to use for {@link #getMaxJdbcBatchSize()}
+   * @return a copy of this {@link LoadTuningOptions}, with the specified value
+   */
+  public LoadTuningOptions withMaxJdbcBatchSize(int maxJdbcBatchSize) {
+    return new LoadTuningOptions(
+        copyLoadEnabled,
+        hashCacheSize,
+        maxRecordBatchSize,
+        maxJdbcBatchSize,
+        maxConcurrentFiles,
+        indexRebuildThreads,
+        indexDropMaxExistingRows,
+        indexFreeBulkLoadEnabled);
+  }
+
+  /**
+   * @return the largest number of a data set's claim RIF files that may be loaded at the same time
+   *     (its beneficiary files are always loaded first, one at a time), all of which share the same
+   *     {@link LoadAppOptions#getLoaderThreads()} database connections
+   */
+  public int getMaxConcurrentFiles() {
+    return maxConcurrentFiles;
+  }
+
+  /**
+   * @param maxConcurrentFiles the value to use for {@link #getMaxConcurrentFiles()}
+   * @return a copy of this {@link LoadTuningOptions}, with the specified value
+   */
+  public LoadTuningOptions withMaxConcurrentFiles(int maxConcurrentFiles) {
+    return new LoadTuningOptions(
+        copyLoadEnabled,
+        hashCacheSize,
+        maxRecordBatchSize,
+        maxJdbcBatchSize,
+        maxConcurrentFiles,
+        indexRebuildThreads,
+        indexDropMaxExistingRows,
+        indexFreeBulkLoadEnabled);
+  }
+
+  /**
+   * @return the number of secondary indexes and foreign keys that {@link RifLoader} should rebuild
+   *     at once after an index-free bulk load (see {@link #isIndexFreeBulkLoadEnabled()}), or
+   *     <code>0</code> to never drop them (the default)
+   *     <p>Whenever this is enabled (and the database is PostgreSQL), any secondary indexes and
+   *     foreign keys that were dropped for a bulk load, including by a previous run, are rebuilt
+   *     (concurrently, in the background) once there are no more data sets waiting to be loaded.
+   */
+  public int getIndexRebuildThreads() {
+    return indexRebuildThreads;
+  }
+
+  /**
+   * @param indexRebuildThreads the value to use for {@link #getIndexRebuildThreads()}
+   * @return a copy of this {@link LoadTuningOptions}, with the specified value
+   */
+  public LoadTuningOptions withIndexRebuildThreads(int indexRebuildThreads) {
+    return new LoadTuningOptions(
+        copyLoadEnabled,
+        hashCacheSize,
+        maxRecordBatchSize,
+        maxJdbcBatchSize,
+        maxConcurrentFiles,
+        indexRebuildThreads,
+        indexDropMaxExistingRows,
+        indexFreeBulkLoadEnabled);
+  }
+
+  /**
+   * @return the largest (estimated) number of rows that the tables with secondary indexes may
+   *     already hold, for {@link RifLoader} to drop those indexes before loading a data set (see
+   *     {@link #isIndexFreeBulkLoadEnabled()})
+   *     <p>Rebuilding the indexes takes time in proportion to all of the rows in their tables, not
+   *     just the ones that were loaded, so once the tables are large enough, dropping the indexes
+   *     costs more than it saves. By default, the indexes are only dropped for initial loads.
+   */
+  public long getIndexDropMaxExistingRows() {
+    return indexDropMaxExistingRows;
+  }
+
+  /**
+   * @param indexDropMaxExistingRows the value to use for {@link #getIndexDropMaxExistingRows()}
+   * @return a copy of this {@link LoadTuningOptions}, with the specified value
+   */
+  public LoadTuningOptions withIndexDropMaxExistingRows(long indexDropMaxExistingRows) {
+    return new LoadTuningOptions(
+        copyLoadEnabled,
+        hashCacheSize,
+        maxRecordBatchSize,
+        maxJdbcBatchSize,
+        maxConcurrentFiles,
+        indexRebuildThreads,
+        indexDropMaxExistingRows,
+        indexFreeBulkLoadEnabled);
+  }
+
+  /**
+   * @return
+   *     <p><code>true</code> if the claim and beneficiary tables' secondary indexes and foreign
+   *     keys should be dropped before each data set is loaded (if those tables are small enough,
+   *     see {@link #getIndexDropMaxExistingRows()}), <code>false</code> to leave them in place (the
+   *     default)
+   *     <p>This only takes effect when {@link #getIndexRebuildThreads()} is at least <code>1
+   *     </code>, and the database is PostgreSQL. Their primary keys are kept. This is intended for
+   *     initial and large backfill loads only: queries against the database will be extremely slow
+   *     until the rebuild has finished. It should be turned off again once those are done.
+   */
+  public boolean isIndexFreeBulkLoadEnabled() {
+    return indexFreeBulkLoadEnabled;
+  }
+
+  /**
+   * @param indexFreeBulkLoadEnabled the value to use for {@link #isIndexFreeBulkLoadEnabled()}
+   * @return a copy of this {@link LoadTuningOptions}, with the specified value
+   */
+  public LoadTuningOptions withIndexFreeBulkLoadEnabled(boolean indexFreeBulkLoadEnabled) {
+    return new LoadTuningOptions(
+        copyLoadEnabled,
+        hashCacheSize,
+        maxRecordBatchSize,
+        maxJdbcBatchSize,
+        maxConcurrentFiles,
+        indexRebuildThreads,
+        indexDropMaxExistingRows,
+        indexFreeBulkLoadEnabled);
+  }
+
+  /** @see java.lang.Object#toString() */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("LoadTuningOptions [copyLoadEnabled=");
+    builder.append(copyLoadEnabled);
+    builder.append(", hashCacheSize=");
+    builder.append(hashCacheSize);
+    builder.append(", maxRecordBatchSize=");
+    builder.append(maxRecordBatchSize);
+    builder.append(", maxJdbcBatchSize=");
+    builder.append(maxJdbcBatchSize);
+    builder.append(", maxConcurrentFiles=");
+    builder.append(maxConcurrentFiles);
+    builder.append(", indexRebuildThreads=");
+    builder.append(indexRebuildThreads);
+    builder.append(", indexDropMaxExistingRows=");
+    builder.append(indexDropMaxExistingRows);
+    builder.append(", indexFreeBulkLoadEnabled=");
+    builder.append(indexFreeBulkLoadEnabled);
+    builder.append("]");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,95 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.LoadedBatch;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Tracks which of a RIF file's records have already been loaded, as recorded by the {@link
+ * LoadedBatch#getRecordOffset()} and {@link LoadedBatch#getRecordCount()} values of the {@link
+ * LoadedBatch}es from previous attempts to load that file. As each {@link LoadedBatch} is committed
+ * in the same transaction as its records, every record in those ranges is known to be loaded.
+ *
+ * <p>Note that the batches are loaded in parallel, so the loaded ranges will usually be followed by
+ * some gaps (batches that were still in flight) and then a few more loaded ranges. The records
+ * before {@link #getWatermark()} don't need to be read at all; the rest have to be checked via
+ * {@link #isLoaded(long)}.
+ */
+final class LoadedRecordRanges {
+  /** An instance with no loaded records. */
+  static final LoadedRecordRanges NONE = new LoadedRecordRanges(new ArrayList<>());
+
+  /** The (sorted, non-overlapping, non-adjacent) inclusive starts of each range. */
+  private final long[] starts;
+
+  /** The exclusive ends of each range, in the same order as {@link #starts}. */
+  private final long[] ends;
+
+  /**
+   * Constructs a new {@link LoadedRecordRanges} instance.
+   *
+   * @param ranges the <code>{recordOffset, recordCount}</code> pairs of the loaded batches, in any
+   *     order, and possibly overlapping
+   */
+  LoadedRecordRanges(List<long[]> ranges) {
+    long[][] sortedRanges = ranges.toArray(new long[ranges.size()][]);
+    Arrays.sort(sortedRanges, Comparator.comparingLong(range -> range[0]));
+
+    // Merge the ranges that overlap or are adjacent.
+    long[] mergedStarts = new long[sortedRanges.length];
+    long[] mergedEnds = new long[sortedRanges.length];
+    int mergedCount = 0;
+    for (long[] range : sortedRanges) {
+      long start = range[0];
+      long end = range[0] + range[1];
+      if (end <= start) continue;
+
+      if (mergedCount > 0 && start <= mergedEnds[mergedCount - 1]) {
+        mergedEnds[mergedCount - 1] = Math.max(mergedEnds[mergedCount - 1], end);
+      } else {
+        mergedStarts[mergedCount] = start;
+        mergedEnds[mergedCount] = end;
+        mergedCount++;
+      }
+    }
+
+    this.starts = Arrays.copyOf(mergedStarts, mergedCount);
+    this.ends = Arrays.copyOf(mergedEnds, mergedCount);
+  }
+
+  /** @return <code>true</code> if no records are known to have been loaded */
+  boolean isEmpty() {
+    return starts.length == 0;
+  }
+
+  /** @return the total number of records that are known to have been loaded */
+  long getLoadedCount() {
+    long loadedCount = 0;
+    for (int i = 0; i < starts.length; i++) loadedCount += ends[i] - starts[i];
+    return loadedCount;
+  }
+
+  /**
+   * @return the number of records at the start of the file that are all known to have been loaded,
+   *     i.e. the offset of the first record that might not have been
+   */
+  long getWatermark() {
+    return starts.length > 0 && starts[0] == 0 ? ends[0] : 0;
+  }
+
+  /**
+   * @param recordOffset the (zero-based) index of a record within its RIF file
+   * @return <code>true</code> if the specified record is known to have been loaded, <code>false
+   *     </code> if not
+   */
+  boolean isLoaded(long recordOffset) {
+    int index = Arrays.binarySearch(starts, recordOffset);
+    if (index >= 0) return true;
+
+    // The range (if any) that starts closest before the record.
+    int rangeIndex = -index - 2;
+    return rangeIndex >= 0 && recordOffset < ends[rangeIndex];
+  }
+}
@@ -0,0 +1,442 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.BeneficiaryCsvWriter;
+import gov.cms.bfd.model.rif.BeneficiaryHistoryCsvWriter;
+import gov.cms.bfd.model.rif.RifFileType;
+import gov.cms.bfd.pipeline.rif.load.RifRecordLoadResult.LoadAction;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Upserts batches of RIF records into PostgreSQL using set-based, multi-row <code>
+ * INSERT ... ON CONFLICT</code> statements, rather than a <code>SELECT</code> and an <code>INSERT
+ * </code> for each record. This allows {@link RifLoader} to load data idempotently (i.e. without
+ * duplicating any records that have already been loaded) for about the cost of a non-idempotent
+ * load.
+ *
+ * <p>Only the parent table's <code>INSERT</code> decides what happens to a record: child rows (e.g.
+ * claim lines) are only upserted for those records whose parent row was actually inserted or
+ * updated. Records that were already present are handled as follows:
+ *
+ * <ul>
+ *   <li>{@link gov.cms.bfd.model.rif.RecordAction#INSERT} records are skipped, via <code>
+ *       ON CONFLICT DO NOTHING</code>.
+ *   <li>{@link gov.cms.bfd.model.rif.RecordAction#UPDATE} {@link RifFileType#BENEFICIARY} records
+ *       are updated in place (along with their monthly rows), via <code>ON CONFLICT (...) DO UPDATE
+ *       </code>, but only if any of their columns other than <code>lastupdated</code> have actually
+ *       changed. Unchanged records are skipped, so re-running an update doesn't rewrite them (or
+ *       bump their <code>lastupdated</code>). Capturing their previous state as {@link
+ *       gov.cms.bfd.model.rif.BeneficiaryHistory} is left to the caller.
+ *   <li>{@link RifFileType#BENEFICIARY_HISTORY} records only have a generated primary key, so they
+ *       are instead compared against the already-stored history for the same beneficiaries, by
+ *       their natural key (all of their columns other than the generated ID and <code>lastupdated
+ *       </code>), and skipped when a match is found.
+ * </ul>
+ */
+final class PostgreSqlUpserter {
+  /**
+   * The maximum number of bind parameters that PostgreSQL's wire protocol (and thus its JDBC
+   * driver) will accept in a single statement.
+   */
+  private static final int MAX_BIND_PARAMETERS = 32767;
+
+  /**
+   * The SQL tables whose already-present rows can be updated, rather than left alone, mapped to
+   * their primary key columns (which are used as the <code>ON CONFLICT</code> target).
+   */
+  private static final Map<String, List<String>> UPDATABLE_TABLE_KEYS = createUpdatableTableKeys();
+
+  /**
+   * The column that's set to the batch's timestamp for every row, and so is never compared to
+   * decide whether an already-present row has changed.
+   */
+  private static final String LAST_UPDATED_COLUMN = "lastupdated";
+
+  /** The {@link BeneficiaryHistoryCsvWriter#HEADER_COLUMNS} that aren't part of its natural key. */
+  private static final Set<String> BENEFICIARY_HISTORY_NON_KEY_COLUMNS =
+      new HashSet<>(
+          Arrays.asList(BeneficiaryHistoryCsvWriter.HEADER_ID_COLUMN, LAST_UPDATED_COLUMN));
+
+  /** The beneficiary ID column in {@link BeneficiaryHistoryCsvWriter#HEADER_TABLE}. */
+  private static final String BENEFICIARY_HISTORY_BENEFICIARY_ID_COLUMN = "beneficiaryId";
+
+  /** Prevents instantiation of this utility class. */
+  private PostgreSqlUpserter() {}
+
+  /** @return the value to use for {@link #UPDATABLE_TABLE_KEYS} */
+  private static Map<String, List<String>> createUpdatableTableKeys() {
+    Map<String, List<String>> updatableTableKeys = new HashMap<>();
+    updatableTableKeys.put(
+        BeneficiaryCsvWriter.HEADER_TABLE,
+        Collections.singletonList(BeneficiaryCsvWriter.HEADER_ID_COLUMN));
+    updatableTableKeys.put(
+        BeneficiaryCsvWriter.BENEFICIARY_MONTHLY_TABLE,
+        Arrays.asList("parentBeneficiary", "yearMonth"));
+    return Collections.unmodifiableMap(updatableTableKeys);
+  }
+
+  /**
+   * Inserts each of the specified records (and their child rows) that isn't already present in the
+   * database, and (if requested) updates those that are and have changed, where supported for the
+   * {@link RifFileType}.
+   *
+   * @param connection the JDBC {@link Connection} to use, which should be part of the caller's
+   *     transaction
+   * @param rifFileType the {@link RifFileType} of the specified records
+   * @param records the {@link gov.cms.bfd.model.rif.RifRecordEvent#getRecord()} top-level entity
+   *     instances (e.g. {@link gov.cms.bfd.model.rif.Beneficiary}s, {@link
+   *     gov.cms.bfd.model.rif.CarrierClaim}s, etc.) to upsert, which must all be of the specified
+   *     {@link RifFileType}
+   * @param updateExisting <code>true</code> if the specified records are {@link
+   *     gov.cms.bfd.model.rif.RecordAction#UPDATE}s, whose already-present rows should be updated
+   *     where they've changed (if the {@link RifFileType} supports that), <code>false</code> if
+   *     they're {@link gov.cms.bfd.model.rif.RecordAction#INSERT}s, whose already-present rows
+   *     should be left alone
+   * @return an array with one element per specified record: {@link LoadAction#INSERTED} if the
+   *     record was inserted, {@link LoadAction#UPDATED} if it was already present and was updated,
+   *     or {@link LoadAction#DID_NOTHING} if it was already present and was left alone
+   * @throws SQLException Any {@link SQLException}s encountered will be bubbled up.
+   */
+  static LoadAction[] upsert(
+      Connection connection, RifFileType rifFileType, List<?> records, boolean updateExisting)
+      throws SQLException {
+    Map<String, List<String>> tableColumns = RifEntityRows.getTableColumns(rifFileType);
+    Entry<String, List<String>> headerTable = tableColumns.entrySet().iterator().next();
+    String headerIdColumn = RifEntityRows.getHeaderIdColumn(rifFileType);
+    int headerIdIndex = headerTable.getValue().indexOf(headerIdColumn);
+
+    // Convert all of the records to their SQL rows, grouped by table.
+    List<Map<String, List<Object[]>>> rowsByRecord = new ArrayList<>(records.size());
+    List<Object[]> headerRows = new ArrayList<>(records.size());
+    for (Object record : records) {
+      Map<String, List<Object[]>> recordRows = new LinkedHashMap<>();
+      RifEntityRows.writeRows(
+          record,
+          (tableName, row) ->
+              recordRows.computeIfAbsent(tableName, t -> new ArrayList<>()).add(row.clone()));
+      rowsByRecord.add(recordRows);
+      headerRows.add(recordRows.get(headerTable.getKey()).get(0));
+    }
+
+    LoadAction[] loadActions = new LoadAction[records.size()];
+    Arrays.fill(loadActions, LoadAction.DID_NOTHING);
+
+    List<Integer> recordIndexes;
+    if (rifFileType == RifFileType.BENEFICIARY_HISTORY) {
+      recordIndexes =
+          findAbsentBeneficiaryHistories(
+              connection, headerTable.getKey(), headerTable.getValue(), headerRows);
+    } else {
+      recordIndexes = new ArrayList<>(records.size());
+      for (int recordIndex = 0; recordIndex < records.size(); recordIndex++)
+        recordIndexes.add(recordIndex);
+    }
+
+    /*
+     * A single INSERT ... ON CONFLICT DO UPDATE statement can't affect the same row twice. So, if
+     * the same record somehow appears more than once in a batch, each later copy of it is upserted
+     * in a later round.
+     */
+    for (List<Integer> round : splitIntoRounds(recordIndexes, headerRows, headerIdIndex)) {
+      // Upsert the parent rows, finding out which of them were inserted or updated.
+      List<Object[]> roundHeaderRows = new ArrayList<>(round.size());
+      for (int recordIndex : round) roundHeaderRows.add(headerRows.get(recordIndex));
+      Map<String, Boolean> upsertedIds =
+          upsert(
+              connection,
+              headerTable.getKey(),
+              headerTable.getValue(),
+              roundHeaderRows,
+              headerIdColumn,
+              updateExisting);
+
+      List<Integer> upsertedRecordIndexes = new ArrayList<>(round.size());
+      for (int recordIndex : round) {
+        Boolean inserted =
+            upsertedIds.get(String.valueOf(headerRows.get(recordIndex)[headerIdIndex]));
+        if (inserted == null) continue;
+        loadActions[recordIndex] = inserted ? LoadAction.INSERTED : LoadAction.UPDATED;
+        upsertedRecordIndexes.add(recordIndex);
+      }
+
+      // Upsert the child rows for the records that were inserted or updated.
+      for (Entry<String, List<String>> childTable : tableColumns.entrySet()) {
+        if (childTable == headerTable) continue;
+
+        List<Object[]> childRows = new ArrayList<>();
+        for (int recordIndex : upsertedRecordIndexes) {
+          List<Object[]> recordChildRows = rowsByRecord.get(recordIndex).get(childTable.getKey());
+          if (recordChildRows != null) childRows.addAll(recordChildRows);
+        }
+        upsert(
+            connection,
+            childTable.getKey(),
+            childTable.getValue(),
+            childRows,
+            null,
+            updateExisting);
+      }
+    }
+
+    return loadActions;
+  }
+
+  /**
+   * @param recordIndexes the indexes of the records to be upserted
+   * @param headerRows the parent table row for each record
+   * @param headerIdIndex the index of the primary key column in the parent table rows
+   * @return the specified record indexes, split into rounds such that no round has more than one
+   *     record with the same primary key, and with each record in the same round as (or a later
+   *     round than) any earlier records
+   */
+  private static List<List<Integer>> splitIntoRounds(
+      List<Integer> recordIndexes, List<Object[]> headerRows, int headerIdIndex) {
+    List<List<Integer>> rounds = new ArrayList<>();
+    Map<String, Integer> occurrencesById = new HashMap<>();
+    for (int recordIndex : recordIndexes) {
+      String recordId = String.valueOf(headerRows.get(recordIndex)[headerIdIndex]);
+      int occurrence = occurrencesById.merge(recordId, 1, Integer::sum) - 1;
+      if (rounds.size() <= occurrence) rounds.add(new ArrayList<>());
+      rounds.get(occurrence).add(recordIndex);
+    }
+    return rounds;
+  }
+
+  /**
+   * Finds the {@link RifFileType#BENEFICIARY_HISTORY} records that aren't already stored, by
+   * comparing the natural keys of the specified rows to those of the already-stored rows for the
+   * same beneficiaries.
+   *
+   * @param connection the JDBC {@link Connection} to use
+   * @param tableName the name of the SQL table to check
+   * @param columnNames the (correctly ordered) SQL column names of the specified rows
+   * @param rows the rows to check
+   * @return the indexes of those of the specified rows that aren't already stored, excluding any
+   *     that duplicate an earlier row
+   * @throws SQLException Any {@link SQLException}s encountered will be bubbled up.
+   */
+  private static List<Integer> findAbsentBeneficiaryHistories(
+      Connection connection, String tableName, List<String> columnNames, List<Object[]> rows)
+      throws SQLException {
+    List<Integer> keyColumnIndexes = new ArrayList<>();
+    for (int columnIndex = 0; columnIndex < columnNames.size(); columnIndex++) {
+      if (!BENEFICIARY_HISTORY_NON_KEY_COLUMNS.contains(columnNames.get(columnIndex)))
+        keyColumnIndexes.add(columnIndex);
+    }
+    int beneficiaryIdIndex = columnNames.indexOf(BENEFICIARY_HISTORY_BENEFICIARY_ID_COLUMN);
+
+    Set<String> beneficiaryIds = new LinkedHashSet<>();
+    for (Object[] row : rows) beneficiaryIds.add(String.valueOf(row[beneficiaryIdIndex]));
+
+    StringBuilder sql = new StringBuilder("SELECT ");
+    for (int keyIndex = 0; keyIndex < keyColumnIndexes.size(); keyIndex++) {
+      if (keyIndex > 0) sql.append(", ");
+      sql.append('"').append(columnNames.get(keyColumnIndexes.get(keyIndex))).append('"');
+    }
+    sql.append(" FROM \"").append(tableName).append("\" WHERE \"");
+    sql.append(BENEFICIARY_HISTORY_BENEFICIARY_ID_COLUMN).append("\" = ANY (?)");
+
+    // Natural keys are compared via their SQL text representations.
+    Set<List<String>> storedKeys = new HashSet<>();
+    try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+      statement.setArray(1, connection.createArrayOf("varchar", beneficiaryIds.toArray()));
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          List<String> storedKey = new ArrayList<>(keyColumnIndexes.size());
+          for (int keyIndex = 0; keyIndex < keyColumnIndexes.size(); keyIndex++)
+            storedKey.add(resultSet.getString(keyIndex + 1));
+          storedKeys.add(storedKey);
+        }
+      }
+    }
+
+    List<Integer> absentRowIndexes = new ArrayList<>();
+    for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+      List<String> rowKey = new ArrayList<>(keyColumnIndexes.size());
+      for (int columnIndex : keyColumnIndexes) {
+        Object value = toJdbcValue(rows.get(rowIndex)[columnIndex]);
+        rowKey.add(value != null ? value.toString() : null);
+      }
+      if (storedKeys.add(rowKey)) absentRowIndexes.add(rowIndex);
+    }
+    return absentRowIndexes;
+  }
+
+  /**
+   * Runs as many multi-row <code>INSERT ... ON CONFLICT</code> statements as are needed to upsert
+   * the specified rows.
+   *
+   * @param connection the JDBC {@link Connection} to use
+   * @param tableName the name of the SQL table to upsert into
+   * @param columnNames the (correctly ordered) SQL column names of the specified rows
+   * @param rows the rows to upsert
+   * @param returningColumn the SQL column to return the values of for each upserted row, or <code>
+   *     null</code> if nothing needs to be returned
+   * @param updateExisting <code>true</code> if already-present rows should be updated where they've
+   *     changed (if the table is in {@link #UPDATABLE_TABLE_KEYS}), <code>false</code> if they
+   *     should be left alone
+   * @return the {@link String} values of the specified returning column for each row that was
+   *     actually inserted or updated, mapped to <code>true</code> if it was inserted or <code>false
+   *     </code> if it was updated, or an empty {@link Map} if that column was <code>null</code>
+   * @throws SQLException Any {@link SQLException}s encountered will be bubbled up.
+   */
+  private static Map<String, Boolean> upsert(
+      Connection connection,
+      String tableName,
+      List<String> columnNames,
+      List<Object[]> rows,
+      String returningColumn,
+      boolean updateExisting)
+      throws SQLException {
+    Map<String, Boolean> returnedValues = new HashMap<>();
+    int rowsPerStatement = Math.max(1, MAX_BIND_PARAMETERS / columnNames.size());
+
+    for (int chunkStart = 0; chunkStart < rows.size(); chunkStart += rowsPerStatement) {
+      List<Object[]> chunk =
+          rows.subList(chunkStart, Math.min(rows.size(), chunkStart + rowsPerStatement));
+      String sql =
+          createUpsertSql(tableName, columnNames, chunk.size(), returningColumn, updateExisting);
+
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        int parameterIndex = 1;
+        for (Object[] row : chunk) {
+          for (Object value : row) {
+            statement.setObject(parameterIndex++, toJdbcValue(value));
+          }
+        }
+
+        if (returningColumn != null) {
+          try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next())
+              returnedValues.put(resultSet.getString(1), resultSet.getBoolean(2));
+          }
+        } else {
+          statement.executeUpdate();
+        }
+      }
+    }
+
+    return returnedValues;
+  }
+
+  /**
+   * @param tableName the name of the SQL table to upsert into
+   * @param columnNames the SQL column names to insert
+   * @param rowCount the number of rows that will be upserted
+   * @param returningColumn the SQL column to return the values of for each upserted row, or <code>
+   *     null</code> if nothing needs to be returned
+   * @param updateExisting <code>true</code> if already-present rows should be updated where they've
+   *     changed (if the table is in {@link #UPDATABLE_TABLE_KEYS}), <code>false</code> if they
+   *     should be left alone
+   * @return the multi-row <code>INSERT ... ON CONFLICT</code> SQL for the specified table, columns,
+   *     and number of rows, which (if requested) returns the specified column and whether or not
+   *     each row was inserted (rather than updated)
+   */
+  static String createUpsertSql(
+      String tableName,
+      List<String> columnNames,
+      int rowCount,
+      String returningColumn,
+      boolean updateExisting) {
+    StringBuilder sql = new StringBuilder();
+    sql.append("INSERT INTO \"").append(tableName).append("\" AS \"t\" (");
+    for (int columnIndex = 0; columnIndex < columnNames.size(); columnIndex++) {
+      if (columnIndex > 0) sql.append(", ");
+      sql.append('"').append(columnNames.get(columnIndex)).append('"');
+    }
+    sql.append(") VALUES ");
+
+    for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+      if (rowIndex > 0) sql.append(", ");
+      sql.append('(');
+      for (int columnIndex = 0; columnIndex < columnNames.size(); columnIndex++) {
+        if (columnIndex > 0) sql.append(", ");
+        sql.append('?');
+      }
+      sql.append(')');
+    }
+
+    List<String> keyColumns = updateExisting ? UPDATABLE_TABLE_KEYS.get(tableName) : null;
+    List<String> updatedColumns = new ArrayList<>();
+    if (keyColumns != null) {
+      for (String columnName : columnNames) {
+        if (!keyColumns.contains(columnName)) updatedColumns.add(columnName);
+      }
+    }
+    List<String> comparedColumns = new ArrayList<>(updatedColumns);
+    comparedColumns.remove(LAST_UPDATED_COLUMN);
+
+    if (comparedColumns.isEmpty()) {
+      sql.append(" ON CONFLICT DO NOTHING");
+    } else {
+      sql.append(" ON CONFLICT (");
+      for (int keyIndex = 0; keyIndex < keyColumns.size(); keyIndex++) {
+        if (keyIndex > 0) sql.append(", ");
+        sql.append('"').append(keyColumns.get(keyIndex)).append('"');
+      }
+      sql.append(") DO UPDATE SET ");
+      for (int columnIndex = 0; columnIndex < updatedColumns.size(); columnIndex++) {
+        if (columnIndex > 0) sql.append(", ");
+        String columnName = updatedColumns.get(columnIndex);
+        sql.append('"').append(columnName).append("\" = EXCLUDED.\"").append(columnName);
+        sql.append('"');
+      }
+
+      /*
+       * Rows that haven't changed are left alone (and so aren't returned), which keeps their
+       * lastupdated as-is and makes re-running the same update a no-op.
+       */
+      sql.append(" WHERE (");
+      for (int columnIndex = 0; columnIndex < comparedColumns.size(); columnIndex++) {
+        if (columnIndex > 0) sql.append(", ");
+        sql.append("\"t\".\"").append(comparedColumns.get(columnIndex)).append('"');
+      }
+      sql.append(") IS DISTINCT FROM (");
+      for (int columnIndex = 0; columnIndex < comparedColumns.size(); columnIndex++) {
+        if (columnIndex > 0) sql.append(", ");
+        sql.append("EXCLUDED.\"").append(comparedColumns.get(columnIndex)).append('"');
+      }
+      sql.append(')');
+    }
+
+    /*
+     * xmax is zero for a row version that hasn't been updated, deleted, or locked, and an updated
+     * row's new version has this transaction's ID as its xmax. This relies on nothing else having
+     * locked any of the rows that this statement inserted, which holds because those rows aren't
+     * yet visible to any other transaction, and this statement doesn't lock them itself.
+     */
+    if (returningColumn != null)
+      sql.append(" RETURNING \"").append(returningColumn).append("\", (xmax = 0)");
+    return sql.toString();
+  }
+
+  /**
+   * @param value a value from one of the rows produced by the generated <code>*CsvWriter</code>
+   *     classes
+   * @return the specified value, converted (if needed) to a type that PostgreSQL's JDBC driver can
+   *     bind without an explicit SQL type
+   */
+  private static Object toJdbcValue(Object value) {
+    if (value instanceof Character) return value.toString();
+    if (value instanceof LocalDate) return Date.valueOf((LocalDate) value);
+    if (value instanceof Instant) return Timestamp.from((Instant) value);
+    return value;
+  }
+}
@@ -0,0 +1,178 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.Beneficiary;
+import gov.cms.bfd.model.rif.BeneficiaryCsvWriter;
+import gov.cms.bfd.model.rif.BeneficiaryHistory;
+import gov.cms.bfd.model.rif.BeneficiaryHistoryCsvWriter;
+import gov.cms.bfd.model.rif.CarrierClaim;
+import gov.cms.bfd.model.rif.CarrierClaimCsvWriter;
+import gov.cms.bfd.model.rif.DMEClaim;
+import gov.cms.bfd.model.rif.DMEClaimCsvWriter;
+import gov.cms.bfd.model.rif.HHAClaim;
+import gov.cms.bfd.model.rif.HHAClaimCsvWriter;
+import gov.cms.bfd.model.rif.HospiceClaim;
+import gov.cms.bfd.model.rif.HospiceClaimCsvWriter;
+import gov.cms.bfd.model.rif.InpatientClaim;
+import gov.cms.bfd.model.rif.InpatientClaimCsvWriter;
+import gov.cms.bfd.model.rif.MedicareBeneficiaryIdHistory;
+import gov.cms.bfd.model.rif.MedicareBeneficiaryIdHistoryCsvWriter;
+import gov.cms.bfd.model.rif.OutpatientClaim;
+import gov.cms.bfd.model.rif.OutpatientClaimCsvWriter;
+import gov.cms.bfd.model.rif.PartDEvent;
+import gov.cms.bfd.model.rif.PartDEventCsvWriter;
+import gov.cms.bfd.model.rif.RifFileType;
+import gov.cms.bfd.model.rif.SNFClaim;
+import gov.cms.bfd.model.rif.SNFClaimCsvWriter;
+import gov.cms.bfd.sharedutils.exceptions.BadCodeMonkeyException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Provides a single place to dispatch to the generated <code>*CsvWriter</code> classes, which
+ * convert the RIF JPA entities into raw SQL table rows. This is used by the {@link RifLoader} load
+ * strategies that bypass JPA for inserts, e.g. PostgreSQL's <code>COPY</code>.
+ */
+final class RifEntityRows {
+  /** Prevents instantiation of this utility class. */
+  private RifEntityRows() {}
+
+  /**
+   * @param rifFileType the {@link RifFileType} to get the SQL tables for
+   * @return the (unquoted) names of the SQL tables that records of the specified {@link
+   *     RifFileType} are stored in, mapped to their (correctly ordered) column names, with parent
+   *     tables ordered before their children
+   */
+  static Map<String, List<String>> getTableColumns(RifFileType rifFileType) {
+    Map<String, List<String>> tableColumns = new LinkedHashMap<>();
+    switch (rifFileType) {
+      case BENEFICIARY:
+        tableColumns.put(BeneficiaryCsvWriter.HEADER_TABLE, BeneficiaryCsvWriter.HEADER_COLUMNS);
+        tableColumns.put(
+            BeneficiaryCsvWriter.BENEFICIARY_MONTHLY_TABLE,
+            BeneficiaryCsvWriter.BENEFICIARY_MONTHLY_COLUMNS);
+        break;
+      case BENEFICIARY_HISTORY:
+        tableColumns.put(
+            BeneficiaryHistoryCsvWriter.HEADER_TABLE, BeneficiaryHistoryCsvWriter.HEADER_COLUMNS);
+        break;
+      case MEDICARE_BENEFICIARY_ID_HISTORY:
+        tableColumns.put(
+            MedicareBeneficiaryIdHistoryCsvWriter.HEADER_TABLE,
+            MedicareBeneficiaryIdHistoryCsvWriter.HEADER_COLUMNS);
+        break;
+      case PDE:
+        tableColumns.put(PartDEventCsvWriter.HEADER_TABLE, PartDEventCsvWriter.HEADER_COLUMNS);
+        break;
+      case CARRIER:
+        tableColumns.put(CarrierClaimCsvWriter.HEADER_TABLE, CarrierClaimCsvWriter.HEADER_COLUMNS);
+        tableColumns.put(CarrierClaimCsvWriter.LINE_TABLE, CarrierClaimCsvWriter.LINE_COLUMNS);
+        break;
+      case DME:
+        tableColumns.put(DMEClaimCsvWriter.HEADER_TABLE, DMEClaimCsvWriter.HEADER_COLUMNS);
+        tableColumns.put(DMEClaimCsvWriter.LINE_TABLE, DMEClaimCsvWriter.LINE_COLUMNS);
+        break;
+      case HHA:
+        tableColumns.put(HHAClaimCsvWriter.HEADER_TABLE, HHAClaimCsvWriter.HEADER_COLUMNS);
+        tableColumns.put(HHAClaimCsvWriter.LINE_TABLE, HHAClaimCsvWriter.LINE_COLUMNS);
+        break;
+      case HOSPICE:
+        tableColumns.put(HospiceClaimCsvWriter.HEADER_TABLE, HospiceClaimCsvWriter.HEADER_COLUMNS);
+        tableColumns.put(HospiceClaimCsvWriter.LINE_TABLE, HospiceClaimCsvWriter.LINE_COLUMNS);
+        break;
+      case INPATIENT:
+        tableColumns.put(
+            InpatientClaimCsvWriter.HEADER_TABLE, InpatientClaimCsvWriter.HEADER_COLUMNS);
+        tableColumns.put(InpatientClaimCsvWriter.LINE_TABLE, InpatientClaimCsvWriter.LINE_COLUMNS);
+        break;
+      case OUTPATIENT:
+        tableColumns.put(
+            OutpatientClaimCsvWriter.HEADER_TABLE, OutpatientClaimCsvWriter.HEADER_COLUMNS);
+        tableColumns.put(
+            OutpatientClaimCsvWriter.LINE_TABLE, OutpatientClaimCsvWriter.LINE_COLUMNS);
+        break;
+      case SNF:
+        tableColumns.put(SNFClaimCsvWriter.HEADER_TABLE, SNFClaimCsvWriter.HEADER_COLUMNS);
+        tableColumns.put(SNFClaimCsvWriter.LINE_TABLE, SNFClaimCsvWriter.LINE_COLUMNS);
+        break;
+      default:
+        throw new BadCodeMonkeyException(
+            String.format("Unhandled %s: '%s'.", RifFileType.class, rifFileType));
+    }
+    return tableColumns;
+  }
+
+  /**
+   * @param rifFileType the {@link RifFileType} to get the primary key column for
+   * @return the name of the primary key column in the (first) {@link #getTableColumns(RifFileType)}
+   *     table for the specified {@link RifFileType}
+   */
+  static String getHeaderIdColumn(RifFileType rifFileType) {
+    switch (rifFileType) {
+      case BENEFICIARY:
+        return BeneficiaryCsvWriter.HEADER_ID_COLUMN;
+      case BENEFICIARY_HISTORY:
+        return BeneficiaryHistoryCsvWriter.HEADER_ID_COLUMN;
+      case MEDICARE_BENEFICIARY_ID_HISTORY:
+        return MedicareBeneficiaryIdHistoryCsvWriter.HEADER_ID_COLUMN;
+      case PDE:
+        return PartDEventCsvWriter.HEADER_ID_COLUMN;
+      case CARRIER:
+        return CarrierClaimCsvWriter.HEADER_ID_COLUMN;
+      case DME:
+        return DMEClaimCsvWriter.HEADER_ID_COLUMN;
+      case HHA:
+        return HHAClaimCsvWriter.HEADER_ID_COLUMN;
+      case HOSPICE:
+        return HospiceClaimCsvWriter.HEADER_ID_COLUMN;
+      case INPATIENT:
+        return InpatientClaimCsvWriter.HEADER_ID_COLUMN;
+      case OUTPATIENT:
+        return OutpatientClaimCsvWriter.HEADER_ID_COLUMN;
+      case SNF:
+        return SNFClaimCsvWriter.HEADER_ID_COLUMN;
+      default:
+        throw new BadCodeMonkeyException(
+            String.format("Unhandled %s: '%s'.", RifFileType.class, rifFileType));
+    }
+  }
+
+  /**
+   * Uses the generated <code>*CsvWriter</code> for the specified record to pass each of its SQL
+   * table rows to the specified {@link BiConsumer}: first the parent row, then each child row.
+   *
+   * <p>Note: the row arrays are reused between calls to the {@link BiConsumer}, so it must not hold
+   * on to them.
+   *
+   * @param record the {@link gov.cms.bfd.model.rif.RifRecordEvent#getRecord()} top-level entity
+   *     instance (e.g. a {@link Beneficiary}, {@link CarrierClaim}, etc.) to write out
+   * @param rowConsumer the {@link BiConsumer} to pass each SQL table name and row to
+   */
+  static void writeRows(Object record, BiConsumer<String, Object[]> rowConsumer) {
+    if (record instanceof Beneficiary) {
+      BeneficiaryCsvWriter.writeCsvRows((Beneficiary) record, rowConsumer);
+    } else if (record instanceof BeneficiaryHistory) {
+      BeneficiaryHistoryCsvWriter.writeCsvRows((BeneficiaryHistory) record, rowConsumer);
+    } else if (record instanceof MedicareBeneficiaryIdHistory) {
+      MedicareBeneficiaryIdHistoryCsvWriter.writeCsvRows(
+          (MedicareBeneficiaryIdHistory) record, rowConsumer);
+    } else if (record instanceof PartDEvent) {
+      PartDEventCsvWriter.writeCsvRows((PartDEvent) record, rowConsumer);
+    } else if (record instanceof CarrierClaim) {
+      CarrierClaimCsvWriter.writeCsvRows((CarrierClaim) record, rowConsumer);
+    } else if (record instanceof DMEClaim) {
+      DMEClaimCsvWriter.writeCsvRows((DMEClaim) record, rowConsumer);
+    } else if (record instanceof HHAClaim) {
+      HHAClaimCsvWriter.writeCsvRows((HHAClaim) record, rowConsumer);
+    } else if (record instanceof HospiceClaim) {
+      HospiceClaimCsvWriter.writeCsvRows((HospiceClaim) record, rowConsumer);
+    } else if (record instanceof InpatientClaim) {
+      InpatientClaimCsvWriter.writeCsvRows((InpatientClaim) record, rowConsumer);
+    } else if (record instanceof OutpatientClaim) {
+      OutpatientClaimCsvWriter.writeCsvRows((OutpatientClaim) record, rowConsumer);
+    } else if (record instanceof SNFClaim) {
+      SNFClaimCsvWriter.writeCsvRows((SNFClaim) record, rowConsumer);
+    } else throw new BadCodeMonkeyException();
+  }
+}
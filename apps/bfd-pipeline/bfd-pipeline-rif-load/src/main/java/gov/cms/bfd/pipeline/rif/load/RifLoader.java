@@ -1,17 +1,16 @@
 package gov.cms.bfd.pipeline.rif.load;
 
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.zaxxer.hikari.HikariDataSource;
 import com.zaxxer.hikari.pool.HikariProxyConnection;
 import gov.cms.bfd.model.rif.Beneficiary;
-import gov.cms.bfd.model.rif.BeneficiaryCsvWriter;
 import gov.cms.bfd.model.rif.BeneficiaryHistory;
+import gov.cms.bfd.model.rif.BeneficiaryHistory_;
 import gov.cms.bfd.model.rif.BeneficiaryMonthly;
 import gov.cms.bfd.model.rif.CarrierClaim;
-import gov.cms.bfd.model.rif.CarrierClaimCsvWriter;
-import gov.cms.bfd.model.rif.CarrierClaimLine;
 import gov.cms.bfd.model.rif.LoadedBatch;
 import gov.cms.bfd.model.rif.LoadedBatchBuilder;
 import gov.cms.bfd.model.rif.LoadedFile;
@@ -19,17 +18,20 @@ import gov.cms.bfd.model.rif.RecordAction;
 import gov.cms.bfd.model.rif.RifFileEvent;
 import gov.cms.bfd.model.rif.RifFileRecords;
 import gov.cms.bfd.model.rif.RifFileType;
-import gov.cms.bfd.model.rif.RifFilesEvent;
 import gov.cms.bfd.model.rif.RifRecordBase;
 import gov.cms.bfd.model.rif.RifRecordEvent;
+import gov.cms.bfd.model.rif.SamhsaFlaggedRecord;
+import gov.cms.bfd.model.rif.samhsa.SamhsaCodes;
+import gov.cms.bfd.model.rif.samhsa.SamhsaRecordMatcher;
 import gov.cms.bfd.model.rif.schema.DatabaseSchemaManager;
 import gov.cms.bfd.pipeline.rif.load.RifRecordLoadResult.LoadAction;
 import gov.cms.bfd.sharedutils.exceptions.BadCodeMonkeyException;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.sql.Connection;
@@ -38,19 +40,23 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -62,17 +68,24 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
 import javax.persistence.Persistence;
-import javax.persistence.Table;
+import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 import javax.sql.DataSource;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.hibernate.Session;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
 import org.hibernate.jdbc.Work;
+import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.tool.schema.Action;
 import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
 import org.postgresql.core.BaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,13 +95,6 @@ import org.slf4j.LoggerFactory;
  * database.
  */
 public final class RifLoader implements AutoCloseable {
-  /**
-   * The number of {@link RifRecordEvent}s that will be included in each processing batch. Note that
-   * larger batch sizes mean that more {@link RifRecordEvent}s will be held in memory
-   * simultaneously.
-   */
-  private static final int RECORD_BATCH_SIZE = 100;
-
   private static final Period MAX_FILE_AGE_DAYS = Period.ofDays(40);
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RifLoader.class);
@@ -99,8 +105,37 @@ public final class RifLoader implements AutoCloseable {
   private final LoadAppOptions options;
   private final HikariDataSource dataSource;
   private final EntityManagerFactory entityManagerFactory;
-  private final SecretKeyFactory secretKeyFactory;
+  private final IdentifierHashCache hashCache;
+  private final BatchSizeController batchSizeController;
   private final RifLoaderIdleTasks idleTasks;
+  private final boolean databaseIsPostgreSql;
+
+  /**
+   * Flags each claim as SAMHSA-related (or not) as it's loaded, so that the server can exclude
+   * those claims in the database, rather than having to transform and then check every claim.
+   */
+  private final SamhsaRecordMatcher samhsaMatcher;
+
+  /**
+   * Limits the number of batches being loaded at once, across all of the RIF files being processed
+   * concurrently (see {@link LoadTuningOptions#getMaxConcurrentFiles()}), to the number of {@link
+   * #dataSource} connections. Each file gets its own load threads, so without this, several files
+   * being loaded at once would starve each other of connections.
+   */
+  private final Semaphore loadPermits;
+
+  /**
+   * The dedicated connection pool for {@link #secondaryIndexManager}, whose rebuilds each hold a
+   * connection for a long time, or <code>null</code> if that isn't being used.
+   */
+  private final HikariDataSource secondaryIndexDataSource;
+
+  /**
+   * Drops and rebuilds the secondary indexes for index-free bulk loads (see {@link
+   * LoadTuningOptions#isIndexFreeBulkLoadEnabled()}), or <code>null</code> if there are no {@link
+   * LoadTuningOptions#getIndexRebuildThreads()} to rebuild them with.
+   */
+  private final SecondaryIndexManager secondaryIndexManager;
 
   /**
    * Constructs a new {@link RifLoader} instance.
@@ -116,10 +151,50 @@ public final class RifLoader implements AutoCloseable {
     this.dataSource = createDataSource(options, appMetrics);
     DatabaseSchemaManager.createOrUpdateSchema(dataSource);
     this.entityManagerFactory = createEntityManagerFactory(dataSource);
+    this.databaseIsPostgreSql = isDatabasePostgreSql();
 
-    this.secretKeyFactory = createSecretKeyFactory();
+    this.hashCache = new IdentifierHashCache(options, createSecretKeyFactory(), appMetrics);
+    this.batchSizeController = new BatchSizeController(options);
+    this.samhsaMatcher = new SamhsaRecordMatcher(new SamhsaCodes());
     this.idleTasks =
-        new RifLoaderIdleTasks(options, appMetrics, entityManagerFactory, secretKeyFactory);
+        new RifLoaderIdleTasks(options, appMetrics, entityManagerFactory, hashCache, samhsaMatcher);
+    this.loadPermits = new Semaphore(options.getLoaderThreads(), true);
+    this.secondaryIndexDataSource = createSecondaryIndexDataSource();
+    this.secondaryIndexManager =
+        secondaryIndexDataSource != null
+            ? new SecondaryIndexManager(
+                secondaryIndexDataSource,
+                options.getTuningOptions().getIndexRebuildThreads(),
+                options.getTuningOptions().getIndexDropMaxExistingRows(),
+                appMetrics)
+            : null;
+  }
+
+  /**
+   * @return the value to use for {@link #secondaryIndexDataSource}: <code>null</code> if index-free
+   *     bulk loads aren't enabled or aren't supported by the database
+   */
+  private HikariDataSource createSecondaryIndexDataSource() {
+    if (options.getTuningOptions().getIndexRebuildThreads() < 1) {
+      if (options.getTuningOptions().isIndexFreeBulkLoadEnabled())
+        LOGGER.warn(
+            "Index-free bulk loads were requested, but can't be used: there are no index rebuild"
+                + " threads. Leaving the indexes in place.");
+      return null;
+    }
+    if (!databaseIsPostgreSql) {
+      LOGGER.warn(
+          "Index-free bulk loads were requested, but can't be used: the database isn't"
+              + " PostgreSQL. Leaving the indexes in place.");
+      return null;
+    }
+
+    // One connection per rebuild thread, plus one for the catalog queries.
+    HikariDataSource secondaryIndexDataSource = createDataSource(options, appMetrics);
+    secondaryIndexDataSource.setPoolName(SecondaryIndexManager.class.getSimpleName());
+    secondaryIndexDataSource.setMaximumPoolSize(
+        options.getTuningOptions().getIndexRebuildThreads() + 1);
+    return secondaryIndexDataSource;
   }
 
   /**
@@ -171,8 +246,11 @@ public final class RifLoader implements AutoCloseable {
      * Paradoxically, setting it higher seems to actually slow things down.
      * Presumably, it's delaying work that could be done earlier in a batch,
      * and that starts to cost more than the extra network roundtrips.
+     *
+     * Note: RifLoader overrides this for each of its own sessions, as tuned
+     * by BatchSizeController.
      */
-    int jdbcBatchSize = 10;
+    int jdbcBatchSize = BatchSizeController.INITIAL_JDBC_BATCH_SIZE;
 
     Map<String, Object> hibernateProperties = new HashMap<>();
     hibernateProperties.put(org.hibernate.cfg.AvailableSettings.DATASOURCE, jdbcDataSource);
@@ -207,10 +285,10 @@ public final class RifLoader implements AutoCloseable {
     int taskQueueSize = 10 * threadPoolSize;
 
     LOGGER.info(
-        "Configured to load with '{}' threads, a queue of '{}', and a batch size of '{}'.",
+        "Configured to load with '{}' threads, a queue of '{}', and batches of up to '{}' records.",
         options.getLoaderThreads(),
         taskQueueSize,
-        RECORD_BATCH_SIZE);
+        options.getTuningOptions().getMaxRecordBatchSize());
 
     /*
      * I feel like a hipster using "found" code like
@@ -224,14 +302,49 @@ public final class RifLoader implements AutoCloseable {
     return loadExecutor;
   }
 
+  /**
+   * @param rifFileType the {@link RifFileType} of the records to be loaded
+   * @return the {@link BlockingThreadPoolExecutor} to use for hashing the identifiers in batches of
+   *     records before they're loaded, or <code>null</code> if the specified {@link RifFileType}
+   *     doesn't have any identifiers that need hashing
+   */
+  private static BlockingThreadPoolExecutor createHashExecutor(RifFileType rifFileType) {
+    if (rifFileType != RifFileType.BENEFICIARY && rifFileType != RifFileType.BENEFICIARY_HISTORY)
+      return null;
+
+    /*
+     * Hashing is purely CPU-bound, so there's no point in having more threads for it than there
+     * are cores. Doing it here, ahead of the load threads, means that the load threads (and their
+     * DB connections) spend their time on database I/O, rather than waiting on hashing.
+     */
+    int threadPoolSize = Runtime.getRuntime().availableProcessors();
+    int taskQueueSize = 2 * threadPoolSize;
+    LOGGER.info(
+        "Configured to hash with '{}' threads and a queue of '{}'.", threadPoolSize, taskQueueSize);
+
+    return new BlockingThreadPoolExecutor(
+        threadPoolSize, taskQueueSize, 100, TimeUnit.MILLISECONDS);
+  }
+
   /**
    * @param recordAction the {@link RecordAction} of the specific record being processed
+   * @param rifFileType the {@link RifFileType} of the specific record being processed
+   * @param copyAvailable <code>true</code> if a {@link PostgreSqlCopyInserter} is available for the
+   *     record being processed, <code>false</code> if not
    * @return the {@link LoadStrategy} that should be used for the record being processed
    */
-  private LoadStrategy selectStrategy(RecordAction recordAction) {
+  private LoadStrategy selectStrategy(
+      RecordAction recordAction, RifFileType rifFileType, boolean copyAvailable) {
     if (recordAction == RecordAction.INSERT) {
-      if (options.isIdempotencyRequired()) return LoadStrategy.INSERT_IDEMPOTENT;
+      if (options.isIdempotencyRequired() && databaseIsPostgreSql)
+        return LoadStrategy.INSERT_IDEMPOTENT_UPSERT;
+      else if (options.isIdempotencyRequired()) return LoadStrategy.INSERT_IDEMPOTENT;
+      else if (copyAvailable) return LoadStrategy.INSERT_COPY;
       else return LoadStrategy.INSERT_UPDATE_NON_IDEMPOTENT;
+    } else if (options.isIdempotencyRequired()
+        && databaseIsPostgreSql
+        && rifFileType == RifFileType.BENEFICIARY) {
+      return LoadStrategy.UPDATE_IDEMPOTENT_UPSERT;
     } else {
       return LoadStrategy.INSERT_UPDATE_NON_IDEMPOTENT;
     }
@@ -264,8 +377,28 @@ public final class RifLoader implements AutoCloseable {
     return result.get();
   }
 
-  /** Do the idle tasks on the database. */
+  /**
+   * Drops the secondary indexes and foreign keys of the beneficiary and claim tables, if index-free
+   * bulk loads are enabled (see {@link LoadTuningOptions#isIndexFreeBulkLoadEnabled()}), the tables
+   * are still small enough (see {@link LoadTuningOptions#getIndexDropMaxExistingRows()}), and a
+   * rebuild of them isn't still running. Otherwise, does nothing. They'll be rebuilt in the
+   * background by {@link #doIdleTask()}, once there's nothing left to load.
+   */
+  public void dropSecondaryIndexes() {
+    if (secondaryIndexManager == null) return;
+    if (!options.getTuningOptions().isIndexFreeBulkLoadEnabled()) return;
+
+    secondaryIndexManager.dropAllForBulkLoad();
+  }
+
+  /**
+   * Do the idle tasks on the database. If index-free bulk loads are enabled, these first start the
+   * background rebuild of any secondary indexes that are missing (which can take hours), and then
+   * wait for it to finish before doing anything else. This never blocks on the rebuild.
+   */
   public void doIdleTask() {
+    if (secondaryIndexManager != null && !secondaryIndexManager.checkRebuild()) return;
+
     idleTasks.doIdleTask();
   }
 
@@ -290,7 +423,9 @@ public final class RifLoader implements AutoCloseable {
       RifFileRecords dataToLoad,
       Consumer<Throwable> errorHandler,
       Consumer<RifRecordLoadResult> resultHandler) {
+    RifFileType rifFileType = dataToLoad.getSourceEvent().getFile().getFileType();
     BlockingThreadPoolExecutor loadExecutor = createLoadExecutor(options);
+    BlockingThreadPoolExecutor hashExecutor = createHashExecutor(rifFileType);
 
     MetricRegistry fileEventMetrics = dataToLoad.getSourceEvent().getEventMetrics();
     Timer.Context timerDataSetFile =
@@ -323,15 +458,70 @@ public final class RifLoader implements AutoCloseable {
                 return loadExecutor.getActiveCount();
               }
             });
+    dataToLoad
+        .getSourceEvent()
+        .getEventMetrics()
+        .register(
+            MetricRegistry.name(getClass().getSimpleName(), "batchSizes", "records"),
+            new Gauge<Integer>() {
+              /** @see com.codahale.metrics.Gauge#getValue() */
+              @Override
+              public Integer getValue() {
+                return batchSizeController.getRecordBatchSize(rifFileType);
+              }
+            });
+    dataToLoad
+        .getSourceEvent()
+        .getEventMetrics()
+        .register(
+            MetricRegistry.name(getClass().getSimpleName(), "batchSizes", "jdbc"),
+            new Gauge<Integer>() {
+              /** @see com.codahale.metrics.Gauge#getValue() */
+              @Override
+              public Integer getValue() {
+                return batchSizeController.getJdbcBatchSize(rifFileType);
+              }
+            });
+    if (hashExecutor != null)
+      dataToLoad
+          .getSourceEvent()
+          .getEventMetrics()
+          .register(
+              MetricRegistry.name(getClass().getSimpleName(), "hashExecutorService", "queueSize"),
+              new Gauge<Integer>() {
+                /** @see com.codahale.metrics.Gauge#getValue() */
+                @Override
+                public Integer getValue() {
+                  return hashExecutor.getQueue().size();
+                }
+              });
 
     // Trim the LoadedFiles & LoadedBatches table
     trimLoadedFiles(errorHandler);
 
+    /*
+     * Find the records (if any) that were committed by previous attempts to load this same file,
+     * so that those can be skipped. Must be done before this attempt's LoadedFile is inserted.
+     */
+    LoadedRecordRanges loadedRanges;
+    try {
+      loadedRanges = findLoadedRecordRanges(dataToLoad.getSourceEvent());
+    } catch (Exception e) {
+      errorHandler.accept(e);
+      return;
+    }
+    if (!loadedRanges.isEmpty())
+      LOGGER.info(
+          "Resuming '{}': '{}' records were already loaded by previous attempts.",
+          dataToLoad,
+          loadedRanges.getLoadedCount());
+
     // Insert a LoadedFiles entry
     final long loadedFileId = insertLoadedFile(dataToLoad.getSourceEvent(), errorHandler);
     if (loadedFileId < 0) {
       return; // Something went wrong, the error handler was called.
     }
+    BeneficiaryFilterBuilder beneficiaryFilter = new BeneficiaryFilterBuilder(loadedFileId);
 
     /*
      * Design history note: Initially, this function just returned a stream
@@ -345,61 +535,130 @@ public final class RifLoader implements AutoCloseable {
      * always run in a consistent manner.
      */
 
-    try (PostgreSqlCopyInserter postgresBatch =
-        new PostgreSqlCopyInserter(entityManagerFactory, fileEventMetrics)) {
-      // Define the Consumer that will handle each batch.
-      Consumer<List<RifRecordEvent<?>>> batchProcessor =
-          recordsBatch -> {
-            /*
-             * Submit the RifRecordEvent for asynchronous processing. Note
-             * that, due to the ExecutorService's configuration (see in
-             * constructor), this will block if too many tasks are already
-             * pending. That's desirable behavior, as it prevents
-             * OutOfMemoryErrors.
-             */
+    /*
+     * When enabled, brand new records will be streamed into the database via PostgreSQL's COPY,
+     * one batch at a time, rather than being INSERTed one at a time via JPA. That's only safe when
+     * the caller has told us that the records can't already be in the database.
+     */
+    boolean copyLoadEnabled =
+        options.getTuningOptions().isCopyLoadEnabled()
+            && !options.isIdempotencyRequired()
+            && databaseIsPostgreSql;
+    if (options.getTuningOptions().isCopyLoadEnabled() && !copyLoadEnabled)
+      LOGGER.warn(
+          "PostgreSQL COPY loads were requested, but can't be used: idempotency is required or the"
+              + " database isn't PostgreSQL. Falling back to regular inserts.");
+
+    // Keep track of whether any batch failed, as the file then isn't completely loaded.
+    AtomicBoolean anyBatchFailed = new AtomicBoolean(false);
+    Consumer<Throwable> batchErrorHandler =
+        e -> {
+          anyBatchFailed.set(true);
+          errorHandler.accept(e);
+        };
+
+    // Tracks the offset (within the file) of the first record in each batch.
+    AtomicLong nextRecordOffset = new AtomicLong(dataToLoad.getFirstRecordOffset());
+    Meter skippedRecordsMeter =
+        fileEventMetrics.meter(
+            MetricRegistry.name(getClass().getSimpleName(), "records", "skipped"));
+
+    // Define the Consumer that will handle each batch.
+    Consumer<List<RifRecordEvent<?>>> batchProcessor =
+        recordsBatch -> {
+          long batchOffset = nextRecordOffset.getAndAdd(recordsBatch.size());
+
+          /*
+           * Submit the RifRecordEvent for asynchronous processing. Note
+           * that, due to the ExecutorService's configuration (see in
+           * constructor), this will block if too many tasks are already
+           * pending. That's desirable behavior, as it prevents
+           * OutOfMemoryErrors.
+           */
+          if (loadedRanges.isEmpty()) {
             processAsync(
+                hashExecutor,
                 loadExecutor,
                 recordsBatch,
-                loadedFileId,
-                postgresBatch,
+                batchOffset,
+                beneficiaryFilter,
+                copyLoadEnabled,
                 resultHandler,
-                errorHandler);
-          };
-
-      // Collect records into batches and submit each to batchProcessor.
-      if (RECORD_BATCH_SIZE > 1)
-        BatchSpliterator.batches(dataToLoad.getRecords(), RECORD_BATCH_SIZE)
-            .forEach(batchProcessor);
-      else
-        dataToLoad
-            .getRecords()
-            .map(
-                record -> {
-                  List<RifRecordEvent<?>> ittyBittyBatch = new LinkedList<>();
-                  ittyBittyBatch.add(record);
-                  return ittyBittyBatch;
-                })
-            .forEach(batchProcessor);
+                batchErrorHandler);
+            return;
+          }
 
-      // Wait for all submitted batches to complete.
-      try {
-        loadExecutor.shutdown();
-        boolean terminatedSuccessfully = loadExecutor.awaitTermination(72, TimeUnit.HOURS);
-        if (!terminatedSuccessfully)
+          /*
+           * Otherwise, skip over the records that a previous attempt already loaded, and submit
+           * each run of not-yet-loaded records as its own batch, so that each LoadedBatch still
+           * covers a contiguous range of records.
+           */
+          int runStart = -1;
+          for (int i = 0; i <= recordsBatch.size(); i++) {
+            boolean loaded = i == recordsBatch.size() || loadedRanges.isLoaded(batchOffset + i);
+            if (!loaded && runStart < 0) {
+              runStart = i;
+            } else if (loaded && runStart >= 0) {
+              processAsync(
+                  hashExecutor,
+                  loadExecutor,
+                  new ArrayList<>(recordsBatch.subList(runStart, i)),
+                  batchOffset + runStart,
+                  beneficiaryFilter,
+                  copyLoadEnabled,
+                  resultHandler,
+                  batchErrorHandler);
+              runStart = -1;
+            }
+            if (loaded && i < recordsBatch.size()) skippedRecordsMeter.mark();
+          }
+        };
+
+    /*
+     * Collect records into batches and submit each to batchProcessor. The batch size is checked
+     * again for each batch, as BatchSizeController tunes it while the file is being loaded.
+     */
+    BatchSpliterator.batches(
+            dataToLoad.getRecords(), () -> batchSizeController.getRecordBatchSize(rifFileType))
+        .forEach(batchProcessor);
+
+    // Wait for all submitted batches to complete (hashing first, as it feeds the loading).
+    try {
+      if (hashExecutor != null) {
+        hashExecutor.shutdown();
+        boolean hashingTerminated = hashExecutor.awaitTermination(72, TimeUnit.HOURS);
+        if (!hashingTerminated)
           throw new IllegalStateException(
               String.format(
-                  "%s failed to complete processing the records in time: '%s'.",
+                  "%s failed to complete hashing the records in time: '%s'.",
                   this.getClass().getSimpleName(), dataToLoad));
-      } catch (InterruptedException e) {
-        // Interrupts should not be used on this thread, so go boom.
-        throw new RuntimeException(e);
       }
 
-      // Submit the queued PostgreSQL COPY operations, if any.
-      if (!postgresBatch.isEmpty()) {
-        postgresBatch.submit();
-      }
+      loadExecutor.shutdown();
+      boolean terminatedSuccessfully = loadExecutor.awaitTermination(72, TimeUnit.HOURS);
+      if (!terminatedSuccessfully)
+        throw new IllegalStateException(
+            String.format(
+                "%s failed to complete processing the records in time: '%s'.",
+                this.getClass().getSimpleName(), dataToLoad));
+    } catch (InterruptedException e) {
+      // Interrupts should not be used on this thread, so go boom.
+      throw new RuntimeException(e);
+    }
+
+    /*
+     * Publish the file's final Bloom filter, which covers all of the batches that were committed,
+     * and record that the file is done, so that later loads of it won't try to resume from this
+     * attempt.
+     */
+    try {
+      publishBeneficiaryFilter(beneficiaryFilter, true);
+    } catch (Exception e) {
+      errorHandler.accept(e);
     }
+    if (anyBatchFailed.get())
+      LOGGER.warn("Not marking '{}' completed, as some of its batches failed to load.", dataToLoad);
+    else completeLoadedFile(loadedFileId, errorHandler);
 
     LOGGER.info("Processed '{}'.", dataToLoad);
     timerDataSetFile.stop();
@@ -408,26 +667,73 @@ public final class RifLoader implements AutoCloseable {
   }
 
   /**
+   * @param hashExecutor the {@link BlockingThreadPoolExecutor} to use for asynchronously hashing
+   *     the batch's identifiers before it's loaded, or <code>null</code> if no hashing is needed
    * @param loadExecutor the {@link BlockingThreadPoolExecutor} to use for asynchronous load tasks
    * @param recordsBatch the {@link RifRecordEvent}s to process
-   * @param loadedFileBuilder the builder for the {@LoadedFiled} associated with this batch
-   * @param postgresBatch the {@link PostgreSqlCopyInserter} for the current set of {@link
-   *     RifFilesEvent}s being processed
+   * @param recordOffset the (zero-based) offset of the batch's first record within its RIF file
+   * @param beneficiaryFilter the {@link BeneficiaryFilterBuilder} for the {@link LoadedFile} that
+   *     this batch is from
+   * @param copyLoadEnabled <code>true</code> if new records should be inserted via a {@link
+   *     PostgreSqlCopyInserter}, <code>false</code> if not
    * @param resultHandler the {@link Consumer} to notify when the batch completes successfully
    * @param errorHandler the {@link Consumer} to notify when the batch fails for any reason
    */
   private void processAsync(
+      BlockingThreadPoolExecutor hashExecutor,
       BlockingThreadPoolExecutor loadExecutor,
       List<RifRecordEvent<?>> recordsBatch,
-      long loadedFileId,
-      PostgreSqlCopyInserter postgresBatch,
+      long recordOffset,
+      BeneficiaryFilterBuilder beneficiaryFilter,
+      boolean copyLoadEnabled,
       Consumer<RifRecordLoadResult> resultHandler,
       Consumer<Throwable> errorHandler) {
+    if (hashExecutor != null) {
+      /*
+       * Once hashed, hand the batch off to the load threads. That submission will block (this
+       * hashing thread) if too many load tasks are already pending, which in turn will block the
+       * caller, once the hashing queue fills up.
+       */
+      hashExecutor.submit(
+          () -> {
+            try {
+              hashIdentifiers(recordsBatch);
+              processAsync(
+                  null,
+                  loadExecutor,
+                  recordsBatch,
+                  recordOffset,
+                  beneficiaryFilter,
+                  copyLoadEnabled,
+                  resultHandler,
+                  errorHandler);
+            } catch (Throwable e) {
+              errorHandler.accept(e);
+            }
+          });
+      return;
+    }
+
     loadExecutor.submit(
         () -> {
           try {
-            List<RifRecordLoadResult> processResults =
-                process(recordsBatch, loadedFileId, postgresBatch);
+            List<RifRecordLoadResult> processResults;
+            acquireLoadPermit();
+            try {
+              processResults =
+                  process(recordsBatch, recordOffset, beneficiaryFilter, copyLoadEnabled);
+
+              // Every so often, publish the file's filter so far (while this permit's still held).
+              if (beneficiaryFilter.claimPublish()) {
+                try {
+                  publishBeneficiaryFilter(beneficiaryFilter, false);
+                } catch (Exception e) {
+                  LOGGER.warn("Failed to publish a beneficiary filter; will try again.", e);
+                }
+              }
+            } finally {
+              loadPermits.release();
+            }
             processResults.forEach(resultHandler::accept);
           } catch (Throwable e) {
             errorHandler.accept(e);
@@ -435,35 +741,40 @@ public final class RifLoader implements AutoCloseable {
         });
   }
 
+  /**
+   * Blocks until one of the {@link #loadPermits} is available, and then takes it. Callers must
+   * {@link Semaphore#release()} it once they're done with their database connection.
+   */
+  private void acquireLoadPermit() {
+    if (loadPermits.tryAcquire()) return;
+
+    Timer.Context timerWaiting =
+        appMetrics
+            .timer(MetricRegistry.name(getClass().getSimpleName(), "waitingForLoadPermits"))
+            .time();
+    loadPermits.acquireUninterruptibly();
+    timerWaiting.stop();
+  }
+
   /**
    * @param recordsBatch the {@link RifRecordEvent}s to process
-   * @param loadedFileBuilder the builder for the {@LoadedFile} associated with this batch
-   * @param postgresBatch the {@link PostgreSqlCopyInserter} for the current set of {@link
-   *     RifFilesEvent}s being processed
+   * @param recordOffset the (zero-based) offset of the batch's first record within its RIF file
+   * @param beneficiaryFilter the {@link BeneficiaryFilterBuilder} for the {@link LoadedFile} that
+   *     this batch is from
+   * @param copyLoadEnabled <code>true</code> if new records should be inserted via a {@link
+   *     PostgreSqlCopyInserter}, <code>false</code> if not
    * @return the {@link RifRecordLoadResult}s that model the results of the operation
    */
   private List<RifRecordLoadResult> process(
       List<RifRecordEvent<?>> recordsBatch,
-      long loadedFileId,
-      PostgreSqlCopyInserter postgresBatch) {
+      long recordOffset,
+      BeneficiaryFilterBuilder beneficiaryFilter,
+      boolean copyLoadEnabled) {
     RifFileEvent fileEvent = recordsBatch.get(0).getFileEvent();
     MetricRegistry fileEventMetrics = fileEvent.getEventMetrics();
 
     RifFileType rifFileType = fileEvent.getFile().getFileType();
 
-    // If these are Beneficiary records, first hash their HICNs.
-    if (rifFileType == RifFileType.BENEFICIARY) {
-      for (RifRecordEvent<?> rifRecordEvent : recordsBatch) {
-        hashBeneficiaryHicn(fileEventMetrics, rifRecordEvent);
-        hashBeneficiaryMbi(fileEventMetrics, rifRecordEvent);
-      }
-    } else if (rifFileType == RifFileType.BENEFICIARY_HISTORY) {
-      for (RifRecordEvent<?> rifRecordEvent : recordsBatch) {
-        hashBeneficiaryHistoryHicn(fileEventMetrics, rifRecordEvent);
-        hashBeneficiaryHistoryMbi(fileEventMetrics, rifRecordEvent);
-      }
-    }
-
     // Only one of each failure/success Timer.Contexts will be applied.
     Timer.Context timerBatchSuccess =
         appMetrics.timer(MetricRegistry.name(getClass().getSimpleName(), "recordBatches")).time();
@@ -478,22 +789,34 @@ public final class RifLoader implements AutoCloseable {
             .timer(MetricRegistry.name(getClass().getSimpleName(), "recordBatches", "failed"))
             .time();
 
+    /*
+     * Dev Note: All timestamps of records in the batch and the LoadedBatch must be the same for data consistency.
+     * The timestamp from the LoadedBatchBuilder is used.
+     */
+    LoadedBatchBuilder loadedBatchBuilder =
+        beneficiaryFilter.startBatch(recordOffset, recordsBatch.size());
+    boolean committed = false;
+
     EntityManager entityManager = null;
     EntityTransaction txn = null;
 
     // TODO: refactor the following to be less of an indented mess
     try {
       entityManager = entityManagerFactory.createEntityManager();
+      entityManager
+          .unwrap(Session.class)
+          .setJdbcBatchSize(batchSizeController.getJdbcBatchSize(rifFileType));
+      long transactionStart = System.nanoTime();
       txn = entityManager.getTransaction();
       txn.begin();
       List<RifRecordLoadResult> loadResults = new ArrayList<>(recordsBatch.size());
 
-      /*
-       * Dev Note: All timestamps of records in the batch and the LoadedBatch must be the same for data consistency.
-       * The timestamp from the LoadedBatchBuilder is used.
-       */
-      LoadedBatchBuilder loadedBatchBuilder =
-          new LoadedBatchBuilder(loadedFileId, recordsBatch.size());
+      Map<String, Beneficiary> beneficiariesFromDb =
+          prefetchBeneficiaries(entityManager, fileEventMetrics, recordsBatch, copyLoadEnabled);
+      PostgreSqlCopyInserter postgresBatch =
+          copyLoadEnabled ? new PostgreSqlCopyInserter(fileEventMetrics, rifFileType) : null;
+      List<RifRecordEvent<?>> upsertRecordEvents = new ArrayList<>();
+      List<RifRecordEvent<?>> upsertUpdateRecordEvents = new ArrayList<>();
       for (RifRecordEvent<?> rifRecordEvent : recordsBatch) {
         RecordAction recordAction = rifRecordEvent.getRecordAction();
         RifRecordBase record = rifRecordEvent.getRecord();
@@ -503,43 +826,111 @@ public final class RifLoader implements AutoCloseable {
         // Set lastUpdated to the same value for the whole batch
         record.setLastUpdated(loadedBatchBuilder.getTimestamp());
 
+        if (record instanceof SamhsaFlaggedRecord) {
+          SamhsaFlaggedRecord claim = (SamhsaFlaggedRecord) record;
+          Timer.Context timerSamhsa =
+              fileEventMetrics
+                  .timer(MetricRegistry.name(getClass().getSimpleName(), "samhsaFlagging"))
+                  .time();
+          try {
+            claim.setSamhsaRelated(samhsaMatcher.test(claim));
+          } finally {
+            timerSamhsa.close();
+          }
+        }
+
         // Associate the beneficiary with this file loaded
         loadedBatchBuilder.associateBeneficiary(rifRecordEvent.getBeneficiaryId());
 
-        LoadStrategy strategy = selectStrategy(recordAction);
+        LoadStrategy strategy = selectStrategy(recordAction, rifFileType, copyLoadEnabled);
         LoadAction loadAction;
 
         boolean recordsIsBeneficiary = (record instanceof Beneficiary) ? true : false;
 
-        if (strategy == LoadStrategy.INSERT_IDEMPOTENT) {
+        if (strategy == LoadStrategy.INSERT_IDEMPOTENT_UPSERT) {
+          /*
+           * These records are all inserted together via a set-based upsert, once the rest of the
+           * batch has been processed, so their LoadActions aren't known until then. Anything that
+           * JPA would normally take care of for us on persist() has to be handled here, instead.
+           */
+          if (recordsIsBeneficiary) {
+            Beneficiary beneficiaryRecord = (Beneficiary) record;
+            beneficiaryRecord.setBeneficiaryMonthlys(createBeneficiaryMonthlys(beneficiaryRecord));
+          } else if (record instanceof BeneficiaryHistory) {
+            generateIdentifier(entityManager, record);
+          }
+
+          upsertRecordEvents.add(rifRecordEvent);
+          continue;
+        } else if (strategy == LoadStrategy.UPDATE_IDEMPOTENT_UPSERT) {
+          /*
+           * As above, except that already-stored beneficiaries are updated, and only if they've
+           * actually changed, so that re-running an update is a no-op. When their identifiers
+           * have changed, their previous state is captured as a BeneficiaryHistory record, just
+           * like the INSERT_UPDATE_NON_IDEMPOTENT strategy does.
+           */
+          Beneficiary beneficiaryRecord = (Beneficiary) record;
+          updateBeneficaryHistory(
+              entityManager,
+              beneficiariesFromDb.get(rifRecordEvent.getBeneficiaryId()),
+              beneficiaryRecord,
+              loadedBatchBuilder.getTimestamp());
+          beneficiaryRecord.setBeneficiaryMonthlys(createBeneficiaryMonthlys(beneficiaryRecord));
+
+          upsertUpdateRecordEvents.add(rifRecordEvent);
+          continue;
+        } else if (strategy == LoadStrategy.INSERT_IDEMPOTENT) {
           // Check to see if record already exists.
           Timer.Context timerIdempotencyQuery =
               fileEventMetrics
                   .timer(MetricRegistry.name(getClass().getSimpleName(), "idempotencyQueries"))
                   .time();
-          Object recordId = entityManagerFactory.getPersistenceUnitUtil().getIdentifier(record);
-          Objects.requireNonNull(recordId);
-          Object recordInDb = entityManager.find(record.getClass(), recordId);
+          boolean recordInDb;
+          if (record instanceof BeneficiaryHistory) {
+            // These only have a generated ID, so have to be matched on their other fields.
+            recordInDb = isBeneficiaryHistoryPresent(entityManager, (BeneficiaryHistory) record);
+          } else {
+            Object recordId = entityManagerFactory.getPersistenceUnitUtil().getIdentifier(record);
+            Objects.requireNonNull(recordId);
+            recordInDb = entityManager.find(record.getClass(), recordId) != null;
+          }
           timerIdempotencyQuery.close();
 
-          if (recordInDb == null) {
+          if (!recordInDb) {
             loadAction = LoadAction.INSERTED;
 
             if (recordsIsBeneficiary) {
-              updateBeneficiaryMonthly(entityManager, (Beneficiary) record);
+              updateBeneficiaryMonthly(
+                  beneficiariesFromDb.get(rifRecordEvent.getBeneficiaryId()), (Beneficiary) record);
             }
 
             entityManager.persist(record);
-            Object recordInDbAfterUpdate = entityManager.find(record.getClass(), recordId);
           } else {
             loadAction = LoadAction.DID_NOTHING;
           }
+        } else if (strategy == LoadStrategy.INSERT_COPY) {
+          /*
+           * The record won't actually be in the database until the PostgreSqlCopyInserter is
+           * submitted, just before this batch's transaction is committed. Anything that JPA would
+           * normally take care of for us on persist() has to be handled here, instead.
+           */
+          loadAction = LoadAction.INSERTED;
+
+          if (recordsIsBeneficiary) {
+            Beneficiary beneficiaryRecord = (Beneficiary) record;
+            beneficiaryRecord.setBeneficiaryMonthlys(createBeneficiaryMonthlys(beneficiaryRecord));
+          } else if (record instanceof BeneficiaryHistory) {
+            generateIdentifier(entityManager, record);
+          }
+
+          postgresBatch.add(record);
         } else if (strategy == LoadStrategy.INSERT_UPDATE_NON_IDEMPOTENT) {
           if (rifRecordEvent.getRecordAction().equals(RecordAction.INSERT)) {
             loadAction = LoadAction.INSERTED;
 
             if (recordsIsBeneficiary) {
-              updateBeneficiaryMonthly(entityManager, (Beneficiary) record);
+              updateBeneficiaryMonthly(
+                  beneficiariesFromDb.get(rifRecordEvent.getBeneficiaryId()), (Beneficiary) record);
             }
 
             entityManager.persist(record);
@@ -552,9 +943,14 @@ public final class RifLoader implements AutoCloseable {
              * current/previous state as a BeneficiaryHistory record.
              */
             if (recordsIsBeneficiary) {
+              Beneficiary beneficiaryFromDb =
+                  beneficiariesFromDb.get(rifRecordEvent.getBeneficiaryId());
               updateBeneficaryHistory(
-                  entityManager, (Beneficiary) record, loadedBatchBuilder.getTimestamp());
-              updateBeneficiaryMonthly(entityManager, (Beneficiary) record);
+                  entityManager,
+                  beneficiaryFromDb,
+                  (Beneficiary) record,
+                  loadedBatchBuilder.getTimestamp());
+              updateBeneficiaryMonthly(beneficiaryFromDb, (Beneficiary) record);
             }
 
             entityManager.merge(record);
@@ -574,22 +970,45 @@ public final class RifLoader implements AutoCloseable {
 
         loadResults.add(new RifRecordLoadResult(rifRecordEvent, loadAction));
       }
+      if (!upsertRecordEvents.isEmpty()) {
+        loadResults.addAll(
+            upsertRecords(entityManager, fileEventMetrics, rifFileType, upsertRecordEvents, false));
+      }
+      if (!upsertUpdateRecordEvents.isEmpty()) {
+        loadResults.addAll(
+            upsertRecords(
+                entityManager, fileEventMetrics, rifFileType, upsertUpdateRecordEvents, true));
+      }
+      if (postgresBatch != null && !postgresBatch.isEmpty()) {
+        postgresBatch.submit(entityManager);
+      }
       LoadedBatch loadedBatch = loadedBatchBuilder.build();
       entityManager.persist(loadedBatch);
 
+      long commitStart = System.nanoTime();
       txn.commit();
+      long commitEnd = System.nanoTime();
+      committed = true;
+      beneficiaryFilter.batchCommitted(loadedBatch);
 
-      // Update the metrics now that things have been pushed.
+      // Update the metrics (and batch sizes) now that things have been pushed.
       timerBatchSuccess.stop();
       timerBatchTypeSuccess.stop();
+      fileEventMetrics
+          .timer(MetricRegistry.name(getClass().getSimpleName(), "commits", rifFileType.name()))
+          .update(commitEnd - commitStart, TimeUnit.NANOSECONDS);
+      batchSizeController.batchCompleted(
+          rifFileType, recordsBatch.size(), commitEnd - transactionStart, commitEnd - commitStart);
 
       return loadResults;
     } catch (Throwable t) {
+      if (!committed) beneficiaryFilter.batchFailed(loadedBatchBuilder);
       timerBundleFailure.stop();
       fileEventMetrics
           .meter(MetricRegistry.name(getClass().getSimpleName(), "recordBatches", "failed"))
           .mark(1);
       LOGGER.warn("Failed to load '{}' record.", rifFileType, t);
+      batchSizeController.batchFailed(rifFileType);
 
       throw new RifLoadFailure(recordsBatch, t);
     } finally {
@@ -615,310 +1034,484 @@ public final class RifLoader implements AutoCloseable {
   }
 
   /**
-   * Ensures that a {@link BeneficiaryMonthly} record is created or updated for the specified {@link
-   * Beneficiary}, if that {@link Beneficiary} already exists and is just being updated.
+   * Upserts the specified records via {@link PostgreSqlUpserter}, as part of the specified {@link
+   * EntityManager}'s current transaction.
+   *
+   * @param entityManager the {@link EntityManager} to use
+   * @param fileEventMetrics the {@link MetricRegistry} for the {@link RifFileEvent} being processed
+   * @param rifFileType the {@link RifFileType} of the records being processed
+   * @param upsertRecordEvents the {@link RifRecordEvent}s to insert
+   * @param updateExisting <code>true</code> if any of the specified records that are already stored
+   *     should be updated (where they've changed), <code>false</code> if they should be left alone
+   * @return the {@link RifRecordLoadResult}s that model the results of the operation
+   */
+  private List<RifRecordLoadResult> upsertRecords(
+      EntityManager entityManager,
+      MetricRegistry fileEventMetrics,
+      RifFileType rifFileType,
+      List<RifRecordEvent<?>> upsertRecordEvents,
+      boolean updateExisting) {
+    List<Object> records =
+        upsertRecordEvents.stream().map(e -> e.getRecord()).collect(Collectors.toList());
+
+    Timer.Context timerUpsert =
+        fileEventMetrics
+            .timer(MetricRegistry.name(getClass().getSimpleName(), "upsertStatements"))
+            .time();
+    Session session = entityManager.unwrap(Session.class);
+    LoadAction[] loadActions =
+        session.doReturningWork(
+            connection ->
+                PostgreSqlUpserter.upsert(connection, rifFileType, records, updateExisting));
+    timerUpsert.close();
+
+    List<RifRecordLoadResult> loadResults = new ArrayList<>(upsertRecordEvents.size());
+    for (int recordIndex = 0; recordIndex < upsertRecordEvents.size(); recordIndex++) {
+      LoadAction loadAction = loadActions[recordIndex];
+      fileEventMetrics
+          .meter(MetricRegistry.name(getClass().getSimpleName(), "records", loadAction.name()))
+          .mark(1);
+      loadResults.add(new RifRecordLoadResult(upsertRecordEvents.get(recordIndex), loadAction));
+    }
+    return loadResults;
+  }
+
+  /**
+   * Loads all of the already-stored {@link Beneficiary}s (along with their {@link
+   * Beneficiary#getBeneficiaryMonthlys()}) that the specified batch might need to update, via a
+   * single query. Those end up in the {@link EntityManager}'s persistence context, so later lookups
+   * of them (e.g. by {@link EntityManager#find(Class, Object)} or {@link
+   * EntityManager#merge(Object)}) won't require any further round trips to the database.
    *
    * @param entityManager the {@link EntityManager} to use
-   * @param loadAction the {@link Loadaction} record being processed
+   * @param fileEventMetrics the {@link MetricRegistry} for the {@link RifFileEvent} being processed
+   * @param recordsBatch the {@link RifRecordEvent}s being processed
+   * @param copyAvailable whether or not a {@link PostgreSqlCopyInserter} is available for the batch
+   * @return the already-stored {@link Beneficiary}s for the batch, keyed by {@link
+   *     Beneficiary#getBeneficiaryId()}, which will be empty if the batch isn't for {@link
+   *     Beneficiary}s that need them
+   */
+  private Map<String, Beneficiary> prefetchBeneficiaries(
+      EntityManager entityManager,
+      MetricRegistry fileEventMetrics,
+      List<RifRecordEvent<?>> recordsBatch,
+      boolean copyAvailable) {
+    /*
+     * Only the strategies that might look at the already-stored record need it: the insert upsert
+     * and COPY ones build their BeneficiaryMonthly records without consulting the database.
+     */
+    Set<String> beneficiaryIds = new HashSet<>();
+    for (RifRecordEvent<?> rifRecordEvent : recordsBatch) {
+      if (!(rifRecordEvent.getRecord() instanceof Beneficiary)) continue;
+      LoadStrategy strategy =
+          selectStrategy(rifRecordEvent.getRecordAction(), RifFileType.BENEFICIARY, copyAvailable);
+      if (strategy == LoadStrategy.INSERT_IDEMPOTENT
+          || strategy == LoadStrategy.UPDATE_IDEMPOTENT_UPSERT
+          || strategy == LoadStrategy.INSERT_UPDATE_NON_IDEMPOTENT)
+        beneficiaryIds.add(rifRecordEvent.getBeneficiaryId());
+    }
+    if (beneficiaryIds.isEmpty()) return Collections.emptyMap();
+
+    Timer.Context timerPrefetch =
+        fileEventMetrics
+            .timer(MetricRegistry.name(getClass().getSimpleName(), "beneficiaryPrefetches"))
+            .time();
+    List<Beneficiary> beneficiaries =
+        entityManager
+            .createQuery(
+                "select distinct b from Beneficiary b left join fetch b.beneficiaryMonthlys"
+                    + " where b.beneficiaryId in :ids",
+                Beneficiary.class)
+            .setParameter("ids", beneficiaryIds)
+            .getResultList();
+    timerPrefetch.close();
+
+    Map<String, Beneficiary> beneficiariesById = new HashMap<>();
+    for (Beneficiary beneficiary : beneficiaries)
+      beneficiariesById.put(beneficiary.getBeneficiaryId(), beneficiary);
+    return beneficiariesById;
+  }
+
+  /**
+   * Ensures that a {@link BeneficiaryMonthly} record is created or updated for the specified {@link
+   * Beneficiary}, if that {@link Beneficiary} already exists and is just being updated. Any of the
+   * already-stored {@link BeneficiaryMonthly} records for the enrollment year that haven't changed
+   * are kept as-is, so that only the changed ones will need to be written.
+   *
+   * @param beneficiaryFromDb the already-stored version of the {@link Beneficiary} record being
+   *     processed, or <code>null</code> if there isn't one
    * @param beneficiaryRecord the {@link Beneficiary} record being processed
    */
-  private static void updateBeneficiaryMonthly(
-      EntityManager entityManager, Beneficiary beneficiaryRecord) {
+  static void updateBeneficiaryMonthly(
+      Beneficiary beneficiaryFromDb, Beneficiary beneficiaryRecord) {
 
     if (beneficiaryRecord.getBeneEnrollmentReferenceYear().isPresent()) {
 
       int year = beneficiaryRecord.getBeneEnrollmentReferenceYear().get().intValue();
-      List<BeneficiaryMonthly> currentYearBeneficiaryMonthly = new ArrayList<BeneficiaryMonthly>();
+      List<BeneficiaryMonthly> currentYearBeneficiaryMonthly =
+          createBeneficiaryMonthlys(beneficiaryRecord);
 
-      BeneficiaryMonthly beneficiaryMonthly =
-          getBeneficiaryMonthly(
-              beneficiaryRecord,
-              LocalDate.of(year, 1, 1),
-              beneficiaryRecord.getEntitlementBuyInJanInd(),
-              beneficiaryRecord.getFipsStateCntyJanCode(),
-              beneficiaryRecord.getHmoIndicatorJanInd(),
-              beneficiaryRecord.getMedicaidDualEligibilityJanCode(),
-              beneficiaryRecord.getMedicareStatusJanCode(),
-              beneficiaryRecord.getPartCContractNumberJanId(),
-              beneficiaryRecord.getPartCPbpNumberJanId(),
-              beneficiaryRecord.getPartCPlanTypeJanCode(),
-              beneficiaryRecord.getPartDContractNumberJanId(),
-              beneficiaryRecord.getPartDLowIncomeCostShareGroupJanCode(),
-              beneficiaryRecord.getPartDPbpNumberJanId(),
-              beneficiaryRecord.getPartDRetireeDrugSubsidyJanInd(),
-              beneficiaryRecord.getPartDSegmentNumberJanId());
-
-      if (beneficiaryMonthly != null) {
-        currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
-      }
+      if (currentYearBeneficiaryMonthly.size() > 0) {
+        List<BeneficiaryMonthly> currentBeneficiaryMonthlyWithUpdates =
+            new LinkedList<BeneficiaryMonthly>();
+        Map<LocalDate, BeneficiaryMonthly> currentYearBeneficiaryMonthlyPrevious = new HashMap<>();
 
-      beneficiaryMonthly =
-          getBeneficiaryMonthly(
-              beneficiaryRecord,
-              LocalDate.of(year, 2, 1),
-              beneficiaryRecord.getEntitlementBuyInFebInd(),
-              beneficiaryRecord.getFipsStateCntyFebCode(),
-              beneficiaryRecord.getHmoIndicatorFebInd(),
-              beneficiaryRecord.getMedicaidDualEligibilityFebCode(),
-              beneficiaryRecord.getMedicareStatusFebCode(),
-              beneficiaryRecord.getPartCContractNumberFebId(),
-              beneficiaryRecord.getPartCPbpNumberFebId(),
-              beneficiaryRecord.getPartCPlanTypeFebCode(),
-              beneficiaryRecord.getPartDContractNumberFebId(),
-              beneficiaryRecord.getPartDLowIncomeCostShareGroupFebCode(),
-              beneficiaryRecord.getPartDPbpNumberFebId(),
-              beneficiaryRecord.getPartDRetireeDrugSubsidyFebInd(),
-              beneficiaryRecord.getPartDSegmentNumberFebId());
-
-      if (beneficiaryMonthly != null) {
-        currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
-      }
+        // TODO enforce RIF invariant elsewhere: no repeats of same record/PK in same RIF file
+        // allowed
+        if (beneficiaryFromDb != null) {
+          for (BeneficiaryMonthly previousEnrollment : beneficiaryFromDb.getBeneficiaryMonthlys()) {
+            if (year == previousEnrollment.getYearMonth().getYear())
+              currentYearBeneficiaryMonthlyPrevious.put(
+                  previousEnrollment.getYearMonth(), previousEnrollment);
+            else currentBeneficiaryMonthlyWithUpdates.add(previousEnrollment);
+          }
+        }
 
-      beneficiaryMonthly =
-          getBeneficiaryMonthly(
-              beneficiaryRecord,
-              LocalDate.of(year, 3, 1),
-              beneficiaryRecord.getEntitlementBuyInMarInd(),
-              beneficiaryRecord.getFipsStateCntyMarCode(),
-              beneficiaryRecord.getHmoIndicatorMarInd(),
-              beneficiaryRecord.getMedicaidDualEligibilityMarCode(),
-              beneficiaryRecord.getMedicareStatusMarCode(),
-              beneficiaryRecord.getPartCContractNumberMarId(),
-              beneficiaryRecord.getPartCPbpNumberMarId(),
-              beneficiaryRecord.getPartCPlanTypeMarCode(),
-              beneficiaryRecord.getPartDContractNumberMarId(),
-              beneficiaryRecord.getPartDLowIncomeCostShareGroupMarCode(),
-              beneficiaryRecord.getPartDPbpNumberMarId(),
-              beneficiaryRecord.getPartDRetireeDrugSubsidyMarInd(),
-              beneficiaryRecord.getPartDSegmentNumberMarId());
-
-      if (beneficiaryMonthly != null) {
-        currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
-      }
+        for (BeneficiaryMonthly enrollment : currentYearBeneficiaryMonthly) {
+          BeneficiaryMonthly previousEnrollment =
+              currentYearBeneficiaryMonthlyPrevious.get(enrollment.getYearMonth());
+          if (previousEnrollment != null
+              && isBeneficiaryMonthlyEqual(enrollment, previousEnrollment))
+            currentBeneficiaryMonthlyWithUpdates.add(previousEnrollment);
+          else currentBeneficiaryMonthlyWithUpdates.add(enrollment);
+        }
 
-      beneficiaryMonthly =
-          getBeneficiaryMonthly(
-              beneficiaryRecord,
-              LocalDate.of(year, 4, 1),
-              beneficiaryRecord.getEntitlementBuyInAprInd(),
-              beneficiaryRecord.getFipsStateCntyAprCode(),
-              beneficiaryRecord.getHmoIndicatorAprInd(),
-              beneficiaryRecord.getMedicaidDualEligibilityAprCode(),
-              beneficiaryRecord.getMedicareStatusAprCode(),
-              beneficiaryRecord.getPartCContractNumberAprId(),
-              beneficiaryRecord.getPartCPbpNumberAprId(),
-              beneficiaryRecord.getPartCPlanTypeAprCode(),
-              beneficiaryRecord.getPartDContractNumberAprId(),
-              beneficiaryRecord.getPartDLowIncomeCostShareGroupAprCode(),
-              beneficiaryRecord.getPartDPbpNumberAprId(),
-              beneficiaryRecord.getPartDRetireeDrugSubsidyAprInd(),
-              beneficiaryRecord.getPartDSegmentNumberAprId());
-
-      if (beneficiaryMonthly != null) {
-        currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
+        beneficiaryRecord.setBeneficiaryMonthlys(currentBeneficiaryMonthlyWithUpdates);
       }
+    }
+  }
 
-      beneficiaryMonthly =
-          getBeneficiaryMonthly(
-              beneficiaryRecord,
-              LocalDate.of(year, 5, 1),
-              beneficiaryRecord.getEntitlementBuyInMayInd(),
-              beneficiaryRecord.getFipsStateCntyMayCode(),
-              beneficiaryRecord.getHmoIndicatorMayInd(),
-              beneficiaryRecord.getMedicaidDualEligibilityMayCode(),
-              beneficiaryRecord.getMedicareStatusMayCode(),
-              beneficiaryRecord.getPartCContractNumberMayId(),
-              beneficiaryRecord.getPartCPbpNumberMayId(),
-              beneficiaryRecord.getPartCPlanTypeMayCode(),
-              beneficiaryRecord.getPartDContractNumberMayId(),
-              beneficiaryRecord.getPartDLowIncomeCostShareGroupMayCode(),
-              beneficiaryRecord.getPartDPbpNumberMayId(),
-              beneficiaryRecord.getPartDRetireeDrugSubsidyMayInd(),
-              beneficiaryRecord.getPartDSegmentNumberMayId());
-
-      if (beneficiaryMonthly != null) {
-        currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
-      }
-      beneficiaryMonthly =
-          getBeneficiaryMonthly(
-              beneficiaryRecord,
-              LocalDate.of(year, 6, 1),
-              beneficiaryRecord.getEntitlementBuyInJunInd(),
-              beneficiaryRecord.getFipsStateCntyJunCode(),
-              beneficiaryRecord.getHmoIndicatorJunInd(),
-              beneficiaryRecord.getMedicaidDualEligibilityJunCode(),
-              beneficiaryRecord.getMedicareStatusJunCode(),
-              beneficiaryRecord.getPartCContractNumberJunId(),
-              beneficiaryRecord.getPartCPbpNumberJunId(),
-              beneficiaryRecord.getPartCPlanTypeJunCode(),
-              beneficiaryRecord.getPartDContractNumberJunId(),
-              beneficiaryRecord.getPartDLowIncomeCostShareGroupJunCode(),
-              beneficiaryRecord.getPartDPbpNumberJunId(),
-              beneficiaryRecord.getPartDRetireeDrugSubsidyJunInd(),
-              beneficiaryRecord.getPartDSegmentNumberJunId());
-
-      if (beneficiaryMonthly != null) {
-        currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
-      }
+  /**
+   * @param newBeneficiaryMonthly the new {@link BeneficiaryMonthly} record being processed
+   * @param oldBeneficiaryMonthly the {@link BeneficiaryMonthly} old record that was processed
+   * @return <code>true</code> if the two {@link BeneficiaryMonthly} records are for the same month
+   *     and have the same enrollment data, <code>false</code> if they do not
+   */
+  static boolean isBeneficiaryMonthlyEqual(
+      BeneficiaryMonthly newBeneficiaryMonthly, BeneficiaryMonthly oldBeneficiaryMonthly) {
+    return newBeneficiaryMonthly.getYearMonth().equals(oldBeneficiaryMonthly.getYearMonth())
+        && newBeneficiaryMonthly
+            .getEntitlementBuyInInd()
+            .equals(oldBeneficiaryMonthly.getEntitlementBuyInInd())
+        && newBeneficiaryMonthly
+            .getFipsStateCntyCode()
+            .equals(oldBeneficiaryMonthly.getFipsStateCntyCode())
+        && newBeneficiaryMonthly
+            .getHmoIndicatorInd()
+            .equals(oldBeneficiaryMonthly.getHmoIndicatorInd())
+        && newBeneficiaryMonthly
+            .getMedicaidDualEligibilityCode()
+            .equals(oldBeneficiaryMonthly.getMedicaidDualEligibilityCode())
+        && newBeneficiaryMonthly
+            .getMedicareStatusCode()
+            .equals(oldBeneficiaryMonthly.getMedicareStatusCode())
+        && newBeneficiaryMonthly
+            .getPartCContractNumberId()
+            .equals(oldBeneficiaryMonthly.getPartCContractNumberId())
+        && newBeneficiaryMonthly
+            .getPartCPbpNumberId()
+            .equals(oldBeneficiaryMonthly.getPartCPbpNumberId())
+        && newBeneficiaryMonthly
+            .getPartCPlanTypeCode()
+            .equals(oldBeneficiaryMonthly.getPartCPlanTypeCode())
+        && newBeneficiaryMonthly
+            .getPartDContractNumberId()
+            .equals(oldBeneficiaryMonthly.getPartDContractNumberId())
+        && newBeneficiaryMonthly
+            .getPartDLowIncomeCostShareGroupCode()
+            .equals(oldBeneficiaryMonthly.getPartDLowIncomeCostShareGroupCode())
+        && newBeneficiaryMonthly
+            .getPartDPbpNumberId()
+            .equals(oldBeneficiaryMonthly.getPartDPbpNumberId())
+        && newBeneficiaryMonthly
+            .getPartDRetireeDrugSubsidyInd()
+            .equals(oldBeneficiaryMonthly.getPartDRetireeDrugSubsidyInd())
+        && newBeneficiaryMonthly
+            .getPartDSegmentNumberId()
+            .equals(oldBeneficiaryMonthly.getPartDSegmentNumberId());
+  }
 
-      beneficiaryMonthly =
-          getBeneficiaryMonthly(
-              beneficiaryRecord,
-              LocalDate.of(year, 7, 1),
-              beneficiaryRecord.getEntitlementBuyInJulInd(),
-              beneficiaryRecord.getFipsStateCntyJulCode(),
-              beneficiaryRecord.getHmoIndicatorJulInd(),
-              beneficiaryRecord.getMedicaidDualEligibilityJulCode(),
-              beneficiaryRecord.getMedicareStatusJulCode(),
-              beneficiaryRecord.getPartCContractNumberJulId(),
-              beneficiaryRecord.getPartCPbpNumberJulId(),
-              beneficiaryRecord.getPartCPlanTypeJulCode(),
-              beneficiaryRecord.getPartDContractNumberJulId(),
-              beneficiaryRecord.getPartDLowIncomeCostShareGroupJulCode(),
-              beneficiaryRecord.getPartDPbpNumberJulId(),
-              beneficiaryRecord.getPartDRetireeDrugSubsidyJulInd(),
-              beneficiaryRecord.getPartDSegmentNumberJulId());
-
-      if (beneficiaryMonthly != null) {
-        currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
-      }
+  /**
+   * Builds the {@link BeneficiaryMonthly} records for each month of the specified {@link
+   * Beneficiary}'s {@link Beneficiary#getBeneEnrollmentReferenceYear()} that it has enrollment data
+   * for. The database is not consulted: the caller is responsible for merging these with any
+   * previously-stored records, as needed.
+   *
+   * @param beneficiaryRecord the {@link Beneficiary} record being processed
+   * @return the {@link BeneficiaryMonthly} records for the specified {@link Beneficiary}, which
+   *     will be empty if it has no enrollment reference year
+   */
+  static List<BeneficiaryMonthly> createBeneficiaryMonthlys(Beneficiary beneficiaryRecord) {
+    List<BeneficiaryMonthly> currentYearBeneficiaryMonthly = new ArrayList<BeneficiaryMonthly>();
+    if (!beneficiaryRecord.getBeneEnrollmentReferenceYear().isPresent())
+      return currentYearBeneficiaryMonthly;
+
+    int year = beneficiaryRecord.getBeneEnrollmentReferenceYear().get().intValue();
+
+    BeneficiaryMonthly beneficiaryMonthly =
+        getBeneficiaryMonthly(
+            beneficiaryRecord,
+            LocalDate.of(year, 1, 1),
+            beneficiaryRecord.getEntitlementBuyInJanInd(),
+            beneficiaryRecord.getFipsStateCntyJanCode(),
+            beneficiaryRecord.getHmoIndicatorJanInd(),
+            beneficiaryRecord.getMedicaidDualEligibilityJanCode(),
+            beneficiaryRecord.getMedicareStatusJanCode(),
+            beneficiaryRecord.getPartCContractNumberJanId(),
+            beneficiaryRecord.getPartCPbpNumberJanId(),
+            beneficiaryRecord.getPartCPlanTypeJanCode(),
+            beneficiaryRecord.getPartDContractNumberJanId(),
+            beneficiaryRecord.getPartDLowIncomeCostShareGroupJanCode(),
+            beneficiaryRecord.getPartDPbpNumberJanId(),
+            beneficiaryRecord.getPartDRetireeDrugSubsidyJanInd(),
+            beneficiaryRecord.getPartDSegmentNumberJanId());
+
+    if (beneficiaryMonthly != null) {
+      currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
+    }
 
-      beneficiaryMonthly =
-          getBeneficiaryMonthly(
-              beneficiaryRecord,
-              LocalDate.of(year, 8, 1),
-              beneficiaryRecord.getEntitlementBuyInAugInd(),
-              beneficiaryRecord.getFipsStateCntyAugCode(),
-              beneficiaryRecord.getHmoIndicatorAugInd(),
-              beneficiaryRecord.getMedicaidDualEligibilityAugCode(),
-              beneficiaryRecord.getMedicareStatusAugCode(),
-              beneficiaryRecord.getPartCContractNumberAugId(),
-              beneficiaryRecord.getPartCPbpNumberAugId(),
-              beneficiaryRecord.getPartCPlanTypeAugCode(),
-              beneficiaryRecord.getPartDContractNumberAugId(),
-              beneficiaryRecord.getPartDLowIncomeCostShareGroupAugCode(),
-              beneficiaryRecord.getPartDPbpNumberAugId(),
-              beneficiaryRecord.getPartDRetireeDrugSubsidyAugInd(),
-              beneficiaryRecord.getPartDSegmentNumberAugId());
-
-      if (beneficiaryMonthly != null) {
-        currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
-      }
+    beneficiaryMonthly =
+        getBeneficiaryMonthly(
+            beneficiaryRecord,
+            LocalDate.of(year, 2, 1),
+            beneficiaryRecord.getEntitlementBuyInFebInd(),
+            beneficiaryRecord.getFipsStateCntyFebCode(),
+            beneficiaryRecord.getHmoIndicatorFebInd(),
+            beneficiaryRecord.getMedicaidDualEligibilityFebCode(),
+            beneficiaryRecord.getMedicareStatusFebCode(),
+            beneficiaryRecord.getPartCContractNumberFebId(),
+            beneficiaryRecord.getPartCPbpNumberFebId(),
+            beneficiaryRecord.getPartCPlanTypeFebCode(),
+            beneficiaryRecord.getPartDContractNumberFebId(),
+            beneficiaryRecord.getPartDLowIncomeCostShareGroupFebCode(),
+            beneficiaryRecord.getPartDPbpNumberFebId(),
+            beneficiaryRecord.getPartDRetireeDrugSubsidyFebInd(),
+            beneficiaryRecord.getPartDSegmentNumberFebId());
+
+    if (beneficiaryMonthly != null) {
+      currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
+    }
 
-      beneficiaryMonthly =
-          getBeneficiaryMonthly(
-              beneficiaryRecord,
-              LocalDate.of(year, 9, 1),
-              beneficiaryRecord.getEntitlementBuyInSeptInd(),
-              beneficiaryRecord.getFipsStateCntySeptCode(),
-              beneficiaryRecord.getHmoIndicatorSeptInd(),
-              beneficiaryRecord.getMedicaidDualEligibilitySeptCode(),
-              beneficiaryRecord.getMedicareStatusSeptCode(),
-              beneficiaryRecord.getPartCContractNumberSeptId(),
-              beneficiaryRecord.getPartCPbpNumberSeptId(),
-              beneficiaryRecord.getPartCPlanTypeSeptCode(),
-              beneficiaryRecord.getPartDContractNumberSeptId(),
-              beneficiaryRecord.getPartDLowIncomeCostShareGroupSeptCode(),
-              beneficiaryRecord.getPartDPbpNumberSeptId(),
-              beneficiaryRecord.getPartDRetireeDrugSubsidySeptInd(),
-              beneficiaryRecord.getPartDSegmentNumberSeptId());
-
-      if (beneficiaryMonthly != null) {
-        currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
-      }
+    beneficiaryMonthly =
+        getBeneficiaryMonthly(
+            beneficiaryRecord,
+            LocalDate.of(year, 3, 1),
+            beneficiaryRecord.getEntitlementBuyInMarInd(),
+            beneficiaryRecord.getFipsStateCntyMarCode(),
+            beneficiaryRecord.getHmoIndicatorMarInd(),
+            beneficiaryRecord.getMedicaidDualEligibilityMarCode(),
+            beneficiaryRecord.getMedicareStatusMarCode(),
+            beneficiaryRecord.getPartCContractNumberMarId(),
+            beneficiaryRecord.getPartCPbpNumberMarId(),
+            beneficiaryRecord.getPartCPlanTypeMarCode(),
+            beneficiaryRecord.getPartDContractNumberMarId(),
+            beneficiaryRecord.getPartDLowIncomeCostShareGroupMarCode(),
+            beneficiaryRecord.getPartDPbpNumberMarId(),
+            beneficiaryRecord.getPartDRetireeDrugSubsidyMarInd(),
+            beneficiaryRecord.getPartDSegmentNumberMarId());
+
+    if (beneficiaryMonthly != null) {
+      currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
+    }
 
-      beneficiaryMonthly =
-          getBeneficiaryMonthly(
-              beneficiaryRecord,
-              LocalDate.of(year, 10, 1),
-              beneficiaryRecord.getEntitlementBuyInOctInd(),
-              beneficiaryRecord.getFipsStateCntyOctCode(),
-              beneficiaryRecord.getHmoIndicatorOctInd(),
-              beneficiaryRecord.getMedicaidDualEligibilityOctCode(),
-              beneficiaryRecord.getMedicareStatusOctCode(),
-              beneficiaryRecord.getPartCContractNumberOctId(),
-              beneficiaryRecord.getPartCPbpNumberOctId(),
-              beneficiaryRecord.getPartCPlanTypeOctCode(),
-              beneficiaryRecord.getPartDContractNumberOctId(),
-              beneficiaryRecord.getPartDLowIncomeCostShareGroupOctCode(),
-              beneficiaryRecord.getPartDPbpNumberOctId(),
-              beneficiaryRecord.getPartDRetireeDrugSubsidyOctInd(),
-              beneficiaryRecord.getPartDSegmentNumberOctId());
-
-      if (beneficiaryMonthly != null) {
-        currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
-      }
+    beneficiaryMonthly =
+        getBeneficiaryMonthly(
+            beneficiaryRecord,
+            LocalDate.of(year, 4, 1),
+            beneficiaryRecord.getEntitlementBuyInAprInd(),
+            beneficiaryRecord.getFipsStateCntyAprCode(),
+            beneficiaryRecord.getHmoIndicatorAprInd(),
+            beneficiaryRecord.getMedicaidDualEligibilityAprCode(),
+            beneficiaryRecord.getMedicareStatusAprCode(),
+            beneficiaryRecord.getPartCContractNumberAprId(),
+            beneficiaryRecord.getPartCPbpNumberAprId(),
+            beneficiaryRecord.getPartCPlanTypeAprCode(),
+            beneficiaryRecord.getPartDContractNumberAprId(),
+            beneficiaryRecord.getPartDLowIncomeCostShareGroupAprCode(),
+            beneficiaryRecord.getPartDPbpNumberAprId(),
+            beneficiaryRecord.getPartDRetireeDrugSubsidyAprInd(),
+            beneficiaryRecord.getPartDSegmentNumberAprId());
+
+    if (beneficiaryMonthly != null) {
+      currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
+    }
 
-      beneficiaryMonthly =
-          getBeneficiaryMonthly(
-              beneficiaryRecord,
-              LocalDate.of(year, 11, 1),
-              beneficiaryRecord.getEntitlementBuyInNovInd(),
-              beneficiaryRecord.getFipsStateCntyNovCode(),
-              beneficiaryRecord.getHmoIndicatorNovInd(),
-              beneficiaryRecord.getMedicaidDualEligibilityNovCode(),
-              beneficiaryRecord.getMedicareStatusNovCode(),
-              beneficiaryRecord.getPartCContractNumberNovId(),
-              beneficiaryRecord.getPartCPbpNumberNovId(),
-              beneficiaryRecord.getPartCPlanTypeNovCode(),
-              beneficiaryRecord.getPartDContractNumberNovId(),
-              beneficiaryRecord.getPartDLowIncomeCostShareGroupNovCode(),
-              beneficiaryRecord.getPartDPbpNumberNovId(),
-              beneficiaryRecord.getPartDRetireeDrugSubsidyNovInd(),
-              beneficiaryRecord.getPartDSegmentNumberNovId());
-
-      if (beneficiaryMonthly != null) {
-        currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
-      }
+    beneficiaryMonthly =
+        getBeneficiaryMonthly(
+            beneficiaryRecord,
+            LocalDate.of(year, 5, 1),
+            beneficiaryRecord.getEntitlementBuyInMayInd(),
+            beneficiaryRecord.getFipsStateCntyMayCode(),
+            beneficiaryRecord.getHmoIndicatorMayInd(),
+            beneficiaryRecord.getMedicaidDualEligibilityMayCode(),
+            beneficiaryRecord.getMedicareStatusMayCode(),
+            beneficiaryRecord.getPartCContractNumberMayId(),
+            beneficiaryRecord.getPartCPbpNumberMayId(),
+            beneficiaryRecord.getPartCPlanTypeMayCode(),
+            beneficiaryRecord.getPartDContractNumberMayId(),
+            beneficiaryRecord.getPartDLowIncomeCostShareGroupMayCode(),
+            beneficiaryRecord.getPartDPbpNumberMayId(),
+            beneficiaryRecord.getPartDRetireeDrugSubsidyMayInd(),
+            beneficiaryRecord.getPartDSegmentNumberMayId());
+
+    if (beneficiaryMonthly != null) {
+      currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
+    }
+    beneficiaryMonthly =
+        getBeneficiaryMonthly(
+            beneficiaryRecord,
+            LocalDate.of(year, 6, 1),
+            beneficiaryRecord.getEntitlementBuyInJunInd(),
+            beneficiaryRecord.getFipsStateCntyJunCode(),
+            beneficiaryRecord.getHmoIndicatorJunInd(),
+            beneficiaryRecord.getMedicaidDualEligibilityJunCode(),
+            beneficiaryRecord.getMedicareStatusJunCode(),
+            beneficiaryRecord.getPartCContractNumberJunId(),
+            beneficiaryRecord.getPartCPbpNumberJunId(),
+            beneficiaryRecord.getPartCPlanTypeJunCode(),
+            beneficiaryRecord.getPartDContractNumberJunId(),
+            beneficiaryRecord.getPartDLowIncomeCostShareGroupJunCode(),
+            beneficiaryRecord.getPartDPbpNumberJunId(),
+            beneficiaryRecord.getPartDRetireeDrugSubsidyJunInd(),
+            beneficiaryRecord.getPartDSegmentNumberJunId());
+
+    if (beneficiaryMonthly != null) {
+      currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
+    }
 
-      beneficiaryMonthly =
-          getBeneficiaryMonthly(
-              beneficiaryRecord,
-              LocalDate.of(year, 12, 1),
-              beneficiaryRecord.getEntitlementBuyInDecInd(),
-              beneficiaryRecord.getFipsStateCntyDecCode(),
-              beneficiaryRecord.getHmoIndicatorDecInd(),
-              beneficiaryRecord.getMedicaidDualEligibilityDecCode(),
-              beneficiaryRecord.getMedicareStatusDecCode(),
-              beneficiaryRecord.getPartCContractNumberDecId(),
-              beneficiaryRecord.getPartCPbpNumberDecId(),
-              beneficiaryRecord.getPartCPlanTypeDecCode(),
-              beneficiaryRecord.getPartDContractNumberDecId(),
-              beneficiaryRecord.getPartDLowIncomeCostShareGroupDecCode(),
-              beneficiaryRecord.getPartDPbpNumberDecId(),
-              beneficiaryRecord.getPartDRetireeDrugSubsidyDecInd(),
-              beneficiaryRecord.getPartDSegmentNumberDecId());
-
-      if (beneficiaryMonthly != null) {
-        currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
-      }
+    beneficiaryMonthly =
+        getBeneficiaryMonthly(
+            beneficiaryRecord,
+            LocalDate.of(year, 7, 1),
+            beneficiaryRecord.getEntitlementBuyInJulInd(),
+            beneficiaryRecord.getFipsStateCntyJulCode(),
+            beneficiaryRecord.getHmoIndicatorJulInd(),
+            beneficiaryRecord.getMedicaidDualEligibilityJulCode(),
+            beneficiaryRecord.getMedicareStatusJulCode(),
+            beneficiaryRecord.getPartCContractNumberJulId(),
+            beneficiaryRecord.getPartCPbpNumberJulId(),
+            beneficiaryRecord.getPartCPlanTypeJulCode(),
+            beneficiaryRecord.getPartDContractNumberJulId(),
+            beneficiaryRecord.getPartDLowIncomeCostShareGroupJulCode(),
+            beneficiaryRecord.getPartDPbpNumberJulId(),
+            beneficiaryRecord.getPartDRetireeDrugSubsidyJulInd(),
+            beneficiaryRecord.getPartDSegmentNumberJulId());
+
+    if (beneficiaryMonthly != null) {
+      currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
+    }
 
-      if (currentYearBeneficiaryMonthly.size() > 0) {
-        List<BeneficiaryMonthly> currentBeneficiaryMonthlyWithUpdates;
+    beneficiaryMonthly =
+        getBeneficiaryMonthly(
+            beneficiaryRecord,
+            LocalDate.of(year, 8, 1),
+            beneficiaryRecord.getEntitlementBuyInAugInd(),
+            beneficiaryRecord.getFipsStateCntyAugCode(),
+            beneficiaryRecord.getHmoIndicatorAugInd(),
+            beneficiaryRecord.getMedicaidDualEligibilityAugCode(),
+            beneficiaryRecord.getMedicareStatusAugCode(),
+            beneficiaryRecord.getPartCContractNumberAugId(),
+            beneficiaryRecord.getPartCPbpNumberAugId(),
+            beneficiaryRecord.getPartCPlanTypeAugCode(),
+            beneficiaryRecord.getPartDContractNumberAugId(),
+            beneficiaryRecord.getPartDLowIncomeCostShareGroupAugCode(),
+            beneficiaryRecord.getPartDPbpNumberAugId(),
+            beneficiaryRecord.getPartDRetireeDrugSubsidyAugInd(),
+            beneficiaryRecord.getPartDSegmentNumberAugId());
+
+    if (beneficiaryMonthly != null) {
+      currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
+    }
 
-        // TODO enforce RIF invariant elsewhere: no repeats of same record/PK in same RIF file
-        // allowed
-        Beneficiary beneficiaryFromDb =
-            entityManager.find(Beneficiary.class, beneficiaryRecord.getBeneficiaryId());
-
-        if (beneficiaryFromDb != null && beneficiaryFromDb.getBeneficiaryMonthlys().size() > 0) {
-          currentBeneficiaryMonthlyWithUpdates = beneficiaryFromDb.getBeneficiaryMonthlys();
-          List<BeneficiaryMonthly> currentYearBeneficiaryMonthlyPrevious =
-              beneficiaryFromDb.getBeneficiaryMonthlys().stream()
-                  .filter(e -> year == e.getYearMonth().getYear())
-                  .collect(Collectors.toList());
-
-          for (BeneficiaryMonthly previousEnrollment : currentYearBeneficiaryMonthlyPrevious) {
-            currentBeneficiaryMonthlyWithUpdates.remove(previousEnrollment);
-          }
-        } else {
-          currentBeneficiaryMonthlyWithUpdates = new LinkedList<BeneficiaryMonthly>();
-        }
+    beneficiaryMonthly =
+        getBeneficiaryMonthly(
+            beneficiaryRecord,
+            LocalDate.of(year, 9, 1),
+            beneficiaryRecord.getEntitlementBuyInSeptInd(),
+            beneficiaryRecord.getFipsStateCntySeptCode(),
+            beneficiaryRecord.getHmoIndicatorSeptInd(),
+            beneficiaryRecord.getMedicaidDualEligibilitySeptCode(),
+            beneficiaryRecord.getMedicareStatusSeptCode(),
+            beneficiaryRecord.getPartCContractNumberSeptId(),
+            beneficiaryRecord.getPartCPbpNumberSeptId(),
+            beneficiaryRecord.getPartCPlanTypeSeptCode(),
+            beneficiaryRecord.getPartDContractNumberSeptId(),
+            beneficiaryRecord.getPartDLowIncomeCostShareGroupSeptCode(),
+            beneficiaryRecord.getPartDPbpNumberSeptId(),
+            beneficiaryRecord.getPartDRetireeDrugSubsidySeptInd(),
+            beneficiaryRecord.getPartDSegmentNumberSeptId());
+
+    if (beneficiaryMonthly != null) {
+      currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
+    }
 
-        currentBeneficiaryMonthlyWithUpdates.addAll(currentYearBeneficiaryMonthly);
-        beneficiaryRecord.setBeneficiaryMonthlys(currentBeneficiaryMonthlyWithUpdates);
-      }
+    beneficiaryMonthly =
+        getBeneficiaryMonthly(
+            beneficiaryRecord,
+            LocalDate.of(year, 10, 1),
+            beneficiaryRecord.getEntitlementBuyInOctInd(),
+            beneficiaryRecord.getFipsStateCntyOctCode(),
+            beneficiaryRecord.getHmoIndicatorOctInd(),
+            beneficiaryRecord.getMedicaidDualEligibilityOctCode(),
+            beneficiaryRecord.getMedicareStatusOctCode(),
+            beneficiaryRecord.getPartCContractNumberOctId(),
+            beneficiaryRecord.getPartCPbpNumberOctId(),
+            beneficiaryRecord.getPartCPlanTypeOctCode(),
+            beneficiaryRecord.getPartDContractNumberOctId(),
+            beneficiaryRecord.getPartDLowIncomeCostShareGroupOctCode(),
+            beneficiaryRecord.getPartDPbpNumberOctId(),
+            beneficiaryRecord.getPartDRetireeDrugSubsidyOctInd(),
+            beneficiaryRecord.getPartDSegmentNumberOctId());
+
+    if (beneficiaryMonthly != null) {
+      currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
+    }
+
+    beneficiaryMonthly =
+        getBeneficiaryMonthly(
+            beneficiaryRecord,
+            LocalDate.of(year, 11, 1),
+            beneficiaryRecord.getEntitlementBuyInNovInd(),
+            beneficiaryRecord.getFipsStateCntyNovCode(),
+            beneficiaryRecord.getHmoIndicatorNovInd(),
+            beneficiaryRecord.getMedicaidDualEligibilityNovCode(),
+            beneficiaryRecord.getMedicareStatusNovCode(),
+            beneficiaryRecord.getPartCContractNumberNovId(),
+            beneficiaryRecord.getPartCPbpNumberNovId(),
+            beneficiaryRecord.getPartCPlanTypeNovCode(),
+            beneficiaryRecord.getPartDContractNumberNovId(),
+            beneficiaryRecord.getPartDLowIncomeCostShareGroupNovCode(),
+            beneficiaryRecord.getPartDPbpNumberNovId(),
+            beneficiaryRecord.getPartDRetireeDrugSubsidyNovInd(),
+            beneficiaryRecord.getPartDSegmentNumberNovId());
+
+    if (beneficiaryMonthly != null) {
+      currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
+    }
+
+    beneficiaryMonthly =
+        getBeneficiaryMonthly(
+            beneficiaryRecord,
+            LocalDate.of(year, 12, 1),
+            beneficiaryRecord.getEntitlementBuyInDecInd(),
+            beneficiaryRecord.getFipsStateCntyDecCode(),
+            beneficiaryRecord.getHmoIndicatorDecInd(),
+            beneficiaryRecord.getMedicaidDualEligibilityDecCode(),
+            beneficiaryRecord.getMedicareStatusDecCode(),
+            beneficiaryRecord.getPartCContractNumberDecId(),
+            beneficiaryRecord.getPartCPbpNumberDecId(),
+            beneficiaryRecord.getPartCPlanTypeDecCode(),
+            beneficiaryRecord.getPartDContractNumberDecId(),
+            beneficiaryRecord.getPartDLowIncomeCostShareGroupDecCode(),
+            beneficiaryRecord.getPartDPbpNumberDecId(),
+            beneficiaryRecord.getPartDRetireeDrugSubsidyDecInd(),
+            beneficiaryRecord.getPartDSegmentNumberDecId());
+
+    if (beneficiaryMonthly != null) {
+      currentYearBeneficiaryMonthly.add(beneficiaryMonthly);
     }
+
+    return currentYearBeneficiaryMonthly;
   }
 
   /**
@@ -926,14 +1519,16 @@ public final class RifLoader implements AutoCloseable {
    * Beneficiary}, if that {@link Beneficiary} already exists and is just being updated.
    *
    * @param entityManager the {@link EntityManager} to use
+   * @param oldBeneficiaryRecord the already-stored version of the {@link Beneficiary} record being
+   *     processed, or <code>null</code> if there isn't one
    * @param newBeneficiaryRecord the {@link Beneficiary} record being processed
    * @param batchTimestamp the timestamp of the batch
    */
   private static void updateBeneficaryHistory(
-      EntityManager entityManager, Beneficiary newBeneficiaryRecord, Date batchTimestamp) {
-    Beneficiary oldBeneficiaryRecord =
-        entityManager.find(Beneficiary.class, newBeneficiaryRecord.getBeneficiaryId());
-
+      EntityManager entityManager,
+      Beneficiary oldBeneficiaryRecord,
+      Beneficiary newBeneficiaryRecord,
+      Date batchTimestamp) {
     if (oldBeneficiaryRecord != null
         && !isBeneficiaryHistoryEqual(newBeneficiaryRecord, oldBeneficiaryRecord)) {
       BeneficiaryHistory oldBeneCopy = new BeneficiaryHistory();
@@ -952,6 +1547,58 @@ public final class RifLoader implements AutoCloseable {
     }
   }
 
+  /**
+   * @param entityManager the {@link EntityManager} to use
+   * @param beneficiaryHistory the (not yet persisted) {@link BeneficiaryHistory} to look for
+   * @return <code>true</code> if a {@link BeneficiaryHistory} with the same values (other than its
+   *     generated ID and {@link BeneficiaryHistory#getLastUpdated()}) is already stored, <code>
+   *     false</code> if not
+   */
+  private static boolean isBeneficiaryHistoryPresent(
+      EntityManager entityManager, BeneficiaryHistory beneficiaryHistory) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> query = cb.createQuery(Long.class);
+    Root<BeneficiaryHistory> from = query.from(BeneficiaryHistory.class);
+    query
+        .select(cb.count(from))
+        .where(
+            cb.equal(
+                from.get(BeneficiaryHistory_.beneficiaryId), beneficiaryHistory.getBeneficiaryId()),
+            cb.equal(from.get(BeneficiaryHistory_.birthDate), beneficiaryHistory.getBirthDate()),
+            cb.equal(from.get(BeneficiaryHistory_.sex), beneficiaryHistory.getSex()),
+            cb.equal(from.get(BeneficiaryHistory_.hicn), beneficiaryHistory.getHicn()),
+            equalOrNull(
+                cb,
+                from.get(BeneficiaryHistory_.medicareBeneficiaryId),
+                beneficiaryHistory.getMedicareBeneficiaryId()),
+            equalOrNull(
+                cb,
+                from.get(BeneficiaryHistory_.mbiEffectiveDate),
+                beneficiaryHistory.getMbiEffectiveDate()),
+            equalOrNull(
+                cb,
+                from.get(BeneficiaryHistory_.mbiObsoleteDate),
+                beneficiaryHistory.getMbiObsoleteDate()),
+            equalOrNull(
+                cb,
+                from.get(BeneficiaryHistory_.hicnUnhashed),
+                beneficiaryHistory.getHicnUnhashed()),
+            equalOrNull(
+                cb, from.get(BeneficiaryHistory_.mbiHash), beneficiaryHistory.getMbiHash()));
+    return entityManager.createQuery(query).getSingleResult() > 0;
+  }
+
+  /**
+   * @param cb the {@link CriteriaBuilder} to use
+   * @param path the nullable field to compare
+   * @param value the value to compare the field against
+   * @return a {@link Predicate} that the field is equal to the specified value, if it's present, or
+   *     that the field is <code>null</code>, if it isn't
+   */
+  private static <T> Predicate equalOrNull(CriteriaBuilder cb, Path<T> path, Optional<T> value) {
+    return value.isPresent() ? cb.equal(path, value.get()) : cb.isNull(path);
+  }
+
   /**
    * Ensures that a {@link Beneficiary} records for old and new benificiaries are equal or not
    * equal.
@@ -1035,6 +1682,98 @@ public final class RifLoader implements AutoCloseable {
     return beneficiaryMonthly;
   }
 
+  /**
+   * Assigns a new identifier to the specified JPA {@link Entity}, using the same {@link
+   * IdentifierGenerator} (and thus the same database sequence) that {@link EntityManager#persist(
+   * Object)} would have. This is needed for entities with generated IDs that are inserted via
+   * {@link PostgreSqlCopyInserter} or {@link PostgreSqlUpserter}, rather than by JPA.
+   *
+   * @param entityManager the {@link EntityManager} to use
+   * @param entity the JPA {@link Entity} to assign a new identifier to
+   * @return the new identifier that was assigned
+   */
+  private static Serializable generateIdentifier(EntityManager entityManager, Object entity) {
+    SharedSessionContractImplementor session =
+        entityManager.unwrap(SharedSessionContractImplementor.class);
+    EntityPersister entityPersister = session.getEntityPersister(null, entity);
+    Serializable identifier = entityPersister.getIdentifierGenerator().generate(session, entity);
+    entityPersister.setIdentifier(entity, identifier, session);
+    return identifier;
+  }
+
+  /**
+   * Finds the checkpoint to resume loading the specified {@link RifFileEvent} from, if a previous
+   * attempt to load it was interrupted. Callers should pass this to {@link
+   * gov.cms.bfd.pipeline.rif.extract.RifFilesProcessor} so that the already-loaded records at the
+   * start of the file aren't even parsed; {@link #process(RifFileRecords, Consumer, Consumer)} will
+   * skip any remaining already-loaded records on its own.
+   *
+   * @param fileEvent the {@link RifFileEvent} that is about to be loaded
+   * @return the number of records at the start of the specified {@link RifFileEvent}'s file that
+   *     were all committed by previous attempts to load it, which will be <code>0</code> if there
+   *     were no such attempts
+   */
+  public long findCheckpoint(RifFileEvent fileEvent) {
+    long checkpoint = findLoadedRecordRanges(fileEvent).getWatermark();
+    if (checkpoint > 0)
+      LOGGER.info(
+          "Found checkpoint for '{}': the first '{}' records were already loaded.",
+          fileEvent,
+          checkpoint);
+    return checkpoint;
+  }
+
+  /**
+   * Only the attempts since the file last finished loading (see {@link LoadedFile#getCompleted()})
+   * are considered: once a file has been completely loaded, loading it again (e.g. after a table
+   * was truncated, or a data set was deliberately re-dropped) has to start from scratch.
+   *
+   * @param fileEvent the {@link RifFileEvent} to find the previously-loaded records of
+   * @return the {@link LoadedRecordRanges} for the records in the specified {@link RifFileEvent}'s
+   *     file that were committed by the interrupted attempts to load that same file from the same
+   *     data set
+   */
+  private LoadedRecordRanges findLoadedRecordRanges(RifFileEvent fileEvent) {
+    String fileName = fileEvent.getFile().getDisplayName();
+    Date dataSetTimestamp = Date.from(fileEvent.getParentFilesEvent().getTimestamp());
+
+    EntityManager entityManager = null;
+    try {
+      entityManager = entityManagerFactory.createEntityManager();
+      Date lastCompleted =
+          entityManager
+              .createQuery(
+                  "select max(f.created) from LoadedFile f where f.fileName = :fileName"
+                      + " and f.dataSetTimestamp = :dataSetTimestamp and f.completed is not null",
+                  Date.class)
+              .setParameter("fileName", fileName)
+              .setParameter("dataSetTimestamp", dataSetTimestamp)
+              .getSingleResult();
+
+      TypedQuery<Object[]> loadedRangesQuery =
+          entityManager.createQuery(
+              "select b.recordOffset, b.recordCount from LoadedBatch b, LoadedFile f"
+                  + " where b.loadedFileId = f.loadedFileId and f.fileName = :fileName"
+                  + " and f.dataSetTimestamp = :dataSetTimestamp and f.completed is null"
+                  + (lastCompleted != null ? " and f.created > :lastCompleted" : "")
+                  + " and b.recordOffset is not null",
+              Object[].class);
+      loadedRangesQuery
+          .setParameter("fileName", fileName)
+          .setParameter("dataSetTimestamp", dataSetTimestamp);
+      if (lastCompleted != null) loadedRangesQuery.setParameter("lastCompleted", lastCompleted);
+      List<Object[]> rows = loadedRangesQuery.getResultList();
+      if (rows.isEmpty()) return LoadedRecordRanges.NONE;
+
+      List<long[]> ranges = new ArrayList<>(rows.size());
+      for (Object[] row : rows)
+        ranges.add(new long[] {((Number) row[0]).longValue(), ((Number) row[1]).longValue()});
+      return new LoadedRecordRanges(ranges);
+    } finally {
+      if (entityManager != null) entityManager.close();
+    }
+  }
+
   /**
    * Insert the LoadedFile into the database
    *
@@ -1050,6 +1789,8 @@ public final class RifLoader implements AutoCloseable {
     final LoadedFile loadedFile = new LoadedFile();
     loadedFile.setRifType(fileEvent.getFile().getFileType().toString());
     loadedFile.setCreated(new Date());
+    loadedFile.setDataSetTimestamp(Date.from(fileEvent.getParentFilesEvent().getTimestamp()));
+    loadedFile.setFileName(fileEvent.getFile().getDisplayName());
 
     try {
       EntityManager em = entityManagerFactory.createEntityManager();
@@ -1081,6 +1822,37 @@ public final class RifLoader implements AutoCloseable {
     }
   }
 
+  /**
+   * Records that the specified {@link LoadedFile} finished loading, via {@link
+   * LoadedFile#setCompleted(Date)}.
+   *
+   * @param loadedFileId the {@link LoadedFile#getLoadedFileId()} of the file that finished loading
+   * @param errorHandler is called on exceptions
+   */
+  private void completeLoadedFile(long loadedFileId, Consumer<Throwable> errorHandler) {
+    try {
+      EntityManager em = entityManagerFactory.createEntityManager();
+      EntityTransaction txn = null;
+      try {
+        txn = em.getTransaction();
+        txn.begin();
+        LoadedFile loadedFile = em.find(LoadedFile.class, loadedFileId);
+        loadedFile.setCompleted(new Date());
+        txn.commit();
+        LOGGER.info("Completed LoadedFile {}", loadedFileId);
+      } finally {
+        if (em != null && em.isOpen()) {
+          if (txn != null && txn.isActive()) {
+            txn.rollback();
+          }
+          em.close();
+        }
+      }
+    } catch (Exception ex) {
+      errorHandler.accept(ex);
+    }
+  }
+
   /**
    * Trim the LoadedFiles and LoadedBatches tables if necessary
    *
@@ -1127,6 +1899,50 @@ public final class RifLoader implements AutoCloseable {
     }
   }
 
+  /**
+   * Stores a {@link BeneficiaryFilterBuilder#snapshot(boolean)} of the specified {@link
+   * BeneficiaryFilterBuilder} on its {@link LoadedFile}, for {@link
+   * LoadedFile#getBeneficiaryFilter()} readers.
+   *
+   * @param beneficiaryFilter the {@link BeneficiaryFilterBuilder} to publish the filter of
+   * @param fileFinished <code>true</code> if the file has finished loading, <code>false</code> if
+   *     it's still loading
+   */
+  private void publishBeneficiaryFilter(
+      BeneficiaryFilterBuilder beneficiaryFilter, boolean fileFinished) {
+    Timer.Context timerPublish =
+        appMetrics
+            .timer(
+                MetricRegistry.name(getClass().getSimpleName(), "beneficiaryFilter", "published"))
+            .time();
+    EntityManager em = entityManagerFactory.createEntityManager();
+    EntityTransaction txn = null;
+    try {
+      BeneficiaryFilterBuilder.Snapshot snapshot = beneficiaryFilter.snapshot(fileFinished);
+
+      txn = em.getTransaction();
+      txn.begin();
+      LoadedFile loadedFile = em.find(LoadedFile.class, beneficiaryFilter.getLoadedFileId());
+      loadedFile.setBeneficiaryFilter(snapshot.getSerializedFilter());
+      loadedFile.setBeneficiaryFilterBatches(snapshot.getBatchCount());
+      loadedFile.setBeneficiaryFilterWatermark(snapshot.getWatermark());
+      txn.commit();
+      LOGGER.info(
+          "Published the beneficiary filter for LoadedFile {} (watermark: {}): {} beneficiaries in"
+              + " {} bytes",
+          beneficiaryFilter.getLoadedFileId(),
+          snapshot.getWatermark(),
+          snapshot.getBeneficiaryCount(),
+          snapshot.getSerializedFilter().length);
+    } finally {
+      if (txn != null && txn.isActive()) {
+        txn.rollback();
+      }
+      em.close();
+      timerPublish.stop();
+    }
+  }
+
   /** Computes and logs a count for all record types. */
   private void logRecordCounts() {
     if (!LOGGER_RECORD_COUNTS.isDebugEnabled()) return;
@@ -1168,6 +1984,30 @@ public final class RifLoader implements AutoCloseable {
     }
   }
 
+  /**
+   * Hashes the identifiers of the specified {@link Beneficiary} or {@link BeneficiaryHistory}
+   * records, which must be done before they're loaded. Records of other types are left unmodified.
+   *
+   * @param recordsBatch the {@link RifRecordEvent}s to process
+   */
+  private void hashIdentifiers(List<RifRecordEvent<?>> recordsBatch) {
+    RifFileEvent fileEvent = recordsBatch.get(0).getFileEvent();
+    MetricRegistry fileEventMetrics = fileEvent.getEventMetrics();
+    RifFileType rifFileType = fileEvent.getFile().getFileType();
+
+    if (rifFileType == RifFileType.BENEFICIARY) {
+      for (RifRecordEvent<?> rifRecordEvent : recordsBatch) {
+        hashBeneficiaryHicn(fileEventMetrics, rifRecordEvent);
+        hashBeneficiaryMbi(fileEventMetrics, rifRecordEvent);
+      }
+    } else if (rifFileType == RifFileType.BENEFICIARY_HISTORY) {
+      for (RifRecordEvent<?> rifRecordEvent : recordsBatch) {
+        hashBeneficiaryHistoryHicn(fileEventMetrics, rifRecordEvent);
+        hashBeneficiaryHistoryMbi(fileEventMetrics, rifRecordEvent);
+      }
+    }
+  }
+
   /**
    * For {@link RifRecordEvent}s where the {@link RifRecordEvent#getRecord()} is a {@link
    * Beneficiary}, switches the {@link Beneficiary#getHicn()} property to a cryptographic hash of
@@ -1190,7 +2030,7 @@ public final class RifLoader implements AutoCloseable {
     // set the unhashed Hicn
     beneficiary.setHicnUnhashed(Optional.of(beneficiary.getHicn()));
     // set the hashed Hicn
-    beneficiary.setHicn(computeHicnHash(options, secretKeyFactory, beneficiary.getHicn()));
+    beneficiary.setHicn(hashCache.computeHicnHash(beneficiary.getHicn()));
 
     timerHashing.stop();
   }
@@ -1220,7 +2060,7 @@ public final class RifLoader implements AutoCloseable {
         .getMedicareBeneficiaryId()
         .ifPresent(
             mbi -> {
-              String mbiHash = computeMbiHash(options, secretKeyFactory, mbi);
+              String mbiHash = hashCache.computeMbiHash(mbi);
               beneficiary.setMbiHash(Optional.of(mbiHash));
             });
 
@@ -1253,8 +2093,7 @@ public final class RifLoader implements AutoCloseable {
     beneficiaryHistory.setHicnUnhashed(Optional.of(beneficiaryHistory.getHicn()));
 
     // set the hashed Hicn
-    beneficiaryHistory.setHicn(
-        computeHicnHash(options, secretKeyFactory, beneficiaryHistory.getHicn()));
+    beneficiaryHistory.setHicn(hashCache.computeHicnHash(beneficiaryHistory.getHicn()));
 
     timerHashing.stop();
   }
@@ -1285,7 +2124,7 @@ public final class RifLoader implements AutoCloseable {
         .getMedicareBeneficiaryId()
         .ifPresent(
             mbi -> {
-              String mbiHash = computeMbiHash(options, secretKeyFactory, mbi);
+              String mbiHash = hashCache.computeMbiHash(mbi);
               beneficiaryHistory.setMbiHash(Optional.of(mbiHash));
             });
 
@@ -1368,6 +2207,9 @@ public final class RifLoader implements AutoCloseable {
   /** @see java.lang.AutoCloseable#close() */
   @Override
   public void close() {
+    if (this.secondaryIndexManager != null) this.secondaryIndexManager.shutdown();
+    if (this.secondaryIndexDataSource != null && !this.secondaryIndexDataSource.isClosed())
+      this.secondaryIndexDataSource.close();
     if (this.entityManagerFactory != null && this.entityManagerFactory.isOpen())
       this.entityManagerFactory.close();
     if (this.dataSource != null && !this.dataSource.isClosed()) this.dataSource.close();
@@ -1379,61 +2221,64 @@ public final class RifLoader implements AutoCloseable {
    *
    * <p>In <a href="https://www.postgresql.org/docs/9.6/static/populate.html">PostgreSQL 9.6 Manual:
    * Populating a Database</a>, this is recommended as the fastest way to insert large amounts of
-   * data. However, real-world testing with Blue Button data has shown that to be not be exactly
-   * true: highly parallelized <code>INSERT</code>s (e.g. hundreds of simultaneous connections) can
-   * actually be about 18% faster. Even still, this code may eventually be useful for some
-   * situations, so we'll keep it around.
+   * data. Real-world testing with Blue Button data has shown that highly parallelized <code>
+   * INSERT</code>s can be competitive with it, but <code>COPY</code> needs far fewer database
+   * connections and round trips to get there, which makes it a good fit for initial/bulk loads of
+   * data sets that are known to only contain brand new records. It's only used when {@link
+   * LoadTuningOptions#isCopyLoadEnabled()} is set.
+   *
+   * <p>Each instance handles the records of a single batch, of a single {@link RifFileType}.
+   * Records are converted to CSV by the generated <code>*CsvWriter</code> classes and buffered in
+   * memory per SQL table, already encoded as UTF-8, as they're added. When {@link
+   * #submit(EntityManager)} is called, each of those buffers is written straight into its table's
+   * {@link org.postgresql.copy.CopyIn} stream via <code>COPY ... FROM STDIN</code>, parent tables
+   * before child tables, as part of the batch's transaction. That way, the batch's records become
+   * visible (and its {@link LoadedBatch} is recorded) atomically, and no more than one batch's
+   * worth of rows is ever held at once. The rows can't be streamed into the <code>COPY</code>s as
+   * they're added, instead: a connection can only have one <code>COPY</code> in progress at a time,
+   * and the batch's other statements (e.g. {@link BeneficiaryHistory} ID generation) need the same
+   * connection while records are being added.
    */
-  private static final class PostgreSqlCopyInserter implements AutoCloseable {
-    private final EntityManagerFactory entityManagerFactory;
+  private static final class PostgreSqlCopyInserter {
     private final MetricRegistry metrics;
-    private final List<CsvPrinterBundle> csvPrinterBundles;
+    private final Map<String, CsvPrinterBundle> csvPrinterBundles;
 
     /**
      * Constructs a new {@link PostgreSqlCopyInserter} instance.
      *
-     * @param entityManagerFactory the {@link EntityManagerFactory} to use
      * @param metrics the {@link MetricRegistry} to use
+     * @param rifFileType the {@link RifFileType} of the records that will be inserted
      */
-    public PostgreSqlCopyInserter(
-        EntityManagerFactory entityManagerFactory, MetricRegistry metrics) {
-      this.entityManagerFactory = entityManagerFactory;
+    public PostgreSqlCopyInserter(MetricRegistry metrics, RifFileType rifFileType) {
       this.metrics = metrics;
 
-      List<CsvPrinterBundle> csvPrinters = new LinkedList<>();
-      csvPrinters.add(createCsvPrinter(Beneficiary.class));
-      csvPrinters.add(createCsvPrinter(CarrierClaim.class));
-      csvPrinters.add(createCsvPrinter(CarrierClaimLine.class));
-      this.csvPrinterBundles = csvPrinters;
-    }
-
-    /**
-     * @param entityType the JPA {@link Entity} to create a {@link CSVPrinter} for
-     * @return the {@link CSVPrinter} for the specified SQL table
-     */
-    private CsvPrinterBundle createCsvPrinter(Class<?> entityType) {
-      Table tableAnnotation = entityType.getAnnotation(Table.class);
-      String tableName = tableAnnotation.name().replaceAll("`", "");
-
-      CSVFormat baseCsvFormat = CSVFormat.DEFAULT;
-
-      try {
+      /*
+       * Note: the order here matters, as it's the order that the tables will be submitted in.
+       * Parent tables must come before their children, or the foreign keys will be violated.
+       */
+      Map<String, CsvPrinterBundle> csvPrinters = new LinkedHashMap<>();
+      for (Entry<String, List<String>> tableColumns :
+          RifEntityRows.getTableColumns(rifFileType).entrySet()) {
         CsvPrinterBundle csvPrinterBundle = new CsvPrinterBundle();
-        csvPrinterBundle.tableName = tableName;
-        csvPrinterBundle.backingTempFile = File.createTempFile(tableName, ".postgreSqlCsv");
-        csvPrinterBundle.csvPrinter =
-            new CSVPrinter(new FileWriter(csvPrinterBundle.backingTempFile), baseCsvFormat);
-        return csvPrinterBundle;
-      } catch (IOException e) {
-        throw new UncheckedIOException(e);
-      } finally {
+        csvPrinterBundle.tableName = tableColumns.getKey();
+        csvPrinterBundle.columnNames = tableColumns.getValue();
+        try {
+          csvPrinterBundle.csvPrinter =
+              new CSVPrinter(
+                  new OutputStreamWriter(csvPrinterBundle.csvRecords, StandardCharsets.UTF_8),
+                  CSVFormat.DEFAULT);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        csvPrinters.put(csvPrinterBundle.tableName, csvPrinterBundle);
       }
+      this.csvPrinterBundles = csvPrinters;
     }
 
     /**
      * Queues the specified {@link RifRecordEvent#getRecord()} top-level entity instance (e.g. a
-     * {@link Beneficiary}, {@link CarrierClaim}, etc.) for insertion when {@link #submit()} is
-     * called.
+     * {@link Beneficiary}, {@link CarrierClaim}, etc.) for insertion when {@link
+     * #submit(EntityManager)} is called.
      *
      * @param record the {@link RifRecordEvent#getRecord()} top-level entity instance (e.g. a {@link
      *     Beneficiary}, {@link CarrierClaim} , etc.) to queue for insertion
@@ -1442,66 +2287,31 @@ public final class RifLoader implements AutoCloseable {
       /*
        * Use the auto-generated *CsvWriter helpers to convert the JPA
        * entity to its raw field values, in a format suitable for use with
-       * PostgreSQL's CopyManager. Each Map entry will represent a single
-       * JPA table, and each Object[] in there represents a single entity
-       * instance, with the first Object[] containing the (correctly
-       * ordered) SQL column names. So, for a CarrierClaim, there will be
-       * two "CarrerClaims" Object[]s: one column header and one with the
-       * claim header values. In addition, there will be multiple
-       * "CarrierClaimLines" Objects[]: one for the column header and then
-       * one for each CarrierClaim.getLines() entry.
-       */
-      Map<String, Object[][]> csvRecordsByTable;
-      if (record instanceof Beneficiary) {
-        csvRecordsByTable = BeneficiaryCsvWriter.toCsvRecordsByTable((Beneficiary) record);
-      } else if (record instanceof CarrierClaim) {
-        csvRecordsByTable = CarrierClaimCsvWriter.toCsvRecordsByTable((CarrierClaim) record);
-      } else throw new BadCodeMonkeyException();
-
-      /*
-       * Hand off the *CsvWriter results to the appropriate
-       * CsvPrinterBundle entries.
+       * PostgreSQL's CopyManager. Each row is handed to printRecord(...)
+       * along with the name of its SQL table, and in the same order as
+       * that table's *_COLUMNS constant. So, for a CarrierClaim, there
+       * will be one "CarrierClaims" row for the claim header, and then one
+       * "CarrierClaimLines" row for each CarrierClaim.getLines() entry.
        */
-      for (Entry<String, Object[][]> tableRecordsEntry : csvRecordsByTable.entrySet()) {
-        String tableName = tableRecordsEntry.getKey();
-        CsvPrinterBundle tablePrinterBundle =
-            csvPrinterBundles.stream().filter(b -> tableName.equals(b.tableName)).findAny().get();
-
-        // Set the column header if it hasn't been yet.
-        if (tablePrinterBundle.columnNames == null) {
-          Object[] columnNamesAsObjects = tableRecordsEntry.getValue()[0];
-          String[] columnNames =
-              Arrays.copyOf(columnNamesAsObjects, columnNamesAsObjects.length, String[].class);
-          tablePrinterBundle.columnNames = columnNames;
-        }
+      RifEntityRows.writeRows(record, this::printRecord);
+    }
 
-        /*
-         * Write out each Object[] entity row to the temp CSV for the
-         * appropriate SQL table. These HAVE to be written out now, as
-         * there isn't enough RAM to store all of them in memory until
-         * submit() gets called.
-         */
-        for (int recordIndex = 1;
-            recordIndex < tableRecordsEntry.getValue().length;
-            recordIndex++) {
-          Object[] csvRecord = tableRecordsEntry.getValue()[recordIndex];
-          tablePrinterBundle.recordsPrinted.getAndIncrement();
+    /**
+     * Buffers the specified row for the specified SQL table, until {@link #submit(EntityManager)}
+     * is called.
+     *
+     * @param tableName the name of the SQL table that the specified row is for
+     * @param csvRecord the row to write out, with its values in the same order as the table's
+     *     {@link CsvPrinterBundle#columnNames}
+     */
+    private void printRecord(String tableName, Object[] csvRecord) {
+      CsvPrinterBundle tablePrinterBundle = csvPrinterBundles.get(tableName);
+      tablePrinterBundle.recordsPrinted++;
 
-          try {
-            /*
-             * This will be called by multiple loader threads
-             * (possibly hundreds), so it must be synchronized to
-             * ensure that writes aren't corrupted. This isn't the
-             * most efficient possible strategy, but has proven to
-             * not be a bottleneck.
-             */
-            synchronized (tablePrinterBundle.csvPrinter) {
-              tablePrinterBundle.csvPrinter.printRecord(csvRecord);
-            }
-          } catch (IOException e) {
-            throw new UncheckedIOException(e);
-          }
-        }
+      try {
+        tablePrinterBundle.csvPrinter.printRecord(csvRecord);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
       }
     }
 
@@ -1510,20 +2320,21 @@ public final class RifLoader implements AutoCloseable {
      *     if it has
      */
     public boolean isEmpty() {
-      return !csvPrinterBundles.stream()
-          .filter(b -> b.recordsPrinted.get() > 0)
+      return !csvPrinterBundles.values().stream()
+          .filter(b -> b.recordsPrinted > 0)
           .findAny()
           .isPresent();
     }
 
     /**
      * Uses PostgreSQL's {@link CopyManager} API to bulk-insert all of the JPA entities that have
-     * been queued via {@link #add(Object)}.
+     * been queued via {@link #add(Object)}, as part of the specified {@link EntityManager}'s
+     * current transaction. The caller is responsible for committing (or rolling back) that
+     * transaction.
      *
-     * <p>Note: this is an <em>efficient</em> operation, but still not necessarily a <em>fast</em>
-     * one: it can take hours to run for large amounts of data.
+     * @param entityManager the {@link EntityManager} to use, which must have an active transaction
      */
-    public void submit() {
+    public void submit(EntityManager entityManager) {
       Timer.Context submitTimer =
           metrics
               .timer(
@@ -1531,101 +2342,81 @@ public final class RifLoader implements AutoCloseable {
                       getClass().getSimpleName(), "postgresSqlBatches", "submitted"))
               .time();
 
-      EntityManager entityManager = null;
-      try {
-        entityManager = entityManagerFactory.createEntityManager();
-
-        /*
-         * PostgreSQL's CopyManager needs a raw PostgreSQL
-         * BaseConnection. So here we unwrap one from the EntityManager.
-         */
-        Session session = entityManager.unwrap(Session.class);
-        session.doWork(
-            new Work() {
-              /** @see org.hibernate.jdbc.Work#execute(java.sql.Connection) */
-              @Override
-              public void execute(Connection connection) throws SQLException {
-                /*
-                 * Further connection unwrapping: go from a pooled
-                 * Hikari connection to a raw PostgreSQL one.
-                 */
-                HikariProxyConnection pooledConnection = (HikariProxyConnection) connection;
-                BaseConnection postgreSqlConnection = pooledConnection.unwrap(BaseConnection.class);
-
-                /*
-                 * Use that PostgreSQL connection to construct a
-                 * CopyManager instance. Finally!
-                 */
-                CopyManager copyManager = new CopyManager(postgreSqlConnection);
-
-                /*
-                 * Run the CopyManager against each CsvPrinterBundle
-                 * with queued records.
-                 */
-                csvPrinterBundles.stream()
-                    .filter(b -> b.recordsPrinted.get() > 0)
-                    .forEach(
-                        b -> {
-                          try {
-                            LOGGER.debug(
-                                "Flushing PostgreSQL COPY queue: '{}'.", b.backingTempFile);
-                            /*
-                             * First, flush the CSVPrinter to ensure that
-                             * all queued records are available on disk.
-                             */
-                            b.csvPrinter.flush();
-
-                            /*
-                             * Crack open the queued CSV records and feed
-                             * them into the CopyManager.
-                             */
-                            Timer.Context postgresCopyTimer =
-                                metrics
-                                    .timer(
-                                        MetricRegistry.name(
-                                            getClass().getSimpleName(),
-                                            "postgresCopy",
-                                            "completed"))
-                                    .time();
-                            LOGGER.info("Submitting PostgreSQL COPY queue: '{}'...", b.tableName);
-                            FileReader reader = new FileReader(b.backingTempFile);
-                            String columnsList =
-                                Arrays.stream(b.columnNames)
-                                    .map(c -> "\"" + c + "\"")
-                                    .collect(Collectors.joining(", "));
-                            copyManager.copyIn(
-                                String.format(
-                                    "COPY \"%s\" (%s) FROM STDIN DELIMITERS ',' CSV ENCODING 'UTF8'",
-                                    b.tableName, columnsList),
-                                reader);
-                            LOGGER.info("Submitted PostgreSQL COPY queue: '{}'.", b.tableName);
-                            postgresCopyTimer.stop();
-                          } catch (Exception e) {
-                            throw new RifLoadFailure(e);
-                          }
-                        });
-              }
-            });
-      } finally {
-        if (entityManager != null) entityManager.close();
-      }
+      /*
+       * PostgreSQL's CopyManager needs a raw PostgreSQL
+       * BaseConnection. So here we unwrap one from the EntityManager.
+       */
+      Session session = entityManager.unwrap(Session.class);
+      session.doWork(
+          new Work() {
+            /** @see org.hibernate.jdbc.Work#execute(java.sql.Connection) */
+            @Override
+            public void execute(Connection connection) throws SQLException {
+              /*
+               * Further connection unwrapping: go from a pooled
+               * Hikari connection to a raw PostgreSQL one.
+               */
+              HikariProxyConnection pooledConnection = (HikariProxyConnection) connection;
+              BaseConnection postgreSqlConnection = pooledConnection.unwrap(BaseConnection.class);
+
+              /*
+               * Use that PostgreSQL connection to construct a
+               * CopyManager instance. Finally!
+               */
+              CopyManager copyManager = new CopyManager(postgreSqlConnection);
+
+              /*
+               * Run the CopyManager against each CsvPrinterBundle
+               * with queued records, in order.
+               */
+              csvPrinterBundles.values().stream()
+                  .filter(b -> b.recordsPrinted > 0)
+                  .forEachOrdered(b -> submit(copyManager, b));
+            }
+          });
 
       submitTimer.stop();
     }
 
-    /** @see java.lang.AutoCloseable#close() */
-    @Override
-    public void close() {
-      csvPrinterBundles.stream()
-          .forEach(
-              b -> {
-                try {
-                  b.csvPrinter.close();
-                  b.backingTempFile.delete();
-                } catch (IOException e) {
-                  throw new UncheckedIOException(e);
-                }
-              });
+    /**
+     * Streams the queued CSV records for the specified {@link CsvPrinterBundle} into its SQL table,
+     * via a PostgreSQL <code>COPY ... FROM STDIN</code>.
+     *
+     * @param copyManager the {@link CopyManager} to use
+     * @param csvPrinterBundle the {@link CsvPrinterBundle} to submit the queued records of
+     */
+    private void submit(CopyManager copyManager, CsvPrinterBundle csvPrinterBundle) {
+      try {
+        Timer.Context postgresCopyTimer =
+            metrics
+                .timer(
+                    MetricRegistry.name(
+                        getClass().getSimpleName(),
+                        "postgresCopy",
+                        "completed",
+                        csvPrinterBundle.tableName))
+                .time();
+        LOGGER.trace(
+            "Submitting PostgreSQL COPY: '{}' ({} records)...",
+            csvPrinterBundle.tableName,
+            csvPrinterBundle.recordsPrinted);
+        String columnsList =
+            csvPrinterBundle.columnNames.stream()
+                .map(c -> "\"" + c + "\"")
+                .collect(Collectors.joining(", "));
+        csvPrinterBundle.csvPrinter.flush();
+        try (PGCopyOutputStream copyStream =
+            new PGCopyOutputStream(
+                copyManager.copyIn(
+                    String.format(
+                        "COPY \"%s\" (%s) FROM STDIN DELIMITERS ',' CSV ENCODING 'UTF8'",
+                        csvPrinterBundle.tableName, columnsList)))) {
+          csvPrinterBundle.csvRecords.writeTo(copyStream);
+        }
+        postgresCopyTimer.stop();
+      } catch (Exception e) {
+        throw new RifLoadFailure(e);
+      }
     }
 
     /**
@@ -1634,10 +2425,10 @@ public final class RifLoader implements AutoCloseable {
      */
     private static final class CsvPrinterBundle {
       String tableName = null;
+      List<String> columnNames = null;
+      ByteArrayOutputStream csvRecords = new ByteArrayOutputStream();
       CSVPrinter csvPrinter = null;
-      File backingTempFile = null;
-      String[] columnNames = null;
-      AtomicInteger recordsPrinted = new AtomicInteger(0);
+      int recordsPrinted = 0;
     }
   }
 
@@ -1645,6 +2436,12 @@ public final class RifLoader implements AutoCloseable {
   private static enum LoadStrategy {
     INSERT_IDEMPOTENT,
 
+    INSERT_IDEMPOTENT_UPSERT,
+
+    UPDATE_IDEMPOTENT_UPSERT,
+
+    INSERT_COPY,
+
     INSERT_UPDATE_NON_IDEMPOTENT;
   }
 
@@ -2,10 +2,23 @@ package gov.cms.bfd.pipeline.rif.load;
 
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import gov.cms.bfd.model.rif.CarrierClaim;
+import gov.cms.bfd.model.rif.DMEClaim;
+import gov.cms.bfd.model.rif.HHAClaim;
+import gov.cms.bfd.model.rif.HospiceClaim;
+import gov.cms.bfd.model.rif.InpatientClaim;
+import gov.cms.bfd.model.rif.OutpatientClaim;
+import gov.cms.bfd.model.rif.PartDEvent;
+import gov.cms.bfd.model.rif.SNFClaim;
+import gov.cms.bfd.model.rif.SamhsaFlaggedRecord;
+import gov.cms.bfd.model.rif.samhsa.SamhsaRecordMatcher;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -18,7 +31,6 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import javax.crypto.SecretKeyFactory;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import org.hibernate.SessionFactory;
@@ -67,6 +79,21 @@ public class RifLoaderIdleTasks {
   /** The record count of a db update batch */
   private static final int BATCH_COUNT = 100;
 
+  /**
+   * The claim entities that are flagged as SAMHSA-related (or not) by the SAMHSA flag fixup, in the
+   * order that they're fixed up.
+   */
+  private static final List<SamhsaFlaggedEntity> SAMHSA_FLAGGED_ENTITIES =
+      Arrays.asList(
+          new SamhsaFlaggedEntity(CarrierClaim.class, "CarrierClaims", "claimId", true),
+          new SamhsaFlaggedEntity(DMEClaim.class, "DMEClaims", "claimId", true),
+          new SamhsaFlaggedEntity(HHAClaim.class, "HHAClaims", "claimId", true),
+          new SamhsaFlaggedEntity(HospiceClaim.class, "HospiceClaims", "claimId", true),
+          new SamhsaFlaggedEntity(InpatientClaim.class, "InpatientClaims", "claimId", true),
+          new SamhsaFlaggedEntity(OutpatientClaim.class, "OutpatientClaims", "claimId", true),
+          new SamhsaFlaggedEntity(SNFClaim.class, "SNFClaims", "claimId", true),
+          new SamhsaFlaggedEntity(PartDEvent.class, "PartDEvents", "eventId", false));
+
   /** An executor list that does no work and always completes */
   private static final List<Callable<Boolean>> NULL_EXECUTORS = Collections.emptyList();
 
@@ -89,6 +116,9 @@ public class RifLoaderIdleTasks {
     /** A sub-task to fixup BeneficiariesHistory table */
     POST_STARTUP_FIXUP_BENEFICIARY_HISTORY,
 
+    /** A sub-task to flag the claims loaded before the samhsaRelated flag was introduced */
+    POST_STARTUP_FIXUP_SAMHSA_FLAGS,
+
     /** Run the normal task */
     NORMAL,
   }
@@ -96,11 +126,20 @@ public class RifLoaderIdleTasks {
   /* Hashing entities */
   private final LoadAppOptions options;
   private final EntityManagerFactory entityManagerFactory;
-  private final SecretKeyFactory secretKeyFactory;
+  private final IdentifierHashCache hashCache;
+  private final SamhsaRecordMatcher samhsaMatcher;
 
   /* Metrics */
   private final Meter beneficaryMeter;
   private final Meter historyMeter;
+  private final Meter samhsaFlagsMeter;
+
+  /*
+   * The index (in SAMHSA_FLAGGED_ENTITIES) of the claim entity that each partition's SAMHSA flag
+   * fixup is working on, so that tables that are already done aren't scanned again. Each element
+   * is only ever used by its own partition's executor.
+   */
+  private final int[] samhsaFixupEntityIndexes;
 
   /* Thread pool for post startup tasks */
   private final ExecutorService executorService;
@@ -114,19 +153,24 @@ public class RifLoaderIdleTasks {
    * @param options pipeline options
    * @param appMetrics pipeline metrics
    * @param entityManagerFactory a connection to the database of the pipeline
-   * @param secretKeyFactory for hashing
+   * @param hashCache the {@link IdentifierHashCache} to hash MBIs with
+   * @param samhsaMatcher the {@link SamhsaRecordMatcher} to flag unflagged claims with
    */
   public RifLoaderIdleTasks(
       final LoadAppOptions options,
       final MetricRegistry appMetrics,
       final EntityManagerFactory entityManagerFactory,
-      final SecretKeyFactory secretKeyFactory) {
+      final IdentifierHashCache hashCache,
+      final SamhsaRecordMatcher samhsaMatcher) {
     this.options = options;
     this.entityManagerFactory = entityManagerFactory;
-    this.secretKeyFactory = secretKeyFactory;
+    this.hashCache = hashCache;
+    this.samhsaMatcher = samhsaMatcher;
 
     this.beneficaryMeter = appMetrics.meter("fixups.beneficiary.rate");
     this.historyMeter = appMetrics.meter("fixups.beneficiary_history.rate");
+    this.samhsaFlagsMeter = appMetrics.meter("fixups.samhsa_flags.rate");
+    this.samhsaFixupEntityIndexes = new int[options.getFixupThreads()];
 
     this.executorService = Executors.newFixedThreadPool(options.getFixupThreads());
   }
@@ -168,6 +212,8 @@ public class RifLoaderIdleTasks {
         return makeExecutorsForPartitions(this::fixupBeneficiaryExecutor);
       case POST_STARTUP_FIXUP_BENEFICIARY_HISTORY:
         return makeExecutorsForPartitions(this::fixupHistoryExecutor);
+      case POST_STARTUP_FIXUP_SAMHSA_FLAGS:
+        return makeExecutorsForPartitions(this::fixupSamhsaFlagsExecutor);
       case NORMAL:
         return NULL_EXECUTORS;
       default:
@@ -240,6 +286,8 @@ public class RifLoaderIdleTasks {
       case POST_STARTUP_FIXUP_BENEFICIARIES:
         return Task.POST_STARTUP_FIXUP_BENEFICIARY_HISTORY;
       case POST_STARTUP_FIXUP_BENEFICIARY_HISTORY:
+        return Task.POST_STARTUP_FIXUP_SAMHSA_FLAGS;
+      case POST_STARTUP_FIXUP_SAMHSA_FLAGS:
         return Task.NORMAL;
       case NORMAL:
       default:
@@ -274,6 +322,17 @@ public class RifLoaderIdleTasks {
         beneficiaryCount,
         historyCount);
 
+    for (SamhsaFlaggedEntity entity : SAMHSA_FLAGGED_ENTITIES) {
+      final Long unflaggedCount =
+          em.createQuery(
+                  "select count(*) from "
+                      + entity.entityClass.getSimpleName()
+                      + " where samhsaRelated is null",
+                  Long.class)
+              .getSingleResult();
+      LOGGER.info("Missing samhsaRelated for: {} {}", unflaggedCount, entity.tableName);
+    }
+
     return true;
   }
 
@@ -319,6 +378,31 @@ public class RifLoaderIdleTasks {
     return isDone;
   }
 
+  /**
+   * Executor for the SAMHSA flags of the claim tables, which fixes up one table after another.
+   *
+   * @param partition to work on
+   * @return true if done with the work on this partition
+   */
+  public Boolean fixupSamhsaFlagsExecutor(final Integer partition) {
+    LOGGER.debug("Start a SAMHSA flags executor: partition {}", partition);
+    final AtomicInteger counter = new AtomicInteger(0);
+    final Boolean isDone =
+        doBatches(
+            session -> {
+              while (samhsaFixupEntityIndexes[partition] < SAMHSA_FLAGGED_ENTITIES.size()) {
+                SamhsaFlaggedEntity entity =
+                    SAMHSA_FLAGGED_ENTITIES.get(samhsaFixupEntityIndexes[partition]);
+                if (!fixupSamhsaFlagsBatch(session, entity, partition, counter)) return false;
+                samhsaFixupEntityIndexes[partition]++;
+              }
+              return true;
+            });
+    samhsaFlagsMeter.mark(counter.get());
+    LOGGER.debug("Finished a SAMHSA flags executor: {}, count {}", partition, counter.get());
+    return isDone;
+  }
+
   /**
    * Break up the work into a series of batches of record to update. Each batch is done in a
    * transaction. After each batch, check the amount of time taken. Return after the
@@ -444,7 +528,7 @@ public class RifLoaderIdleTasks {
     for (int i = 0; i < rows.size(); i++) {
       Object[] row = rows.get(i);
       String mbi = (String) row[1];
-      String mbiHash = RifLoader.computeMbiHash(options, secretKeyFactory, mbi);
+      String mbiHash = hashCache.computeMbiHash(mbi);
       if (i > 0) update.append(",");
       update
           .append(hasTextId ? "('" : "(")
@@ -458,6 +542,92 @@ public class RifLoaderIdleTasks {
     session.createNativeQuery(update.toString()).executeUpdate();
   }
 
+  /**
+   * Flags a batch of claims that were loaded before the samhsaRelated flag was introduced, using
+   * the same {@link SamhsaRecordMatcher} that flags them as they're loaded. Executed in the context
+   * of a transaction.
+   *
+   * @param session to use
+   * @param entity the claim entity to fixup
+   * @param partition to fetch from
+   * @param counter to increment with the record count
+   * @return true if there are no more unflagged claims of the entity in the partition
+   */
+  @SuppressWarnings("unchecked")
+  private boolean fixupSamhsaFlagsBatch(
+      final StatelessSession session,
+      final SamhsaFlaggedEntity entity,
+      final int partition,
+      final AtomicInteger counter) {
+    final String select =
+        "SELECT c.\""
+            + entity.idName
+            + "\" FROM \""
+            + entity.tableName
+            + "\" c WHERE c.\"samhsaRelated\" IS NULL AND MOD(CAST(c.\""
+            + entity.idName
+            + "\" AS numeric), "
+            + options.getFixupThreads()
+            + ") = "
+            + partition;
+    final List<String> ids =
+        session.createNativeQuery(select).setMaxResults(BATCH_COUNT).getResultList();
+    if (ids.size() == 0) return true;
+
+    // The lines have to be fetched along with their claims, as the stateless session can't.
+    final String entityName = entity.entityClass.getSimpleName();
+    final List<SamhsaFlaggedRecord> claims =
+        session
+            .createQuery(
+                "select c from "
+                    + entityName
+                    + " c "
+                    + (entity.hasLines ? "left join fetch c.lines " : "")
+                    + "where c."
+                    + entity.idName
+                    + " in (:ids)")
+            .setParameterList("ids", ids)
+            .getResultList();
+
+    final List<String> samhsaIds = new ArrayList<>();
+    final List<String> nonSamhsaIds = new ArrayList<>();
+    for (SamhsaFlaggedRecord claim : new LinkedHashSet<>(claims)) {
+      String id = (String) entityManagerFactory.getPersistenceUnitUtil().getIdentifier(claim);
+      (samhsaMatcher.test(claim) ? samhsaIds : nonSamhsaIds).add(id);
+    }
+    updateBatchSamhsaFlags(session, entity, samhsaIds, true);
+    updateBatchSamhsaFlags(session, entity, nonSamhsaIds, false);
+    counter.addAndGet(samhsaIds.size() + nonSamhsaIds.size());
+    return false;
+  }
+
+  /**
+   * Update the samhsaRelated field of some of the claims in a batch.
+   *
+   * @param session to use
+   * @param entity the claim entity to update
+   * @param ids the IDs of the claims to update
+   * @param samhsaRelated the value to set the claims' samhsaRelated field to
+   */
+  private static void updateBatchSamhsaFlags(
+      final StatelessSession session,
+      final SamhsaFlaggedEntity entity,
+      final List<String> ids,
+      final boolean samhsaRelated) {
+    if (ids.isEmpty()) return;
+
+    session
+        .createQuery(
+            "update "
+                + entity.entityClass.getSimpleName()
+                + " set samhsaRelated = :samhsaRelated where "
+                + entity.idName
+                + " in (:ids)")
+        .setParameter("samhsaRelated", samhsaRelated)
+        .setParameterList("ids", ids)
+        .executeUpdate();
+  }
+
   /**
    * Any time left in this time slice?
    *
@@ -469,4 +639,29 @@ public class RifLoaderIdleTasks {
     Instant nowInstant = Instant.now();
     return start.compareTo(nowInstant) <= 0 && start.plus(period).isAfter(nowInstant);
   }
+
+  /** Describes one of the claim entities that the SAMHSA flag fixup works on. */
+  private static final class SamhsaFlaggedEntity {
+    private final Class<? extends SamhsaFlaggedRecord> entityClass;
+    private final String tableName;
+    private final String idName;
+    private final boolean hasLines;
+
+    /**
+     * @param entityClass the JPA entity class of the claims
+     * @param tableName the SQL table of the claims
+     * @param idName the name of the claims' ID field and column
+     * @param hasLines true if the claims have a <code>lines</code> collection
+     */
+    SamhsaFlaggedEntity(
+        Class<? extends SamhsaFlaggedRecord> entityClass,
+        String tableName,
+        String idName,
+        boolean hasLines) {
+      this.entityClass = entityClass;
+      this.tableName = tableName;
+      this.idName = idName;
+      this.hasLines = hasLines;
+    }
+  }
 }
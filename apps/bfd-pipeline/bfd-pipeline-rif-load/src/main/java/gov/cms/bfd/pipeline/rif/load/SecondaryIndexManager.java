@@ -0,0 +1,747 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import gov.cms.bfd.sharedutils.exceptions.UncheckedSqlException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drops and rebuilds the secondary indexes and foreign keys of the beneficiary and claim tables,
+ * for index-free bulk loads (see {@link LoadTuningOptions#isIndexFreeBulkLoadEnabled()}). Primary
+ * keys and unique indexes are never touched, so idempotent loads and JPA lookups still work while
+ * the others are missing. This only supports PostgreSQL.
+ *
+ * <p>Which indexes and foreign keys to drop is read from the database's catalog at drop time, so
+ * that any added by later migrations are included. Each one's definition is recorded in the <code>
+ * "DroppedSecondaryIndexes"</code> table, in the same transaction that drops it, and its record is
+ * only deleted once it has been rebuilt. So exactly the set that was dropped gets rebuilt, and it's
+ * safe to re-run at any point: if the application dies part-way through a load or a rebuild, the
+ * next rebuild just picks up whatever's still recorded. Indexes are rebuilt with <code>
+ * CREATE INDEX CONCURRENTLY</code>, several at once. If that's interrupted, PostgreSQL leaves an
+ * invalid index behind, which is dropped and rebuilt. Foreign keys are added as <code>NOT VALID
+ * </code> and then validated, after all of the indexes are done, so that neither step blocks writes
+ * to the tables for long.
+ *
+ * <p>Dropping the indexes only pays off while the tables are still small: rebuilding them takes
+ * time in proportion to everything in the tables, not just what was loaded. So {@link
+ * #dropAllForBulkLoad()} leaves them alone once the tables hold more than {@link
+ * LoadTuningOptions#getIndexDropMaxExistingRows()} rows, or while a rebuild is still running. The
+ * rebuild itself runs in the background (see {@link #checkRebuild()}), so that new data sets can
+ * still be loaded while it runs, just more slowly.
+ *
+ * <p>Tables that have been hash-partitioned (by the <code>Partition_claims_by_beneficiary.sql
+ * </code> script) are left alone: PostgreSQL supports neither of those online rebuild techniques
+ * for partitioned tables, and each partition's indexes are small enough to not slow loads as much.
+ */
+final class SecondaryIndexManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SecondaryIndexManager.class);
+
+  /**
+   * The tables that aren't loaded from RIF files, whose indexes and foreign keys are left alone.
+   */
+  private static final String[] UNMANAGED_TABLES = {
+    "LoadedFiles", "LoadedBatches", "DroppedSecondaryIndexes", "schema_version"
+  };
+
+  /**
+   * Finds the non-unique indexes that don't back a constraint, on the (non-partitioned, and not
+   * partition) tables of the current schema, other than the {@link #UNMANAGED_TABLES}.
+   */
+  private static final String DROPPABLE_INDEXES_CATALOG_QUERY =
+      "select ic.relname, tc.relname, pg_get_indexdef(i.indexrelid) from pg_index i"
+          + " join pg_class ic on ic.oid = i.indexrelid"
+          + " join pg_class tc on tc.oid = i.indrelid"
+          + " where tc.relnamespace ="
+          + " (select oid from pg_namespace where nspname = current_schema())"
+          + " and tc.relkind = 'r' and tc.relname <> all (?)"
+          + " and not exists (select 1 from pg_inherits h where h.inhrelid = tc.oid)"
+          + " and not i.indisprimary and not i.indisunique"
+          + " and not exists (select 1 from pg_constraint c where c.conindid = i.indexrelid)"
+          + " order by ic.relname";
+
+  /**
+   * Finds the foreign keys between the (non-partitioned, and not partition) tables of the current
+   * schema, other than the {@link #UNMANAGED_TABLES}.
+   */
+  private static final String DROPPABLE_FOREIGN_KEYS_CATALOG_QUERY =
+      "select c.conname, tc.relname, pg_get_constraintdef(c.oid) from pg_constraint c"
+          + " join pg_class tc on tc.oid = c.conrelid"
+          + " join pg_class rc on rc.oid = c.confrelid"
+          + " where tc.relnamespace ="
+          + " (select oid from pg_namespace where nspname = current_schema())"
+          + " and c.contype = 'f' and tc.relkind = 'r' and rc.relkind = 'r'"
+          + " and tc.relname <> all (?)"
+          + " and not exists (select 1 from pg_inherits h where h.inhrelid = tc.oid)"
+          + " order by c.conname";
+
+  private static final String INDEX_CATALOG_QUERY =
+      "select c.relname, i.indisvalid from pg_index i"
+          + " join pg_class c on c.oid = i.indexrelid where c.relname = any (?)";
+
+  private static final String FOREIGN_KEY_CATALOG_QUERY =
+      "select conname, convalidated from pg_constraint where conname = any (?)";
+
+  /**
+   * Uses the planner's row estimates, rather than <code>count(*)</code>, which would have to scan
+   * the tables. Tables that have never been analyzed have an estimate of <code>0</code> or <code>-1
+   * </code>, depending on the PostgreSQL version.
+   */
+  private static final String ROW_ESTIMATE_CATALOG_QUERY =
+      "select coalesce(sum(greatest(reltuples, 0)), 0)::bigint from pg_class"
+          + " where relkind = 'r' and relname = any (?)";
+
+  private static final String DROPPED_SELECT_SQL =
+      "select \"name\", \"tableName\", \"foreignKey\", \"definition\""
+          + " from \"DroppedSecondaryIndexes\"";
+
+  private static final String DROPPED_INSERT_SQL =
+      "insert into \"DroppedSecondaryIndexes\""
+          + " (\"name\", \"tableName\", \"foreignKey\", \"definition\") values (?, ?, ?, ?)";
+
+  private static final String DROPPED_DELETE_SQL =
+      "delete from \"DroppedSecondaryIndexes\" where \"name\" = ? and \"foreignKey\" = ?";
+
+  private final DataSource dataSource;
+  private final int rebuildThreads;
+  private final long dropMaxExistingRows;
+  private final MetricRegistry appMetrics;
+  private final Counter pendingCounter;
+
+  /** Runs {@link #rebuildMissing()} in the background, for {@link #checkRebuild()}. */
+  private final ExecutorService rebuildCoordinator;
+
+  /** The background {@link #rebuildMissing()} run, or <code>null</code> if there isn't one. */
+  private Future<Integer> rebuild;
+
+  /**
+   * Whether any dropped indexes or foreign keys might still need to be rebuilt. This starts out
+   * <code>true</code>, so that any left that way by a previous run that died part-way through a
+   * load or rebuild get rebuilt.
+   */
+  private boolean rebuildNeeded;
+
+  /**
+   * Constructs a new {@link SecondaryIndexManager}.
+   *
+   * @param dataSource the {@link DataSource} for the (PostgreSQL) database to manage, which must
+   *     allow at least <code>rebuildThreads + 1</code> connections at once, and shouldn't be shared
+   *     with the loads, as each rebuild holds its connection for a long time
+   * @param rebuildThreads the number of indexes and foreign keys to rebuild at once
+   * @param dropMaxExistingRows the value of {@link LoadTuningOptions#getIndexDropMaxExistingRows()}
+   *     to use
+   * @param appMetrics the {@link MetricRegistry} for the overall application
+   */
+  SecondaryIndexManager(
+      DataSource dataSource,
+      int rebuildThreads,
+      long dropMaxExistingRows,
+      MetricRegistry appMetrics) {
+    if (rebuildThreads < 1) throw new IllegalArgumentException();
+    if (dropMaxExistingRows < 0) throw new IllegalArgumentException();
+
+    this.dataSource = dataSource;
+    this.rebuildThreads = rebuildThreads;
+    this.dropMaxExistingRows = dropMaxExistingRows;
+    this.appMetrics = appMetrics;
+    this.pendingCounter =
+        appMetrics.counter(MetricRegistry.name(getClass().getSimpleName(), "pending"));
+    this.rebuildCoordinator =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("index-rebuild-coordinator")
+                .setDaemon(true)
+                .build());
+    this.rebuild = null;
+    this.rebuildNeeded = true;
+  }
+
+  /**
+   * Drops all of the secondary indexes and foreign keys currently on the loaded tables ahead of a
+   * bulk load, recording each of them for the rebuild, unless a rebuild is still running, or the
+   * tables already hold more than {@link #dropMaxExistingRows} rows. Either way, {@link
+   * #checkRebuild()} will rebuild whatever was dropped, once idle.
+   *
+   * @return <code>true</code> if the indexes were dropped, <code>false</code> if they were left
+   *     alone
+   */
+  synchronized boolean dropAllForBulkLoad() {
+    if (rebuild != null) {
+      LOGGER.info("Not dropping secondary indexes: their rebuild is still running.");
+      return false;
+    }
+
+    Timer.Context timerDrop =
+        appMetrics.timer(MetricRegistry.name(getClass().getSimpleName(), "dropped")).time();
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        List<SecondaryIndex> droppable = findDroppable(connection);
+        long existingRows = estimateRows(connection, droppable);
+        if (existingRows > dropMaxExistingRows) {
+          LOGGER.info(
+              "Not dropping secondary indexes: their tables already hold about {} rows"
+                  + " (limit: {}).",
+              existingRows,
+              dropMaxExistingRows);
+          connection.rollback();
+          return false;
+        }
+
+        rebuildNeeded = true;
+        dropAll(connection, droppable);
+        connection.commit();
+        return true;
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new UncheckedSqlException(e);
+    } finally {
+      timerDrop.stop();
+    }
+  }
+
+  /**
+   * Checks on the rebuild of any dropped indexes and foreign keys, starting it in the background if
+   * it's needed and not already running. A rebuild that failed is logged, and then restarted by the
+   * next call, which picks up whatever is still missing or invalid. Progress is logged as each
+   * index completes, and tracked by the <code>pending</code> counter metric.
+   *
+   * @return <code>true</code> if all of the dropped indexes and foreign keys are known to have been
+   *     rebuilt, <code>false</code> if a rebuild is (or should be) still running
+   */
+  synchronized boolean checkRebuild() {
+    if (rebuild != null) {
+      if (!rebuild.isDone()) {
+        LOGGER.debug(
+            "Still rebuilding secondary indexes and foreign keys: {} left.",
+            pendingCounter.getCount());
+        return false;
+      }
+
+      try {
+        rebuild.get();
+        rebuildNeeded = false;
+      } catch (ExecutionException e) {
+        LOGGER.error(
+            "Failed to rebuild the secondary indexes and foreign keys. Will retry when next idle.",
+            e.getCause());
+      } catch (InterruptedException e) {
+        // Can't happen, as the rebuild is already done.
+        throw new IllegalStateException(e);
+      } finally {
+        rebuild = null;
+      }
+      return !rebuildNeeded;
+    }
+
+    if (!rebuildNeeded) return true;
+    rebuild = rebuildCoordinator.submit(this::rebuildMissing);
+    return false;
+  }
+
+  /**
+   * Stops any background rebuild. The indexes that it was building will be left invalid, and so
+   * will be dropped and rebuilt by the next application run.
+   */
+  void shutdown() {
+    rebuildCoordinator.shutdownNow();
+  }
+
+  /**
+   * Records and then drops all of the specified {@link SecondaryIndex}es, foreign keys first, as
+   * part of the specified {@link Connection}'s current transaction.
+   *
+   * @param connection the {@link Connection} to use, which must not be in auto-commit mode
+   * @param droppable the {@link SecondaryIndex}es to drop
+   * @throws SQLException any {@link SQLException}s encountered will be bubbled up
+   */
+  private void dropAll(Connection connection, List<SecondaryIndex> droppable) throws SQLException {
+    LOGGER.info("Dropping {} secondary indexes and foreign keys...", droppable.size());
+
+    List<SecondaryIndex> foreignKeysFirst = new ArrayList<>(droppable);
+    foreignKeysFirst.sort((a, b) -> Boolean.compare(b.isForeignKey(), a.isForeignKey()));
+    try (PreparedStatement deleteStatement = connection.prepareStatement(DROPPED_DELETE_SQL);
+        PreparedStatement insertStatement = connection.prepareStatement(DROPPED_INSERT_SQL);
+        Statement statement = connection.createStatement()) {
+      for (SecondaryIndex secondaryIndex : foreignKeysFirst) {
+        // Replaces the record of any earlier drop whose rebuild hasn't finished yet.
+        deleteStatement.setString(1, secondaryIndex.getName());
+        deleteStatement.setBoolean(2, secondaryIndex.isForeignKey());
+        deleteStatement.executeUpdate();
+        insertStatement.setString(1, secondaryIndex.getName());
+        insertStatement.setString(2, secondaryIndex.getTable());
+        insertStatement.setBoolean(3, secondaryIndex.isForeignKey());
+        insertStatement.setString(4, secondaryIndex.getDefinition());
+        insertStatement.executeUpdate();
+
+        statement.execute(secondaryIndex.getDropSql());
+      }
+    }
+
+    LOGGER.info("Dropped secondary indexes and foreign keys.");
+  }
+
+  /**
+   * Rebuilds all of the recorded {@link SecondaryIndex}es that are missing or invalid. All of the
+   * indexes are rebuilt before any of the foreign keys. If any of them fail, the rest are still
+   * rebuilt before the failure is thrown. Each one's record is deleted once it has been rebuilt, so
+   * once done, none should be left.
+   *
+   * @return the number of indexes and foreign keys that were rebuilt
+   * @throws IllegalStateException if any of the indexes or foreign keys couldn't be rebuilt
+   */
+  private int rebuildMissing() {
+    List<SecondaryIndex> dropped = findDropped();
+    Map<SecondaryIndex, Boolean> incomplete = findIncomplete(dropped);
+
+    // Any that are already in place were rebuilt just before a previous run died, or by hand.
+    for (SecondaryIndex secondaryIndex : dropped)
+      if (!incomplete.containsKey(secondaryIndex)) forget(secondaryIndex);
+
+    List<RebuildTask> indexTasks = new ArrayList<>();
+    List<RebuildTask> foreignKeyTasks = new ArrayList<>();
+    for (Map.Entry<SecondaryIndex, Boolean> entry : incomplete.entrySet()) {
+      SecondaryIndex secondaryIndex = entry.getKey();
+      Boolean valid = entry.getValue();
+
+      List<String> statements = new ArrayList<>();
+      if (!secondaryIndex.isForeignKey()) {
+        // An invalid index is left behind by an interrupted CREATE INDEX CONCURRENTLY.
+        if (valid != null) statements.add(secondaryIndex.getDropSql());
+        statements.add(secondaryIndex.getCreateSql());
+        indexTasks.add(new RebuildTask(secondaryIndex, statements));
+      } else {
+        // A foreign key that exists but isn't valid was added, but its validation didn't finish.
+        if (valid == null) statements.add(secondaryIndex.getCreateSql());
+        statements.add(secondaryIndex.getValidateSql());
+        foreignKeyTasks.add(new RebuildTask(secondaryIndex, statements));
+      }
+    }
+
+    int total = indexTasks.size() + foreignKeyTasks.size();
+    if (total == 0) {
+      pendingCounter.dec(pendingCounter.getCount());
+      return 0;
+    }
+
+    Timer.Context timerRebuild =
+        appMetrics.timer(MetricRegistry.name(getClass().getSimpleName(), "rebuilt")).time();
+    LOGGER.info(
+        "Rebuilding {} secondary indexes and {} foreign keys, {} at a time...",
+        indexTasks.size(),
+        foreignKeyTasks.size(),
+        rebuildThreads);
+    // Reset the counter, in case a previous rebuild failed part-way through.
+    pendingCounter.inc(total - pendingCounter.getCount());
+    AtomicInteger completed = new AtomicInteger(0);
+    ExecutorService executorService =
+        Executors.newFixedThreadPool(
+            rebuildThreads,
+            new ThreadFactoryBuilder().setNameFormat("index-rebuild-%d").setDaemon(true).build());
+    try {
+      runAll(executorService, indexTasks, completed, total);
+      runAll(executorService, foreignKeyTasks, completed, total);
+    } finally {
+      executorService.shutdownNow();
+      timerRebuild.stop();
+    }
+
+    Set<String> stillDropped =
+        findDropped().stream().map(SecondaryIndex::getName).collect(Collectors.toSet());
+    if (!stillDropped.isEmpty())
+      throw new IllegalStateException(
+          "Secondary indexes or foreign keys still not rebuilt: " + stillDropped);
+
+    LOGGER.info("Rebuilt {} secondary indexes and foreign keys.", total);
+    return total;
+  }
+
+  /**
+   * @param secondaryIndexes the {@link SecondaryIndex}es to check
+   * @return each of the specified {@link SecondaryIndex}es that is missing or invalid, mapped to
+   *     <code>null</code> if it's missing, or <code>false</code> if it exists but isn't valid
+   */
+  private Map<SecondaryIndex, Boolean> findIncomplete(List<SecondaryIndex> secondaryIndexes) {
+    Map<String, Boolean> indexValidity = queryCatalog(INDEX_CATALOG_QUERY, secondaryIndexes, false);
+    Map<String, Boolean> foreignKeyValidity =
+        queryCatalog(FOREIGN_KEY_CATALOG_QUERY, secondaryIndexes, true);
+
+    Map<SecondaryIndex, Boolean> incomplete = new LinkedHashMap<>();
+    for (SecondaryIndex secondaryIndex : secondaryIndexes) {
+      Map<String, Boolean> validity =
+          secondaryIndex.isForeignKey() ? foreignKeyValidity : indexValidity;
+      Boolean valid = validity.get(secondaryIndex.getName());
+      if (!Boolean.TRUE.equals(valid)) incomplete.put(secondaryIndex, valid);
+    }
+    return incomplete;
+  }
+
+  /**
+   * Runs the specified {@link RebuildTask}s and waits for all of them to complete.
+   *
+   * @param executorService the {@link ExecutorService} to run the tasks on
+   * @param tasks the {@link RebuildTask}s to run
+   * @param completed the number of {@link RebuildTask}s that have completed so far, for logging
+   * @param total the total number of {@link RebuildTask}s being run, for logging
+   * @throws IllegalStateException (wrapping the first failure) if any of the tasks failed
+   */
+  private void runAll(
+      ExecutorService executorService,
+      List<RebuildTask> tasks,
+      AtomicInteger completed,
+      int total) {
+    List<Future<Void>> futures =
+        tasks.stream()
+            .map(
+                task ->
+                    executorService.submit(
+                        (Callable<Void>)
+                            () -> {
+                              rebuild(task);
+                              LOGGER.info(
+                                  "Rebuilt '{}' ({} of {}).",
+                                  task.secondaryIndex.getName(),
+                                  completed.incrementAndGet(),
+                                  total);
+                              return null;
+                            }))
+            .collect(Collectors.toList());
+
+    Throwable firstFailure = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        LOGGER.error("Failed to rebuild a secondary index or foreign key.", e.getCause());
+        if (firstFailure == null) firstFailure = e.getCause();
+      } catch (InterruptedException e) {
+        // Only happens on shutdown(): give up, leaving the rest for the next application run.
+        throw new IllegalStateException(e);
+      }
+    }
+    if (firstFailure != null)
+      throw new IllegalStateException(
+          "Unable to rebuild all secondary indexes and foreign keys.", firstFailure);
+  }
+
+  /**
+   * Runs a {@link RebuildTask}'s statements, on a dedicated connection (<code>
+   * CREATE INDEX CONCURRENTLY</code> can't be run inside a transaction).
+   *
+   * @param task the {@link RebuildTask} to run
+   */
+  private void rebuild(RebuildTask task) {
+    Timer.Context timerIndex =
+        appMetrics.timer(MetricRegistry.name(getClass().getSimpleName(), "rebuilt", "each")).time();
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      connection.setAutoCommit(true);
+      for (String sql : task.statements) statement.execute(sql);
+    } catch (SQLException e) {
+      throw new UncheckedSqlException(e);
+    } finally {
+      timerIndex.stop();
+    }
+    forget(task.secondaryIndex);
+    pendingCounter.dec();
+  }
+
+  /**
+   * @param connection the {@link Connection} to use
+   * @return the {@link SecondaryIndex}es that are currently on the loaded tables, and so can be
+   *     dropped and rebuilt
+   * @throws SQLException any {@link SQLException}s encountered will be bubbled up
+   */
+  private static List<SecondaryIndex> findDroppable(Connection connection) throws SQLException {
+    List<SecondaryIndex> droppable = new ArrayList<>();
+    for (boolean foreignKeys : new boolean[] {false, true}) {
+      try (PreparedStatement statement =
+          connection.prepareStatement(
+              foreignKeys
+                  ? DROPPABLE_FOREIGN_KEYS_CATALOG_QUERY
+                  : DROPPABLE_INDEXES_CATALOG_QUERY)) {
+        statement.setArray(1, connection.createArrayOf("text", UNMANAGED_TABLES));
+        try (ResultSet resultSet = statement.executeQuery()) {
+          while (resultSet.next())
+            droppable.add(
+                SecondaryIndex.create(
+                    resultSet.getString(1),
+                    resultSet.getString(2),
+                    foreignKeys,
+                    resultSet.getString(3)));
+        }
+      }
+    }
+    return droppable;
+  }
+
+  /** @return the {@link SecondaryIndex}es that were dropped, and haven't been rebuilt yet */
+  private List<SecondaryIndex> findDropped() {
+    List<SecondaryIndex> dropped = new ArrayList<>();
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery(DROPPED_SELECT_SQL)) {
+      while (resultSet.next())
+        dropped.add(
+            SecondaryIndex.create(
+                resultSet.getString(1),
+                resultSet.getString(2),
+                resultSet.getBoolean(3),
+                resultSet.getString(4)));
+    } catch (SQLException e) {
+      throw new UncheckedSqlException(e);
+    }
+    return dropped;
+  }
+
+  /**
+   * Deletes the record of the specified {@link SecondaryIndex}, once it's been rebuilt.
+   *
+   * @param secondaryIndex the {@link SecondaryIndex} that has been rebuilt
+   */
+  private void forget(SecondaryIndex secondaryIndex) {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement(DROPPED_DELETE_SQL)) {
+      connection.setAutoCommit(true);
+      statement.setString(1, secondaryIndex.getName());
+      statement.setBoolean(2, secondaryIndex.isForeignKey());
+      statement.executeUpdate();
+    } catch (SQLException e) {
+      throw new UncheckedSqlException(e);
+    }
+  }
+
+  /**
+   * @param connection the {@link Connection} to use
+   * @param secondaryIndexes the {@link SecondaryIndex}es whose tables should be checked
+   * @return the estimated total number of rows in the specified {@link SecondaryIndex}es' tables
+   * @throws SQLException any {@link SQLException}s encountered will be bubbled up
+   */
+  private static long estimateRows(Connection connection, List<SecondaryIndex> secondaryIndexes)
+      throws SQLException {
+    String[] tables =
+        secondaryIndexes.stream().map(SecondaryIndex::getTable).distinct().toArray(String[]::new);
+
+    try (PreparedStatement statement = connection.prepareStatement(ROW_ESTIMATE_CATALOG_QUERY)) {
+      statement.setArray(1, connection.createArrayOf("text", tables));
+      try (ResultSet resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getLong(1);
+      }
+    }
+  }
+
+  /**
+   * @param query the catalog query to run, which must select a name and a validity flag
+   * @param secondaryIndexes the {@link SecondaryIndex}es to query for
+   * @param foreignKeys <code>true</code> to query for the foreign keys' names, <code>false</code>
+   *     for the indexes'
+   * @return the validity flag of each of the specified {@link SecondaryIndex}es that exist, by name
+   */
+  private Map<String, Boolean> queryCatalog(
+      String query, List<SecondaryIndex> secondaryIndexes, boolean foreignKeys) {
+    String[] names =
+        secondaryIndexes.stream()
+            .filter(i -> i.isForeignKey() == foreignKeys)
+            .map(SecondaryIndex::getName)
+            .toArray(String[]::new);
+
+    Map<String, Boolean> validity = new HashMap<>();
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement(query)) {
+      Array namesArray = connection.createArrayOf("text", names);
+      statement.setArray(1, namesArray);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) validity.put(resultSet.getString(1), resultSet.getBoolean(2));
+      }
+    } catch (SQLException e) {
+      throw new UncheckedSqlException(e);
+    }
+    return validity;
+  }
+
+  /** Models a single secondary index or foreign key, and the SQL to manage it. */
+  static final class SecondaryIndex {
+    private static final String INDEX_DEFINITION_PREFIX = "CREATE INDEX ";
+    private static final String NOT_VALID_SUFFIX = " NOT VALID";
+
+    private final String name;
+    private final String table;
+    private final boolean foreignKey;
+    private final String definition;
+    private final String createSql;
+    private final String dropSql;
+    private final String validateSql;
+
+    /**
+     * Constructs a new {@link SecondaryIndex}.
+     *
+     * @param name the value to use for {@link #getName()}
+     * @param table the value to use for {@link #getTable()}
+     * @param foreignKey the value to use for {@link #isForeignKey()}
+     * @param definition the value to use for {@link #getDefinition()}
+     * @param createSql the value to use for {@link #getCreateSql()}
+     * @param dropSql the value to use for {@link #getDropSql()}
+     * @param validateSql the value to use for {@link #getValidateSql()}
+     */
+    private SecondaryIndex(
+        String name,
+        String table,
+        boolean foreignKey,
+        String definition,
+        String createSql,
+        String dropSql,
+        String validateSql) {
+      this.name = name;
+      this.table = table;
+      this.foreignKey = foreignKey;
+      this.definition = definition;
+      this.createSql = createSql;
+      this.dropSql = dropSql;
+      this.validateSql = validateSql;
+    }
+
+    /**
+     * @param name the name of the index or foreign key constraint
+     * @param table the name of the table that the index or foreign key is on
+     * @param foreignKey <code>true</code> for a foreign key, <code>false</code> for an index
+     * @param definition the index's or foreign key's definition, as returned by PostgreSQL's <code>
+     *     pg_get_indexdef(...)</code> or <code>pg_get_constraintdef(...)</code>, respectively
+     * @return a {@link SecondaryIndex} for the specified index or foreign key
+     */
+    static SecondaryIndex create(String name, String table, boolean foreignKey, String definition) {
+      return foreignKey ? foreignKey(name, table, definition) : index(name, table, definition);
+    }
+
+    /**
+     * @param name the name of the index
+     * @param table the name of the table that the index is on
+     * @param definition the index's definition, as returned by <code>pg_get_indexdef(...)</code>,
+     *     e.g. <code>CREATE INDEX "foo_idx" ON public."foo" USING btree ("bar")</code>
+     * @return a {@link SecondaryIndex} for the specified index
+     */
+    static SecondaryIndex index(String name, String table, String definition) {
+      if (!definition.startsWith(INDEX_DEFINITION_PREFIX))
+        throw new IllegalArgumentException(
+            String.format("Unsupported definition for index '%s': %s", name, definition));
+
+      return new SecondaryIndex(
+          name,
+          table,
+          false,
+          definition,
+          "CREATE INDEX CONCURRENTLY IF NOT EXISTS "
+              + definition.substring(INDEX_DEFINITION_PREFIX.length()),
+          String.format("drop index if exists \"%s\"", name),
+          null);
+    }
+
+    /**
+     * @param name the name of the foreign key constraint
+     * @param table the name of the table that the foreign key is on
+     * @param definition the foreign key's definition, as returned by <code>
+     *     pg_get_constraintdef(...)</code>, e.g. <code>FOREIGN KEY ("bar") REFERENCES "baz"("bar")
+     *     </code>
+     * @return a {@link SecondaryIndex} for the specified foreign key
+     */
+    static SecondaryIndex foreignKey(String name, String table, String definition) {
+      // Foreign keys are always re-added as NOT VALID, and then validated.
+      String validDefinition =
+          definition.endsWith(NOT_VALID_SUFFIX)
+              ? definition.substring(0, definition.length() - NOT_VALID_SUFFIX.length())
+              : definition;
+
+      return new SecondaryIndex(
+          name,
+          table,
+          true,
+          validDefinition,
+          String.format(
+              "alter table \"%s\" add constraint \"%s\" %s not valid",
+              table, name, validDefinition),
+          String.format("alter table \"%s\" drop constraint if exists \"%s\"", table, name),
+          String.format("alter table \"%s\" validate constraint \"%s\"", table, name));
+    }
+
+    /** @return the name of the index or foreign key constraint */
+    String getName() {
+      return name;
+    }
+
+    /** @return the name of the table that this index or foreign key is on */
+    String getTable() {
+      return table;
+    }
+
+    /** @return <code>true</code> if this is a foreign key, <code>false</code> if it's an index */
+    boolean isForeignKey() {
+      return foreignKey;
+    }
+
+    /**
+     * @return the index's or foreign key's definition, as recorded when it was dropped (without any
+     *     <code>NOT VALID</code>)
+     */
+    String getDefinition() {
+      return definition;
+    }
+
+    /**
+     * @return the SQL to create this index (concurrently), or to add this foreign key without
+     *     validating it
+     */
+    String getCreateSql() {
+      return createSql;
+    }
+
+    /** @return the SQL to drop this index or foreign key, if it exists */
+    String getDropSql() {
+      return dropSql;
+    }
+
+    /** @return the SQL to validate this foreign key, or <code>null</code> for indexes */
+    String getValidateSql() {
+      return validateSql;
+    }
+  }
+
+  /** The statements needed to rebuild a single {@link SecondaryIndex}. */
+  private static final class RebuildTask {
+    private final SecondaryIndex secondaryIndex;
+    private final List<String> statements;
+
+    /**
+     * @param secondaryIndex the {@link SecondaryIndex} being rebuilt
+     * @param statements the SQL statements to run, in order
+     */
+    RebuildTask(SecondaryIndex secondaryIndex, List<String> statements) {
+      this.secondaryIndex = secondaryIndex;
+      this.statements = statements;
+    }
+  }
+}
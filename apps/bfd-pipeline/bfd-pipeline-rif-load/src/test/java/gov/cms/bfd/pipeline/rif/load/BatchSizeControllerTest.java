@@ -0,0 +1,68 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.RifFileType;
+import java.nio.charset.StandardCharsets;
+import javax.sql.DataSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link gov.cms.bfd.pipeline.rif.load.BatchSizeController}. */
+public final class BatchSizeControllerTest {
+  /**
+   * Verifies that {@link BatchSizeController} grows the batch sizes for a {@link RifFileType} when
+   * doing so keeps improving throughput, without exceeding the {@link LoadAppOptions} limits, and
+   * without affecting other {@link RifFileType}s.
+   */
+  @Test
+  public void growsWhileThroughputImproves() {
+    BatchSizeController controller = new BatchSizeController(createOptions(150, 12));
+    Assert.assertEquals(100, controller.getRecordBatchSize(RifFileType.CARRIER));
+    Assert.assertEquals(10, controller.getJdbcBatchSize(RifFileType.CARRIER));
+
+    // Simulate a fixed per-transaction overhead, so that bigger batches are always faster.
+    for (int i = 0; i < 50 * BatchSizeController.WINDOW_BATCHES; i++) {
+      int recordCount = controller.getRecordBatchSize(RifFileType.CARRIER);
+      long transactionNanos = 10_000_000L + recordCount * 10_000L;
+      controller.batchCompleted(RifFileType.CARRIER, recordCount, transactionNanos, 1_000_000L);
+    }
+
+    Assert.assertEquals(150, controller.getRecordBatchSize(RifFileType.CARRIER));
+    Assert.assertTrue(controller.getJdbcBatchSize(RifFileType.CARRIER) <= 12);
+    Assert.assertEquals(100, controller.getRecordBatchSize(RifFileType.BENEFICIARY));
+  }
+
+  /**
+   * Verifies that {@link BatchSizeController#batchFailed(RifFileType)} immediately shrinks the
+   * number of records per transaction, but never below <code>1</code>.
+   */
+  @Test
+  public void shrinksOnFailure() {
+    BatchSizeController controller = new BatchSizeController(createOptions(1000, 100));
+
+    controller.batchFailed(RifFileType.BENEFICIARY);
+    Assert.assertEquals(50, controller.getRecordBatchSize(RifFileType.BENEFICIARY));
+
+    for (int i = 0; i < 10; i++) controller.batchFailed(RifFileType.BENEFICIARY);
+    Assert.assertEquals(1, controller.getRecordBatchSize(RifFileType.BENEFICIARY));
+  }
+
+  /**
+   * @param maxRecordBatchSize the value to use for {@link
+   *     LoadTuningOptions#getMaxRecordBatchSize()}
+   * @param maxJdbcBatchSize the value to use for {@link LoadTuningOptions#getMaxJdbcBatchSize()}
+   * @return {@link LoadAppOptions} with the specified batch size limits
+   */
+  private static LoadAppOptions createOptions(int maxRecordBatchSize, int maxJdbcBatchSize) {
+    return new LoadAppOptions(
+        1000,
+        "nottherealpepper".getBytes(StandardCharsets.UTF_8),
+        (DataSource) null,
+        1,
+        true,
+        false,
+        1,
+        new LoadTuningOptions()
+            .withMaxRecordBatchSize(maxRecordBatchSize)
+            .withMaxJdbcBatchSize(maxJdbcBatchSize));
+  }
+}
@@ -0,0 +1,87 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.LoadedBatchBuilder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.spark.util.sketch.BloomFilter;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link gov.cms.bfd.pipeline.rif.load.BeneficiaryFilterBuilder}. */
+public final class BeneficiaryFilterBuilderTest {
+  /**
+   * Verifies that {@link BeneficiaryFilterBuilder#snapshot(boolean)}'s watermark holds back for the
+   * batches that are still in flight, and that the published filter contains the committed batches.
+   */
+  @Test
+  public void snapshotsHaveWatermarks() throws IOException {
+    BeneficiaryFilterBuilder beneficiaryFilter = new BeneficiaryFilterBuilder(1);
+    LoadedBatchBuilder firstBatch = beneficiaryFilter.startBatch(0, 1);
+    firstBatch.associateBeneficiary("1");
+    LoadedBatchBuilder secondBatch = beneficiaryFilter.startBatch(1, 1);
+    secondBatch.associateBeneficiary("2");
+    LoadedBatchBuilder thirdBatch = beneficiaryFilter.startBatch(2, 1);
+    thirdBatch.associateBeneficiary("3");
+
+    // The first batch is still in flight, so nothing is known to be covered yet.
+    beneficiaryFilter.batchCommitted(secondBatch.build());
+    BeneficiaryFilterBuilder.Snapshot snapshot = beneficiaryFilter.snapshot(false);
+    Assert.assertEquals(firstBatch.getTimestamp(), snapshot.getWatermark());
+    Assert.assertEquals(0, snapshot.getBatchCount());
+    Assert.assertTrue(readFilters(snapshot).stream().anyMatch(f -> f.mightContain("2")));
+
+    // Nothing's in flight, but more batches might still be started.
+    beneficiaryFilter.batchCommitted(firstBatch.build());
+    beneficiaryFilter.batchFailed(thirdBatch);
+    snapshot = beneficiaryFilter.snapshot(false);
+    Assert.assertFalse(snapshot.getWatermark().before(thirdBatch.getTimestamp()));
+    Assert.assertEquals(2, snapshot.getBatchCount());
+
+    snapshot = beneficiaryFilter.snapshot(true);
+    Assert.assertNull(snapshot.getWatermark());
+    Assert.assertEquals(2, snapshot.getBatchCount());
+    Assert.assertEquals(2, snapshot.getBeneficiaryCount());
+    List<BloomFilter> filters = readFilters(snapshot);
+    Assert.assertTrue(filters.stream().anyMatch(f -> f.mightContain("1")));
+    Assert.assertFalse(filters.stream().anyMatch(f -> f.mightContain("3")));
+  }
+
+  /**
+   * Verifies that {@link BeneficiaryFilterBuilder} adds filter segments as it fills up, and that
+   * every beneficiary can still be found.
+   */
+  @Test
+  public void growsAsNeeded() throws IOException {
+    BeneficiaryFilterBuilder beneficiaryFilter = new BeneficiaryFilterBuilder(1);
+    for (int batch = 0; batch < 250; batch++) {
+      LoadedBatchBuilder loadedBatchBuilder = beneficiaryFilter.startBatch(batch * 1000, 1000);
+      for (int i = 0; i < 1000; i++)
+        loadedBatchBuilder.associateBeneficiary(String.valueOf(batch * 1000 + i));
+      beneficiaryFilter.batchCommitted(loadedBatchBuilder.build());
+    }
+
+    BeneficiaryFilterBuilder.Snapshot snapshot = beneficiaryFilter.snapshot(true);
+    Assert.assertEquals(250, snapshot.getBatchCount());
+    List<BloomFilter> filters = readFilters(snapshot);
+    Assert.assertEquals(2, filters.size());
+    for (int i = 0; i < 250 * 1000; i += 997) {
+      String beneficiaryId = String.valueOf(i);
+      Assert.assertTrue(filters.stream().anyMatch(f -> f.mightContain(beneficiaryId)));
+    }
+  }
+
+  /**
+   * @param snapshot the {@link BeneficiaryFilterBuilder.Snapshot} to read
+   * @return the filter segments in the specified {@link BeneficiaryFilterBuilder.Snapshot}
+   */
+  private static List<BloomFilter> readFilters(BeneficiaryFilterBuilder.Snapshot snapshot)
+      throws IOException {
+    ByteArrayInputStream serializedFilter =
+        new ByteArrayInputStream(snapshot.getSerializedFilter());
+    List<BloomFilter> filters = new ArrayList<>();
+    while (serializedFilter.available() > 0) filters.add(BloomFilter.readFrom(serializedFilter));
+    return filters;
+  }
+}
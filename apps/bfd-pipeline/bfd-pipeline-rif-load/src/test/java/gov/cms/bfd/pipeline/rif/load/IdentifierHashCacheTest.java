@@ -0,0 +1,60 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.MetricRegistry;
+import java.nio.charset.StandardCharsets;
+import javax.sql.DataSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link gov.cms.bfd.pipeline.rif.load.IdentifierHashCache}. */
+public final class IdentifierHashCacheTest {
+  /**
+   * Verifies that {@link IdentifierHashCache} returns the same hashes as {@link
+   * RifLoader#computeHicnHash(LoadAppOptions, javax.crypto.SecretKeyFactory, String)}, and only
+   * computes each one once.
+   */
+  @Test
+  public void cachesHashes() {
+    LoadAppOptions options = createOptions(10);
+    MetricRegistry metrics = new MetricRegistry();
+    IdentifierHashCache hashCache =
+        new IdentifierHashCache(options, RifLoader.createSecretKeyFactory(), metrics);
+
+    // This is one of the samples from `dev/design-decisions-readme.md`.
+    String expectedHash = "d95a418b0942c7910fb1d0e84f900fe12e5a7fd74f312fa10730cc0fda230e9a";
+    Assert.assertEquals(expectedHash, hashCache.computeHicnHash("123456789A"));
+    Assert.assertEquals(expectedHash, hashCache.computeHicnHash("123456789A"));
+    Assert.assertEquals(expectedHash, hashCache.computeMbiHash("123456789A"));
+
+    Assert.assertEquals(1, metrics.meter("IdentifierHashCache.misses").getCount());
+    Assert.assertEquals(2, metrics.meter("IdentifierHashCache.hits").getCount());
+  }
+
+  /** Verifies that {@link IdentifierHashCache} can be disabled via its size. */
+  @Test
+  public void cachingCanBeDisabled() {
+    MetricRegistry metrics = new MetricRegistry();
+    IdentifierHashCache hashCache =
+        new IdentifierHashCache(createOptions(0), RifLoader.createSecretKeyFactory(), metrics);
+
+    Assert.assertEquals(hashCache.computeMbiHash("3456789"), hashCache.computeMbiHash("3456789"));
+    Assert.assertEquals(2, metrics.meter("IdentifierHashCache.misses").getCount());
+    Assert.assertEquals(0, metrics.meter("IdentifierHashCache.hits").getCount());
+  }
+
+  /**
+   * @param hashCacheSize the value to use for {@link LoadTuningOptions#getHashCacheSize()}
+   * @return {@link LoadAppOptions} with the same hashing parameters as {@link RifLoaderTest}
+   */
+  private static LoadAppOptions createOptions(int hashCacheSize) {
+    return new LoadAppOptions(
+        1000,
+        "nottherealpepper".getBytes(StandardCharsets.UTF_8),
+        (DataSource) null,
+        1,
+        true,
+        false,
+        1,
+        new LoadTuningOptions().withHashCacheSize(hashCacheSize));
+  }
+}
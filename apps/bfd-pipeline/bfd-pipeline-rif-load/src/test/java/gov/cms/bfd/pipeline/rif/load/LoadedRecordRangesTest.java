@@ -0,0 +1,45 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link gov.cms.bfd.pipeline.rif.load.LoadedRecordRanges}. */
+public final class LoadedRecordRangesTest {
+  /**
+   * Verifies that {@link LoadedRecordRanges} merges overlapping and adjacent ranges, and correctly
+   * reports the watermark and the loaded records past it.
+   */
+  @Test
+  public void mergesRanges() {
+    LoadedRecordRanges ranges =
+        new LoadedRecordRanges(
+            Arrays.asList(
+                new long[] {200, 100},
+                new long[] {0, 100},
+                new long[] {100, 50},
+                new long[] {120, 10}));
+
+    Assert.assertFalse(ranges.isEmpty());
+    Assert.assertEquals(150, ranges.getWatermark());
+    Assert.assertEquals(250, ranges.getLoadedCount());
+    Assert.assertTrue(ranges.isLoaded(0));
+    Assert.assertTrue(ranges.isLoaded(149));
+    Assert.assertFalse(ranges.isLoaded(150));
+    Assert.assertFalse(ranges.isLoaded(199));
+    Assert.assertTrue(ranges.isLoaded(200));
+    Assert.assertTrue(ranges.isLoaded(299));
+    Assert.assertFalse(ranges.isLoaded(300));
+  }
+
+  /** Verifies that {@link LoadedRecordRanges} has no watermark when the first batch is missing. */
+  @Test
+  public void noWatermarkWithoutFirstBatch() {
+    LoadedRecordRanges ranges = new LoadedRecordRanges(Arrays.asList(new long[] {100, 100}));
+
+    Assert.assertEquals(0, ranges.getWatermark());
+    Assert.assertFalse(ranges.isLoaded(0));
+    Assert.assertTrue(ranges.isLoaded(100));
+    Assert.assertTrue(LoadedRecordRanges.NONE.isEmpty());
+  }
+}
@@ -0,0 +1,50 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.BeneficiaryCsvWriter;
+import gov.cms.bfd.model.rif.CarrierClaimCsvWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link gov.cms.bfd.pipeline.rif.load.PostgreSqlUpserter}. */
+public final class PostgreSqlUpserterTest {
+  /**
+   * Verifies that {@link PostgreSqlUpserter#createUpsertSql(String, java.util.List, int, String,
+   * boolean)} leaves already-present rows alone for inserts, and only updates changed rows for
+   * updates.
+   */
+  @Test
+  public void upsertSqlOnlyUpdatesChangedRows() {
+    String insertSql =
+        PostgreSqlUpserter.createUpsertSql(
+            BeneficiaryCsvWriter.HEADER_TABLE,
+            BeneficiaryCsvWriter.HEADER_COLUMNS,
+            2,
+            BeneficiaryCsvWriter.HEADER_ID_COLUMN,
+            false);
+    Assert.assertTrue(insertSql, insertSql.contains(" ON CONFLICT DO NOTHING RETURNING "));
+
+    String updateSql =
+        PostgreSqlUpserter.createUpsertSql(
+            BeneficiaryCsvWriter.HEADER_TABLE,
+            BeneficiaryCsvWriter.HEADER_COLUMNS,
+            2,
+            BeneficiaryCsvWriter.HEADER_ID_COLUMN,
+            true);
+    Assert.assertTrue(updateSql, updateSql.contains(" ON CONFLICT (\"beneficiaryId\") DO UPDATE "));
+    Assert.assertTrue(updateSql, updateSql.contains("\"lastupdated\" = EXCLUDED.\"lastupdated\""));
+    String comparison =
+        updateSql.substring(updateSql.indexOf(" WHERE ("), updateSql.indexOf(" RETURNING "));
+    Assert.assertTrue(comparison, comparison.contains(") IS DISTINCT FROM (EXCLUDED."));
+    Assert.assertFalse(comparison, comparison.contains("lastupdated"));
+    Assert.assertFalse(comparison, comparison.contains("\"beneficiaryId\""));
+
+    String claimSql =
+        PostgreSqlUpserter.createUpsertSql(
+            CarrierClaimCsvWriter.HEADER_TABLE,
+            CarrierClaimCsvWriter.HEADER_COLUMNS,
+            1,
+            null,
+            true);
+    Assert.assertTrue(claimSql, claimSql.endsWith(" ON CONFLICT DO NOTHING"));
+  }
+}
@@ -25,7 +25,9 @@ import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -35,6 +37,7 @@ import javax.persistence.EntityTransaction;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.EntityType;
 import javax.sql.DataSource;
 import org.junit.Assert;
 import org.junit.Ignore;
@@ -44,6 +47,18 @@ import org.slf4j.LoggerFactory;
 
 /** Integration tests for {@link gov.cms.bfd.pipeline.rif.load.RifLoader}. */
 public final class RifLoaderIT {
+  /** The names of the claim entities that have a samhsaRelated flag. */
+  private static final List<String> SAMHSA_FLAGGED_ENTITY_NAMES =
+      Arrays.asList(
+          "CarrierClaim",
+          "DMEClaim",
+          "HHAClaim",
+          "HospiceClaim",
+          "InpatientClaim",
+          "OutpatientClaim",
+          "PartDEvent",
+          "SNFClaim");
+
   private static final Logger LOGGER = LoggerFactory.getLogger(RifLoaderIT.class);
 
   /**
@@ -56,6 +71,43 @@ public final class RifLoaderIT {
     loadSample(dataSource, Arrays.asList(StaticRifResourceGroup.SAMPLE_A.getResources()));
   }
 
+  /**
+   * Runs {@link RifLoader} against the {@link StaticRifResourceGroup#SAMPLE_A} data twice, and
+   * verifies that the second (idempotent) load doesn't add any rows to any of the tables.
+   */
+  @Test
+  public void loadSampleATwice() {
+    DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    loadSample(dataSource, Arrays.asList(StaticRifResourceGroup.SAMPLE_A.getResources()));
+    Map<String, Long> rowCountsAfterFirstLoad = countRecordRows(dataSource);
+
+    loadSample(dataSource, Arrays.asList(StaticRifResourceGroup.SAMPLE_A.getResources()));
+    Assert.assertEquals(rowCountsAfterFirstLoad, countRecordRows(dataSource));
+  }
+
+  /**
+   * Runs {@link RifLoader} against the {@link StaticRifResourceGroup#SAMPLE_A} data, with {@link
+   * LoadTuningOptions#isCopyLoadEnabled()} turned on. Note that PostgreSQL's <code>COPY</code> will
+   * only actually be used when the tests are being run against PostgreSQL: for other databases,
+   * this instead verifies that the loader falls back to regular inserts.
+   */
+  @Test
+  public void loadSampleAWithCopy() {
+    DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    LoadAppOptions defaultOptions = RifLoaderTestUtils.getLoadOptions(dataSource);
+    LoadAppOptions copyOptions =
+        new LoadAppOptions(
+            defaultOptions.getHicnHashIterations(),
+            defaultOptions.getHicnHashPepper(),
+            defaultOptions.getDatabaseDataSource(),
+            defaultOptions.getLoaderThreads(),
+            false,
+            defaultOptions.isFixupsEnabled(),
+            defaultOptions.getFixupThreads(),
+            new LoadTuningOptions().withCopyLoadEnabled(true));
+    loadSample(copyOptions, Arrays.asList(StaticRifResourceGroup.SAMPLE_A.getResources()));
+  }
+
   @Ignore
   @Test
   public void loadSampleAWithoutClean() {
@@ -84,6 +136,11 @@ public final class RifLoaderIT {
               "Expected to match the sample-a beneficiary",
               "567834",
               allBatches.getBeneficiariesAsList().get(0));
+
+          // Verify that the file's final beneficiary filter was published
+          Assert.assertNotNull(loadedFile.getBeneficiaryFilter());
+          Assert.assertNull(loadedFile.getBeneficiaryFilterWatermark());
+          Assert.assertEquals(batches.size(), loadedFile.getBeneficiaryFilterBatches().intValue());
         });
   }
 
@@ -151,6 +208,44 @@ public final class RifLoaderIT {
         });
   }
 
+  /**
+   * Verifies that {@link RifLoader#findCheckpoint(RifFileEvent)} only resumes from the attempts to
+   * load a file that didn't finish, so that deliberately reloading the same data set loads every
+   * record again.
+   */
+  @Test
+  public void resumeOnlyIncompleteLoads() {
+    RifLoaderTestUtils.doTestWithDb(
+        (dataSource, entityManager) -> {
+          StaticRifResource beneficiaryResource = StaticRifResource.SAMPLE_A_BENES;
+          RifFilesEvent rifFilesEvent =
+              new RifFilesEvent(Instant.now(), beneficiaryResource.toRifFile());
+          RifFileEvent rifFileEvent = rifFilesEvent.getFileEvents().get(0);
+          RifLoader loader =
+              new RifLoader(new MetricRegistry(), RifLoaderTestUtils.getLoadOptions(dataSource));
+          AtomicInteger failureCount = new AtomicInteger(0);
+          loader.process(
+              new RifFilesProcessor().produceRecords(rifFileEvent),
+              error -> failureCount.incrementAndGet(),
+              result -> {});
+          Assert.assertEquals(0, failureCount.get());
+
+          // The load finished, so there's nothing to resume.
+          LoadedFile loadedFile = RifLoaderTestUtils.findLoadedFiles(entityManager).get(0);
+          Assert.assertNotNull(loadedFile.getCompleted());
+          Assert.assertEquals(0, loader.findCheckpoint(rifFileEvent));
+
+          // Pretend that the load was interrupted, instead.
+          EntityTransaction txn = entityManager.getTransaction();
+          txn.begin();
+          loadedFile.setCompleted(null);
+          txn.commit();
+          Assert.assertEquals(
+              beneficiaryResource.getRecordCount(), loader.findCheckpoint(rifFileEvent));
+          loader.close();
+        });
+  }
+
   @Ignore
   @Test
   public void buildSyntheticLoadedFiles() {
@@ -208,7 +303,8 @@ public final class RifLoaderIT {
                       lastUpdated.after(Date.from(Instant.now().minus(10, ChronoUnit.MINUTES))));
                 });
       }
-      Assert.assertEquals(4, beneficiaryHistoryEntries.size());
+      // SAMPLE_A's two identical history rows are only stored once.
+      Assert.assertEquals(3, beneficiaryHistoryEntries.size());
 
       Beneficiary beneficiaryFromDb = entityManager.find(Beneficiary.class, "567834");
       // Last Name inserted with value of "Johnson"
@@ -309,9 +405,12 @@ public final class RifLoaderIT {
                       lastUpdated.after(Date.from(Instant.now().minusSeconds(secs))));
                 });
       }
-      // Make sure the size is the same and no records have been inserted if the same fields in the
-      // beneficiary history table are the same.
-      Assert.assertEquals(4, beneficiaryHistoryEntries.size());
+      /*
+       * Make sure the size is the same and no records have been inserted if the same fields in the
+       * beneficiary history table are the same. Note: SAMPLE_A's history file has two identical
+       * rows, which are only stored once, as history records are matched on their natural key.
+       */
+      Assert.assertEquals(3, beneficiaryHistoryEntries.size());
 
     } finally {
       if (entityManager != null) entityManager.close();
@@ -589,6 +688,13 @@ public final class RifLoaderIT {
         loader.getIdleTasks().getCurrentTask());
     loader.doIdleTask();
 
+    // Run the post startup SAMHSA flags task
+    Assert.assertEquals(
+        "Should be running the post-startup task",
+        RifLoaderIdleTasks.Task.POST_STARTUP_FIXUP_SAMHSA_FLAGS,
+        loader.getIdleTasks().getCurrentTask());
+    loader.doIdleTask();
+
     // Should mbiHash should be set now
     Assert.assertEquals(
         "Should be running the normal task",
@@ -645,6 +751,61 @@ public final class RifLoaderIT {
     loader.close();
   }
 
+  /**
+   * Tests the RifLoaderIdleTasks SAMHSA flags fixup, against claims that were loaded before the
+   * samhsaRelated flag was introduced (and so have a <code>null</code> flag).
+   */
+  @Test
+  public void runIdleTasksWithUnflaggedClaims() {
+    final DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    loadSample(dataSource, Arrays.asList(StaticRifResourceGroup.SAMPLE_A.getResources()));
+    final RifLoader loader = createLoader(dataSource, true);
+    EntityManager em = RifLoader.createEntityManagerFactory(dataSource).createEntityManager();
+
+    // Remember the flags calculated at load time (none of which are SAMHSA-related), then clear
+    // them.
+    Map<String, Boolean> expectedFlags = querySamhsaFlags(em);
+    Assert.assertFalse(expectedFlags.isEmpty());
+    Assert.assertTrue(expectedFlags.values().stream().allMatch(f -> Boolean.FALSE.equals(f)));
+    clearSamhsaFlags(loader);
+
+    // Also make the carrier claim SAMHSA-related, so that both flag values get fixed up.
+    loader
+        .getIdleTasks()
+        .doBatches(
+            (session) -> {
+              session
+                  .createQuery(
+                      "update CarrierClaim set diagnosis1Code = :code,"
+                          + " diagnosis1CodeVersion = :version")
+                  .setParameter("code", "F1010")
+                  .setParameter("version", '0')
+                  .executeUpdate();
+              return true;
+            });
+    expectedFlags.put("CarrierClaim:9991831999", true);
+    em.clear();
+    Assert.assertTrue(querySamhsaFlags(em).values().stream().allMatch(f -> f == null));
+
+    // Run all of the idle tasks through to the normal task.
+    for (int i = 0;
+        i < 10 && loader.getIdleTasks().getCurrentTask() != RifLoaderIdleTasks.Task.NORMAL;
+        i++) {
+      loader.doIdleTask();
+    }
+    Assert.assertEquals(
+        "Should be running the normal task",
+        RifLoaderIdleTasks.Task.NORMAL,
+        loader.getIdleTasks().getCurrentTask());
+
+    // Every claim should now be flagged, per its (possibly updated) codes.
+    em.clear();
+    Assert.assertEquals(expectedFlags, querySamhsaFlags(em));
+
+    em.close();
+    loader.close();
+  }
+
   /**
    * Tests the RifLoaderIdleTasks class with existing data in the database. Useful for profiling
    * against the beneficiary data set.
@@ -689,6 +850,17 @@ public final class RifLoaderIT {
    * @param sampleGroup the {@link StaticRifResourceGroup} to load
    */
   private void loadSample(DataSource dataSource, List<StaticRifResource> sampleResources) {
+    loadSample(RifLoaderTestUtils.getLoadOptions(dataSource), sampleResources);
+  }
+
+  /**
+   * Runs {@link gov.cms.bfd.pipeline.rif.load.RifLoader} against the specified {@link
+   * StaticRifResourceGroup}.
+   *
+   * @param options the {@link LoadAppOptions} to use, which specify the test DB to use
+   * @param sampleGroup the {@link StaticRifResourceGroup} to load
+   */
+  private void loadSample(LoadAppOptions options, List<StaticRifResource> sampleResources) {
     LOGGER.info("Loading RIF file from {}...", sampleResources.get(0).getResourceUrl().toString());
 
     RifFilesEvent rifFilesEvent =
@@ -699,7 +871,6 @@ public final class RifLoaderIT {
     // Create the processors that will handle each stage of the pipeline.
     MetricRegistry appMetrics = new MetricRegistry();
     RifFilesProcessor processor = new RifFilesProcessor();
-    LoadAppOptions options = RifLoaderTestUtils.getLoadOptions(dataSource);
     RifLoader loader = new RifLoader(appMetrics, options);
 
     // Link up the pipeline and run it.
@@ -757,6 +928,35 @@ public final class RifLoaderIT {
     loader.close();
   }
 
+  /**
+   * @param dataSource the {@link DataSource} of the database to check
+   * @return the number of rows stored for each of the RIF record entities (i.e. everything other
+   *     than {@link LoadedFile}s and {@link LoadedBatch}es), keyed by entity name
+   */
+  private static Map<String, Long> countRecordRows(DataSource dataSource) {
+    EntityManagerFactory entityManagerFactory =
+        RifLoaderTestUtils.createEntityManagerFactory(
+            RifLoaderTestUtils.getLoadOptions(dataSource));
+    EntityManager entityManager = null;
+    try {
+      entityManager = entityManagerFactory.createEntityManager();
+      Map<String, Long> rowCounts = new TreeMap<>();
+      for (EntityType<?> entityType : entityManager.getMetamodel().getEntities()) {
+        if (entityType.getJavaType() == LoadedFile.class
+            || entityType.getJavaType() == LoadedBatch.class) continue;
+        rowCounts.put(
+            entityType.getName(),
+            entityManager
+                .createQuery(
+                    String.format("select count(e) from %s e", entityType.getName()), Long.class)
+                .getSingleResult());
+      }
+      return rowCounts;
+    } finally {
+      if (entityManager != null) entityManager.close();
+    }
+  }
+
   /**
    * Load the batches associated with a particular file
    *
@@ -1128,6 +1328,43 @@ public final class RifLoaderIT {
     Assert.assertEquals(
         partDSegmentNumberId.orElse(null), enrollment.getPartDSegmentNumberId().orElse(null));
   }
+  /**
+   * @param entityManager the {@link EntityManager} to query with
+   * @return the samhsaRelated flag of every claim in the database, keyed by claim entity and ID
+   */
+  private static Map<String, Boolean> querySamhsaFlags(EntityManager entityManager) {
+    Map<String, Boolean> flags = new TreeMap<>();
+    for (String entityName : SAMHSA_FLAGGED_ENTITY_NAMES) {
+      String idName = entityName.equals("PartDEvent") ? "eventId" : "claimId";
+      List<Object[]> rows =
+          entityManager
+              .createQuery(
+                  String.format("select c.%s, c.samhsaRelated from %s c", idName, entityName),
+                  Object[].class)
+              .getResultList();
+      for (Object[] row : rows) flags.put(entityName + ":" + row[0], (Boolean) row[1]);
+    }
+    return flags;
+  }
+
+  /**
+   * Clear the SAMHSA flag fields in the db, as if the claims had been loaded before they existed.
+   *
+   * @param loader the loader and the db connection within
+   */
+  private static void clearSamhsaFlags(final RifLoader loader) {
+    loader
+        .getIdleTasks()
+        .doBatches(
+            (session) -> {
+              for (String entityName : SAMHSA_FLAGGED_ENTITY_NAMES)
+                session
+                    .createQuery(String.format("update %s set samhsaRelated = null", entityName))
+                    .executeUpdate();
+              return true;
+            });
+  }
+
   /**
    * Clear the MBI hash fields in the db
    *
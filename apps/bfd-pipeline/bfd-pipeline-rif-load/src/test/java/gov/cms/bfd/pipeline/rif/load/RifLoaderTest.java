@@ -1,10 +1,13 @@
 package gov.cms.bfd.pipeline.rif.load;
 
 import gov.cms.bfd.model.rif.Beneficiary;
+import gov.cms.bfd.model.rif.BeneficiaryMonthly;
 import gov.cms.bfd.model.rif.schema.DatabaseTestHelper;
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import javax.crypto.SecretKeyFactory;
 import org.junit.Assert;
@@ -234,4 +237,35 @@ public final class RifLoaderTest {
     newBene.setMbiObsoleteDate(mbiObsoleteDate);
     Assert.assertTrue(RifLoader.isBeneficiaryHistoryEqual(newBene, oldBene));
   }
+
+  /**
+   * Verifies that {@link RifLoader#updateBeneficiaryMonthly(Beneficiary, Beneficiary)} keeps the
+   * already-stored {@link BeneficiaryMonthly} records that haven't changed, and replaces the ones
+   * that have.
+   */
+  @Test
+  public void updateBeneficiaryMonthlyKeepsUnchangedRecords() {
+    Beneficiary oldBene = new Beneficiary();
+    oldBene.setBeneficiaryId("567834");
+    oldBene.setBeneEnrollmentReferenceYear(Optional.of(new BigDecimal(2020)));
+    oldBene.setEntitlementBuyInJanInd(Optional.of('C'));
+    oldBene.setEntitlementBuyInFebInd(Optional.of('C'));
+    oldBene.setBeneficiaryMonthlys(RifLoader.createBeneficiaryMonthlys(oldBene));
+
+    Beneficiary newBene = new Beneficiary();
+    newBene.setBeneficiaryId("567834");
+    newBene.setBeneEnrollmentReferenceYear(Optional.of(new BigDecimal(2020)));
+    newBene.setEntitlementBuyInJanInd(Optional.of('C'));
+    newBene.setEntitlementBuyInFebInd(Optional.of('A'));
+
+    RifLoader.updateBeneficiaryMonthly(oldBene, newBene);
+
+    List<BeneficiaryMonthly> oldMonthlys = oldBene.getBeneficiaryMonthlys();
+    List<BeneficiaryMonthly> newMonthlys = newBene.getBeneficiaryMonthlys();
+    Assert.assertEquals(2, newMonthlys.size());
+    Assert.assertSame(oldMonthlys.get(0), newMonthlys.get(0));
+    Assert.assertNotSame(oldMonthlys.get(1), newMonthlys.get(1));
+    Assert.assertEquals(Optional.of('A'), newMonthlys.get(1).getEntitlementBuyInInd());
+    Assert.assertFalse(RifLoader.isBeneficiaryMonthlyEqual(newMonthlys.get(1), oldMonthlys.get(1)));
+  }
 }
@@ -0,0 +1,80 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.pipeline.rif.load.SecondaryIndexManager.SecondaryIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link gov.cms.bfd.pipeline.rif.load.SecondaryIndexManager}. */
+public final class SecondaryIndexManagerTest {
+  /**
+   * Verifies that {@link SecondaryIndex#create(String, String, boolean, String)} rebuilds an index
+   * from its catalog definition with SQL that can be safely re-run after an interrupted rebuild.
+   */
+  @Test
+  public void indexesAreRebuildable() {
+    SecondaryIndex secondaryIndex =
+        SecondaryIndex.create(
+            "CarrierClaims_beneficiaryId_idx",
+            "CarrierClaims",
+            false,
+            "CREATE INDEX \"CarrierClaims_beneficiaryId_idx\" ON public.\"CarrierClaims\""
+                + " USING btree (\"beneficiaryId\")");
+
+    Assert.assertFalse(secondaryIndex.isForeignKey());
+    Assert.assertEquals(
+        "CREATE INDEX CONCURRENTLY IF NOT EXISTS \"CarrierClaims_beneficiaryId_idx\""
+            + " ON public.\"CarrierClaims\" USING btree (\"beneficiaryId\")",
+        secondaryIndex.getCreateSql());
+    Assert.assertEquals(
+        "drop index if exists \"CarrierClaims_beneficiaryId_idx\"", secondaryIndex.getDropSql());
+    Assert.assertNull(secondaryIndex.getValidateSql());
+  }
+
+  /**
+   * Verifies that {@link SecondaryIndex#create(String, String, boolean, String)} rebuilds a foreign
+   * key from its catalog definition as <code>NOT VALID</code> and then validates it, even if it
+   * hadn't been validated when it was dropped.
+   */
+  @Test
+  public void foreignKeysAreRebuildable() {
+    SecondaryIndex secondaryIndex =
+        SecondaryIndex.create(
+            "CarrierClaims_beneficiaryId_to_Beneficiaries",
+            "CarrierClaims",
+            true,
+            "FOREIGN KEY (\"beneficiaryId\") REFERENCES \"Beneficiaries\"(\"beneficiaryId\")"
+                + " NOT VALID");
+
+    Assert.assertTrue(secondaryIndex.isForeignKey());
+    Assert.assertEquals(
+        "FOREIGN KEY (\"beneficiaryId\") REFERENCES \"Beneficiaries\"(\"beneficiaryId\")",
+        secondaryIndex.getDefinition());
+    Assert.assertEquals(
+        "alter table \"CarrierClaims\" add constraint"
+            + " \"CarrierClaims_beneficiaryId_to_Beneficiaries\" FOREIGN KEY (\"beneficiaryId\")"
+            + " REFERENCES \"Beneficiaries\"(\"beneficiaryId\") not valid",
+        secondaryIndex.getCreateSql());
+    Assert.assertEquals(
+        "alter table \"CarrierClaims\" drop constraint if exists"
+            + " \"CarrierClaims_beneficiaryId_to_Beneficiaries\"",
+        secondaryIndex.getDropSql());
+    Assert.assertEquals(
+        "alter table \"CarrierClaims\" validate constraint"
+            + " \"CarrierClaims_beneficiaryId_to_Beneficiaries\"",
+        secondaryIndex.getValidateSql());
+  }
+
+  /**
+   * Verifies that {@link SecondaryIndex#create(String, String, boolean, String)} rejects index
+   * definitions that it can't rebuild concurrently, e.g. unique indexes.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void unsupportedIndexesAreRejected() {
+    SecondaryIndex.create(
+        "Beneficiaries_foo_key",
+        "Beneficiaries",
+        false,
+        "CREATE UNIQUE INDEX \"Beneficiaries_foo_key\" ON public.\"Beneficiaries\""
+            + " USING btree (\"foo\")");
+  }
+}
@@ -10,6 +10,8 @@ import com.zaxxer.hikari.HikariDataSource;
 import gov.cms.bfd.model.rif.schema.DatabaseSchemaManager;
 import gov.cms.bfd.model.rif.schema.DatabaseTestHelper;
 import gov.cms.bfd.model.rif.schema.DatabaseTestHelper.DataSourceComponents;
+import gov.cms.bfd.server.war.commons.LoadedFilterManager;
+import gov.cms.bfd.server.war.commons.TransformedResourceCache;
 import gov.cms.bfd.server.war.r4.providers.R4CoverageResourceProvider;
 import gov.cms.bfd.server.war.r4.providers.R4PatientResourceProvider;
 import gov.cms.bfd.server.war.stu3.providers.CoverageResourceProvider;
@@ -25,6 +27,9 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceContext;
@@ -55,6 +60,8 @@ public class SpringConfiguration {
   public static final String PROP_DB_PASSWORD = "bfdServer.db.password";
   public static final String PROP_DB_CONNECTIONS_MAX = "bfdServer.db.connections.max";
   public static final String PROP_DB_SCHEMA_APPLY = "bfdServer.db.schema.apply";
+  public static final String PROP_CLAIM_TYPE_QUERY_THREADS = "bfdServer.eob.query.threads";
+  public static final String PROP_RESOURCE_CACHE_MAX_WEIGHT = "bfdServer.cache.resources.maxWeight";
   public static final int TRANSACTION_TIMEOUT = 30;
 
   /**
@@ -69,6 +76,12 @@ public class SpringConfiguration {
    */
   static final String BLUEBUTTON_R4_RESOURCE_PROVIDERS = "bluebuttonR4ResourceProviders";
 
+  /**
+   * The {@link Bean#name()} for the {@link ExecutorService} that {@link
+   * ExplanationOfBenefitResourceProvider} runs its per-claim-type queries on.
+   */
+  public static final String CLAIM_TYPE_QUERY_EXECUTOR = "claimTypeQueryExecutor";
+
   /**
    * Set this to <code>true</code> to have Hibernate log a ton of info on the SQL statements being
    * run and each session's performance. Be sure to also adjust the related logging levels in
@@ -207,18 +220,7 @@ public class SpringConfiguration {
       HikariDataSource poolingDataSource,
       String connectionsMaxText,
       MetricRegistry metricRegistry) {
-    int connectionsMax;
-    try {
-      connectionsMax = Integer.parseInt(connectionsMaxText);
-    } catch (NumberFormatException e) {
-      connectionsMax = -1;
-    }
-    if (connectionsMax < 1) {
-      // Assign a reasonable default value, if none was specified.
-      connectionsMax = Runtime.getRuntime().availableProcessors() * 5;
-    }
-
-    poolingDataSource.setMaximumPoolSize(connectionsMax);
+    poolingDataSource.setMaximumPoolSize(parseConnectionsMax(connectionsMaxText));
 
     /*
      * FIXME Temporary workaround for CBBI-357: send Postgres' query planner a
@@ -240,6 +242,25 @@ public class SpringConfiguration {
     poolingDataSource.setLeakDetectionThreshold(60 * 1000);
   }
 
+  /**
+   * @param connectionsMaxText the maximum number of database connections to use
+   * @return the maximum number of database connections to use, defaulting to a reasonable value if
+   *     it wasn't specified (or is invalid)
+   */
+  private static int parseConnectionsMax(String connectionsMaxText) {
+    int connectionsMax;
+    try {
+      connectionsMax = Integer.parseInt(connectionsMaxText);
+    } catch (NumberFormatException e) {
+      connectionsMax = -1;
+    }
+    if (connectionsMax < 1) {
+      // Assign a reasonable default value, if none was specified.
+      connectionsMax = Runtime.getRuntime().availableProcessors() * 5;
+    }
+    return connectionsMax;
+  }
+
   /**
    * @param entityManagerFactory the {@link EntityManagerFactory} to use
    * @return the {@link JpaTransactionManager} for the application
@@ -347,6 +368,65 @@ public class SpringConfiguration {
     return r4ResourceProviders;
   }
 
+  /**
+   * @param threadsText the maximum number of per-claim-type queries to run at once, across all
+   *     requests
+   * @param connectionsMaxText the maximum number of database connections to use
+   * @return the bounded {@link ExecutorService} that {@link ExplanationOfBenefitResourceProvider}
+   *     uses to run its per-claim-type queries concurrently
+   */
+  @Bean(name = CLAIM_TYPE_QUERY_EXECUTOR, destroyMethod = "shutdownNow")
+  public ExecutorService claimTypeQueryExecutor(
+      @Value("${" + PROP_CLAIM_TYPE_QUERY_THREADS + ":-1}") String threadsText,
+      @Value("${" + PROP_DB_CONNECTIONS_MAX + ":-1}") String connectionsMaxText) {
+    int threads;
+    try {
+      threads = Integer.parseInt(threadsText);
+    } catch (NumberFormatException e) {
+      threads = -1;
+    }
+    if (threads < 1) {
+      /*
+       * Assign a reasonable default value, if none was specified. This is capped at half of the
+       * database connection pool, so that these queries can't tie up every connection.
+       */
+      threads =
+          Math.max(
+              1,
+              Math.min(
+                  Runtime.getRuntime().availableProcessors() * 2,
+                  parseConnectionsMax(connectionsMaxText) / 2));
+    }
+
+    AtomicInteger threadCount = new AtomicInteger(0);
+    return Executors.newFixedThreadPool(
+        threads,
+        runnable -> {
+          Thread thread = new Thread(runnable, "eob-query-" + threadCount.getAndIncrement());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * @param maxWeight the maximum total weight (i.e. number of resources, plus their claim lines) of
+   *     the transformed resources to cache, or <code>0</code> to disable the cache. The default
+   *     allows for roughly a few hundred MB of heap.
+   * @param metricRegistry the {@link MetricRegistry} for the application
+   * @param loadedFilterManager the application's {@link LoadedFilterManager} bean, which the cache
+   *     is invalidated from
+   * @return the {@link TransformedResourceCache} for the application's resource providers
+   */
+  @Bean
+  public TransformedResourceCache transformedResourceCache(
+      @Value("${" + PROP_RESOURCE_CACHE_MAX_WEIGHT + ":20000}") long maxWeight,
+      MetricRegistry metricRegistry,
+      LoadedFilterManager loadedFilterManager) {
+    TransformedResourceCache cache = new TransformedResourceCache(maxWeight, metricRegistry);
+    loadedFilterManager.addRefreshListener(cache::invalidate);
+    return cache;
+  }
+
   /**
    * @return the {@link MetricRegistry} for the application, which can be used to collect statistics
    *     on the application's performance
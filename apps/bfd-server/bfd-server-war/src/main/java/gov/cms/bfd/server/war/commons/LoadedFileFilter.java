@@ -2,7 +2,10 @@ package gov.cms.bfd.server.war.commons;
 
 import ca.uhn.fhir.rest.param.DateParam;
 import ca.uhn.fhir.rest.param.DateRangeParam;
+import gov.cms.bfd.model.rif.LoadedFile;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import org.apache.spark.util.sketch.BloomFilter;
 
 /**
@@ -11,7 +14,8 @@ import org.apache.spark.util.sketch.BloomFilter;
  * href="https://en.wikipedia.org/wiki/Bloom_filter">Bloom Filters</a>) which are space efficient.
  */
 public class LoadedFileFilter {
-  public static final double FALSE_POSITIVE_PERCENTAGE = 0.01;
+  public static final double FALSE_POSITIVE_PERCENTAGE =
+      LoadedFile.BENEFICIARY_FILTER_FALSE_POSITIVE_PERCENTAGE;
 
   // The entry of the LoadedFiles table
   private final long loadedFileId;
@@ -23,8 +27,8 @@ public class LoadedFileFilter {
   private final Date firstUpdated;
   private final Date lastUpdated;
 
-  // The beneficiaries that were updated in the RIF load
-  private final BloomFilter updatedBeneficiaries;
+  // The beneficiaries that were updated in the RIF load, split across one or more filters
+  private final List<BloomFilter> updatedBeneficiaries;
 
   /**
    * Build a filter for a LoadedFile
@@ -41,6 +45,29 @@ public class LoadedFileFilter {
       Date firstUpdated,
       Date lastUpdated,
       BloomFilter updatedBeneficiaries) {
+    this(
+        loadedFileId,
+        batchesCount,
+        firstUpdated,
+        lastUpdated,
+        Collections.singletonList(updatedBeneficiaries));
+  }
+
+  /**
+   * Build a filter for a LoadedFile, from several bloom filters
+   *
+   * @param loadedFileId for this filter
+   * @param batchesCount of the number of batches in this filter
+   * @param firstUpdated for this filter
+   * @param lastUpdated for this filter
+   * @param updatedBeneficiaries bloom filters which, together, make up this filter
+   */
+  public LoadedFileFilter(
+      long loadedFileId,
+      int batchesCount,
+      Date firstUpdated,
+      Date lastUpdated,
+      List<BloomFilter> updatedBeneficiaries) {
     this.loadedFileId = loadedFileId;
     this.batchesCount = batchesCount;
     this.firstUpdated = firstUpdated;
@@ -103,7 +130,10 @@ public class LoadedFileFilter {
    * @return true if the filter may contain the beneficiary
    */
   public boolean mightContain(String beneficiaryId) {
-    return updatedBeneficiaries.mightContain(beneficiaryId);
+    for (BloomFilter filter : updatedBeneficiaries) {
+      if (filter.mightContain(beneficiaryId)) return true;
+    }
+    return false;
   }
 
   /** @return the fileId */
@@ -122,7 +152,7 @@ public class LoadedFileFilter {
   }
 
   /** @return the updatedBeneficiaries */
-  public BloomFilter getUpdatedBeneficiaries() {
+  public List<BloomFilter> getUpdatedBeneficiaries() {
     return updatedBeneficiaries;
   }
 
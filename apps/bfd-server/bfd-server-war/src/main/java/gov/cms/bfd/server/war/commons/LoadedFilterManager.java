@@ -3,11 +3,17 @@ package gov.cms.bfd.server.war.commons;
 import ca.uhn.fhir.rest.param.DateRangeParam;
 import gov.cms.bfd.model.rif.LoadedBatch;
 import gov.cms.bfd.model.rif.LoadedFile;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
@@ -35,9 +41,6 @@ public class LoadedFilterManager {
   private static final Date BEFORE_LAST_UPDATED_FEATURE =
       Date.from(Instant.parse("2020-01-01T00:00:00Z"));
 
-  // The size of the beneficiaryId column
-  private static final int BENE_ID_SIZE = 15;
-
   // The connection to the DB
   private EntityManager entityManager;
 
@@ -53,6 +56,10 @@ public class LoadedFilterManager {
   // The first LoadedBatch.created in the filter set
   private Date firstBatchCreated;
 
+  // Notified of the new and updated filters after each refresh
+  private final List<Consumer<List<LoadedFileFilter>>> refreshListeners =
+      new CopyOnWriteArrayList<>();
+
   /**
    * A tuple of values: LoadedFile.loadedFileid, LoadedFile.created, max(LoadedBatch.created). Used
    * for an optimized query that includes only what is needed to refresh filters
@@ -127,6 +134,17 @@ public class LoadedFilterManager {
     return firstBatchCreated;
   }
 
+  /**
+   * Registers a listener to be called with the new and updated {@link LoadedFileFilter}s after each
+   * refresh that finds any, e.g. to invalidate data cached for the beneficiaries that they contain.
+   * Listeners are called on the refresh thread, after the new filters have been set.
+   *
+   * @param listener to add
+   */
+  public void addRefreshListener(Consumer<List<LoadedFileFilter>> listener) {
+    refreshListeners.add(listener);
+  }
+
   /**
    * Setup the JPA entityManager for the database to query
    *
@@ -225,7 +243,8 @@ public class LoadedFilterManager {
             currentLastBatchCreated);
         List<LoadedTuple> loadedTuples = fetchLoadedTuples(this.lastBatchCreated);
         List<LoadedFileFilter> newFilters =
-            updateFilters(this.filters, loadedTuples, this::fetchLoadedBatches);
+            updateFilters(
+                this.filters, loadedTuples, this::fetchLoadedFile, this::fetchLoadedBatches);
 
         // If batches been trimmed, then remove filters which are no longer present
         final Date currentFirstBatchUpdate =
@@ -237,7 +256,15 @@ public class LoadedFilterManager {
           newFilters = trimFilters(newFilters, loadedFiles);
         }
 
+        final List<LoadedFileFilter> oldFilters = this.filters;
         set(newFilters, currentFirstBatchUpdate, currentLastBatchCreated);
+
+        // Filters are immutable, so any that aren't in the old list were just built
+        final List<LoadedFileFilter> updatedFilters =
+            newFilters.stream().filter(f -> !oldFilters.contains(f)).collect(Collectors.toList());
+        if (!updatedFilters.isEmpty()) {
+          refreshListeners.forEach(listener -> listener.accept(updatedFilters));
+        }
       }
     } catch (Exception ex) {
       LOGGER.error("Error found refreshing LoadedFile filters", ex);
@@ -295,8 +322,28 @@ public class LoadedFilterManager {
       List<LoadedFileFilter> existingFilters,
       List<LoadedTuple> loadedTuples,
       Function<Long, List<LoadedBatch>> fetchById) {
+    return updateFilters(
+        existingFilters, loadedTuples, id -> Optional.empty(), fetchSince(fetchById));
+  }
+
+  /**
+   * Create an updated {@link LoadedFileFilter} list from existing filters and newly loaded files
+   * and batches, using the filters published on the {@link LoadedFile}s where possible
+   *
+   * @param existingFilters that should be included
+   * @param loadedTuples that come from new LoadedBatch
+   * @param fetchFileById to use retrieve a LoadedFile by id
+   * @param fetchById to use retrieve list of LoadedBatch by id, created at or after a time (if not
+   *     null)
+   * @return a new filter list
+   */
+  public static List<LoadedFileFilter> updateFilters(
+      List<LoadedFileFilter> existingFilters,
+      List<LoadedTuple> loadedTuples,
+      Function<Long, Optional<LoadedFile>> fetchFileById,
+      BiFunction<Long, Date, List<LoadedBatch>> fetchById) {
     List<LoadedFileFilter> result = new ArrayList<>(existingFilters);
-    List<LoadedFileFilter> newFilters = buildFilters(loadedTuples, fetchById);
+    List<LoadedFileFilter> newFilters = buildFilters(loadedTuples, fetchFileById, fetchById);
     newFilters.forEach(
         filter -> {
           result.removeIf(f -> f.getLoadedFileId() == filter.getLoadedFileId());
@@ -315,8 +362,25 @@ public class LoadedFilterManager {
    */
   public static List<LoadedFileFilter> buildFilters(
       List<LoadedTuple> loadedTuples, Function<Long, List<LoadedBatch>> fetchById) {
+    return buildFilters(loadedTuples, id -> Optional.empty(), fetchSince(fetchById));
+  }
+
+  /**
+   * Build a new {@link LoadedFileFilter} list, using the filters published on the {@link
+   * LoadedFile}s where possible
+   *
+   * @param loadedTuples that come from new LoadedBatch
+   * @param fetchFileById to use retrieve a LoadedFile by id
+   * @param fetchById to use retrieve list of LoadedBatch by id, created at or after a time (if not
+   *     null)
+   * @return a new filter list
+   */
+  public static List<LoadedFileFilter> buildFilters(
+      List<LoadedTuple> loadedTuples,
+      Function<Long, Optional<LoadedFile>> fetchFileById,
+      BiFunction<Long, Date, List<LoadedBatch>> fetchById) {
     return loadedTuples.stream()
-        .map(t -> buildFilter(t.getLoadedFileId(), t.getFirstUpdated(), fetchById))
+        .map(t -> buildFilter(t, fetchFileById, fetchById))
         .collect(Collectors.toList());
   }
 
@@ -337,7 +401,68 @@ public class LoadedFilterManager {
   }
 
   /**
-   * Build a filter for this loaded file. Should be a pure function.
+   * Build a filter for this loaded file. If the pipeline has published the file's filter (which it
+   * does periodically while the file is loading, and once it's done), that's deserialized, and any
+   * batches that it might not cover yet (see {@link LoadedFile#getBeneficiaryFilterWatermark()})
+   * are added to it. Otherwise, the file either only just started loading or was loaded before
+   * filters were published, so the filter is built from all of the file's batches. Should be a pure
+   * function.
+   *
+   * @param loadedTuple for the file to build a filter for
+   * @param fetchFileById a function which returns the LoadedFile, if it still exists
+   * @param fetchById a function which returns a list of batches, created at or after a time (if not
+   *     null)
+   * @return a new filter
+   */
+  public static LoadedFileFilter buildFilter(
+      LoadedTuple loadedTuple,
+      Function<Long, Optional<LoadedFile>> fetchFileById,
+      BiFunction<Long, Date, List<LoadedBatch>> fetchById) {
+    final long fileId = loadedTuple.getLoadedFileId();
+    final Optional<LoadedFile> loadedFile =
+        fetchFileById.apply(fileId).filter(f -> f.getBeneficiaryFilter() != null);
+    if (!loadedFile.isPresent()) {
+      return buildFilter(fileId, loadedTuple.getFirstUpdated(), id -> fetchById.apply(id, null));
+    }
+
+    // The published filter is made up of one or more serialized filters, one after the other
+    final List<BloomFilter> bloomFilters = new ArrayList<>();
+    try {
+      final ByteArrayInputStream serializedFilters =
+          new ByteArrayInputStream(loadedFile.get().getBeneficiaryFilter());
+      while (serializedFilters.available() > 0) {
+        bloomFilters.add(BloomFilter.readFrom(serializedFilters));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    int batchesCount = loadedFile.get().getBeneficiaryFilterBatches();
+
+    // Add the batches that the filter might be missing, if it was published mid-load
+    final Date watermark = loadedFile.get().getBeneficiaryFilterWatermark();
+    final List<LoadedBatch> laterBatches =
+        watermark != null ? fetchById.apply(fileId, watermark) : new ArrayList<>();
+    if (!laterBatches.isEmpty()) {
+      final int beneficiaryCount =
+          laterBatches.stream().mapToInt(LoadedBatch::getBeneficiaryCount).sum();
+      final BloomFilter laterFilter = LoadedFileFilter.createFilter(Math.max(1, beneficiaryCount));
+      laterBatches.forEach(batch -> batch.forEachBeneficiary(laterFilter::putString));
+      bloomFilters.add(laterFilter);
+      batchesCount += laterBatches.size();
+    }
+
+    LOGGER.info(
+        "Read the published filter for {}, plus {} later batches", fileId, laterBatches.size());
+    return new LoadedFileFilter(
+        fileId,
+        batchesCount,
+        loadedTuple.getFirstUpdated(),
+        loadedTuple.getLastUpdated(),
+        bloomFilters);
+  }
+
+  /**
+   * Build a filter for this loaded file from its batches. Should be a pure function.
    *
    * @param fileId to build a filter for
    * @param firstUpdated time stamp
@@ -351,8 +476,7 @@ public class LoadedFilterManager {
     if (batchCount == 0) {
       throw new IllegalArgumentException("Batches cannot be empty for a filter");
     }
-    final int batchSize =
-        (loadedBatches.get(0).getBeneficiaries().length() + BENE_ID_SIZE) / BENE_ID_SIZE;
+    final int batchSize = Math.max(1, loadedBatches.get(0).getBeneficiaryCount());
 
     // It is important to get a good estimate of the number of entries for
     // an accurate FFP and minimal memory size. This one assumes that all batches are of equal size.
@@ -361,9 +485,7 @@ public class LoadedFilterManager {
     // Loop through all batches, filling the bloom filter and finding the lastUpdated
     Date lastUpdated = firstUpdated;
     for (LoadedBatch batch : loadedBatches) {
-      for (String beneficiary : batch.getBeneficiariesAsList()) {
-        bloomFilter.putString(beneficiary);
-      }
+      batch.forEachBeneficiary(bloomFilter::putString);
       if (batch.getCreated().after(lastUpdated)) {
         lastUpdated = batch.getCreated();
       }
@@ -373,6 +495,21 @@ public class LoadedFilterManager {
     return new LoadedFileFilter(fileId, batchCount, firstUpdated, lastUpdated, bloomFilter);
   }
 
+  /**
+   * Adapt a function which returns all of a file's batches to one which can also return just the
+   * batches created at or after a time
+   *
+   * @param fetchById a function which returns a list of batches
+   * @return a function which returns a list of batches, created at or after a time (if not null)
+   */
+  private static BiFunction<Long, Date, List<LoadedBatch>> fetchSince(
+      Function<Long, List<LoadedBatch>> fetchById) {
+    return (id, since) ->
+        fetchById.apply(id).stream()
+            .filter(batch -> since == null || !batch.getCreated().before(since))
+            .collect(Collectors.toList());
+  }
+
   /* DB Operations */
 
   /**
@@ -429,27 +566,52 @@ public class LoadedFilterManager {
   }
 
   /**
-   * Fetch all the files that are currently loaded.
+   * Fetch all the files that are currently loaded. Only the identifying columns are fetched, to
+   * avoid reading every file's published filter.
    *
    * @return the LoadedFiles or an empty list
    */
   private List<LoadedFile> fetchLoadedFiles() {
     return entityManager
-        .createQuery("select f from LoadedFile f", LoadedFile.class)
+        .createQuery(
+            "select new gov.cms.bfd.model.rif.LoadedFile(f.loadedFileId, f.rifType, f.created)"
+                + " from LoadedFile f",
+            LoadedFile.class)
         .getResultList();
   }
 
   /**
-   * Fetch all the batches associated with LoadedFile.
+   * Fetch a LoadedFile, including its published filter.
    *
    * @param loadedFileId of the LoadedFile
+   * @return the LoadedFile or empty if it's been trimmed
+   */
+  private Optional<LoadedFile> fetchLoadedFile(long loadedFileId) {
+    return Optional.ofNullable(entityManager.find(LoadedFile.class, loadedFileId));
+  }
+
+  /**
+   * Fetch the batches associated with LoadedFile.
+   *
+   * @param loadedFileId of the LoadedFile
+   * @param since limits the query to batches created at or after this timestamp, if not null
    * @return a list of LoadedBatches or an empty list
    */
-  private List<LoadedBatch> fetchLoadedBatches(long loadedFileId) {
+  private List<LoadedBatch> fetchLoadedBatches(long loadedFileId, Date since) {
+    if (since == null) {
+      return entityManager
+          .createQuery(
+              "select b from LoadedBatch b where b.loadedFileId = :loadedFileId", LoadedBatch.class)
+          .setParameter("loadedFileId", loadedFileId)
+          .getResultList();
+    }
     return entityManager
         .createQuery(
-            "select b from LoadedBatch b where b.loadedFileId = :loadedFileId", LoadedBatch.class)
+            "select b from LoadedBatch b where b.loadedFileId = :loadedFileId"
+                + " and b.created >= :since",
+            LoadedBatch.class)
         .setParameter("loadedFileId", loadedFileId)
+        .setParameter("since", since)
         .getResultList();
   }
 }
@@ -1,7 +1,12 @@
 package gov.cms.bfd.server.war.commons;
 
 import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.ParamPrefixEnum;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
@@ -66,6 +71,82 @@ public class QueryUtils {
     }
   }
 
+  /**
+   * Create a predicate that excludes the claims that were flagged as SAMHSA-related when they were
+   * loaded. Claims that were loaded before that flag was introduced (i.e. that have a <code>null
+   * </code> flag) still match, and so have to be checked separately.
+   *
+   * @param cb to use
+   * @param root to use, which must be for a {@link gov.cms.bfd.model.rif.SamhsaFlaggedRecord}
+   * @return a predicate on the samhsaRelated field
+   */
+  public static Predicate createSamhsaExclusionPredicate(CriteriaBuilder cb, Root<?> root) {
+    final Path<Boolean> samhsaRelatedPath = root.get("samhsaRelated");
+    return cb.or(cb.isNull(samhsaRelatedPath), cb.isFalse(samhsaRelatedPath));
+  }
+
+  /**
+   * Create a predicate for a service date field based on the passed service-date parameter range.
+   * Records without a service date never match.
+   *
+   * @param cb to use
+   * @param serviceDatePath the service date field to filter on
+   * @param range to base the predicate on
+   * @return a predicate on the service date field
+   * @throws IllegalArgumentException if a bound has an unsupported prefix
+   */
+  public static Predicate createServiceDatePredicate(
+      CriteriaBuilder cb, Path<LocalDate> serviceDatePath, DateRangeParam range) {
+    final Date lowerBound = range.getLowerBoundAsInstant();
+    final Date upperBound = range.getUpperBoundAsInstant();
+    List<Predicate> predicates = new ArrayList<>(2);
+    if (lowerBound != null) {
+      predicates.add(
+          createLocalDatePredicate(
+              cb, serviceDatePath, toLocalDate(lowerBound), range.getLowerBound().getPrefix()));
+    }
+    if (upperBound != null) {
+      predicates.add(
+          createLocalDatePredicate(
+              cb, serviceDatePath, toLocalDate(upperBound), range.getUpperBound().getPrefix()));
+    }
+    return cb.and(predicates.toArray(new Predicate[predicates.size()]));
+  }
+
+  /**
+   * @param cb to use
+   * @param path the date field to compare
+   * @param date the date to compare the field against
+   * @param prefix the comparison to use. Supported: {@link ParamPrefixEnum#GREATERTHAN_OR_EQUALS},
+   *     {@link ParamPrefixEnum#GREATERTHAN}, {@link ParamPrefixEnum#LESSTHAN_OR_EQUALS}, {@link
+   *     ParamPrefixEnum#LESSTHAN}
+   * @return a predicate that compares the field against the date
+   * @throws IllegalArgumentException if an unsupported prefix is supplied
+   */
+  private static Predicate createLocalDatePredicate(
+      CriteriaBuilder cb, Path<LocalDate> path, LocalDate date, ParamPrefixEnum prefix) {
+    switch (prefix) {
+      case GREATERTHAN_OR_EQUALS:
+        return cb.greaterThanOrEqualTo(path, date);
+      case GREATERTHAN:
+        return cb.greaterThan(path, date);
+      case LESSTHAN_OR_EQUALS:
+        return cb.lessThanOrEqualTo(path, date);
+      case LESSTHAN:
+        return cb.lessThan(path, date);
+      default:
+        throw new IllegalArgumentException(String.format("Unsupported prefix supplied %s", prefix));
+    }
+  }
+
+  /**
+   * @param instant the date range bound to convert
+   * @return the local date of the bound, in the server's time zone
+   */
+  private static LocalDate toLocalDate(Date instant) {
+    return instant.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+  }
+
   /**
    * Create a predicate for the lastUpdate field based on the passed range.
    *
@@ -0,0 +1,225 @@
+package gov.cms.bfd.server.war.commons;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded cache of transformed (STU3) FHIR resources, so that the transformers don't have to be
+ * re-run each time that the same beneficiaries' data is requested. The data only changes when the
+ * pipeline loads it, so each resource is cached by its type, ID and the <code>lastUpdated</code>
+ * timestamp of the entity that it was transformed from: any entity that's reloaded gets a new
+ * timestamp, and so misses.
+ *
+ * <p>Transformed resources can also depend on data that doesn't update the entity's timestamp (e.g.
+ * a {@link gov.cms.bfd.model.rif.Beneficiary}'s history records), so the {@link
+ * LoadedFilterManager} also calls {@link #invalidate(List)} with each new {@link LoadedFileFilter},
+ * which evicts the resources of every beneficiary that the filter might contain. The cached keys
+ * are also indexed by beneficiary, so that's one filter check per cached beneficiary, rather than
+ * per cached resource.
+ *
+ * <p>The cache's size is bounded by the total weight of its resources, which is a cheap proxy for
+ * their size: one per resource, plus one per {@link ExplanationOfBenefit} item (i.e. claim line).
+ * Each newly-transformed resource is copied once, as it's cached, so the caller that transformed it
+ * is free to modify it. Cached resources are then shared by every caller that hits them, to keep
+ * hits cheap, so those must never be modified.
+ */
+public final class TransformedResourceCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TransformedResourceCache.class);
+
+  /** The cached {@link Entry}s, or <code>null</code> if caching is disabled. */
+  private final Cache<Key, Entry> cache;
+
+  /** The {@link Key}s in {@link #cache}, by the ID of the beneficiary that they belong to. */
+  private final ConcurrentMap<String, Set<Key>> keysByBeneficiary;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter invalidations;
+
+  /**
+   * Constructs a new {@link TransformedResourceCache}.
+   *
+   * @param maxWeight the maximum total weight of the cached resources, or <code>0</code> to disable
+   *     caching
+   * @param metricRegistry the {@link MetricRegistry} to record the cache's hits, misses and
+   *     invalidations in
+   */
+  public TransformedResourceCache(long maxWeight, MetricRegistry metricRegistry) {
+    this.cache =
+        maxWeight > 0
+            ? CacheBuilder.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Key key, Entry entry) -> entry.weight)
+                .removalListener(this::unindex)
+                .build()
+            : null;
+    this.keysByBeneficiary = new ConcurrentHashMap<>();
+    this.hits = metricRegistry.counter(MetricRegistry.name(getClass().getSimpleName(), "hits"));
+    this.misses = metricRegistry.counter(MetricRegistry.name(getClass().getSimpleName(), "misses"));
+    this.invalidations =
+        metricRegistry.counter(MetricRegistry.name(getClass().getSimpleName(), "invalidations"));
+  }
+
+  /**
+   * @param <R> the type of resource
+   * @param key the {@link Key} of the resource
+   * @param beneficiaryId the ID of the beneficiary that the resource belongs to
+   * @param transformer the {@link Supplier} that transforms the resource, if it isn't cached
+   * @return the (shared, and so not to be modified) cached resource for the specified {@link Key},
+   *     or the newly-transformed one if it wasn't cached
+   */
+  @SuppressWarnings("unchecked")
+  public <R extends Resource> R get(Key key, String beneficiaryId, Supplier<R> transformer) {
+    if (cache == null) return transformer.get();
+
+    Entry entry = cache.getIfPresent(key);
+    if (entry != null) {
+      hits.inc();
+      return (R) entry.resource;
+    }
+
+    misses.inc();
+    R resource = transformer.get();
+    // Indexed first, so that its removal (which may happen right away) is always unindexed.
+    keysByBeneficiary.compute(
+        beneficiaryId,
+        (id, keys) -> {
+          Set<Key> updatedKeys = keys != null ? keys : new HashSet<>();
+          updatedKeys.add(key);
+          return updatedKeys;
+        });
+    cache.put(key, new Entry(beneficiaryId, resource.copy()));
+    return resource;
+  }
+
+  /**
+   * Evicts the cached resources of the beneficiaries that might have been updated by the specified
+   * {@link LoadedFileFilter}s' files.
+   *
+   * @param filters the new or updated {@link LoadedFileFilter}s
+   */
+  public void invalidate(List<LoadedFileFilter> filters) {
+    if (cache == null || filters.isEmpty()) return;
+
+    long evicted = 0L;
+    for (String beneficiaryId : keysByBeneficiary.keySet()) {
+      if (filters.stream().noneMatch(f -> f.mightContain(beneficiaryId))) continue;
+
+      Set<Key> keys = keysByBeneficiary.remove(beneficiaryId);
+      if (keys == null) continue;
+      cache.invalidateAll(keys);
+      evicted += keys.size();
+    }
+    invalidations.inc(evicted);
+    LOGGER.debug("Invalidated {} cached resources for {} filters", evicted, filters.size());
+  }
+
+  /**
+   * Removes an evicted or invalidated {@link Entry}'s {@link Key} from {@link #keysByBeneficiary}.
+   *
+   * @param notification the {@link RemovalNotification} for the {@link Entry}
+   */
+  private void unindex(RemovalNotification<Key, Entry> notification) {
+    // A replaced entry's key is still cached.
+    if (notification.getCause() == RemovalCause.REPLACED) return;
+
+    keysByBeneficiary.computeIfPresent(
+        notification.getValue().beneficiaryId,
+        (id, keys) -> {
+          keys.remove(notification.getKey());
+          return keys.isEmpty() ? null : keys;
+        });
+  }
+
+  /** @return the number of resources currently cached */
+  public long size() {
+    return cache != null ? cache.size() : 0L;
+  }
+
+  /** Identifies a transformed resource. */
+  public static final class Key {
+    private final String resourceType;
+    private final String id;
+    private final String variant;
+    private final Long lastUpdated;
+
+    /**
+     * Constructs a new {@link Key}.
+     *
+     * @param resourceType the type of the resource, e.g. a {@link
+     *     gov.cms.bfd.server.war.stu3.providers.ClaimType} name
+     * @param id the ID of the entity that the resource is transformed from
+     * @param variant identifies any request options that the transformation depends on, or an empty
+     *     {@link String} if there are none
+     * @param lastUpdated the <code>lastUpdated</code> timestamp of the entity that the resource is
+     *     transformed from, or <code>null</code> if it has none
+     */
+    public Key(String resourceType, String id, String variant, Date lastUpdated) {
+      this.resourceType = Objects.requireNonNull(resourceType);
+      this.id = Objects.requireNonNull(id);
+      this.variant = Objects.requireNonNull(variant);
+      this.lastUpdated = lastUpdated != null ? lastUpdated.getTime() : null;
+    }
+
+    /** @see java.lang.Object#hashCode() */
+    @Override
+    public int hashCode() {
+      return Objects.hash(resourceType, id, variant, lastUpdated);
+    }
+
+    /** @see java.lang.Object#equals(java.lang.Object) */
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof Key)) return false;
+      Key other = (Key) obj;
+      return resourceType.equals(other.resourceType)
+          && id.equals(other.id)
+          && variant.equals(other.variant)
+          && Objects.equals(lastUpdated, other.lastUpdated);
+    }
+
+    /** @see java.lang.Object#toString() */
+    @Override
+    public String toString() {
+      return resourceType + ":" + id + ":" + variant + ":" + lastUpdated;
+    }
+  }
+
+  /** A cached resource, along with what's needed to invalidate and weigh it. */
+  private static final class Entry {
+    private final String beneficiaryId;
+    private final Resource resource;
+    private final int weight;
+
+    /**
+     * @param beneficiaryId the ID of the beneficiary that the resource belongs to
+     * @param resource the resource to cache, which must not be modified afterwards
+     */
+    Entry(String beneficiaryId, Resource resource) {
+      this.beneficiaryId = Objects.requireNonNull(beneficiaryId);
+      this.resource = resource;
+      this.weight =
+          1
+              + (resource instanceof ExplanationOfBenefit
+                  ? ((ExplanationOfBenefit) resource).getItem().size()
+                  : 0);
+    }
+  }
+}
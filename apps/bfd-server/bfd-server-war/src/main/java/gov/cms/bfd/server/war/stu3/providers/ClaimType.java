@@ -24,7 +24,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Optional;
 import java.util.function.BiFunction;
-import java.util.function.Function;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
@@ -41,7 +40,7 @@ public enum ClaimType {
       CarrierClaim.class,
       CarrierClaim_.claimId,
       CarrierClaim_.beneficiaryId,
-      (entity) -> ((CarrierClaim) entity).getDateThrough(),
+      CarrierClaim_.dateThrough,
       CarrierClaimTransformer::transform,
       CarrierClaim_.lines),
 
@@ -49,7 +48,7 @@ public enum ClaimType {
       DMEClaim.class,
       DMEClaim_.claimId,
       DMEClaim_.beneficiaryId,
-      (entity) -> ((DMEClaim) entity).getDateThrough(),
+      DMEClaim_.dateThrough,
       DMEClaimTransformer::transform,
       DMEClaim_.lines),
 
@@ -57,7 +56,7 @@ public enum ClaimType {
       HHAClaim.class,
       HHAClaim_.claimId,
       HHAClaim_.beneficiaryId,
-      (entity) -> ((HHAClaim) entity).getDateThrough(),
+      HHAClaim_.dateThrough,
       HHAClaimTransformer::transform,
       HHAClaim_.lines),
 
@@ -65,7 +64,7 @@ public enum ClaimType {
       HospiceClaim.class,
       HospiceClaim_.claimId,
       HospiceClaim_.beneficiaryId,
-      (entity) -> ((HospiceClaim) entity).getDateThrough(),
+      HospiceClaim_.dateThrough,
       HospiceClaimTransformer::transform,
       HospiceClaim_.lines),
 
@@ -73,7 +72,7 @@ public enum ClaimType {
       InpatientClaim.class,
       InpatientClaim_.claimId,
       InpatientClaim_.beneficiaryId,
-      (entity) -> ((InpatientClaim) entity).getDateThrough(),
+      InpatientClaim_.dateThrough,
       InpatientClaimTransformer::transform,
       InpatientClaim_.lines),
 
@@ -81,7 +80,7 @@ public enum ClaimType {
       OutpatientClaim.class,
       OutpatientClaim_.claimId,
       OutpatientClaim_.beneficiaryId,
-      (entity) -> ((OutpatientClaim) entity).getDateThrough(),
+      OutpatientClaim_.dateThrough,
       OutpatientClaimTransformer::transform,
       OutpatientClaim_.lines),
 
@@ -89,21 +88,21 @@ public enum ClaimType {
       PartDEvent.class,
       PartDEvent_.eventId,
       PartDEvent_.beneficiaryId,
-      (entity) -> ((PartDEvent) entity).getPrescriptionFillDate(),
+      PartDEvent_.prescriptionFillDate,
       PartDEventTransformer::transform),
 
   SNF(
       SNFClaim.class,
       SNFClaim_.claimId,
       SNFClaim_.beneficiaryId,
-      (entity) -> ((SNFClaim) entity).getDateThrough(),
+      SNFClaim_.dateThrough,
       SNFClaimTransformer::transform,
       SNFClaim_.lines);
 
   private final Class<?> entityClass;
   private final SingularAttribute<?, ?> entityIdAttribute;
   private final SingularAttribute<?, String> entityBeneficiaryIdAttribute;
-  private final Function<Object, LocalDate> serviceEndAttributeFunction;
+  private final SingularAttribute<?, LocalDate> entityServiceEndAttribute;
   private final BiFunction<MetricRegistry, Object, ExplanationOfBenefit> transformer;
   private final Collection<PluralAttribute<?, ?, ?>> entityLazyAttributes;
 
@@ -114,6 +113,7 @@ public enum ClaimType {
    * @param entityIdAttribute the value to use for {@link #getEntityIdAttribute()}
    * @param entityBeneficiaryIdAttribute the value to use for {@link
    *     #getEntityBeneficiaryIdAttribute()}
+   * @param entityServiceEndAttribute the value to use for {@link #getEntityServiceEndAttribute()}
    * @param transformer the value to use for {@link #getTransformer()}
    * @param entityLazyAttributes the value to use for {@link #getEntityLazyAttributes()}
    */
@@ -121,13 +121,13 @@ public enum ClaimType {
       Class<?> entityClass,
       SingularAttribute<?, ?> entityIdAttribute,
       SingularAttribute<?, String> entityBeneficiaryIdAttribute,
-      Function<Object, LocalDate> serviceEndAttributeFunction,
+      SingularAttribute<?, LocalDate> entityServiceEndAttribute,
       BiFunction<MetricRegistry, Object, ExplanationOfBenefit> transformer,
       PluralAttribute<?, ?, ?>... entityLazyAttributes) {
     this.entityClass = entityClass;
     this.entityIdAttribute = entityIdAttribute;
     this.entityBeneficiaryIdAttribute = entityBeneficiaryIdAttribute;
-    this.serviceEndAttributeFunction = serviceEndAttributeFunction;
+    this.entityServiceEndAttribute = entityServiceEndAttribute;
     this.transformer = transformer;
     this.entityLazyAttributes =
         entityLazyAttributes != null
@@ -157,11 +157,11 @@ public enum ClaimType {
   }
 
   /**
-   * @return the {@link Function} to use to retrieve the {@link LocalDate} to use for service date
-   *     filter
+   * @return the JPA {@link Entity} field that holds the claim's service (end) date, for use in
+   *     service date filter queries
    */
-  public Function<Object, LocalDate> getServiceEndAttributeFunction() {
-    return serviceEndAttributeFunction;
+  public SingularAttribute<?, LocalDate> getEntityServiceEndAttribute() {
+    return entityServiceEndAttribute;
   }
 
   /**
@@ -22,11 +22,14 @@ import gov.cms.bfd.server.war.commons.LoadedFilterManager;
 import gov.cms.bfd.server.war.commons.MedicareSegment;
 import gov.cms.bfd.server.war.commons.OffsetLinkBuilder;
 import gov.cms.bfd.server.war.commons.QueryUtils;
+import gov.cms.bfd.server.war.commons.TransformedResourceCache;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -61,6 +64,7 @@ public final class CoverageResourceProvider implements IResourceProvider {
   private EntityManager entityManager;
   private MetricRegistry metricRegistry;
   private LoadedFilterManager loadedFilterManager;
+  private TransformedResourceCache transformedResourceCache;
 
   /** @param entityManager a JPA {@link EntityManager} connected to the application's database */
   @PersistenceContext
@@ -80,6 +84,12 @@ public final class CoverageResourceProvider implements IResourceProvider {
     this.loadedFilterManager = loadedFilterManager;
   }
 
+  /** @param transformedResourceCache the {@link TransformedResourceCache} to use */
+  @Inject
+  public void setTransformedResourceCache(TransformedResourceCache transformedResourceCache) {
+    this.transformedResourceCache = transformedResourceCache;
+  }
+
   /** @see ca.uhn.fhir.rest.server.IResourceProvider#getResourceType() */
   @Override
   public Class<? extends IBaseResource> getResourceType() {
@@ -130,8 +140,7 @@ public final class CoverageResourceProvider implements IResourceProvider {
           new IdDt(Beneficiary.class.getSimpleName(), coverageIdBeneficiaryIdText));
     }
 
-    Coverage coverage =
-        CoverageTransformer.transform(metricRegistry, coverageIdSegment.get(), beneficiaryEntity);
+    Coverage coverage = transformToCoverage(coverageIdSegment.get(), beneficiaryEntity);
     return coverage;
   }
 
@@ -170,7 +179,10 @@ public final class CoverageResourceProvider implements IResourceProvider {
     List<IBaseResource> coverages;
     try {
       Beneficiary beneficiaryEntity = findBeneficiaryById(beneficiary.getIdPart(), lastUpdated);
-      coverages = CoverageTransformer.transform(metricRegistry, beneficiaryEntity);
+      coverages =
+          Arrays.stream(MedicareSegment.values())
+              .map(s -> transformToCoverage(s, beneficiaryEntity))
+              .collect(Collectors.toList());
     } catch (NoResultException e) {
       coverages = new LinkedList<IBaseResource>();
     }
@@ -229,4 +241,23 @@ public final class CoverageResourceProvider implements IResourceProvider {
     }
     return beneficiary;
   }
+
+  /**
+   * Transforms the specified {@link Beneficiary}'s {@link Coverage} for the specified {@link
+   * MedicareSegment}, reusing the one in the {@link TransformedResourceCache} if it's there.
+   *
+   * @param medicareSegment the {@link MedicareSegment} to generate a {@link Coverage} resource for
+   * @param beneficiary the {@link Beneficiary} to generate a {@link Coverage} resource for
+   * @return the {@link Coverage} resource that was generated
+   */
+  private Coverage transformToCoverage(MedicareSegment medicareSegment, Beneficiary beneficiary) {
+    return transformedResourceCache.get(
+        new TransformedResourceCache.Key(
+            Coverage.class.getSimpleName(),
+            beneficiary.getBeneficiaryId(),
+            medicareSegment.name(),
+            beneficiary.getLastUpdated().orElse(null)),
+        beneficiary.getBeneficiaryId(),
+        () -> CoverageTransformer.transform(metricRegistry, medicareSegment, beneficiary));
+  }
 }
@@ -9,7 +9,6 @@ import ca.uhn.fhir.rest.annotation.RequiredParam;
 import ca.uhn.fhir.rest.annotation.Search;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.param.DateRangeParam;
-import ca.uhn.fhir.rest.param.ParamPrefixEnum;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.TokenAndListParam;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
@@ -20,30 +19,41 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.newrelic.api.agent.Trace;
 import gov.cms.bfd.model.rif.Beneficiary;
+import gov.cms.bfd.model.rif.RifRecordBase;
+import gov.cms.bfd.model.rif.SamhsaFlaggedRecord;
 import gov.cms.bfd.server.war.Operation;
+import gov.cms.bfd.server.war.SpringConfiguration;
 import gov.cms.bfd.server.war.commons.LoadedFilterManager;
 import gov.cms.bfd.server.war.commons.OffsetLinkBuilder;
 import gov.cms.bfd.server.war.commons.QueryUtils;
+import gov.cms.bfd.server.war.commons.TransformedResourceCache;
 import gov.cms.bfd.server.war.commons.TransformerConstants;
-import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
@@ -54,6 +64,7 @@ import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
 
 /**
@@ -71,10 +82,19 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
    */
   private static final Pattern EOB_ID_PATTERN = Pattern.compile("(\\p{Alpha}+)-(-?\\p{Alnum}+)");
 
+  /**
+   * The maximum number of claim IDs to look up in a single query, which keeps the number of bind
+   * parameters well within what the JDBC drivers support, even for very large pages.
+   */
+  private static final int MAX_CLAIM_IDS_PER_QUERY = 1000;
+
   private EntityManager entityManager;
+  private EntityManagerFactory entityManagerFactory;
+  private ExecutorService claimTypeQueryExecutor;
   private MetricRegistry metricRegistry;
   private SamhsaMatcher samhsaMatcher;
   private LoadedFilterManager loadedFilterManager;
+  private TransformedResourceCache transformedResourceCache;
 
   /** @param entityManager a JPA {@link EntityManager} connected to the application's database */
   @PersistenceContext
@@ -82,6 +102,26 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
     this.entityManager = entityManager;
   }
 
+  /**
+   * @param entityManagerFactory the JPA {@link EntityManagerFactory} for the application's
+   *     database, used to create a separate {@link EntityManager} for each concurrent query
+   */
+  @PersistenceUnit
+  public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+    this.entityManagerFactory = entityManagerFactory;
+  }
+
+  /**
+   * @param claimTypeQueryExecutor the bounded {@link ExecutorService} to run each {@link
+   *     ClaimType}'s queries on, concurrently
+   */
+  @Inject
+  public void setClaimTypeQueryExecutor(
+      @Named(SpringConfiguration.CLAIM_TYPE_QUERY_EXECUTOR)
+          ExecutorService claimTypeQueryExecutor) {
+    this.claimTypeQueryExecutor = claimTypeQueryExecutor;
+  }
+
   /** @param metricRegistry the {@link MetricRegistry} to use */
   @Inject
   public void setMetricRegistry(MetricRegistry metricRegistry) {
@@ -100,6 +140,12 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
     this.loadedFilterManager = loadedFilterManager;
   }
 
+  /** @param transformedResourceCache the {@link TransformedResourceCache} to use */
+  @Inject
+  public void setTransformedResourceCache(TransformedResourceCache transformedResourceCache) {
+    this.transformedResourceCache = transformedResourceCache;
+  }
+
   /** @see ca.uhn.fhir.rest.server.IResourceProvider#getResourceType() */
   @Override
   public Class<? extends IBaseResource> getResourceType() {
@@ -183,8 +229,9 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
    * @param type a list of {@link ClaimType} to include in the result. Defaults to all types.
    * @param startIndex an {@link OptionalParam} for the startIndex (or offset) used to determine
    *     pagination
-   * @param excludeSamhsa an {@link OptionalParam} that, if <code>"true"</code>, will use {@link
-   *     SamhsaMatcher} to filter out all SAMHSA-related claims from the results
+   * @param excludeSamhsa an {@link OptionalParam} that, if <code>"true"</code>, will filter out all
+   *     SAMHSA-related claims from the results, per the flags calculated when they were loaded (or
+   *     the {@link SamhsaMatcher}, for claims loaded before those flags were introduced)
    * @param lastUpdated an {@link OptionalParam} that specifies a date range for the lastUpdated
    *     field.
    * @param serviceDate an {@link OptionalParam} that specifies a date range for {@link
@@ -225,6 +272,7 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 
     String beneficiaryId = patient.getIdPart();
     Set<ClaimType> claimTypes = parseTypeParam(type);
+    boolean excludeSamhsaClaims = Boolean.parseBoolean(excludeSamhsa);
     OffsetLinkBuilder paging = new OffsetLinkBuilder(requestDetails, "/ExplanationOfBenefit?");
 
     Operation operation = new Operation(Operation.Endpoint.V1_EOB);
@@ -251,55 +299,45 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
       return TransformerUtils.createBundle(paging, eobs, loadedFilterManager.getTransactionTime());
     }
 
+    /*
+     * When only a single page of results was requested, just the (cheap) sort keys of the matching
+     * claims are queried for, and then only the claims on that page are loaded and transformed.
+     * SAMHSA-related claims are excluded from those keys by the database, using the flags that were
+     * calculated when they were loaded. Claims loaded before those flags were introduced have to be
+     * transformed to be checked, though, so those searches still load all of the claims, until the
+     * pipeline's SAMHSA flag fixup has backfilled them.
+     */
+    if (paging.isPagingRequested()) {
+      Optional<Bundle> page =
+          findPageByPatient(
+              claimTypes, beneficiaryId, lastUpdated, serviceDate, excludeSamhsaClaims, paging);
+      if (page.isPresent()) return page.get();
+    }
+
     /*
      * The way our JPA/SQL schema is setup, we have to run a separate search for
-     * each claim type, then combine the results. It's not super efficient, but it's
-     * also not so inefficient that it's worth fixing.
+     * each claim type, then combine the results. Those searches are run concurrently, as otherwise
+     * the request's latency would be the sum of all of them.
      */
-    if (claimTypes.contains(ClaimType.CARRIER))
-      eobs.addAll(
-          transformToEobs(
-              ClaimType.CARRIER,
-              findClaimTypeByPatient(ClaimType.CARRIER, beneficiaryId, lastUpdated, serviceDate)));
-    if (claimTypes.contains(ClaimType.DME))
-      eobs.addAll(
-          transformToEobs(
-              ClaimType.DME,
-              findClaimTypeByPatient(ClaimType.DME, beneficiaryId, lastUpdated, serviceDate)));
-    if (claimTypes.contains(ClaimType.HHA))
-      eobs.addAll(
-          transformToEobs(
-              ClaimType.HHA,
-              findClaimTypeByPatient(ClaimType.HHA, beneficiaryId, lastUpdated, serviceDate)));
-    if (claimTypes.contains(ClaimType.HOSPICE))
-      eobs.addAll(
-          transformToEobs(
-              ClaimType.HOSPICE,
-              findClaimTypeByPatient(ClaimType.HOSPICE, beneficiaryId, lastUpdated, serviceDate)));
-    if (claimTypes.contains(ClaimType.INPATIENT))
-      eobs.addAll(
-          transformToEobs(
-              ClaimType.INPATIENT,
-              findClaimTypeByPatient(
-                  ClaimType.INPATIENT, beneficiaryId, lastUpdated, serviceDate)));
-    if (claimTypes.contains(ClaimType.OUTPATIENT))
-      eobs.addAll(
-          transformToEobs(
-              ClaimType.OUTPATIENT,
-              findClaimTypeByPatient(
-                  ClaimType.OUTPATIENT, beneficiaryId, lastUpdated, serviceDate)));
-    if (claimTypes.contains(ClaimType.PDE))
-      eobs.addAll(
-          transformToEobs(
-              ClaimType.PDE,
-              findClaimTypeByPatient(ClaimType.PDE, beneficiaryId, lastUpdated, serviceDate)));
-    if (claimTypes.contains(ClaimType.SNF))
-      eobs.addAll(
-          transformToEobs(
-              ClaimType.SNF,
-              findClaimTypeByPatient(ClaimType.SNF, beneficiaryId, lastUpdated, serviceDate)));
-
-    if (Boolean.parseBoolean(excludeSamhsa)) filterSamhsa(eobs);
+    runForEachClaimType(
+            claimTypes,
+            (claimType, claimEntityManager) -> {
+              List<?> claims =
+                  findClaimTypeByPatient(
+                      claimEntityManager,
+                      claimType,
+                      beneficiaryId,
+                      lastUpdated,
+                      serviceDate,
+                      excludeSamhsaClaims);
+              List<ExplanationOfBenefit> claimTypeEobs =
+                  transformToEobs(claimType, beneficiaryId, claims);
+              return excludeSamhsaClaims
+                  ? filterUnflaggedSamhsa(claims, claimTypeEobs)
+                  : claimTypeEobs;
+            })
+        .values()
+        .forEach(eobs::addAll);
 
     eobs.sort(ExplanationOfBenefitResourceProvider::compareByClaimIdThenClaimType);
 
@@ -332,32 +370,31 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
   }
 
   /**
+   * @param entityManager the {@link EntityManager} to query with
    * @param claimType the {@link ClaimType} to find
    * @param patientId the {@link Beneficiary#getBeneficiaryId()} to filter by
    * @param lastUpdated the update time to filter by
+   * @param serviceDate the service (end) date range to filter by, if any
+   * @param excludeSamhsa whether or not to exclude the claims/events flagged as SAMHSA-related
    * @return the matching claim/event entities
    */
   @SuppressWarnings({"rawtypes", "unchecked"})
   @Trace
   private <T> List<T> findClaimTypeByPatient(
+      EntityManager entityManager,
       ClaimType claimType,
       String patientId,
       DateRangeParam lastUpdated,
-      DateRangeParam serviceDate) {
+      DateRangeParam serviceDate,
+      boolean excludeSamhsa) {
     CriteriaBuilder builder = entityManager.getCriteriaBuilder();
     CriteriaQuery criteria = builder.createQuery((Class) claimType.getEntityClass());
     Root root = criteria.from(claimType.getEntityClass());
     claimType.getEntityLazyAttributes().stream().forEach(a -> root.fetch(a));
     criteria.select(root).distinct(true);
-
-    // Search for a beneficiary's records. Use lastUpdated if present
-    Predicate wherePredicate =
-        builder.equal(root.get(claimType.getEntityBeneficiaryIdAttribute()), patientId);
-    if (lastUpdated != null && !lastUpdated.isEmpty()) {
-      Predicate predicate = QueryUtils.createLastUpdatedPredicate(builder, root, lastUpdated);
-      wherePredicate = builder.and(wherePredicate, predicate);
-    }
-    criteria.where(wherePredicate);
+    criteria.where(
+        createPatientPredicate(
+            builder, root, claimType, patientId, lastUpdated, serviceDate, excludeSamhsa));
 
     List<T> claimEntities = null;
     Long eobsByBeneIdQueryNanoSeconds = null;
@@ -380,93 +417,366 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
           claimEntities == null ? 0 : claimEntities.size());
     }
 
-    if (claimEntities != null && serviceDate != null && !serviceDate.isEmpty()) {
-      final Date lowerBound = serviceDate.getLowerBoundAsInstant();
-      final Date upperBound = serviceDate.getUpperBoundAsInstant();
-      final java.util.function.Predicate<LocalDate> lowerBoundCheck =
-          lowerBound == null
-              ? (date) -> true
-              : (date) ->
-                  compareLocalDate(
-                      date,
-                      lowerBound.toInstant().atZone(ZoneId.systemDefault()).toLocalDate(),
-                      serviceDate.getLowerBound().getPrefix());
-      final java.util.function.Predicate<LocalDate> upperBoundCheck =
-          upperBound == null
-              ? (date) -> true
-              : (date) ->
-                  compareLocalDate(
-                      date,
-                      upperBound.toInstant().atZone(ZoneId.systemDefault()).toLocalDate(),
-                      serviceDate.getUpperBound().getPrefix());
-      return claimEntities.stream()
-          .filter(
-              entity ->
-                  lowerBoundCheck.test(claimType.getServiceEndAttributeFunction().apply(entity))
-                      && upperBoundCheck.test(
-                          claimType.getServiceEndAttributeFunction().apply(entity)))
-          .collect(Collectors.toList());
+    return claimEntities;
+  }
+
+  /**
+   * @param builder the {@link CriteriaBuilder} being used to build the query
+   * @param root the {@link Root} of the query, for the specified {@link ClaimType}'s entity
+   * @param claimType the {@link ClaimType} being queried for
+   * @param patientId the {@link Beneficiary#getBeneficiaryId()} to filter by
+   * @param lastUpdated the update time to filter by, if any
+   * @param serviceDate the service (end) date range to filter by, if any
+   * @param excludeSamhsa whether or not to exclude the claims/events flagged as SAMHSA-related
+   * @return a {@link Predicate} that matches the specified patient's claims/events
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static Predicate createPatientPredicate(
+      CriteriaBuilder builder,
+      Root root,
+      ClaimType claimType,
+      String patientId,
+      DateRangeParam lastUpdated,
+      DateRangeParam serviceDate,
+      boolean excludeSamhsa) {
+    // Search for a beneficiary's records. Use lastUpdated if present
+    Predicate wherePredicate =
+        builder.equal(root.get(claimType.getEntityBeneficiaryIdAttribute()), patientId);
+    if (lastUpdated != null && !lastUpdated.isEmpty()) {
+      Predicate predicate = QueryUtils.createLastUpdatedPredicate(builder, root, lastUpdated);
+      wherePredicate = builder.and(wherePredicate, predicate);
+    }
+    // Filter by service date in the database, so that only the matching claims are read.
+    if (serviceDate != null && !serviceDate.isEmpty()) {
+      Predicate predicate =
+          QueryUtils.createServiceDatePredicate(
+              builder, root.get(claimType.getEntityServiceEndAttribute()), serviceDate);
+      wherePredicate = builder.and(wherePredicate, predicate);
     }
+    // Skip the claims that were flagged as SAMHSA-related when they were loaded.
+    if (excludeSamhsa) {
+      Predicate predicate = QueryUtils.createSamhsaExclusionPredicate(builder, root);
+      wherePredicate = builder.and(wherePredicate, predicate);
+    }
+    return wherePredicate;
+  }
 
-    return claimEntities;
+  /**
+   * Finds a single page of the specified patient's {@link ExplanationOfBenefit}s. The sort keys of
+   * all of the matching claims/events are queried for first, which is cheap, to determine the total
+   * and which claims/events are on the requested page. Then only those claims/events are loaded and
+   * transformed.
+   *
+   * @param claimTypes the {@link ClaimType}s to search
+   * @param patientId the {@link Beneficiary#getBeneficiaryId()} to filter by
+   * @param lastUpdated the update time to filter by, if any
+   * @param serviceDate the service (end) date range to filter by, if any
+   * @param excludeSamhsa whether or not to exclude the SAMHSA-related claims/events
+   * @param paging the {@link OffsetLinkBuilder} for the requested page
+   * @return a {@link Bundle} of the {@link ExplanationOfBenefit}s on the requested page, or {@link
+   *     Optional#empty()} if SAMHSA-related claims/events are to be excluded but some of the
+   *     matching ones weren't flagged when they were loaded, so the page can't be determined
+   *     without transforming all of them
+   */
+  @Trace
+  private Optional<Bundle> findPageByPatient(
+      Set<ClaimType> claimTypes,
+      String patientId,
+      DateRangeParam lastUpdated,
+      DateRangeParam serviceDate,
+      boolean excludeSamhsa,
+      OffsetLinkBuilder paging) {
+    List<ClaimKey> claimKeys = new ArrayList<>();
+    runForEachClaimType(
+            claimTypes,
+            (claimType, claimEntityManager) ->
+                findClaimKeysByPatient(
+                    claimEntityManager,
+                    claimType,
+                    patientId,
+                    lastUpdated,
+                    serviceDate,
+                    excludeSamhsa))
+        .values()
+        .forEach(claimKeys::addAll);
+    if (excludeSamhsa && claimKeys.stream().anyMatch(k -> k.samhsaRelated == null)) {
+      metricRegistry
+          .meter(MetricRegistry.name(getClass().getSimpleName(), "samhsa", "unflagged_fallback"))
+          .mark();
+      return Optional.empty();
+    }
+    claimKeys.sort(ClaimKey.ORDER);
+
+    int endIndex = Math.min(paging.getStartIndex() + paging.getPageSize(), claimKeys.size());
+    List<ClaimKey> pageClaimKeys = claimKeys.subList(paging.getStartIndex(), endIndex);
+
+    Map<ClaimType, List<String>> pageClaimIds = new EnumMap<>(ClaimType.class);
+    for (ClaimKey claimKey : pageClaimKeys)
+      pageClaimIds
+          .computeIfAbsent(claimKey.claimType, t -> new ArrayList<>())
+          .add(claimKey.claimId);
+    Map<String, ExplanationOfBenefit> pageEobs = new HashMap<>();
+    runForEachClaimType(
+            pageClaimIds.keySet(),
+            (claimType, claimEntityManager) ->
+                transformToEobs(
+                    claimType,
+                    patientId,
+                    findClaimTypeByIds(
+                        claimEntityManager, claimType, patientId, pageClaimIds.get(claimType))))
+        .forEach(
+            (claimType, claimTypeEobs) -> {
+              for (ExplanationOfBenefit eob : claimTypeEobs)
+                pageEobs.put(
+                    ClaimKey.toString(claimType, TransformerUtils.getUnprefixedClaimId(eob)), eob);
+            });
+
+    // Claims that were deleted since their keys were found are just left out.
+    List<IBaseResource> eobs =
+        pageClaimKeys.stream()
+            .map(k -> pageEobs.get(k.toString()))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    Optional<Date> maxLastUpdated =
+        claimKeys.stream()
+            .map(
+                k ->
+                    k.lastUpdated != null
+                        ? k.lastUpdated
+                        : TransformerConstants.FALLBACK_LAST_UPDATED)
+            .max(Date::compareTo);
+
+    return Optional.of(
+        TransformerUtils.createBundle(
+            paging,
+            eobs,
+            claimKeys.size(),
+            maxLastUpdated,
+            loadedFilterManager.getTransactionTime()));
   }
 
   /**
-   * @param claimType the {@link ClaimType} being transformed
-   * @param claims the claims/events to transform
-   * @return the transformed {@link ExplanationOfBenefit} instances, one for each specified
-   *     claim/event
+   * @param entityManager the {@link EntityManager} to query with
+   * @param claimType the {@link ClaimType} to find
+   * @param patientId the {@link Beneficiary#getBeneficiaryId()} to filter by
+   * @param lastUpdated the update time to filter by, if any
+   * @param serviceDate the service (end) date range to filter by, if any
+   * @param excludeSamhsa whether or not to exclude the claims/events flagged as SAMHSA-related
+   * @return the {@link ClaimKey}s of the matching claim/event entities, in no particular order
    */
+  @SuppressWarnings({"rawtypes", "unchecked"})
   @Trace
-  private List<ExplanationOfBenefit> transformToEobs(ClaimType claimType, List<?> claims) {
-    return claims.stream()
-        .map(c -> claimType.getTransformer().apply(metricRegistry, c))
+  private List<ClaimKey> findClaimKeysByPatient(
+      EntityManager entityManager,
+      ClaimType claimType,
+      String patientId,
+      DateRangeParam lastUpdated,
+      DateRangeParam serviceDate,
+      boolean excludeSamhsa) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Object[]> criteria = builder.createQuery(Object[].class);
+    Root root = criteria.from(claimType.getEntityClass());
+    criteria.multiselect(
+        root.get(claimType.getEntityIdAttribute()),
+        root.get("lastUpdated"),
+        root.get("samhsaRelated"));
+    criteria.where(
+        createPatientPredicate(
+            builder, root, claimType, patientId, lastUpdated, serviceDate, excludeSamhsa));
+
+    List<Object[]> claimKeyRows = null;
+    Timer.Context timerEobQuery =
+        metricRegistry
+            .timer(
+                MetricRegistry.name(
+                    getClass().getSimpleName(),
+                    "query",
+                    "eob_keys_by_bene_id",
+                    claimType.name().toLowerCase()))
+            .time();
+    try {
+      claimKeyRows = entityManager.createQuery(criteria).getResultList();
+    } finally {
+      TransformerUtils.recordQueryInMdc(
+          String.format("eob_keys_by_bene_id.%s", claimType.name().toLowerCase()),
+          timerEobQuery.stop(),
+          claimKeyRows == null ? 0 : claimKeyRows.size());
+    }
+
+    return claimKeyRows.stream()
+        .map(r -> new ClaimKey(claimType, (String) r[0], (Date) r[1], (Boolean) r[2]))
         .collect(Collectors.toList());
   }
 
   /**
-   * Removes all SAMHSA-related claims from the specified {@link List} of {@link
-   * ExplanationOfBenefit} resources.
+   * @param entityManager the {@link EntityManager} to query with
+   * @param claimType the {@link ClaimType} to find
+   * @param patientId the {@link Beneficiary#getBeneficiaryId()} of the claims/events, which isn't
+   *     needed to find them, but allows the database to skip the other patients' data
+   * @param claimIds the IDs of the claim/event entities to find
+   * @return the matching claim/event entities, in no particular order
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Trace
+  private <T> List<T> findClaimTypeByIds(
+      EntityManager entityManager, ClaimType claimType, String patientId, List<String> claimIds) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    List<T> claimEntities = new ArrayList<>(claimIds.size());
+    Timer.Context timerEobQuery =
+        metricRegistry
+            .timer(
+                MetricRegistry.name(
+                    getClass().getSimpleName(),
+                    "query",
+                    "eobs_by_ids",
+                    claimType.name().toLowerCase()))
+            .time();
+    try {
+      for (int i = 0; i < claimIds.size(); i += MAX_CLAIM_IDS_PER_QUERY) {
+        List<String> claimIdsChunk =
+            claimIds.subList(i, Math.min(i + MAX_CLAIM_IDS_PER_QUERY, claimIds.size()));
+        CriteriaQuery criteria = builder.createQuery((Class) claimType.getEntityClass());
+        Root root = criteria.from(claimType.getEntityClass());
+        claimType.getEntityLazyAttributes().stream().forEach(a -> root.fetch(a));
+        criteria.select(root).distinct(true);
+        criteria.where(
+            builder.equal(root.get(claimType.getEntityBeneficiaryIdAttribute()), patientId),
+            root.get(claimType.getEntityIdAttribute()).in(claimIdsChunk));
+        claimEntities.addAll(entityManager.createQuery(criteria).getResultList());
+      }
+    } finally {
+      TransformerUtils.recordQueryInMdc(
+          String.format("eobs_by_ids.%s", claimType.name().toLowerCase()),
+          timerEobQuery.stop(),
+          claimEntities.size());
+    }
+
+    return claimEntities;
+  }
+
+  /**
+   * Runs the specified task for each of the specified {@link ClaimType}s, concurrently, on the
+   * {@link #claimTypeQueryExecutor}. Each task gets its own {@link EntityManager}, and so its own
+   * database connection, as they aren't thread-safe. The {@link MDC} entries that each task records
+   * (e.g. via {@link TransformerUtils#recordQueryInMdc(String, long, long)}) are copied over to the
+   * calling thread, so they still end up in the request's access log entry.
    *
-   * @param eobs the {@link List} of {@link ExplanationOfBenefit} resources (i.e. claims) to filter
+   * @param claimTypes the {@link ClaimType}s to run the task for
+   * @param task the task to run, which will be passed the {@link ClaimType} to run for and the
+   *     {@link EntityManager} to use
+   * @return the result of the task for each of the specified {@link ClaimType}s, in {@link
+   *     ClaimType} order
    */
-  private void filterSamhsa(List<IBaseResource> eobs) {
-    ListIterator<IBaseResource> eobsIter = eobs.listIterator();
-    while (eobsIter.hasNext()) {
-      ExplanationOfBenefit eob = (ExplanationOfBenefit) eobsIter.next();
-      if (samhsaMatcher.test(eob)) eobsIter.remove();
+  private <R> Map<ClaimType, R> runForEachClaimType(
+      Set<ClaimType> claimTypes, BiFunction<ClaimType, EntityManager, R> task) {
+    Map<ClaimType, R> results = new EnumMap<>(ClaimType.class);
+
+    // There's no point in handing a single task off to another thread.
+    if (claimTypes.size() == 1) {
+      ClaimType claimType = claimTypes.iterator().next();
+      results.put(claimType, task.apply(claimType, entityManager));
+      return results;
+    }
+
+    Map<ClaimType, Future<ClaimTypeResult<R>>> futures = new EnumMap<>(ClaimType.class);
+    for (ClaimType claimType : claimTypes) {
+      futures.put(
+          claimType,
+          claimTypeQueryExecutor.submit(
+              () -> {
+                EntityManager claimEntityManager = entityManagerFactory.createEntityManager();
+                try {
+                  R result = task.apply(claimType, claimEntityManager);
+                  return new ClaimTypeResult<>(result, MDC.getCopyOfContextMap());
+                } finally {
+                  claimEntityManager.close();
+                  // Don't leak this request's MDC entries into the next task on this thread.
+                  MDC.clear();
+                }
+              }));
+    }
+
+    RuntimeException failure = null;
+    for (Map.Entry<ClaimType, Future<ClaimTypeResult<R>>> future : futures.entrySet()) {
+      try {
+        ClaimTypeResult<R> claimTypeResult = future.getValue().get();
+        if (claimTypeResult.mdcEntries != null) claimTypeResult.mdcEntries.forEach(MDC::put);
+        results.put(future.getKey(), claimTypeResult.result);
+      } catch (ExecutionException e) {
+        if (failure == null)
+          failure =
+              e.getCause() instanceof RuntimeException
+                  ? (RuntimeException) e.getCause()
+                  : new IllegalStateException(e.getCause());
+      } catch (InterruptedException e) {
+        futures.values().forEach(f -> f.cancel(true));
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
     }
+    if (failure != null) throw failure;
+
+    return results;
   }
 
   /**
-   * Compares {@link LocalDate} a against {@link LocalDate} using the supplied {@link
-   * ParamPrefixEnum}
+   * Transforms the specified claims/events, reusing any that are in the {@link
+   * TransformedResourceCache}.
    *
-   * @param a
-   * @param b
-   * @param prefix prefix to use. Supported: {@link ParamPrefixEnum#GREATERTHAN_OR_EQUALS}, {@link
-   *     ParamPrefixEnum#GREATERTHAN}, {@link ParamPrefixEnum#LESSTHAN_OR_EQUALS}, {@link
-   *     ParamPrefixEnum#LESSTHAN}
-   * @return true if the comparison between a and b returned true.
-   * @throws {@link IllegalArgumentException} if caller supplied an unsupported prefix
+   * @param claimType the {@link ClaimType} being transformed
+   * @param patientId the {@link Beneficiary#getBeneficiaryId()} that the claims/events belong to
+   * @param claims the claims/events to transform
+   * @return the transformed {@link ExplanationOfBenefit} instances, one for each specified
+   *     claim/event
    */
-  private boolean compareLocalDate(
-      @Nullable LocalDate a, @Nullable LocalDate b, ParamPrefixEnum prefix) {
-    if (a == null || b == null) {
-      return false;
+  @Trace
+  private List<ExplanationOfBenefit> transformToEobs(
+      ClaimType claimType, String patientId, List<?> claims) {
+    Timer.Context timerTransform =
+        metricRegistry
+            .timer(
+                MetricRegistry.name(
+                    getClass().getSimpleName(), "transform", claimType.name().toLowerCase()))
+            .time();
+    try {
+      return claims.stream()
+          .map(
+              c ->
+                  transformedResourceCache.get(
+                      new TransformedResourceCache.Key(
+                          claimType.name(),
+                          String.valueOf(
+                              entityManagerFactory.getPersistenceUnitUtil().getIdentifier(c)),
+                          "",
+                          ((RifRecordBase) c).getLastUpdated().orElse(null)),
+                      patientId,
+                      () -> claimType.getTransformer().apply(metricRegistry, c)))
+          .collect(Collectors.toList());
+    } finally {
+      timerTransform.stop();
     }
-    switch (prefix) {
-      case GREATERTHAN_OR_EQUALS:
-        return !a.isBefore(b);
-      case GREATERTHAN:
-        return a.isAfter(b);
-      case LESSTHAN_OR_EQUALS:
-        return !a.isAfter(b);
-      case LESSTHAN:
-        return a.isBefore(b);
-      default:
-        throw new IllegalArgumentException(String.format("Unsupported prefix supplied %s", prefix));
+  }
+
+  /**
+   * Removes the SAMHSA-related claims that weren't flagged as such when they were loaded (i.e.
+   * those loaded before the flags were introduced), by checking their transformed {@link
+   * ExplanationOfBenefit}s. The flagged SAMHSA-related claims have already been excluded by the
+   * database.
+   *
+   * @param claims the claims/events that were transformed
+   * @param eobs the transformed {@link ExplanationOfBenefit} instances, one for each of the
+   *     specified claims/events, in the same order
+   * @return the specified {@link ExplanationOfBenefit}s, less any SAMHSA-related ones
+   */
+  private List<ExplanationOfBenefit> filterUnflaggedSamhsa(
+      List<?> claims, List<ExplanationOfBenefit> eobs) {
+    List<ExplanationOfBenefit> filteredEobs = new ArrayList<>(eobs.size());
+    for (int i = 0; i < eobs.size(); i++) {
+      boolean flagged = ((SamhsaFlaggedRecord) claims.get(i)).getSamhsaRelated().isPresent();
+      if (!flagged && samhsaMatcher.test(eobs.get(i))) continue;
+      filteredEobs.add(eobs.get(i));
     }
+    return filteredEobs;
   }
 
   /**
@@ -525,4 +835,71 @@ public final class ExplanationOfBenefitResourceProvider implements IResourceProv
 
     return claimTypes;
   }
+
+  /**
+   * The result of a {@link #runForEachClaimType(Set, BiFunction)} task, along with the {@link MDC}
+   * entries that it recorded.
+   */
+  private static final class ClaimTypeResult<R> {
+    private final R result;
+    private final Map<String, String> mdcEntries;
+
+    /**
+     * @param result the task's result
+     * @param mdcEntries the {@link MDC} entries that the task recorded, or <code>null</code> if
+     *     there were none
+     */
+    ClaimTypeResult(R result, Map<String, String> mdcEntries) {
+      this.result = result;
+      this.mdcEntries = mdcEntries;
+    }
+  }
+
+  /**
+   * The sort key of a single claim/event that matched a search, which is all that's needed to page
+   * through the search's results.
+   */
+  private static final class ClaimKey {
+    /**
+     * Orders {@link ClaimKey}s the same way as {@link #compareByClaimIdThenClaimType(IBaseResource,
+     * IBaseResource)} orders the {@link ExplanationOfBenefit}s.
+     */
+    static final Comparator<ClaimKey> ORDER =
+        Comparator.comparing((ClaimKey k) -> k.claimId).thenComparing(k -> k.claimType);
+
+    private final ClaimType claimType;
+    private final String claimId;
+    private final Date lastUpdated;
+    private final Boolean samhsaRelated;
+
+    /**
+     * @param claimType the {@link ClaimType} of the claim/event
+     * @param claimId the ID of the claim/event
+     * @param lastUpdated the lastUpdated timestamp of the claim/event, which may be <code>null
+     *     </code>
+     * @param samhsaRelated the samhsaRelated flag of the claim/event, which may be <code>null
+     *     </code>
+     */
+    ClaimKey(ClaimType claimType, String claimId, Date lastUpdated, Boolean samhsaRelated) {
+      this.claimType = claimType;
+      this.claimId = claimId;
+      this.lastUpdated = lastUpdated;
+      this.samhsaRelated = samhsaRelated;
+    }
+
+    /** @see java.lang.Object#toString() */
+    @Override
+    public String toString() {
+      return toString(claimType, claimId);
+    }
+
+    /**
+     * @param claimType the {@link ClaimType} of a claim/event
+     * @param claimId the ID of that claim/event
+     * @return the {@link #toString()} value of the {@link ClaimKey} for that claim/event
+     */
+    static String toString(ClaimType claimType, String claimId) {
+      return claimType.name() + ":" + claimId;
+    }
+  }
 }
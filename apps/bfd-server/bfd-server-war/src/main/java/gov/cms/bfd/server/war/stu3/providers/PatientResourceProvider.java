@@ -27,6 +27,7 @@ import gov.cms.bfd.server.war.commons.LoadedFilterManager;
 import gov.cms.bfd.server.war.commons.OffsetLinkBuilder;
 import gov.cms.bfd.server.war.commons.PatientLinkBuilder;
 import gov.cms.bfd.server.war.commons.QueryUtils;
+import gov.cms.bfd.server.war.commons.TransformedResourceCache;
 import gov.cms.bfd.server.war.commons.TransformerConstants;
 import java.math.BigDecimal;
 import java.util.Arrays;
@@ -73,6 +74,7 @@ public final class PatientResourceProvider implements IResourceProvider {
   private EntityManager entityManager;
   private MetricRegistry metricRegistry;
   private LoadedFilterManager loadedFilterManager;
+  private TransformedResourceCache transformedResourceCache;
 
   /** @param entityManager a JPA {@link EntityManager} connected to the application's database */
   @PersistenceContext
@@ -92,6 +94,12 @@ public final class PatientResourceProvider implements IResourceProvider {
     this.loadedFilterManager = loadedFilterManager;
   }
 
+  /** @param transformedResourceCache the {@link TransformedResourceCache} to use */
+  @Inject
+  public void setTransformedResourceCache(TransformedResourceCache transformedResourceCache) {
+    this.transformedResourceCache = transformedResourceCache;
+  }
+
   /** @see ca.uhn.fhir.rest.server.IResourceProvider#getResourceType() */
   @Override
   public Class<? extends IBaseResource> getResourceType() {
@@ -170,8 +178,7 @@ public final class PatientResourceProvider implements IResourceProvider {
       beneficiary.setMedicareBeneficiaryId(Optional.empty());
     }
 
-    Patient patient =
-        BeneficiaryTransformer.transform(metricRegistry, beneficiary, includeIdentifiersValues);
+    Patient patient = transformToPatient(beneficiary, includeIdentifiersValues);
     return patient;
   }
 
@@ -292,9 +299,7 @@ public final class PatientResourceProvider implements IResourceProvider {
                     beneficiary.setMedicareBeneficiaryId(Optional.empty());
                   }
 
-                  Patient patient =
-                      BeneficiaryTransformer.transform(
-                          metricRegistry, beneficiary, includeIdentifiersValues);
+                  Patient patient = transformToPatient(beneficiary, includeIdentifiersValues);
                   return patient;
                 })
             .collect(Collectors.toList());
@@ -305,6 +310,30 @@ public final class PatientResourceProvider implements IResourceProvider {
     return bundle;
   }
 
+  /**
+   * Transforms the specified {@link Beneficiary}, reusing the {@link Patient} in the {@link
+   * TransformedResourceCache} if it's there. The transformation depends on which identifiers were
+   * requested, so those are part of the cache key.
+   *
+   * @param beneficiary the {@link Beneficiary} to transform
+   * @param includeIdentifiersValues the {@link #returnIncludeIdentifiersValues(RequestDetails)}
+   *     values to use
+   * @return a FHIR {@link Patient} resource that represents the specified {@link Beneficiary}
+   */
+  private Patient transformToPatient(
+      Beneficiary beneficiary, List<String> includeIdentifiersValues) {
+    return transformedResourceCache.get(
+        new TransformedResourceCache.Key(
+            Patient.class.getSimpleName(),
+            beneficiary.getBeneficiaryId(),
+            String.join(",", includeIdentifiersValues),
+            beneficiary.getLastUpdated().orElse(null)),
+        beneficiary.getBeneficiaryId(),
+        () ->
+            BeneficiaryTransformer.transform(
+                metricRegistry, beneficiary, includeIdentifiersValues));
+  }
+
   private CcwCodebookVariable partDCwVariableFor(String system) {
     try {
       return CcwCodebookVariable.valueOf(system.toUpperCase());
@@ -739,8 +768,7 @@ public final class PatientResourceProvider implements IResourceProvider {
       beneficiary.setMedicareBeneficiaryId(Optional.empty());
     }
 
-    Patient patient =
-        BeneficiaryTransformer.transform(metricRegistry, beneficiary, includeIdentifiersValues);
+    Patient patient = transformToPatient(beneficiary, includeIdentifiersValues);
     return patient;
   }
 
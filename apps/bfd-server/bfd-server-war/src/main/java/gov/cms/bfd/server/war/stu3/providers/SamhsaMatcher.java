@@ -1,21 +1,12 @@
 package gov.cms.bfd.server.war.stu3.providers;
 
 import gov.cms.bfd.model.codebook.data.CcwCodebookVariable;
+import gov.cms.bfd.model.rif.samhsa.SamhsaCodes;
 import gov.cms.bfd.server.war.commons.IcdCode;
 import gov.cms.bfd.server.war.commons.TransformerConstants;
 import gov.cms.bfd.sharedutils.exceptions.BadCodeMonkeyException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.UncheckedIOException;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
 import org.hl7.fhir.dstu3.model.CodeableConcept;
 import org.hl7.fhir.dstu3.model.Coding;
 import org.hl7.fhir.dstu3.model.ExplanationOfBenefit;
@@ -31,95 +22,26 @@ import org.springframework.stereotype.Component;
  * <p>See <code>/bluebutton-data-server.git/dev/design-samhsa-filtering.md</code> for details on the
  * design of this feature.
  *
+ * <p>Claims are also flagged as SAMHSA-related (or not) as they're loaded, by the {@link
+ * gov.cms.bfd.model.rif.samhsa.SamhsaRecordMatcher}, which must always agree with this class. This
+ * class is only needed for the claims that were loaded before that flag was introduced.
+ *
  * <p>This class is designed to be thread-safe, as it's expensive to construct and so should be used
  * as a singleton.
  */
 @Component
 public final class SamhsaMatcher implements Predicate<ExplanationOfBenefit> {
-  /** The {@link CSVFormat} used to parse the SAMHSA-related code CSV files. */
-  private static final CSVFormat CSV_FORMAT = CSVFormat.EXCEL.withHeader();
-
   private static final String DRG =
       TransformerUtils.calculateVariableReferenceUrl(CcwCodebookVariable.CLM_DRG_CD);
 
-  private final List<String> drgCodes;
-  private final List<String> cptCodes;
-  private final List<String> icd9ProcedureCodes;
-  private final List<String> icd9DiagnosisCodes;
-  private final List<String> icd10ProcedureCodes;
-  private final List<String> icd10DiagnosisCodes;
+  private final SamhsaCodes samhsaCodes;
 
   /**
    * Constructs a new {@link SamhsaMatcher}, loading the lists of SAMHSA-related codes from the
    * classpath.
    */
   public SamhsaMatcher() {
-    this.drgCodes =
-        Collections.unmodifiableList(
-            resourceCsvColumnToList("samhsa-related-codes/codes-drg.csv", "MS-DRGs").stream()
-                .map(SamhsaMatcher::normalizeDrgCode)
-                .collect(Collectors.toList()));
-    this.cptCodes =
-        Collections.unmodifiableList(
-            resourceCsvColumnToList("samhsa-related-codes/codes-cpt.csv", "CPT Code"));
-    this.icd9ProcedureCodes =
-        Collections.unmodifiableList(
-            resourceCsvColumnToList("samhsa-related-codes/codes-icd-9-procedure.csv", "ICD-9-CM")
-                .stream()
-                .map(SamhsaMatcher::normalizeIcd9Code)
-                .collect(Collectors.toList()));
-    this.icd9DiagnosisCodes =
-        Collections.unmodifiableList(
-            resourceCsvColumnToList(
-                    "samhsa-related-codes/codes-icd-9-diagnosis.csv", "ICD-9-CM Diagnosis Code")
-                .stream()
-                .map(SamhsaMatcher::normalizeIcd9Code)
-                .collect(Collectors.toList()));
-    this.icd10ProcedureCodes =
-        Collections.unmodifiableList(
-            resourceCsvColumnToList(
-                    "samhsa-related-codes/codes-icd-10-procedure.csv", "ICD-10-PCS Code")
-                .stream()
-                .map(SamhsaMatcher::normalizeIcd10Code)
-                .collect(Collectors.toList()));
-    this.icd10DiagnosisCodes =
-        Collections.unmodifiableList(
-            resourceCsvColumnToList(
-                    "samhsa-related-codes/codes-icd-10-diagnosis.csv", "ICD-10-CM Diagnosis Code")
-                .stream()
-                .map(SamhsaMatcher::normalizeIcd10Code)
-                .collect(Collectors.toList()));
-  }
-
-  /**
-   * @param csvResourceName the classpath resource name of the CSV file to parse
-   * @param columnToReturn the name of the column to return from the CSV file
-   * @return a {@link List} of values from the specified column of the specified CSV file
-   */
-  private static List<String> resourceCsvColumnToList(
-      String csvResourceName, String columnToReturn) {
-    CSVParser csvParser = null;
-    try (InputStream csvStream =
-            Thread.currentThread().getContextClassLoader().getResourceAsStream(csvResourceName);
-        InputStreamReader csvReader = new InputStreamReader(csvStream, StandardCharsets.UTF_8); ) {
-      csvParser = new CSVParser(csvReader, CSV_FORMAT);
-      List<String> columnValues = new ArrayList<>();
-      csvParser.forEach(
-          record -> {
-            columnValues.add(record.get(columnToReturn));
-          });
-      return columnValues;
-    } catch (IOException e) {
-      throw new UncheckedIOException(e);
-    } finally {
-      if (csvParser != null) {
-        try {
-          csvParser.close();
-        } catch (IOException e) {
-          throw new UncheckedIOException(e);
-        }
-      }
-    }
+    this.samhsaCodes = new SamhsaCodes();
   }
 
   /** @see java.util.function.Predicate#test(java.lang.Object) */
@@ -283,8 +205,8 @@ public final class SamhsaMatcher implements Predicate<ExplanationOfBenefit> {
   /**
    * @param diagnoses the {@link DiagnosisComponent}s to check
    * @return <code>true</code> if any of the specified {@link DiagnosisComponent}s match any of the
-   *     {@link #icd9DiagnosisCodes} or {@link #icd10DiagnosisCodes} entries, <code>false</code> if
-   *     they all do not
+   *     SAMHSA-related ICD-9 or ICD-10 diagnosis {@link SamhsaCodes}, <code>false</code> if they
+   *     all do not
    */
   private boolean containsSamhsaIcdCode(List<DiagnosisComponent> diagnoses) {
     return diagnoses.stream().anyMatch(this::isSamhsaDiagnosis);
@@ -293,8 +215,8 @@ public final class SamhsaMatcher implements Predicate<ExplanationOfBenefit> {
   /**
    * @param procedure the {@link ProcedureComponent}s to check
    * @return <code>true</code> if any of the specified {@link ProcedureComponent}s match any of the
-   *     {@link #icd9ProcedureCodes} or {@link #icd10ProcedureCodes} entries, <code>false</code> if
-   *     they all do not
+   *     SAMHSA-related ICD-9 or ICD-10 procedure {@link SamhsaCodes}, <code>false</code> if they
+   *     all do not
    */
   private boolean containsSamhsaIcdProcedueCode(List<ProcedureComponent> procedure) {
     return procedure.stream().anyMatch(this::isSamhsaIcdProcedure);
@@ -302,9 +224,8 @@ public final class SamhsaMatcher implements Predicate<ExplanationOfBenefit> {
 
   /**
    * @param diagnosis the {@link DiagnosisComponent} to check
-   * @return <code>true</code> if the specified {@link DiagnosisComponent} matches one of the {@link
-   *     #icd9DiagnosisCodes} or {@link #icd10DiagnosisCodes}, or {@link #drgCodes} entries, <code>
-   *     false</code> if it does not
+   * @return <code>true</code> if the specified {@link DiagnosisComponent} matches one of the
+   *     SAMHSA-related ICD-9, ICD-10 or DRG {@link SamhsaCodes}, <code>false</code> if it does not
    */
   private boolean isSamhsaDiagnosis(DiagnosisComponent diagnosis) {
     CodeableConcept diagnosisConcept;
@@ -350,8 +271,8 @@ public final class SamhsaMatcher implements Predicate<ExplanationOfBenefit> {
 
   /**
    * @param procedure the {@link ProcedureComponent} to check
-   * @return <code>true</code> if the specified {@link ProcedureComponent} matches one of the {@link
-   *     #icd9ProcedureCodes} or {@link #icd10ProcedureCodes} entries, <code>false</code> if it does
+   * @return <code>true</code> if the specified {@link ProcedureComponent} matches one of the
+   *     SAMHSA-related ICD-9 or ICD-10 procedure {@link SamhsaCodes}, <code>false</code> if it does
    *     not
    */
   private boolean isSamhsaIcdProcedure(ProcedureComponent procedure) {
@@ -383,109 +304,65 @@ public final class SamhsaMatcher implements Predicate<ExplanationOfBenefit> {
 
   /**
    * @param diagnosisCoding the diagnosis {@link Coding} to check
-   * @return <code>true</code> if the specified diagnosis {@link Coding} matches one of the {@link
-   *     #icd9DiagnosisCodes} entries, <code>false</code> if it does not
+   * @return <code>true</code> if the specified diagnosis {@link Coding} matches one of the
+   *     SAMHSA-related ICD-9 diagnosis {@link SamhsaCodes}, <code>false</code> if it does not
    */
   private boolean isSamhsaIcd9Diagnosis(Coding diagnosisCoding) {
     if (!IcdCode.CODING_SYSTEM_ICD_9.equals(diagnosisCoding.getSystem()))
       throw new IllegalArgumentException();
 
-    /*
-     * Note: per XXX all codes in icd9DiagnosisCodes are already normalized.
-     */
-    return icd9DiagnosisCodes.contains(normalizeIcd9Code(diagnosisCoding.getCode()));
+    return samhsaCodes.isSamhsaIcd9Diagnosis(diagnosisCoding.getCode());
   }
 
   /**
    * @param coding the procedure {@link Coding} to check
-   * @return <code>true</code> if the specified procedure {@link Coding} matches one of the {@link
-   *     #icd9ProcedureCodes} entries, <code>false</code> if it does not
+   * @return <code>true</code> if the specified procedure {@link Coding} matches one of the
+   *     SAMHSA-related ICD-9 procedure {@link SamhsaCodes}, <code>false</code> if it does not
    */
   private boolean isSamhsaIcd9Procedure(Coding coding) {
     if (!IcdCode.CODING_SYSTEM_ICD_9.equals(coding.getSystem()))
       throw new IllegalArgumentException();
 
-    return icd9ProcedureCodes.contains(normalizeIcd9Code(coding.getCode()));
-  }
-
-  /**
-   * @param icd9Code the ICD-9 diagnosis code to normalize
-   * @return the specified ICD-9 code, but with whitespace trimmed, the first (if any) decimal point
-   *     removed, and converted to all-caps
-   */
-  private static String normalizeIcd9Code(String icd9Code) {
-    icd9Code = icd9Code.trim();
-    icd9Code = icd9Code.replaceFirst("\\.", "");
-    icd9Code = icd9Code.toUpperCase();
-
-    return icd9Code;
+    return samhsaCodes.isSamhsaIcd9Procedure(coding.getCode());
   }
 
   /**
    * @param coding the code {@link Coding} to check
-   * @return <code>true</code> if the specified code {@link Coding} matches one of the {@link
-   *     #drgCodes} entries, <code>false</code> if it does not
+   * @return <code>true</code> if the specified code {@link Coding} matches one of the
+   *     SAMHSA-related DRG {@link SamhsaCodes}, <code>false</code> if it does not
    */
   private boolean isSamhsaDrgCode(Coding coding) {
     if (!SamhsaMatcher.DRG.equals(coding.getSystem())) throw new IllegalArgumentException();
 
     // Per the CCW Codebook DRG codes in the CCW are already normalized to the 3
     // digit code.
-    return drgCodes.contains(coding.getCode());
-  }
-
-  /**
-   * Example input: MS-DRG 522 Example output: 522
-   *
-   * @param code
-   * @return the specified DRG code, but with the "MS-DRG" prefix and space removed.
-   */
-  private static String normalizeDrgCode(String code) {
-    code = code.trim();
-    code = code.replace("MS-DRG ", "");
-    return code;
+    return samhsaCodes.isSamhsaDrgCode(coding.getCode());
   }
 
   /**
    * @param diagnosisCoding the diagnosis {@link Coding} to check
-   * @return <code>true</code> if the specified diagnosis {@link Coding} matches one of the {@link
-   *     #icd10DiagnosisCodes} entries, <code>false</code> if it does not
+   * @return <code>true</code> if the specified diagnosis {@link Coding} matches one of the
+   *     SAMHSA-related ICD-10 diagnosis {@link SamhsaCodes}, <code>false</code> if it does not
    */
   private boolean isSamhsaIcd10Diagnosis(Coding diagnosisCoding) {
     if (!IcdCode.CODING_SYSTEM_ICD_10.equals(diagnosisCoding.getSystem()))
       throw new IllegalArgumentException();
 
-    /*
-     * Note: per XXX all codes in icd10DiagnosisCodes are already normalized.
-     */
-    return icd10DiagnosisCodes.contains(normalizeIcd10Code(diagnosisCoding.getCode()));
+    return samhsaCodes.isSamhsaIcd10Diagnosis(diagnosisCoding.getCode());
   }
 
   private boolean isSamhsaIcd10Procedure(Coding coding) {
     if (!IcdCode.CODING_SYSTEM_ICD_10.equals(coding.getSystem()))
       throw new IllegalArgumentException();
 
-    return icd10ProcedureCodes.contains(normalizeIcd10Code(coding.getCode()));
-  }
-
-  /**
-   * @param icd10DiagnosisCode the ICD-10 diagnosis code to normalize
-   * @return the specified ICD-10 code, but with whitespace trimmed, the first (if any) decimal
-   *     point removed, and converted to all-caps
-   */
-  private static String normalizeIcd10Code(String icd10DiagnosisCode) {
-    icd10DiagnosisCode = icd10DiagnosisCode.trim();
-    icd10DiagnosisCode = icd10DiagnosisCode.replaceFirst("\\.", "");
-    icd10DiagnosisCode = icd10DiagnosisCode.toUpperCase();
-
-    return icd10DiagnosisCode;
+    return samhsaCodes.isSamhsaIcd10Procedure(coding.getCode());
   }
 
   /**
    * @param procedureConcept the procedure {@link CodeableConcept} to check
    * @return <code>true</code> if the specified procedure {@link CodeableConcept} contains any
-   *     {@link Coding}s that match any of the {@link #cptCodes}, <code>false</code> if they all do
-   *     not
+   *     {@link Coding}s that match any of the SAMHSA-related CPT {@link SamhsaCodes}, <code>false
+   *     </code> if they all do not
    */
   private boolean containsSamhsaProcedureCode(CodeableConcept procedureConcept) {
     for (Coding procedureCoding : procedureConcept.getCoding()) {
@@ -506,8 +383,8 @@ public final class SamhsaMatcher implements Predicate<ExplanationOfBenefit> {
 
   /**
    * @param procedureCoding the procedure {@link Coding} to check
-   * @return <code>true</code> if the specified procedure {@link Coding} matches one of the {@link
-   *     #cptCodes} entries, <code>false</code> if it does not
+   * @return <code>true</code> if the specified procedure {@link Coding} matches one of the
+   *     SAMHSA-related CPT {@link SamhsaCodes}, <code>false</code> if it does not
    */
   private boolean isSamhsaCptCode(Coding procedureCoding) {
     /*
@@ -517,20 +394,6 @@ public final class SamhsaMatcher implements Predicate<ExplanationOfBenefit> {
     if (!TransformerConstants.CODING_SYSTEM_HCPCS.equals(procedureCoding.getSystem()))
       throw new IllegalArgumentException();
 
-    /*
-     * Note: per XXX all codes in icd10DiagnosisCodes are already normalized.
-     */
-    return cptCodes.contains(normalizeHcpcsCode(procedureCoding.getCode()));
-  }
-
-  /**
-   * @param hcpcsCode the HCPCS code to normalize
-   * @return the specified HCPCS code, but with whitespace trimmed and converted to all-caps
-   */
-  private static String normalizeHcpcsCode(String hcpcsCode) {
-    hcpcsCode = hcpcsCode.trim();
-    hcpcsCode = hcpcsCode.toUpperCase();
-
-    return hcpcsCode;
+    return samhsaCodes.isSamhsaCptCode(procedureCoding.getCode());
   }
 }
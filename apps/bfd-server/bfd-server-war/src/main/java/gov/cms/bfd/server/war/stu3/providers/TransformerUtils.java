@@ -3055,6 +3055,39 @@ public final class TransformerUtils {
     return bundle;
   }
 
+  /**
+   * Create a bundle for a single page of a search result, when the paging was done by the database
+   * rather than in memory
+   *
+   * @param paging contains the {@link OffsetLinkBuilder} information
+   * @param pageResources a list of {@link ExplanationOfBenefit}s, {@link Coverage}s, or {@link
+   *     Patient}s on the requested page, all of which will be added to the bundle
+   * @param total the number of resources in the entire search result
+   * @param maxLastUpdated the latest lastUpdated timestamp of the resources in the entire search
+   *     result, or {@link Optional#empty()} if it's empty
+   * @param transactionTime date for the bundle
+   * @return Returns a {@link Bundle} of either {@link ExplanationOfBenefit}s, {@link Coverage}s, or
+   *     {@link Patient}s, which may contain multiple matching resources, or may also be empty.
+   */
+  public static Bundle createBundle(
+      OffsetLinkBuilder paging,
+      List<IBaseResource> pageResources,
+      int total,
+      Optional<Date> maxLastUpdated,
+      Date transactionTime) {
+    Bundle bundle = new Bundle();
+    bundle = TransformerUtils.addResourcesToBundle(bundle, pageResources);
+    paging.setTotal(total).addLinks(bundle);
+
+    // See the Dev Note in createBundle(OffsetLinkBuilder, List, Date) about this timestamp.
+    Date maxBundleDate = maxLastUpdated.orElse(transactionTime);
+    bundle
+        .getMeta()
+        .setLastUpdated(transactionTime.after(maxBundleDate) ? transactionTime : maxBundleDate);
+    bundle.setTotal(total);
+    return bundle;
+  }
+
   /**
    * Create a bundle from the entire search result
    *
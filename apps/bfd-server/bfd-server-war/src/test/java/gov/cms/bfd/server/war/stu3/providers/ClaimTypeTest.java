@@ -9,6 +9,8 @@ import gov.cms.bfd.model.rif.InpatientClaim;
 import gov.cms.bfd.model.rif.OutpatientClaim;
 import gov.cms.bfd.model.rif.PartDEvent;
 import gov.cms.bfd.model.rif.SNFClaim;
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
 import java.time.LocalDate;
 import java.util.EnumSet;
 import java.util.Map;
@@ -17,11 +19,12 @@ import org.junit.Test;
 
 public final class ClaimTypeTest {
   /**
-   * Verifies that our service end date function is working as expected. Since we are type casting
-   * our claim object, we need to verify that every ClaimType is tested.
+   * Verifies that each {@link ClaimType#getEntityServiceEndAttribute()} is the JPA metamodel
+   * attribute for its claim's service end date. We need to verify that every ClaimType is tested.
    */
   @Test
-  public void verifyServiceEndAttributeFunc() {
+  public void verifyEntityServiceEndAttribute()
+      throws ReflectiveOperationException, IntrospectionException {
     LocalDate start = LocalDate.now();
     LocalDate end = start.plusDays(10);
 
@@ -76,14 +79,22 @@ public final class ClaimTypeTest {
                     String.format("ClaimType %s not tested", claimType.name()),
                     claimTypeToClaim.containsKey(claimType)));
 
-    claimTypeToClaim
-        .entrySet()
-        .forEach(
-            entry ->
-                Assert.assertEquals(
-                    String.format(
-                        "Claim type %s does not match expectations", entry.getKey().name()),
-                    end,
-                    entry.getKey().getServiceEndAttributeFunction().apply(entry.getValue())));
+    for (Map.Entry<ClaimType, Object> entry : claimTypeToClaim.entrySet()) {
+      ClaimType claimType = entry.getKey();
+      String attributeName = claimType == ClaimType.PDE ? "prescriptionFillDate" : "dateThrough";
+
+      // The static metamodel is only populated once JPA has started up, so compare to its field.
+      Class<?> metamodelClass = Class.forName(claimType.getEntityClass().getName() + "_");
+      Assert.assertSame(
+          String.format("Claim type %s does not match expectations", claimType.name()),
+          metamodelClass.getField(attributeName).get(null),
+          claimType.getEntityServiceEndAttribute());
+      Assert.assertEquals(
+          String.format("Claim type %s does not match expectations", claimType.name()),
+          end,
+          new PropertyDescriptor(attributeName, claimType.getEntityClass())
+              .getReadMethod()
+              .invoke(entry.getValue()));
+    }
   }
 }
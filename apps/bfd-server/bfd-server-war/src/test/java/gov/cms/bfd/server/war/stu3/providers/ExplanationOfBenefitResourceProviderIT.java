@@ -1215,6 +1215,63 @@ public final class ExplanationOfBenefitResourceProviderIT {
         .execute();
   }
 
+  /**
+   * Verifies that {@link
+   * gov.cms.bfd.server.war.stu3.providers.ExplanationOfBenefitResourceProvider#findByPatient}
+   * returns the same results, in the same order and with the same bundle timestamp, when paging
+   * through them (which only loads the claims on each page) as when they're all requested at once.
+   *
+   * @throws FHIRException (indicates test failure)
+   */
+  @Test
+  public void searchForEobsByExistingPatientWithPagingMatchesUnpaged() throws FHIRException {
+    List<Object> loadedRecords =
+        ServerTestUtils.loadData(Arrays.asList(StaticRifResourceGroup.SAMPLE_A.getResources()));
+    IGenericClient fhirClient = ServerTestUtils.createFhirClient();
+
+    Beneficiary beneficiary =
+        loadedRecords.stream()
+            .filter(r -> r instanceof Beneficiary)
+            .map(r -> (Beneficiary) r)
+            .findFirst()
+            .get();
+
+    Bundle unpagedResults =
+        fhirClient
+            .search()
+            .forResource(ExplanationOfBenefit.class)
+            .where(ExplanationOfBenefit.PATIENT.hasId(TransformerUtils.buildPatientId(beneficiary)))
+            .returnBundle(Bundle.class)
+            .execute();
+    List<String> unpagedIds =
+        unpagedResults.getEntry().stream()
+            .map(e -> e.getResource().getIdElement().getIdPart())
+            .collect(Collectors.toList());
+
+    Bundle searchResults =
+        fhirClient
+            .search()
+            .forResource(ExplanationOfBenefit.class)
+            .where(ExplanationOfBenefit.PATIENT.hasId(TransformerUtils.buildPatientId(beneficiary)))
+            .count(3)
+            .returnBundle(Bundle.class)
+            .execute();
+    Assert.assertEquals(unpagedResults.getTotal(), searchResults.getTotal());
+    Assert.assertEquals(
+        unpagedResults.getMeta().getLastUpdated(), searchResults.getMeta().getLastUpdated());
+
+    List<String> pagedIds = new ArrayList<>();
+    searchResults.getEntry().forEach(e -> pagedIds.add(e.getResource().getIdElement().getIdPart()));
+    while (searchResults.getLink(Constants.LINK_NEXT) != null) {
+      searchResults = fhirClient.loadPage().next(searchResults).execute();
+      Assert.assertEquals(unpagedResults.getTotal(), searchResults.getTotal());
+      searchResults
+          .getEntry()
+          .forEach(e -> pagedIds.add(e.getResource().getIdElement().getIdPart()));
+    }
+    Assert.assertEquals(unpagedIds, pagedIds);
+  }
+
   /**
    * Verifies that {@link
    * gov.cms.bfd.server.war.stu3.providers.ExplanationOfBenefitResourceProvider#findByPatient(ca.uhn.fhir.rest.param.ReferenceParam)}
@@ -1286,12 +1343,41 @@ public final class ExplanationOfBenefitResourceProviderIT {
   /**
    * Verifies that {@link
    * gov.cms.bfd.server.war.stu3.providers.ExplanationOfBenefitResourceProvider#findByPatient(ca.uhn.fhir.rest.param.ReferenceParam)}
-   * with <code>excludeSAMHSA=true</code> properly filters out SAMHSA-related claims.
+   * with <code>excludeSAMHSA=true</code> properly filters out SAMHSA-related claims, which were
+   * flagged as such when they were loaded.
    *
    * @throws FHIRException (indicates test failure)
    */
   @Test
   public void searchForEobsWithSamhsaFiltering() throws FHIRException {
+    String beneficiaryId = loadSampleAWithSamhsaClaims(true);
+    assertSamhsaClaimsExcluded(beneficiaryId);
+  }
+
+  /**
+   * Verifies that {@link
+   * gov.cms.bfd.server.war.stu3.providers.ExplanationOfBenefitResourceProvider#findByPatient(ca.uhn.fhir.rest.param.ReferenceParam)}
+   * with <code>excludeSAMHSA=true</code> properly filters out SAMHSA-related claims that were
+   * loaded before they were flagged as such (and so have a <code>null</code> flag), for both paged
+   * and unpaged searches.
+   *
+   * @throws FHIRException (indicates test failure)
+   */
+  @Test
+  public void searchForEobsWithSamhsaFilteringOfUnflaggedClaims() throws FHIRException {
+    String beneficiaryId = loadSampleAWithSamhsaClaims(null);
+    assertSamhsaClaimsExcluded(beneficiaryId);
+  }
+
+  /**
+   * Loads {@link StaticRifResourceGroup#SAMPLE_A}, and then tweaks all of its claims (other than
+   * the DME and Part D ones) such that they're SAMHSA-related.
+   *
+   * @param samhsaRelated the <code>samhsaRelated</code> flag to set on the tweaked claims, where
+   *     <code>null</code> simulates claims loaded before that flag was introduced
+   * @return the ID of the beneficiary that the claims are for
+   */
+  private static String loadSampleAWithSamhsaClaims(Boolean samhsaRelated) {
     // Load the SAMPLE_A resources normally.
     List<Object> loadedRecords =
         ServerTestUtils.loadData(Arrays.asList(StaticRifResourceGroup.SAMPLE_A.getResources()));
@@ -1316,6 +1402,7 @@ public final class ExplanationOfBenefitResourceProviderIT {
       carrierRifRecord.setDiagnosis2Code(
           Optional.of(SamhsaMatcherTest.SAMPLE_SAMHSA_ICD_9_DIAGNOSIS_CODE));
       carrierRifRecord.setDiagnosis2CodeVersion(Optional.of('9'));
+      carrierRifRecord.setSamhsaRelated(samhsaRelated);
       entityManager.merge(carrierRifRecord);
       entityManager.getTransaction().commit();
 
@@ -1333,6 +1420,7 @@ public final class ExplanationOfBenefitResourceProviderIT {
       inpatientRifRecord.setDiagnosis2Code(
           Optional.of(SamhsaMatcherTest.SAMPLE_SAMHSA_ICD_9_DIAGNOSIS_CODE));
       inpatientRifRecord.setDiagnosis2CodeVersion(Optional.of('9'));
+      inpatientRifRecord.setSamhsaRelated(samhsaRelated);
       entityManager.merge(inpatientRifRecord);
       entityManager.getTransaction().commit();
 
@@ -1350,6 +1438,7 @@ public final class ExplanationOfBenefitResourceProviderIT {
       outpatientRifRecord.setDiagnosis2Code(
           Optional.of(SamhsaMatcherTest.SAMPLE_SAMHSA_ICD_9_DIAGNOSIS_CODE));
       outpatientRifRecord.setDiagnosis2CodeVersion(Optional.of('9'));
+      outpatientRifRecord.setSamhsaRelated(samhsaRelated);
       entityManager.merge(outpatientRifRecord);
       entityManager.getTransaction().commit();
 
@@ -1366,6 +1455,7 @@ public final class ExplanationOfBenefitResourceProviderIT {
       hhaRifRecord.setDiagnosis2Code(
           Optional.of(SamhsaMatcherTest.SAMPLE_SAMHSA_ICD_9_DIAGNOSIS_CODE));
       hhaRifRecord.setDiagnosis2CodeVersion(Optional.of('9'));
+      hhaRifRecord.setSamhsaRelated(samhsaRelated);
       entityManager.merge(hhaRifRecord);
       entityManager.getTransaction().commit();
 
@@ -1382,6 +1472,7 @@ public final class ExplanationOfBenefitResourceProviderIT {
       hospiceRifRecord.setDiagnosis2Code(
           Optional.of(SamhsaMatcherTest.SAMPLE_SAMHSA_ICD_9_DIAGNOSIS_CODE));
       hospiceRifRecord.setDiagnosis2CodeVersion(Optional.of('9'));
+      hospiceRifRecord.setSamhsaRelated(samhsaRelated);
       entityManager.merge(hospiceRifRecord);
       entityManager.getTransaction().commit();
 
@@ -1398,6 +1489,7 @@ public final class ExplanationOfBenefitResourceProviderIT {
       snfRifRecord.setDiagnosis2Code(
           Optional.of(SamhsaMatcherTest.SAMPLE_SAMHSA_ICD_9_DIAGNOSIS_CODE));
       snfRifRecord.setDiagnosis2CodeVersion(Optional.of('9'));
+      snfRifRecord.setSamhsaRelated(samhsaRelated);
       entityManager.merge(snfRifRecord);
       entityManager.getTransaction().commit();
     } finally {
@@ -1406,6 +1498,16 @@ public final class ExplanationOfBenefitResourceProviderIT {
       if (entityManagerFactory != null) entityManagerFactory.close();
     }
 
+    return carrierRifRecord.getBeneficiaryId();
+  }
+
+  /**
+   * Verifies that searches with <code>excludeSAMHSA=true</code> for the claims loaded by {@link
+   * #loadSampleAWithSamhsaClaims(Boolean)} only return the non-SAMHSA-related ones.
+   *
+   * @param beneficiaryId the ID of the beneficiary to search for the claims of
+   */
+  private static void assertSamhsaClaimsExcluded(String beneficiaryId) {
     IGenericClient fhirClient = ServerTestUtils.createFhirClient();
 
     Bundle searchResults =
@@ -1413,8 +1515,7 @@ public final class ExplanationOfBenefitResourceProviderIT {
             .search()
             .forResource(ExplanationOfBenefit.class)
             .where(
-                ExplanationOfBenefit.PATIENT.hasId(
-                    TransformerUtils.buildPatientId(carrierRifRecord.getBeneficiaryId())))
+                ExplanationOfBenefit.PATIENT.hasId(TransformerUtils.buildPatientId(beneficiaryId)))
             .and(new StringClientParam("excludeSAMHSA").matches().value("true"))
             .returnBundle(Bundle.class)
             .execute();
@@ -1442,6 +1543,25 @@ public final class ExplanationOfBenefitResourceProviderIT {
         Assert.assertEquals(1, filterToClaimType(searchResults, claimType).size());
       else Assert.assertEquals(1, filterToClaimType(searchResults, claimType).size());
     }
+
+    // Paged searches should exclude the same claims, and not count them in the total.
+    Bundle pagedSearchResults =
+        fhirClient
+            .search()
+            .forResource(ExplanationOfBenefit.class)
+            .where(
+                ExplanationOfBenefit.PATIENT.hasId(TransformerUtils.buildPatientId(beneficiaryId)))
+            .and(new StringClientParam("excludeSAMHSA").matches().value("true"))
+            .count(1)
+            .returnBundle(Bundle.class)
+            .execute();
+    Assert.assertNotNull(pagedSearchResults);
+    Assert.assertEquals(2, pagedSearchResults.getTotal());
+    Assert.assertEquals(1, pagedSearchResults.getEntry().size());
+    ClaimType pagedClaimType =
+        TransformerUtils.getClaimType(
+            (ExplanationOfBenefit) pagedSearchResults.getEntry().get(0).getResource());
+    Assert.assertTrue(pagedClaimType == ClaimType.DME || pagedClaimType == ClaimType.PDE);
   }
 
   /**
@@ -1675,6 +1795,19 @@ public final class ExplanationOfBenefitResourceProviderIT {
           Assert.assertNotNull(bundle);
           Assert.assertEquals(
               testCase.getLeft(), testCase.getRight().intValue(), bundle.getTotal());
+
+          // Paged searches filter by service date in their (separate) key queries.
+          Bundle pagedBundle =
+              fetchWithServiceDate(
+                  fhirClient,
+                  beneficiary.getBeneficiaryId(),
+                  testCase.getMiddle() + (testCase.getMiddle().isEmpty() ? "" : "&") + "_count=3");
+          Assert.assertEquals(
+              testCase.getLeft() + " (paged)",
+              testCase.getRight().intValue(),
+              pagedBundle.getTotal());
+          Assert.assertEquals(
+              Math.min(3, testCase.getRight().intValue()), pagedBundle.getEntry().size());
         });
   }
 
@@ -5,6 +5,8 @@ import gov.cms.bfd.model.rif.LoadedBatch;
 import gov.cms.bfd.model.rif.LoadedFile;
 import gov.cms.bfd.server.war.commons.LoadedFileFilter;
 import gov.cms.bfd.server.war.commons.LoadedFilterManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
@@ -13,6 +15,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import org.apache.spark.util.sketch.BloomFilter;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Rule;
@@ -68,6 +71,69 @@ public final class LoadedFilterManagerTest {
     Assert.assertFalse(filters.get(0).mightContain(INVALID_BENE));
   }
 
+  @Test
+  public void buildPublishedFilter() throws IOException {
+    final String publishedBene = "999";
+    final BloomFilter publishedFilter = LoadedFileFilter.createFilter(1);
+    publishedFilter.putString(publishedBene);
+    final ByteArrayOutputStream serializedFilter = new ByteArrayOutputStream();
+    publishedFilter.writeTo(serializedFilter);
+
+    final MockDb mockDb =
+        new MockDb()
+            .insert(1, preDates[0])
+            .insert(2, preDates[10])
+            .insert(preBatches[0], preBatches[2]);
+    mockDb.fetchAllFiles().get(0).setBeneficiaryFilter(serializedFilter.toByteArray());
+    mockDb.fetchAllFiles().get(0).setBeneficiaryFilterBatches(3);
+    final List<LoadedFileFilter> filters =
+        LoadedFilterManager.buildFilters(
+            mockDb.fetchAllTuples(), mockDb::fetchFileById, mockDb::fetchByIdSince);
+    Assert.assertEquals(2, filters.size());
+
+    // Filters are sorted newest first, so the first file's filter comes last
+    // The first file's published filter is used, rather than its batches
+    Assert.assertEquals(1, filters.get(1).getLoadedFileId());
+    Assert.assertEquals(3, filters.get(1).getBatchesCount());
+    Assert.assertEquals(preBatches[0].getCreated(), filters.get(1).getLastUpdated());
+    Assert.assertTrue(filters.get(1).mightContain(publishedBene));
+
+    // The second file hasn't published a filter, so its batches are used
+    Assert.assertEquals(2, filters.get(0).getLoadedFileId());
+    Assert.assertEquals(1, filters.get(0).getBatchesCount());
+    Assert.assertTrue(filters.get(0).mightContain(SAMPLE_BENE));
+  }
+
+  @Test
+  public void buildPartiallyPublishedFilter() throws IOException {
+    final String publishedBene = "999";
+    final String laterBene = "777";
+    final BloomFilter publishedFilter = LoadedFileFilter.createFilter(1);
+    publishedFilter.putString(publishedBene);
+    final ByteArrayOutputStream serializedFilter = new ByteArrayOutputStream();
+    publishedFilter.writeTo(serializedFilter);
+
+    // The filter was published mid-load, before the batch created at its watermark was committed
+    final LoadedBatch laterBatch =
+        new LoadedBatch(100, 1, Collections.singletonList(laterBene), preDates[6]);
+    final MockDb mockDb = new MockDb().insert(1, preDates[0]).insert(preBatches[0], laterBatch);
+    final LoadedFile loadedFile = mockDb.fetchAllFiles().get(0);
+    loadedFile.setBeneficiaryFilter(serializedFilter.toByteArray());
+    loadedFile.setBeneficiaryFilterBatches(1);
+    loadedFile.setBeneficiaryFilterWatermark(preDates[6]);
+    final List<LoadedFileFilter> filters =
+        LoadedFilterManager.buildFilters(
+            mockDb.fetchAllTuples(), mockDb::fetchFileById, mockDb::fetchByIdSince);
+    Assert.assertEquals(1, filters.size());
+
+    // Only the batch from the watermark on is added to the published filter
+    Assert.assertEquals(2, filters.get(0).getBatchesCount());
+    Assert.assertEquals(laterBatch.getCreated(), filters.get(0).getLastUpdated());
+    Assert.assertTrue(filters.get(0).mightContain(publishedBene));
+    Assert.assertTrue(filters.get(0).mightContain(laterBene));
+    Assert.assertFalse(filters.get(0).mightContain(SAMPLE_BENE));
+  }
+
   @Test
   public void buildManyFilter() {
     final MockDb mockDb =
@@ -240,6 +306,16 @@ public final class LoadedFilterManagerTest {
           .collect(Collectors.toList());
     }
 
+    List<LoadedBatch> fetchByIdSince(Long loadedFiledId, Date since) {
+      return fetchById(loadedFiledId).stream()
+          .filter(b -> since == null || !b.getCreated().before(since))
+          .collect(Collectors.toList());
+    }
+
+    Optional<LoadedFile> fetchFileById(Long loadedFileId) {
+      return files.stream().filter(f -> f.getLoadedFileId() == loadedFileId).findFirst();
+    }
+
     List<LoadedFile> fetchAllFiles() {
       return files;
     }
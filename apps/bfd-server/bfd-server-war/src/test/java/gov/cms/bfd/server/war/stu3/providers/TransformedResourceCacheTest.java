@@ -0,0 +1,141 @@
+package gov.cms.bfd.server.war.stu3.providers;
+
+import com.codahale.metrics.MetricRegistry;
+import gov.cms.bfd.server.war.commons.LoadedFileFilter;
+import gov.cms.bfd.server.war.commons.TransformedResourceCache;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.spark.util.sketch.BloomFilter;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link gov.cms.bfd.server.war.commons.TransformedResourceCache}. */
+public final class TransformedResourceCacheTest {
+  private static final String BENE_A = "567834";
+  private static final String BENE_B = "567835";
+
+  /**
+   * Verifies that a cached resource is returned (shared, but separate from the one returned by the
+   * miss) for the same key, and that a different <code>lastUpdated</code> or variant misses.
+   */
+  @Test
+  public void cachesByKey() {
+    TransformedResourceCache cache = new TransformedResourceCache(1000, new MetricRegistry());
+    AtomicInteger transforms = new AtomicInteger(0);
+    Date lastUpdated = new Date();
+
+    Patient first =
+        cache.get(key(BENE_A, lastUpdated), BENE_A, () -> transform(BENE_A, transforms));
+    Patient second =
+        cache.get(key(BENE_A, lastUpdated), BENE_A, () -> transform(BENE_A, transforms));
+    Assert.assertEquals(1, transforms.get());
+    Assert.assertNotSame(first, second);
+    Assert.assertTrue(first.equalsDeep(second));
+
+    // Modifying the newly-transformed resource mustn't affect the cached one, which is shared.
+    first.getNameFirstRep().setFamily("Changed");
+    Patient third =
+        cache.get(key(BENE_A, lastUpdated), BENE_A, () -> transform(BENE_A, transforms));
+    Assert.assertSame(second, third);
+    Assert.assertEquals("Doe", third.getNameFirstRep().getFamily());
+
+    cache.get(
+        key(BENE_A, new Date(lastUpdated.getTime() + 1)),
+        BENE_A,
+        () -> transform(BENE_A, transforms));
+    cache.get(
+        new TransformedResourceCache.Key("Patient", BENE_A, "mbi", lastUpdated),
+        BENE_A,
+        () -> transform(BENE_A, transforms));
+    Assert.assertEquals(3, transforms.get());
+  }
+
+  /**
+   * Verifies that {@link TransformedResourceCache#invalidate(java.util.List)} only evicts the
+   * resources of the beneficiaries in the filters.
+   */
+  @Test
+  public void invalidatesFilteredBeneficiaries() {
+    TransformedResourceCache cache = new TransformedResourceCache(1000, new MetricRegistry());
+    AtomicInteger transforms = new AtomicInteger(0);
+    Date lastUpdated = new Date();
+    cache.get(key(BENE_A, lastUpdated), BENE_A, () -> transform(BENE_A, transforms));
+    cache.get(
+        new TransformedResourceCache.Key("Patient", BENE_A, "mbi", lastUpdated),
+        BENE_A,
+        () -> transform(BENE_A, transforms));
+    cache.get(key(BENE_B, lastUpdated), BENE_B, () -> transform(BENE_B, transforms));
+    Assert.assertEquals(3, cache.size());
+
+    BloomFilter bloomFilter = LoadedFileFilter.createFilter(10);
+    bloomFilter.putString(BENE_A);
+    cache.invalidate(
+        Collections.singletonList(
+            new LoadedFileFilter(1, 1, lastUpdated, lastUpdated, bloomFilter)));
+    Assert.assertEquals(1, cache.size());
+
+    cache.get(key(BENE_A, lastUpdated), BENE_A, () -> transform(BENE_A, transforms));
+    cache.get(key(BENE_B, lastUpdated), BENE_B, () -> transform(BENE_B, transforms));
+    Assert.assertEquals(4, transforms.get());
+  }
+
+  /**
+   * Verifies that resources evicted for size are no longer invalidated, and that those cached again
+   * afterwards still are.
+   */
+  @Test
+  public void invalidatesAfterEviction() {
+    TransformedResourceCache cache = new TransformedResourceCache(1, new MetricRegistry());
+    AtomicInteger transforms = new AtomicInteger(0);
+    Date lastUpdated = new Date();
+    cache.get(key(BENE_A, lastUpdated), BENE_A, () -> transform(BENE_A, transforms));
+    cache.get(key(BENE_B, lastUpdated), BENE_B, () -> transform(BENE_B, transforms));
+    cache.get(key(BENE_A, lastUpdated), BENE_A, () -> transform(BENE_A, transforms));
+    Assert.assertEquals(1, cache.size());
+    Assert.assertEquals(3, transforms.get());
+
+    BloomFilter bloomFilter = LoadedFileFilter.createFilter(10);
+    bloomFilter.putString(BENE_A);
+    bloomFilter.putString(BENE_B);
+    cache.invalidate(
+        Collections.singletonList(
+            new LoadedFileFilter(1, 1, lastUpdated, lastUpdated, bloomFilter)));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  /** Verifies that a <code>maxWeight</code> of <code>0</code> disables caching. */
+  @Test
+  public void disabledWithZeroWeight() {
+    TransformedResourceCache cache = new TransformedResourceCache(0, new MetricRegistry());
+    AtomicInteger transforms = new AtomicInteger(0);
+    Date lastUpdated = new Date();
+    cache.get(key(BENE_A, lastUpdated), BENE_A, () -> transform(BENE_A, transforms));
+    cache.get(key(BENE_A, lastUpdated), BENE_A, () -> transform(BENE_A, transforms));
+    Assert.assertEquals(2, transforms.get());
+    Assert.assertEquals(0, cache.size());
+  }
+
+  /**
+   * @param beneficiaryId the beneficiary ID to use
+   * @param lastUpdated the <code>lastUpdated</code> timestamp to use
+   * @return a {@link TransformedResourceCache.Key} for the specified beneficiary's {@link Patient}
+   */
+  private static TransformedResourceCache.Key key(String beneficiaryId, Date lastUpdated) {
+    return new TransformedResourceCache.Key("Patient", beneficiaryId, "", lastUpdated);
+  }
+
+  /**
+   * @param beneficiaryId the beneficiary ID to use
+   * @param transforms the counter to increment
+   * @return a simple {@link Patient} for the specified beneficiary
+   */
+  private static Patient transform(String beneficiaryId, AtomicInteger transforms) {
+    transforms.incrementAndGet();
+    Patient patient = new Patient();
+    patient.setId(beneficiaryId);
+    patient.addName().setFamily("Doe").addGiven("Jane");
+    return patient;
+  }
+}